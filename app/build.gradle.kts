@@ -15,10 +15,23 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // SyncHost: appointment sync endpoint ("" = sync off)
+        buildConfigField("String", "SYNC_URL", "\"\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
+        debug {
+            // AppLog: every level can be turned on at run time
+            buildConfigField("int", "LOG_MIN_LEVEL", "2")
+        }
         release {
+            // AppLog: VERBOSE / DEBUG calls are compiled out
+            buildConfigField("int", "LOG_MIN_LEVEL", "4")
             isMinifyEnabled = false
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
@@ -27,6 +40,8 @@ android {
         }
     }
     compileOptions {
+        // java.time on minSdk 24 (AppointmentTimeEngine)
+        isCoreLibraryDesugaringEnabled = true
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
@@ -37,8 +52,11 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
     implementation("com.google.firebase:firebase-auth:22.3.1")
+    coreLibraryDesugaring(libs.desugar.jdk.libs)
     testImplementation(libs.junit)
+    testImplementation(libs.sqlite.jdbc)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
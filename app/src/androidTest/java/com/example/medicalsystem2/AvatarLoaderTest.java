@@ -0,0 +1,182 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented measurement on a 48 MP (8000 x 6000) JPEG: janky frames and peak heap
+ * while the avatar is decoded, old path (full decode on the main thread, what
+ * setImageURI did) vs AvatarLoader (sampled decode on its own thread).
+ */
+@RunWith(AndroidJUnit4.class)
+public class AvatarLoaderTest {
+
+    private static final String TAG = "AvatarLoader";
+    private static final int AVATAR_PX = 150;       // 50dp on a xxhdpi phone
+    private static final long FRAME_BUDGET_NANOS = 16_666_667L;
+
+    private static File photo;
+
+    @BeforeClass
+    public static void writePhoto() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        photo = new File(context.getCacheDir(), "avatar_48mp.jpg");
+        Bitmap bitmap;
+        try {
+            bitmap = Bitmap.createBitmap(8000, 6000, Bitmap.Config.RGB_565);
+        } catch (OutOfMemoryError e) {
+            Assume.assumeNoException("Not enough memory to create the 48 MP test photo", e);
+            return;
+        }
+        bitmap.eraseColor(Color.rgb(40, 120, 200));
+        try (OutputStream out = new FileOutputStream(photo)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        }
+        bitmap.recycle();
+    }
+
+    @AfterClass
+    public static void deletePhoto() {
+        if (photo != null) {
+            photo.delete();
+        }
+    }
+
+    @Test
+    public void sampledDecodeOffMainThreadDoesNotJank() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Uri uri = Uri.fromFile(photo);
+
+        // Old path: full-size decode on the main thread
+        FrameWatcher oldFrames = FrameWatcher.start();
+        HeapWatcher oldHeap = HeapWatcher.start();
+        AtomicLong oldBytes = new AtomicLong(-1);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            try {
+                Bitmap full = BitmapFactory.decodeFile(photo.getPath());
+                oldBytes.set(full.getByteCount());
+                full.recycle();
+            } catch (OutOfMemoryError e) {
+                Log.w(TAG, "[avatar] full decode ran out of memory");
+            }
+        });
+        SystemClock.sleep(100);
+        int oldJank = oldFrames.stop();
+        long oldPeak = oldHeap.stop();
+
+        // New path: sampled decode on a background thread
+        FrameWatcher newFrames = FrameWatcher.start();
+        HeapWatcher newHeap = HeapWatcher.start();
+        Bitmap[] decoded = new Bitmap[1];
+        Thread decoder = new Thread(() ->
+                decoded[0] = AvatarLoader.decodeSampled(context, uri, AVATAR_PX, AVATAR_PX));
+        decoder.start();
+        decoder.join();
+        SystemClock.sleep(100);
+        int newJank = newFrames.stop();
+        long newPeak = newHeap.stop();
+
+        Log.i(TAG, "[avatar] 48MP old: jank frames=" + oldJank + " peak heap +" + oldPeak / (1024 * 1024)
+                + "MB bitmap=" + oldBytes.get() / (1024 * 1024) + "MB | new: jank frames=" + newJank
+                + " peak heap +" + newPeak / 1024 + "KB bitmap="
+                + decoded[0].getWidth() + "x" + decoded[0].getHeight());
+
+        assertNotNull(decoded[0]);
+        assertTrue(decoded[0].getHeight() >= AVATAR_PX && decoded[0].getHeight() < 2 * AVATAR_PX);
+        assertTrue(newJank <= oldJank);
+        assertTrue(newPeak < 16L * 1024 * 1024);
+    }
+
+    /**
+     * Counts frames that took longer than one 60 Hz frame.
+     */
+    private static final class FrameWatcher implements Choreographer.FrameCallback {
+        private final AtomicInteger janky = new AtomicInteger();
+        private volatile boolean running = true;
+        private long lastFrameNanos;
+
+        static FrameWatcher start() {
+            FrameWatcher watcher = new FrameWatcher();
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                    Choreographer.getInstance().postFrameCallback(watcher));
+            return watcher;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (lastFrameNanos != 0 && frameTimeNanos - lastFrameNanos > FRAME_BUDGET_NANOS * 3 / 2) {
+                janky.incrementAndGet();
+            }
+            lastFrameNanos = frameTimeNanos;
+            if (running) {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        int stop() {
+            running = false;
+            return janky.get();
+        }
+    }
+
+    /**
+     * Samples Java + native heap (bitmap pixels live in the native heap since Android 8).
+     */
+    private static final class HeapWatcher extends Thread {
+        private final long baseline = used();
+        private final AtomicLong peak = new AtomicLong();
+        private volatile boolean running = true;
+
+        static HeapWatcher start() {
+            HeapWatcher watcher = new HeapWatcher();
+            watcher.start();
+            return watcher;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long grown = used() - baseline;
+                if (grown > peak.get()) {
+                    peak.set(grown);
+                }
+                SystemClock.sleep(2);
+            }
+        }
+
+        long stop() throws InterruptedException {
+            running = false;
+            join();
+            return peak.get();
+        }
+
+        private static long used() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.medicalsystem2;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented scroll benchmark: Home's top rated RecyclerView with 1,000 doctors,
+ * flung from the first to the last card. Janky frames = frames over the 60 Hz budget
+ * (FrameMetrics.TOTAL_DURATION).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DoctorListScrollTest {
+
+    private static final String TAG = "DoctorListScroll";
+    private static final int DOCTORS = 1_000;
+    private static final long FRAME_BUDGET_NANOS = 16_666_667L;
+
+    @Test
+    public void scrollThousandDoctorsReportsJank() {
+        List<Doctor> doctors = new ArrayList<>(DOCTORS);
+        for (int i = 1; i <= DOCTORS; i++) {
+            doctors.add(new Doctor(i, "Dr. Doctor " + i, "Cardiologist", "Tunis", 5.0f - i / 1000f,
+                    i % 500, 20, DoctorStatusMachine.STATUS_AVAILABLE));
+        }
+
+        AtomicInteger frames = new AtomicInteger();
+        AtomicInteger janky = new AtomicInteger();
+        HandlerThread metricsThread = new HandlerThread("frame-metrics");
+        metricsThread.start();
+        Window.OnFrameMetricsAvailableListener listener = (window, metrics, dropped) -> {
+            frames.incrementAndGet();
+            if (metrics.getMetric(FrameMetrics.TOTAL_DURATION) > FRAME_BUDGET_NANOS) {
+                janky.incrementAndGet();
+            }
+        };
+
+        try (ActivityScenario<Home> scenario = ActivityScenario.launch(Home.class)) {
+            RecyclerView[] list = new RecyclerView[1];
+            scenario.onActivity(activity -> {
+                list[0] = activity.findViewById(R.id.doctorList);
+                ((DoctorAdapter) list[0].getAdapter()).submitList(doctors);
+            });
+            waitUntil(() -> list[0].getAdapter().getItemCount() == DOCTORS);
+
+            long fullBindsBefore = Metrics.counter("doctors.bind.full").get();
+            scenario.onActivity(activity -> activity.getWindow()
+                    .addOnFrameMetricsAvailableListener(listener, new Handler(metricsThread.getLooper())));
+
+            // Page through the list the way a finger would, card width at a time
+            long started = SystemClock.uptimeMillis();
+            for (int step = 0; step < 200; step++) {
+                scenario.onActivity(activity -> list[0].smoothScrollBy(list[0].getWidth(), 0));
+                SystemClock.sleep(50);
+            }
+            long scrollMillis = SystemClock.uptimeMillis() - started;
+            scenario.onActivity(activity -> activity.getWindow().removeOnFrameMetricsAvailableListener(listener));
+
+            long fullBinds = Metrics.counter("doctors.bind.full").get() - fullBindsBefore;
+            Log.i(TAG, "[doctors] " + DOCTORS + " doctors, scrolled " + scrollMillis + "ms: frames=" + frames.get()
+                    + " janky=" + janky.get() + " (" + (frames.get() == 0 ? 0 : janky.get() * 100 / frames.get())
+                    + "%) full binds=" + fullBinds);
+
+            assertTrue(frames.get() > 0);
+            // Only cards that scroll into view are bound, never the whole list at once
+            assertTrue(fullBinds < DOCTORS);
+        } finally {
+            metricsThread.quitSafely();
+        }
+    }
+
+    @Test
+    public void statusChangeRebindsOnlyThatRow() {
+        try (ActivityScenario<Home> scenario = ActivityScenario.launch(Home.class)) {
+            RecyclerView[] list = new RecyclerView[1];
+            DoctorDirectory directory = DoctorDirectory.createDefault();
+            scenario.onActivity(activity -> {
+                list[0] = activity.findViewById(R.id.doctorList);
+                ((DoctorAdapter) list[0].getAdapter()).submitList(directory.topRated(100));
+            });
+            SystemClock.sleep(500);
+
+            long fullBefore = Metrics.counter("doctors.bind.full").get();
+            long statusBefore = Metrics.counter("doctors.bind.status").get();
+            directory.updateStatus(DoctorDirectory.DEFAULT_DOCTOR, DoctorStatusMachine.STATUS_IN_CONSULTATION);
+            scenario.onActivity(activity ->
+                    ((DoctorAdapter) list[0].getAdapter()).submitList(directory.topRated(100)));
+            waitUntil(() -> Metrics.counter("doctors.bind.status").get() > statusBefore);
+
+            assertEquals(statusBefore + 1, Metrics.counter("doctors.bind.status").get());
+            assertEquals(fullBefore, Metrics.counter("doctors.bind.full").get());
+        }
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void waitUntil(Condition condition) {
+        long deadline = SystemClock.uptimeMillis() + 5_000;
+        while (!condition.met() && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(10);
+        }
+        assertTrue(condition.met());
+    }
+}
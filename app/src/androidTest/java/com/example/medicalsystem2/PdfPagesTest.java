@@ -0,0 +1,157 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.pdf.PdfDocument;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented measurement on a large scanned-report PDF (pages of incompressible
+ * "scan" pixels): open to first page on screen and peak heap, PdfPages (rendered from
+ * the file descriptor) vs reading the whole document into a byte[] first.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PdfPagesTest {
+
+    private static final String TAG = "PdfPages";
+    private static final int PAGES = 24;
+    private static final int SCAN_PX = 1400;
+    private static final int SCREEN_WIDTH_PX = 1080;
+
+    private static File pdf;
+
+    @BeforeClass
+    public static void writePdf() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        pdf = new File(context.getCacheDir(), "scanned_report.pdf");
+        PdfDocument document = new PdfDocument();
+        Random random = new Random(23);
+        int[] pixels = new int[SCAN_PX * SCAN_PX];
+        Bitmap scan = Bitmap.createBitmap(SCAN_PX, SCAN_PX, Bitmap.Config.ARGB_8888);
+        for (int i = 0; i < PAGES; i++) {
+            // A different scan on every page (identical images would be stored once)
+            for (int p = 0; p < pixels.length; p++) {
+                pixels[p] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            scan.setPixels(pixels, 0, SCAN_PX, 0, 0, SCAN_PX, SCAN_PX);
+            PdfDocument.Page page = document.startPage(new PdfDocument.PageInfo.Builder(595, 842, i + 1).create());
+            Canvas canvas = page.getCanvas();
+            canvas.scale(595f / SCAN_PX, 595f / SCAN_PX);
+            canvas.drawBitmap(scan, 0, 0, null);
+            document.finishPage(page);
+        }
+        scan.recycle();
+        try (OutputStream out = new FileOutputStream(pdf)) {
+            document.writeTo(out);
+        }
+        document.close();
+    }
+
+    @AfterClass
+    public static void deletePdf() {
+        if (pdf != null) {
+            pdf.delete();
+        }
+    }
+
+    @Test
+    public void firstPageIsRenderedWithoutLoadingTheDocument() throws Exception {
+        // Old path: the whole document onto the heap first
+        HeapWatcher wholeHeap = HeapWatcher.start();
+        long started = SystemClock.elapsedRealtimeNanos();
+        byte[] whole = new byte[(int) pdf.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(pdf))) {
+            in.readFully(whole);
+        }
+        long wholeNanos = SystemClock.elapsedRealtimeNanos() - started;
+        long wholePeak = wholeHeap.stop();
+        assertEquals(pdf.length(), whole.length);
+        whole = null;
+        Runtime.getRuntime().gc();
+
+        // New path: PdfRenderer on the file descriptor, first page at screen width
+        HeapWatcher pagesHeap = HeapWatcher.start();
+        started = SystemClock.elapsedRealtimeNanos();
+        Bitmap first;
+        int pageCount;
+        try (PdfPages pages = PdfPages.open(pdf)) {
+            pageCount = pages.pageCount();
+            first = pages.render(0, SCREEN_WIDTH_PX);
+            long firstPageNanos = SystemClock.elapsedRealtimeNanos() - started;
+            // Next pages reuse the two page bitmaps
+            for (int i = 1; i < pageCount; i++) {
+                pages.render(i, SCREEN_WIDTH_PX);
+            }
+            long pagesPeak = pagesHeap.stop();
+
+            Log.i(TAG, "[pdf] " + pdf.length() / (1024 * 1024) + "MB, " + pageCount + " pages | read whole: "
+                    + wholeNanos / 1_000_000 + "ms (first page not even drawn yet), peak heap +"
+                    + wholePeak / (1024 * 1024) + "MB | PdfPages: first page " + firstPageNanos / 1_000_000
+                    + "ms, peak heap +" + pagesPeak / (1024 * 1024) + "MB over all pages, page bitmap "
+                    + first.getWidth() + "x" + first.getHeight());
+
+            assertEquals(PAGES, pageCount);
+            assertEquals(SCREEN_WIDTH_PX, first.getWidth());
+            // Two page bitmaps (~3.6 MB each at 1080 px) and the renderer, whatever the file size
+            assertTrue(pagesPeak < 24L * 1024 * 1024);
+        }
+    }
+
+    /**
+     * Samples Java + native heap (bitmap pixels live in the native heap since Android 8).
+     */
+    private static final class HeapWatcher extends Thread {
+        private final long baseline = used();
+        private final AtomicLong peak = new AtomicLong();
+        private volatile boolean running = true;
+
+        static HeapWatcher start() {
+            HeapWatcher watcher = new HeapWatcher();
+            watcher.start();
+            return watcher;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long grown = used() - baseline;
+                if (grown > peak.get()) {
+                    peak.set(grown);
+                }
+                SystemClock.sleep(2);
+            }
+        }
+
+        long stop() throws InterruptedException {
+            running = false;
+            join();
+            return Math.max(peak.get(), used() - baseline);
+        }
+
+        private static long used() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.medicalsystem2;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import androidx.test.runner.lifecycle.Stage;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented startup measurement: how long the splash stays before the next screen
+ * (Login, or Home for a signed-in user), and Home's time to first frame.
+ * The old splash always took 5 s (100 x 50 ms progress loop).
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupTimeTest {
+
+    private static final String TAG = "StartupTime";
+    private static final long OLD_SPLASH_MILLIS = 5_000;
+
+    @Test
+    public void splashLeavesWellBeforeTheOldFixedDelay() {
+        long launched = SystemClock.uptimeMillis();
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            long deadline = launched + OLD_SPLASH_MILLIS;
+            while (scenario.getState() != Lifecycle.State.DESTROYED && SystemClock.uptimeMillis() < deadline) {
+                SystemClock.sleep(10);
+            }
+            long splashMillis = SystemClock.uptimeMillis() - launched;
+
+            Log.i(TAG, "[startup] splash=" + splashMillis + "ms (old fixed splash=" + OLD_SPLASH_MILLIS + "ms) "
+                    + "pipeline " + Metrics.timer("startup.pipeline").snapshot());
+            assertEquals(Lifecycle.State.DESTROYED, scenario.getState());
+            assertTrue(splashMillis < OLD_SPLASH_MILLIS);
+        }
+        finishResumedActivities();
+    }
+
+    @Test
+    public void homeReportsTimeToFirstFrame() {
+        try (ActivityScenario<Home> scenario = ActivityScenario.launch(Home.class)) {
+            // ActivityScenario.launch returns once Home is resumed; the first frame follows
+            long deadline = SystemClock.uptimeMillis() + 2_000;
+            Metrics.Snapshot firstFrame = Metrics.timer("home.timeToFirstFrame").snapshot();
+            while (firstFrame.getCount() == 0 && SystemClock.uptimeMillis() < deadline) {
+                SystemClock.sleep(10);
+                firstFrame = Metrics.timer("home.timeToFirstFrame").snapshot();
+            }
+
+            Log.i(TAG, "[startup] Home onCreate -> first frame " + firstFrame
+                    + ", process start -> Home first frame "
+                    + Metrics.timer("startup.processToHomeFirstFrame").snapshot());
+            assertTrue(firstFrame.getCount() > 0);
+        }
+    }
+
+    // The splash opens Login / Home, which ActivityScenario does not close
+    private static void finishResumedActivities() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Collection<Activity> resumed = ActivityLifecycleMonitorRegistry.getInstance()
+                    .getActivitiesInStage(Stage.RESUMED);
+            for (Activity activity : resumed) {
+                activity.finish();
+            }
+        });
+    }
+}
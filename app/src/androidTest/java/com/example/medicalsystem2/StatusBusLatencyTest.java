@@ -0,0 +1,111 @@
+package com.example.medicalsystem2;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented latency comparison: doctor status delivered to the main thread
+ * via sendBroadcast() (old path) vs the in-process StatusBus (new path).
+ * Both are posted from a background thread, like the service's alarm callback.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StatusBusLatencyTest {
+
+    private static final String TAG = "StatusBusLatency";
+    private static final String ACTION_TEST_STATUS = "com.example.medicalsystem2.TEST_DOCTOR_STATUS";
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void busDeliversFasterThanBroadcast() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        long[] broadcastNanos = measureBroadcast(context);
+        long[] busNanos = measureBus();
+
+        long broadcastMedian = median(broadcastNanos);
+        long busMedian = median(busNanos);
+        Log.i(TAG, "[status delivery, median of " + ROUNDS + "] sendBroadcast="
+                + broadcastMedian / 1000 + "us, StatusBus=" + busMedian / 1000 + "us");
+
+        assertTrue("bus " + busMedian + "ns vs broadcast " + broadcastMedian + "ns",
+                busMedian < broadcastMedian);
+    }
+
+    private long[] measureBroadcast(Context context) throws InterruptedException {
+        long[] samples = new long[ROUNDS];
+        AtomicLong received = new AtomicLong();
+        CountDownLatch[] latch = new CountDownLatch[1];
+
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                received.set(SystemClock.elapsedRealtimeNanos());
+                latch[0].countDown();
+            }
+        };
+        ContextCompat.registerReceiver(context, receiver, new IntentFilter(ACTION_TEST_STATUS),
+                ContextCompat.RECEIVER_NOT_EXPORTED);
+        try {
+            for (int i = 0; i < ROUNDS; i++) {
+                latch[0] = new CountDownLatch(1);
+                Intent intent = new Intent(ACTION_TEST_STATUS).setPackage(context.getPackageName());
+                intent.putExtra("status", DoctorStatusMachine.STATUS_IN_CONSULTATION);
+                long sent = SystemClock.elapsedRealtimeNanos();
+                context.sendBroadcast(intent);
+                assertTrue(latch[0].await(5, TimeUnit.SECONDS));
+                samples[i] = received.get() - sent;
+            }
+        } finally {
+            context.unregisterReceiver(receiver);
+        }
+        return samples;
+    }
+
+    private long[] measureBus() throws InterruptedException {
+        long[] samples = new long[ROUNDS];
+        AtomicLong received = new AtomicLong();
+        CountDownLatch[] latch = new CountDownLatch[1];
+
+        StatusBus<String> bus = new StatusBus<>(MainThreadExecutor.INSTANCE);
+        StatusBus<String>.Subscription subscription = bus.subscribe(status -> {
+            received.set(SystemClock.elapsedRealtimeNanos());
+            latch[0].countDown();
+        });
+        try {
+            for (int i = 0; i < ROUNDS; i++) {
+                latch[0] = new CountDownLatch(1);
+                long sent = SystemClock.elapsedRealtimeNanos();
+                bus.post(DoctorStatusMachine.STATUS_IN_CONSULTATION);
+                assertTrue(latch[0].await(5, TimeUnit.SECONDS));
+                samples[i] = received.get() - sent;
+            }
+        } finally {
+            subscription.unsubscribe();
+        }
+        return samples;
+    }
+
+    private static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
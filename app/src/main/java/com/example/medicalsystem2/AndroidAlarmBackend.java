@@ -0,0 +1,83 @@
+package com.example.medicalsystem2;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+/**
+ * ALARM BACKEND - Registers the two AppointmentEngine alarms with AlarmManager.
+ *
+ * - Reminder alarm: RTC_WAKEUP, exact, allowed while idle (fires even in Doze)
+ * - Status alarm:   RTC, exact, delivered as soon as the device is awake
+ *   (a status change alone is not worth waking the device)
+ *
+ * Both wake AppointmentAlarmReceiver, which hands over to the engine.
+ */
+public class AndroidAlarmBackend implements AppointmentEngine.AlarmBackend {
+
+    private static final String TAG = "AppointmentAlarm";
+
+    // One request code per alarm: there is only one of each at a time
+    private static final int REQUEST_CODE_REMINDER = 2001;
+    private static final int REQUEST_CODE_STATUS = 2002;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+
+    public AndroidAlarmBackend(Context context) {
+        this.context = context.getApplicationContext();
+        this.alarmManager = (AlarmManager) this.context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    @Override
+    public void setReminderAlarm(long triggerAtMillis) {
+        PendingIntent pendingIntent = buildPendingIntent(REQUEST_CODE_REMINDER);
+
+        // Android 12+ can revoke exact alarms: fall back to an inexact (but Doze-safe) alarm
+        if (!canScheduleExact()) {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+            AppLog.w(TAG, "Exact alarms not allowed, inexact reminder set for ", triggerAtMillis);
+            return;
+        }
+
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        AppLog.event(AppLog.DEBUG, TAG, "reminder_alarm_at", triggerAtMillis);
+    }
+
+    @Override
+    public void setStatusAlarm(long triggerAtMillis) {
+        PendingIntent pendingIntent = buildPendingIntent(REQUEST_CODE_STATUS);
+
+        if (!canScheduleExact()) {
+            alarmManager.set(AlarmManager.RTC, triggerAtMillis, pendingIntent);
+            AppLog.w(TAG, "Exact alarms not allowed, inexact status alarm set for ", triggerAtMillis);
+            return;
+        }
+
+        alarmManager.setExact(AlarmManager.RTC, triggerAtMillis, pendingIntent);
+        AppLog.event(AppLog.DEBUG, TAG, "status_alarm_at", triggerAtMillis);
+    }
+
+    @Override
+    public void cancelReminderAlarm() {
+        alarmManager.cancel(buildPendingIntent(REQUEST_CODE_REMINDER));
+    }
+
+    @Override
+    public void cancelStatusAlarm() {
+        alarmManager.cancel(buildPendingIntent(REQUEST_CODE_STATUS));
+    }
+
+    private boolean canScheduleExact() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+    }
+
+    private PendingIntent buildPendingIntent(int requestCode) {
+        Intent intent = new Intent(context, AppointmentAlarmReceiver.class);
+        intent.setAction(AppointmentAlarmReceiver.ACTION_ENGINE_ALARM);
+        return PendingIntent.getBroadcast(context, requestCode, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
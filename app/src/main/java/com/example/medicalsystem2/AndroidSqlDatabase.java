@@ -0,0 +1,194 @@
+package com.example.medicalsystem2;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * ANDROID SQL DATABASE - SqlDatabase on the platform SQLite (android.database.sqlite).
+ *
+ * - Write-ahead logging on (enableWriteAheadLogging)
+ * - Statements compiled once by AppointmentDatabase are SQLiteStatements, reused
+ * - SQLExceptions (runtime on Android) are turned into IOExceptions
+ */
+public final class AndroidSqlDatabase implements SqlDatabase {
+
+    private final SQLiteDatabase db;
+
+    private AndroidSqlDatabase(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    public static AndroidSqlDatabase open(File file) throws IOException {
+        try {
+            SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+            db.enableWriteAheadLogging();
+            return new AndroidSqlDatabase(db);
+        } catch (SQLException e) {
+            throw new IOException("Could not open " + file, e);
+        }
+    }
+
+    @Override
+    public void execute(String sql) throws IOException {
+        try {
+            db.execSQL(sql);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Statement compile(String sql) throws IOException {
+        try {
+            return new AndroidStatement(db.compileStatement(sql));
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Rows query(String sql, Object... args) throws IOException {
+        // rawQuery binds text: SQLite converts it back for INTEGER / REAL columns
+        String[] textArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            textArgs[i] = String.valueOf(args[i]);
+        }
+        try {
+            return new CursorRows(db.rawQuery(sql, textArgs));
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public int getVersion() {
+        return db.getVersion();
+    }
+
+    @Override
+    public void setVersion(int version) {
+        db.setVersion(version);
+    }
+
+    @Override
+    public void beginTransaction() throws IOException {
+        try {
+            db.beginTransactionNonExclusive();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        db.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() throws IOException {
+        try {
+            db.endTransaction();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public boolean inTransaction() {
+        return db.inTransaction();
+    }
+
+    @Override
+    public void close() {
+        db.close();
+    }
+
+    private static final class AndroidStatement implements Statement {
+        private final SQLiteStatement statement;
+
+        AndroidStatement(SQLiteStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            statement.bindLong(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            statement.bindDouble(index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            statement.bindString(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            statement.bindBlob(index, value);
+        }
+
+        @Override
+        public long executeInsert() throws IOException {
+            try {
+                return statement.executeInsert();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public int executeUpdateDelete() throws IOException {
+            try {
+                return statement.executeUpdateDelete();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static final class CursorRows implements Rows {
+        private final Cursor cursor;
+
+        CursorRows(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean next() {
+            return cursor.moveToNext();
+        }
+
+        @Override
+        public long getLong(int column) {
+            return cursor.getLong(column);
+        }
+
+        @Override
+        public double getDouble(int column) {
+            return cursor.getDouble(column);
+        }
+
+        @Override
+        public String getString(int column) {
+            return cursor.getString(column);
+        }
+
+        @Override
+        public byte[] getBlob(int column) {
+            return cursor.getBlob(column);
+        }
+
+        @Override
+        public void close() {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.medicalsystem2;
+
+/**
+ * APP CLOCK - Source of "now" for the scheduling code.
+ * Services use SYSTEM, unit tests pass a fake clock so time can be moved by hand.
+ */
+public interface AppClock {
+
+    // Wall-clock time in milliseconds since epoch (same as System.currentTimeMillis())
+    long currentTimeMillis();
+
+    // Default clock backed by the device time
+    AppClock SYSTEM = System::currentTimeMillis;
+}
@@ -0,0 +1,254 @@
+package com.example.medicalsystem2;
+
+import java.io.PrintWriter;
+import java.time.Instant;
+
+/**
+ * APP LOG - Logging facade for the code that runs on every alarm / status tick.
+ *
+ * Two gates, checked before any string is built:
+ * - Compile time: COMPILED_MIN_LEVEL comes from BuildConfig.LOG_MIN_LEVEL (VERBOSE in debug,
+ *   INFO in release). Guarding a call with "if (AppLog.DEBUG_COMPILED)" lets javac drop it.
+ * - Run time: setMinLevel() (debug builds default to DEBUG, release to WARN).
+ *
+ * Zero allocation when a level is off:
+ * - d(tag, "constant") and d(tag, "label: ", longValue) only concatenate when enabled
+ * - d(tag, () -> ...) takes a supplier that is only called when enabled
+ *   (keep the lambda non-capturing, or guard it with isLoggable(): a capturing lambda is
+ *   allocated at the call site even when nothing is logged)
+ *
+ * Optional event ring: the last N structured events (time, level, tag, name, value) kept in
+ * preallocated arrays, recorded even when logcat output is off, and dumped on demand
+ * (dumpsys of AppointmentBoundedService) for support.
+ *
+ * Pure Java: the Android side installs a Sink that forwards to android.util.Log.
+ */
+public final class AppLog {
+
+    // Same values as android.util.Log
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    // Build-time floor (a constant: code guarded by it is removed in release builds)
+    public static final int COMPILED_MIN_LEVEL = BuildConfig.LOG_MIN_LEVEL;
+    public static final boolean DEBUG_COMPILED = COMPILED_MIN_LEVEL <= DEBUG;
+
+    /**
+     * Where enabled messages go (android.util.Log on the device).
+     */
+    public interface Sink {
+        void println(int level, String tag, String message, Throwable error);
+    }
+
+    /**
+     * Builds a message only when its level is enabled.
+     */
+    public interface MessageSupplier {
+        String get();
+    }
+
+    private static final Sink NO_SINK = (level, tag, message, error) -> { };
+
+    private static volatile Sink sink = NO_SINK;
+    private static volatile int minLevel = Math.max(COMPILED_MIN_LEVEL, DEBUG);
+    private static volatile EventRing ring;
+
+    private AppLog() {
+    }
+
+    // ================================
+    // SETUP
+    // ================================
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : NO_SINK;
+    }
+
+    /**
+     * Runtime level; never below the compiled floor.
+     */
+    public static void setMinLevel(int level) {
+        minLevel = Math.max(COMPILED_MIN_LEVEL, level);
+    }
+
+    public static int getMinLevel() {
+        return minLevel;
+    }
+
+    /**
+     * Keep recent events in memory (null = off).
+     */
+    public static void setEventRing(EventRing eventRing) {
+        ring = eventRing;
+    }
+
+    public static EventRing getEventRing() {
+        return ring;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= COMPILED_MIN_LEVEL && level >= minLevel;
+    }
+
+    // ================================
+    // LOGGING
+    // ================================
+
+    public static void v(String tag, String message) {
+        log(VERBOSE, tag, message);
+    }
+
+    public static void d(String tag, String message) {
+        log(DEBUG, tag, message);
+    }
+
+    public static void d(String tag, String label, long value) {
+        if (isLoggable(DEBUG)) {
+            sink.println(DEBUG, tag, label + value, null);
+        }
+    }
+
+    public static void d(String tag, String label, Object value) {
+        if (isLoggable(DEBUG)) {
+            sink.println(DEBUG, tag, label + value, null);
+        }
+    }
+
+    public static void d(String tag, MessageSupplier message) {
+        if (isLoggable(DEBUG)) {
+            sink.println(DEBUG, tag, message.get(), null);
+        }
+    }
+
+    public static void i(String tag, String message) {
+        log(INFO, tag, message);
+    }
+
+    public static void w(String tag, String message) {
+        log(WARN, tag, message);
+    }
+
+    public static void w(String tag, String label, long value) {
+        if (isLoggable(WARN)) {
+            sink.println(WARN, tag, label + value, null);
+        }
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        if (isLoggable(ERROR)) {
+            sink.println(ERROR, tag, message, error);
+        }
+    }
+
+    /**
+     * Structured event: always kept in the ring (if any), printed only if the level is on.
+     * Allocates nothing when printing is off.
+     */
+    public static void event(int level, String tag, String name, long value) {
+        EventRing eventRing = ring;
+        if (eventRing != null) {
+            eventRing.record(level, tag, name, value);
+        }
+        if (isLoggable(level)) {
+            sink.println(level, tag, name + "=" + value, null);
+        }
+    }
+
+    /**
+     * Print the event ring, oldest first.
+     */
+    public static void dump(PrintWriter writer) {
+        EventRing eventRing = ring;
+        if (eventRing == null) {
+            writer.println("AppLog: event ring disabled");
+        } else {
+            eventRing.dump(writer);
+        }
+    }
+
+    private static void log(int level, String tag, String message) {
+        if (isLoggable(level)) {
+            sink.println(level, tag, message, null);
+        }
+    }
+
+    // ================================
+    // EVENT RING
+    // ================================
+
+    /**
+     * Fixed-size ring of recent events. Parallel primitive arrays: recording an event
+     * stores a few fields and never allocates (tag and name are expected to be constants).
+     */
+    public static final class EventRing {
+
+        private final AppClock clock;
+        private final long[] times;
+        private final int[] levels;
+        private final String[] tags;
+        private final String[] names;
+        private final long[] values;
+        private long recorded; // total ever recorded (next write = recorded % capacity)
+
+        public EventRing(int capacity, AppClock clock) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be > 0");
+            }
+            this.clock = clock;
+            this.times = new long[capacity];
+            this.levels = new int[capacity];
+            this.tags = new String[capacity];
+            this.names = new String[capacity];
+            this.values = new long[capacity];
+        }
+
+        public synchronized void record(int level, String tag, String name, long value) {
+            int index = (int) (recorded % times.length);
+            times[index] = clock.currentTimeMillis();
+            levels[index] = level;
+            tags[index] = tag;
+            names[index] = name;
+            values[index] = value;
+            recorded++;
+        }
+
+        public synchronized int size() {
+            return (int) Math.min(recorded, times.length);
+        }
+
+        public synchronized long getRecordedCount() {
+            return recorded;
+        }
+
+        public synchronized void dump(PrintWriter writer) {
+            int size = size();
+            writer.println("AppLog: last " + size + " of " + recorded + " events");
+            long first = recorded - size;
+            for (long n = first; n < recorded; n++) {
+                int index = (int) (n % times.length);
+                writer.println("  " + Instant.ofEpochMilli(times[index])
+                        + " " + levelName(levels[index])
+                        + " " + tags[index]
+                        + " " + names[index] + "=" + values[index]);
+            }
+        }
+
+        private static String levelName(int level) {
+            switch (level) {
+                case VERBOSE:
+                    return "V";
+                case DEBUG:
+                    return "D";
+                case INFO:
+                    return "I";
+                case WARN:
+                    return "W";
+                default:
+                    return "E";
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.medicalsystem2;
+
+import java.time.ZoneId;
+import java.util.Comparator;
+
+/**
+ * APPOINTMENT - One booked appointment (immutable).
+ *
+ * Stored by AppointmentRepository, keyed by id and indexed by start time.
+ */
+public final class Appointment {
+
+    // Time order used by the repository index (ties broken by id so every entry is unique)
+    public static final Comparator<Appointment> BY_START = (a, b) -> {
+        int byStart = Long.compare(a.startMillis, b.startMillis);
+        return byStart != 0 ? byStart : Long.compare(a.id, b.id);
+    };
+
+    private final long id;
+    private final String userEmail;
+    private final String doctorName;
+    private final long startMillis;   // Appointment start (epoch millis)
+    private final boolean customTime; // User picked a custom time (not a preset slot)
+
+    public Appointment(long id, String userEmail, String doctorName, long startMillis, boolean customTime) {
+        this.id = id;
+        this.userEmail = userEmail != null ? userEmail : "";
+        this.doctorName = doctorName != null ? doctorName : "";
+        this.startMillis = startMillis;
+        this.customTime = customTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getDoctorName() {
+        return doctorName;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public boolean isCustomTime() {
+        return customTime;
+    }
+
+    /**
+     * Start time as "yyyy-MM-dd HH:mm" in the device time zone.
+     */
+    public String formatStart() {
+        return AppointmentTimeEngine.format(startMillis, ZoneId.systemDefault());
+    }
+
+    @Override
+    public String toString() {
+        return "Appointment{id=" + id + ", user=" + userEmail + ", doctor=" + doctorName
+                + ", start=" + startMillis + ", custom=" + customTime + "}";
+    }
+}
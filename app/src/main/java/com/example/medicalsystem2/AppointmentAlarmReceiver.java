@@ -0,0 +1,64 @@
+package com.example.medicalsystem2;
+
+import android.app.AlarmManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * APPOINTMENT ALARM RECEIVER
+ *
+ * - ACTION_ENGINE_ALARM: one of the AppointmentEngine alarms went off -> let the engine
+ *   dispatch whatever is due (reminder, consultation start / end) and re-arm.
+ * - Boot / time / time-zone changes: alarms are cleared on reboot and a clock change
+ *   moves "now", so the engine recomputes its queue.
+ *
+ * The work runs on the appointment IO thread (goAsync), not on the main thread.
+ */
+public class AppointmentAlarmReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AppointmentAlarm";
+
+    public static final String ACTION_ENGINE_ALARM = "com.example.medicalsystem2.ENGINE_ALARM";
+
+    // Engine work per alarm / per reschedule, on the IO thread (see Metrics)
+    private static final Metrics.Timer ALARM_TIMER = Metrics.timer("engine.alarm");
+    private static final Metrics.Timer RESCHEDULE_TIMER = Metrics.timer("engine.reschedule");
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        AppLog.d(TAG, "onReceive: ", action);
+
+        boolean alarm = ACTION_ENGINE_ALARM.equals(action);
+        boolean reschedule = Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action)
+                || Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)
+                || AlarmManager.ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED.equals(action);
+        if (!alarm && !reschedule) {
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        AppointmentStorage.execute(() -> {
+            try {
+                AppointmentEngine engine = AppointmentEngineHost.engine(appContext);
+                if (alarm) {
+                    long started = ALARM_TIMER.start();
+                    engine.onAlarm();
+                    ALARM_TIMER.stop(started);
+                    AppLog.event(AppLog.DEBUG, TAG, "engine_wakeup", engine.getWakeupCount());
+                } else {
+                    long started = RESCHEDULE_TIMER.start();
+                    engine.reschedule();
+                    RESCHEDULE_TIMER.stop(started);
+                    AppLog.event(AppLog.INFO, TAG, "engine_reschedule", engine.getWakeupCount());
+                }
+            } finally {
+                result.finish();
+            }
+        });
+    }
+}
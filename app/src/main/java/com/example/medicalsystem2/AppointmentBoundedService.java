@@ -2,14 +2,13 @@ package com.example.medicalsystem2;
 
 import android.app.Service;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Binder;
+import android.os.Handler;
 import android.os.IBinder;
-import android.util.Log;
+import android.os.Looper;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Locale;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * BOUNDED SERVICE - Provides appointment status to connected activities.
@@ -20,6 +19,10 @@ public class AppointmentBoundedService extends Service {
     // Tag for logging
     private static final String TAG = "AppointmentBounded";
 
+    // Cost of the calls screens make on this service (see Metrics)
+    private static final Metrics.Timer STATUS_CALL_TIMER = Metrics.timer("bounded.getAppointmentStatus");
+    private static final Metrics.Timer REFRESH_TIMER = Metrics.timer("bounded.refresh");
+
 
     // This is the Binder object that is returned to clients (Activity)
     // It allows clients to access public methods of this service directly
@@ -28,8 +31,24 @@ public class AppointmentBoundedService extends Service {
     // Holds the current appointment status
     private String appointmentStatus = "No Appointment";
 
-    //  listener to notify UI components of real-time status changes ( state mangement)
-    private AppointmentStatusListener statusListener;
+    // Shared, already-parsed view of the current appointment (see AppointmentSnapshotCache)
+    private AppointmentSnapshotCache snapshotCache;
+
+    // Pushes the status to every connected screen, once per minute (see AppointmentStatusStream)
+    private AppointmentStatusStream statusStream;
+
+    // Main thread: the stream ticks here and listeners are called here
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Booking / removal -> re-check the status right away (called on the writer thread)
+    private final AppointmentRepository.Listener repositoryListener =
+            () -> mainHandler.post(() -> {
+                if (statusStream != null) {
+                    long started = REFRESH_TIMER.start();
+                    statusStream.refresh();
+                    REFRESH_TIMER.stop(started);
+                }
+            });
 
     // INNER CLASS: LocalBinder
 
@@ -55,14 +74,28 @@ public class AppointmentBoundedService extends Service {
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "========== SERVICE CREATED ==========");
+        AppLog.d(TAG, "========== SERVICE CREATED ==========");
         // Called when the service is first created
-        // Initialization code can go here
+        snapshotCache = AppointmentStorage.snapshot(this);
+
+        statusStream = new AppointmentStatusStream(snapshotCache, AppClock.SYSTEM,
+                new AppointmentStatusStream.Ticker() {
+                    @Override
+                    public void schedule(Runnable tick, long delayMillis) {
+                        mainHandler.postDelayed(tick, delayMillis);
+                    }
+
+                    @Override
+                    public void cancel(Runnable tick) {
+                        mainHandler.removeCallbacks(tick);
+                    }
+                });
+        AppointmentStorage.repository(this).addListener(repositoryListener);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        Log.d(TAG, "========== SERVICE STARTED ==========");
+        AppLog.d(TAG, "========== SERVICE STARTED ==========");
         // Called when the service is started with startService()
         // START_STICKY ensures the service is restarted if killed by the system
         return START_STICKY;
@@ -75,7 +108,7 @@ public class AppointmentBoundedService extends Service {
 // connects to a service so it can directly communicate with it and call its methods.
     @Override
     public IBinder onBind(Intent intent) {
-        Log.d(TAG, "========== ACTIVITY BINDING ==========");
+        AppLog.d(TAG, "========== ACTIVITY BINDING ==========");
         return binder; // Provide the bridge object to the client
     }
 
@@ -84,7 +117,7 @@ public class AppointmentBoundedService extends Service {
     //unbindService(serviceConnection); or Activity finishes or app closed
     @Override
     public boolean onUnbind(Intent intent) {
-        Log.d(TAG, "========== ACTIVITY UNBINDING ==========");
+        AppLog.d(TAG, "========== ACTIVITY UNBINDING ==========");
         // Called when all clients have unbound
         return false; // Return true if you want onRebind() to be called later
     }
@@ -92,8 +125,23 @@ public class AppointmentBoundedService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        Log.d(TAG, "========== SERVICE DESTROYED ==========");
-        // Cleanup resources here if needed
+        AppLog.d(TAG, "========== SERVICE DESTROYED ==========");
+        // Stop the minute ticks and drop the listeners
+        AppointmentStorage.repository(this).removeListener(repositoryListener);
+        statusStream.close();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Support dump: recent structured events (alarms, reminders, ...) even when logging is off,
+     * and the latency / count of every instrumented hot path (Metrics).
+     * adb shell dumpsys activity service com.example.medicalsystem2/.AppointmentBoundedService
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("Appointment status: " + getAppointmentStatus());
+        AppLog.dump(writer);
+        Metrics.dump(writer);
     }
 
     // PUBLIC METHODS FOR ACTIVITY
@@ -105,52 +153,13 @@ public class AppointmentBoundedService extends Service {
      */
     public String getAppointmentStatus() {
 
-        // Step 1: Read appointment date-time from SharedPreferences
-        SharedPreferences prefs = getSharedPreferences("AppointmentPrefs", MODE_PRIVATE);
-        String appointmentDateTime = prefs.getString("appointment_datetime", "");
-
-        // Step 2: Check if an appointment exists
-        if (appointmentDateTime.isEmpty()) {
-            appointmentStatus = "No Appointment Scheduled";
-            return appointmentStatus;
-        }
-
-        try {
-            // Step 3: Parse the saved appointment time string into a Calendar object
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            Calendar appointmentTime = Calendar.getInstance();
-            appointmentTime.setTime(sdf.parse(appointmentDateTime));
-
-            // Step 4: Get current time
-            Calendar now = Calendar.getInstance();
-
-            // Step 5: Remove seconds for accurate minute-level comparison
-            appointmentTime.set(Calendar.SECOND, 0);
-            now.set(Calendar.SECOND, 0);
-
-            // Step 6: Calculate time difference in minutes
-            long diffInMillis = appointmentTime.getTimeInMillis() - now.getTimeInMillis();
-            long diffInMinutes = diffInMillis / 60000;
-
-            // Step 7: Set appointment status based on time difference
-            if (diffInMinutes > 0) {
-                appointmentStatus = "Appointment in " + diffInMinutes + " minutes";
-            } else if (diffInMinutes < 0) {
-                appointmentStatus = "Appointment Completed";
-            } else {
-                appointmentStatus = "Appointment Starting Now!";
-            }
-
-        } catch (Exception e) {
-            appointmentStatus = "Error checking appointment";
-        }
-
-
-        // Step 8: Notify any listener/UI component about status change
-        if (statusListener != null) {
-            statusListener.onStatusChanged(appointmentStatus);
-        }
-
+        // Status is plain arithmetic on the cached appointment start (epoch millis):
+        // no preference read, no date parsing, and the text is reused while the
+        // minute difference stays the same.
+        // Reading the status has no side effect: changes are pushed by the status stream.
+        long started = STATUS_CALL_TIMER.start();
+        appointmentStatus = snapshotCache.statusText(System.currentTimeMillis());
+        STATUS_CALL_TIMER.stop(started);
         return appointmentStatus;
     }
 
@@ -159,69 +168,51 @@ public class AppointmentBoundedService extends Service {
      * Returns -1 if no appointment exists
      */
     public int getMinutesUntilAppointment() {
-
-        SharedPreferences prefs = getSharedPreferences("AppointmentPrefs", MODE_PRIVATE);
-        String appointmentDateTime = prefs.getString("appointment_datetime", "");
-
-        if (appointmentDateTime.isEmpty()) {
-            Log.d(TAG, "No appointment found");
-            return -1;
-        }
-
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            Calendar appointmentTime = Calendar.getInstance();
-            appointmentTime.setTime(sdf.parse(appointmentDateTime));
-
-            Calendar now = Calendar.getInstance();
-            long diffInMillis = appointmentTime.getTimeInMillis() - now.getTimeInMillis();
-            int minutes = (int) (diffInMillis / 60000);
-
-            Log.d(TAG, "Result: " + minutes + " minutes");
-            return minutes;
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error calculating minutes: " + e.getMessage());
-            return -1;
-        }
+        return snapshotCache.minutesUntil(System.currentTimeMillis());
     }
 
     /**
      * Get doctor name associated with appointment
      */
     public String getDoctorName() {
-        return "Dr. Ahmed Hassan"; // Hardcoded for now, can be dynamic from data base
+        Appointment appointment = snapshotCache.currentAppointment(System.currentTimeMillis());
+        return appointment != null ? appointment.getDoctorName() : AppointmentStorage.DEFAULT_DOCTOR;
     }
 
     /**
      * Check if there is any appointment scheduled
      */
     public boolean hasAppointment() {
-
-        SharedPreferences prefs = getSharedPreferences("AppointmentPrefs", MODE_PRIVATE);
-        String appointmentDateTime = prefs.getString("appointment_datetime", "");
-        boolean hasAppointment = !appointmentDateTime.isEmpty();
-
-        Log.d(TAG, "Result: " + hasAppointment);
-        return hasAppointment;
+        return snapshotCache.hasAppointment(System.currentTimeMillis());
     }
 
     // ================================
-    // LISTENER INTERFACE FOR UI
+    // STATUS STREAM FOR UI
     // ================================
 
     /**
      * Listener interface to notify activity/UI about status changes
+     * (text + minutes left, called on the main thread)
+     */
+    public interface AppointmentStatusListener extends AppointmentStatusStream.Listener {
+    }
+
+    /**
+     * Start receiving status updates. The listener gets the current status right away,
+     * then one call each time the displayed status changes (at most once per minute,
+     * plus once after a booking). Several screens can listen at the same time.
+     * Must be called on the main thread.
      */
-    public interface AppointmentStatusListener {
-        void onStatusChanged(String newStatus);
+    public void addStatusListener(AppointmentStatusListener listener) {
+        AppLog.d(TAG, ">>> Listener Added");
+        statusStream.addListener(listener);
     }
 
     /**
-     * Set a listener for status updates
+     * Stop receiving status updates (call before unbinding).
      */
-    public void setStatusListener(AppointmentStatusListener listener) {
-        Log.d(TAG, ">>> Listener Set");
-        this.statusListener = listener;
+    public void removeStatusListener(AppointmentStatusListener listener) {
+        AppLog.d(TAG, ">>> Listener Removed");
+        statusStream.removeListener(listener);
     }
 }
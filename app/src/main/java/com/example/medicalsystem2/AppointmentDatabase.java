@@ -0,0 +1,463 @@
+package com.example.medicalsystem2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * APPOINTMENT DATABASE - SQLite tables for appointments, reminders and medical records.
+ *
+ * Schema (version 1):
+ *   appointments (id PK, user_tag, doctor_tag, start_time, sealed)
+ *                index (user_tag, start_time): a user's appointments in a time range
+ *                index (doctor_tag, start_time): a doctor's appointments in a time range
+ *   reminders    (appointment_id, offset_millis PK, fired_at): reminders actually shown
+ *   meta         (key PK, value): highest appointment id ever used
+ *   records      (id PK, user_tag, recorded_at, sealed)
+ *                index (user_tag, recorded_at, id): Reports pages, newest first
+ *
+ * Encrypted at rest (see DataCipher):
+ * - "sealed" is the whole row (user, doctor, exact start, custom flag / record kind,
+ *   title, summary, attachment) in AES-GCM, sealed with its table and id as context
+ * - Only what SQLite compares stays readable: ids, keyed tags of the user and of the
+ *   doctor (DataCipher.blindIndex, not the email or the name), the appointment start
+ *   and the record time (the page cursor)
+ *
+ * Users are the Firebase accounts and doctors come from DoctorDirectory: neither has a
+ * table here, appointments and records point at them through their tags.
+ *
+ * - Passed appointments stay; the repository loads them all once (load()) and answers
+ *   the app's time queries from memory. rangeForUser() / rangeForDoctor() answer from
+ *   the indexes without loading anything else (history screens, checked at 100k rows)
+ * - As the AppointmentStore of AppointmentRepository, every write-behind batch is ONE
+ *   transaction (a booking no longer rewrites a whole XML file)
+ * - INSERT / DELETE statements are compiled once and re-bound for every row
+ * - WAL mode (set by the SqlDatabase): record pages do not wait for the writer
+ * - Record pages use a cursor (the last row shown), so page 400 costs the same as page 1
+ *
+ * Not thread-safe: used on the appointment IO thread. Pure Java so the schema, the
+ * queries and the 100k-row benchmark run on the JVM (JdbcSqlDatabase in the tests).
+ */
+public final class AppointmentDatabase implements AppointmentStore {
+
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS appointments ("
+                    + "id INTEGER PRIMARY KEY, user_tag INTEGER NOT NULL, doctor_tag INTEGER NOT NULL,"
+                    + " start_time INTEGER NOT NULL, sealed BLOB NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS appointments_user_start ON appointments (user_tag, start_time)",
+            "CREATE INDEX IF NOT EXISTS appointments_doctor_start ON appointments (doctor_tag, start_time)",
+            "CREATE TABLE IF NOT EXISTS reminders ("
+                    + "appointment_id INTEGER NOT NULL, offset_millis INTEGER NOT NULL,"
+                    + " fired_at INTEGER NOT NULL, PRIMARY KEY (appointment_id, offset_millis)) WITHOUT ROWID",
+            "CREATE TABLE IF NOT EXISTS meta (key TEXT PRIMARY KEY, value INTEGER NOT NULL) WITHOUT ROWID",
+            "CREATE TABLE IF NOT EXISTS records ("
+                    + "id INTEGER PRIMARY KEY, user_tag INTEGER NOT NULL, recorded_at INTEGER NOT NULL,"
+                    + " sealed BLOB NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS records_user_time ON records (user_tag, recorded_at, id)",
+    };
+
+    // Tags (DataCipher.blindIndex) of the user email and the doctor name SQLite looks up
+    private static final String TAG_USER = "user";
+    private static final String TAG_DOCTOR = "doctor";
+
+    private static final String KEY_HIGHEST_ID = "highest_id";
+
+    private final SqlDatabase db;
+    private final DataCipher cipher;
+
+    // Compiled once, re-bound for every row
+    private final SqlDatabase.Statement insertAppointment;
+    private final SqlDatabase.Statement deleteAppointment;
+    private final SqlDatabase.Statement deleteReminders;
+    private final SqlDatabase.Statement insertReminder;
+    private final SqlDatabase.Statement saveMeta;
+    private final SqlDatabase.Statement insertRecord;
+
+    private long highestId;
+    private boolean highestIdChanged;
+
+    private AppointmentDatabase(SqlDatabase db, DataCipher cipher) throws IOException {
+        this.db = db;
+        this.cipher = cipher;
+        insertAppointment = db.compile("INSERT OR REPLACE INTO appointments"
+                + " (id, user_tag, doctor_tag, start_time, sealed) VALUES (?, ?, ?, ?, ?)");
+        deleteAppointment = db.compile("DELETE FROM appointments WHERE id = ?");
+        deleteReminders = db.compile("DELETE FROM reminders WHERE appointment_id = ?");
+        insertReminder = db.compile("INSERT OR REPLACE INTO reminders (appointment_id, offset_millis, fired_at)"
+                + " VALUES (?, ?, ?)");
+        saveMeta = db.compile("INSERT OR REPLACE INTO meta (key, value) VALUES (?, ?)");
+        insertRecord = db.compile("INSERT OR REPLACE INTO records (id, user_tag, recorded_at, sealed)"
+                + " VALUES (?, ?, ?, ?)");
+    }
+
+    /**
+     * Create the schema (first run) and prepare the statements.
+     */
+    public static AppointmentDatabase open(SqlDatabase db, DataCipher cipher) throws IOException {
+        int version = db.getVersion();
+        if (version > SCHEMA_VERSION) {
+            throw new IOException("Database is newer than this app: version " + version);
+        }
+        if (version < SCHEMA_VERSION) {
+            db.beginTransaction();
+            try {
+                execute(db, SCHEMA);
+                db.setVersion(SCHEMA_VERSION);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return new AppointmentDatabase(db, cipher);
+    }
+
+    // ================================
+    // APPOINTMENT STORE (AppointmentRepository)
+    // ================================
+
+    @Override
+    public Map<Long, Appointment> load() throws IOException {
+        Map<Long, Appointment> all = new LinkedHashMap<>();
+        // Every row is opened once here: the repository then serves them from memory
+        SqlDatabase.Rows rows = db.query("SELECT id, sealed FROM appointments ORDER BY id");
+        try {
+            while (rows.next()) {
+                Appointment appointment = openAppointment(rows.getLong(0), rows.getBlob(1));
+                all.put(appointment.getId(), appointment);
+            }
+        } finally {
+            rows.close();
+        }
+        rows = db.query("SELECT value FROM meta WHERE key = ?", KEY_HIGHEST_ID);
+        try {
+            highestId = rows.next() ? rows.getLong(0) : 0;
+        } finally {
+            rows.close();
+        }
+        for (Long id : all.keySet()) {
+            highestId = Math.max(highestId, id);
+        }
+        return all;
+    }
+
+    @Override
+    public long getHighestId() {
+        return highestId;
+    }
+
+    @Override
+    public void appendPut(Appointment appointment) throws IOException {
+        beginIfNeeded();
+        try {
+            insertSealed(appointment);
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+        if (appointment.getId() > highestId) {
+            highestId = appointment.getId();
+            highestIdChanged = true;
+        }
+    }
+
+    @Override
+    public void appendDelete(long id) throws IOException {
+        beginIfNeeded();
+        try {
+            deleteAppointment.bindLong(1, id);
+            deleteAppointment.executeUpdateDelete();
+            deleteReminders.bindLong(1, id);
+            deleteReminders.executeUpdateDelete();
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    @Override
+    public void commit() throws IOException {
+        if (!db.inTransaction()) {
+            return;
+        }
+        try {
+            if (highestIdChanged) {
+                saveMeta.bindString(1, KEY_HIGHEST_ID);
+                saveMeta.bindLong(2, highestId);
+                saveMeta.executeInsert();
+                highestIdChanged = false;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (db.inTransaction()) {
+            abort();
+        }
+        db.close();
+    }
+
+    // ================================
+    // RANGES
+    // ================================
+
+    /**
+     * A user's appointments starting in [fromMillis, toMillis), by start time. One walk of
+     * the (user_tag, start_time) index: only the rows in the range are read and opened.
+     */
+    public List<Appointment> rangeForUser(String userEmail, long fromMillis, long toMillis) throws IOException {
+        List<Appointment> range = range("user_tag", cipher.blindIndex(TAG_USER, userEmail), fromMillis, toMillis);
+        Iterator<Appointment> rows = range.iterator();
+        while (rows.hasNext()) {
+            if (!rows.next().getUserEmail().equals(userEmail)) { // Tags are 64 bits: check the real value
+                rows.remove();
+            }
+        }
+        return range;
+    }
+
+    /**
+     * A doctor's appointments starting in [fromMillis, toMillis), by start time (the
+     * (doctor_tag, start_time) index, like rangeForUser()).
+     */
+    public List<Appointment> rangeForDoctor(String doctorName, long fromMillis, long toMillis) throws IOException {
+        List<Appointment> range = range("doctor_tag", cipher.blindIndex(TAG_DOCTOR, doctorName), fromMillis, toMillis);
+        Iterator<Appointment> rows = range.iterator();
+        while (rows.hasNext()) {
+            if (!rows.next().getDoctorName().equals(doctorName)) {
+                rows.remove();
+            }
+        }
+        return range;
+    }
+
+    // ================================
+    // REMINDERS
+    // ================================
+
+    /**
+     * Remember that a reminder of this appointment was shown ("offsetMillis" before the start).
+     */
+    public void recordReminder(long appointmentId, long offsetMillis, long firedAtMillis) throws IOException {
+        beginIfNeeded();
+        try {
+            insertReminder.bindLong(1, appointmentId);
+            insertReminder.bindLong(2, offsetMillis);
+            insertReminder.bindLong(3, firedAtMillis);
+            insertReminder.executeInsert();
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+        commit();
+    }
+
+    /**
+     * Offsets of the reminders already shown for this appointment, largest first.
+     */
+    public List<Long> firedReminderOffsets(long appointmentId) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        SqlDatabase.Rows rows = db.query("SELECT offset_millis FROM reminders WHERE appointment_id = ?"
+                + " ORDER BY offset_millis DESC", appointmentId);
+        try {
+            while (rows.next()) {
+                offsets.add(rows.getLong(0));
+            }
+        } finally {
+            rows.close();
+        }
+        return offsets;
+    }
+
+    // ================================
+    // MEDICAL RECORDS
+    // ================================
+
+    /**
+     * Save (or replace) records, all in one transaction.
+     */
+    public void saveRecords(Collection<MedicalRecord> records) throws IOException {
+        beginIfNeeded();
+        try {
+            for (MedicalRecord record : records) {
+                insertSealed(record);
+            }
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+        commit();
+    }
+
+    /**
+     * One page of a user's records, newest first, starting right after "after"
+     * (null: the newest record). Walks the (user_tag, recorded_at, id) index backwards
+     * from the cursor, so no row before it is read (and only the page is opened).
+     */
+    public List<MedicalRecord> recordsAfter(String userEmail, MedicalRecord after, int limit) throws IOException {
+        long userTag = cipher.blindIndex(TAG_USER, userEmail);
+        SqlDatabase.Rows rows;
+        if (after == null) {
+            rows = db.query("SELECT id, recorded_at, sealed FROM records WHERE user_tag = ?"
+                    + " ORDER BY recorded_at DESC, id DESC LIMIT ?", userTag, (long) limit);
+        } else {
+            rows = db.query("SELECT id, recorded_at, sealed FROM records WHERE user_tag = ?"
+                            + " AND (recorded_at < ? OR (recorded_at = ? AND id < ?))"
+                            + " ORDER BY recorded_at DESC, id DESC LIMIT ?",
+                    userTag, after.getRecordedAtMillis(), after.getRecordedAtMillis(), after.getId(), (long) limit);
+        }
+        List<MedicalRecord> page = new ArrayList<>(limit);
+        try {
+            while (rows.next()) {
+                MedicalRecord record = openRecord(rows.getLong(0), rows.getLong(1), rows.getBlob(2));
+                if (record.getUserEmail().equals(userEmail)) { // Tags are 64 bits: check the real value
+                    page.add(record);
+                }
+            }
+        } finally {
+            rows.close();
+        }
+        return page;
+    }
+
+    /**
+     * Id for a new record (records are only added on the IO thread, one at a time).
+     */
+    public long nextRecordId() throws IOException {
+        SqlDatabase.Rows rows = db.query("SELECT COALESCE(MAX(id), 0) + 1 FROM records");
+        try {
+            return rows.next() ? rows.getLong(0) : 1;
+        } finally {
+            rows.close();
+        }
+    }
+
+    public int recordCount(String userEmail) throws IOException {
+        return count("SELECT COUNT(*) FROM records WHERE user_tag = ?", cipher.blindIndex(TAG_USER, userEmail));
+    }
+
+    // ================================
+    // SEALED ROWS
+    // ================================
+
+    private void insertSealed(Appointment appointment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeText(out, appointment.getUserEmail());
+        writeText(out, appointment.getDoctorName());
+        out.writeLong(appointment.getStartMillis());
+        out.writeBoolean(appointment.isCustomTime());
+
+        insertAppointment.bindLong(1, appointment.getId());
+        insertAppointment.bindLong(2, cipher.blindIndex(TAG_USER, appointment.getUserEmail()));
+        insertAppointment.bindLong(3, cipher.blindIndex(TAG_DOCTOR, appointment.getDoctorName()));
+        insertAppointment.bindLong(4, appointment.getStartMillis());
+        insertAppointment.bindBlob(5, cipher.seal(bytes.toByteArray(), "appointments#" + appointment.getId()));
+        insertAppointment.executeInsert();
+    }
+
+    private Appointment openAppointment(long id, byte[] sealed) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(cipher.open(sealed, "appointments#" + id)));
+        String user = readText(in);
+        String doctor = readText(in);
+        return new Appointment(id, user, doctor, in.readLong(), in.readBoolean());
+    }
+
+    private void insertSealed(MedicalRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + record.getSummary().length());
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeText(out, record.getUserEmail());
+        writeText(out, record.getKind());
+        writeText(out, record.getTitle());
+        writeText(out, record.getSummary());
+        writeText(out, record.getAttachmentName());
+        writeText(out, record.getAttachmentKey());
+        writeText(out, record.getAttachmentType());
+        out.writeLong(record.getAttachmentSize());
+
+        insertRecord.bindLong(1, record.getId());
+        insertRecord.bindLong(2, cipher.blindIndex(TAG_USER, record.getUserEmail()));
+        insertRecord.bindLong(3, record.getRecordedAtMillis());
+        insertRecord.bindBlob(4, cipher.seal(bytes.toByteArray(), "records#" + record.getId()));
+        insertRecord.executeInsert();
+    }
+
+    private MedicalRecord openRecord(long id, long recordedAtMillis, byte[] sealed) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(cipher.open(sealed, "records#" + id)));
+        return new MedicalRecord(id, readText(in), readText(in), readText(in), readText(in), recordedAtMillis,
+                readText(in), readText(in), readText(in), in.readLong());
+    }
+
+    // "column" is user_tag or doctor_tag (a constant, never user input)
+    private List<Appointment> range(String column, long tag, long fromMillis, long toMillis) throws IOException {
+        List<Appointment> range = new ArrayList<>();
+        SqlDatabase.Rows rows = db.query("SELECT id, sealed FROM appointments WHERE " + column + " = ?"
+                + " AND start_time >= ? AND start_time < ? ORDER BY start_time, id", tag, fromMillis, toMillis);
+        try {
+            while (rows.next()) {
+                range.add(openAppointment(rows.getLong(0), rows.getBlob(1)));
+            }
+        } finally {
+            rows.close();
+        }
+        return range;
+    }
+
+    // UTF-8 with an int length (writeUTF stops at 64 KB, a summary may not)
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private static void execute(SqlDatabase db, String[] statements) throws IOException {
+        for (String sql : statements) {
+            db.execute(sql);
+        }
+    }
+
+    private void beginIfNeeded() throws IOException {
+        if (!db.inTransaction()) {
+            db.beginTransaction();
+        }
+    }
+
+    // Roll back the open transaction (the repository appends the whole batch again)
+    private void abort() throws IOException {
+        highestIdChanged = false;
+        db.endTransaction();
+    }
+
+    private int count(String sql, Object... args) throws IOException {
+        SqlDatabase.Rows rows = db.query(sql, args);
+        try {
+            return rows.next() ? (int) rows.getLong(0) : 0;
+        } finally {
+            rows.close();
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.example.medicalsystem2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * APPOINTMENT ENGINE - The one place that decides what happens when, for every appointment.
+ *
+ * Replaces the two background services (reminder + doctor availability) that each kept
+ * their own timer, read and parsed the same stored value, and cleared it at different moments.
+ *
+ * Events:
+ *   REMINDER            24 h, 1 h, 10 min and 1 min before the start -> Actions.onReminder()
+ *   CONSULTATION_START  at the start               -> doctor status "In Consultation"
+ *   CONSULTATION_END    1 minute after the start   -> doctor status "Available"
+ *
+ * Reminders of ALL appointments live in a TimerWheel (O(1) insert / cancel when an
+ * appointment is booked or removed, batched expiry). A reminder whose time has just passed
+ * (the process was started by its alarm) still fires unless ReminderHistory says it was
+ * already shown: that history is on disk, so it survives the process. Status events only matter for the
+ * next appointments, so they are kept in a small priority queue rebuilt from the repository.
+ *
+ * Only two alarms exist at any time: a wakeup alarm for the wheel's earliest deadline and
+ * a non-wakeup alarm for the earliest status change. When one fires, every due event is
+ * dispatched and the alarms are re-armed.
+ * Nothing is ever deleted here: appointments stay in the repository as history.
+ *
+ * Pure Java (clock, alarms and actions are interfaces) so it is unit tested on the JVM.
+ */
+public final class AppointmentEngine implements AppointmentRepository.ChangeListener {
+
+    public static final long NO_ALARM = -1L;
+
+    // Reminder wheel resolution (reminders are on minute boundaries, 1 s is plenty)
+    private static final long WHEEL_TICK_MILLIS = 1000L;
+
+    // Upper bound on reminders per appointment (keeps Reminder.key() unique)
+    private static final int MAX_REMINDERS = 64;
+
+    public enum EventType {
+        REMINDER,
+        CONSULTATION_START,
+        CONSULTATION_END
+    }
+
+    /**
+     * One upcoming status event (immutable). Ties at the same instant keep the enum order.
+     */
+    public static final class Event implements Comparable<Event> {
+        public final long atMillis;
+        public final EventType type;
+        public final Appointment appointment;
+
+        Event(long atMillis, EventType type, Appointment appointment) {
+            this.atMillis = atMillis;
+            this.type = type;
+            this.appointment = appointment;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(atMillis, other.atMillis);
+            return byTime != 0 ? byTime : type.compareTo(other.type);
+        }
+
+        @Override
+        public String toString() {
+            return type + "@" + atMillis + " #" + appointment.getId();
+        }
+    }
+
+    /**
+     * One reminder of one appointment (payload of the wheel timers).
+     */
+    public static final class Reminder {
+        public final Appointment appointment;
+        public final long offsetMillis;
+        public final boolean isFinal; // last reminder before the start (ringtone)
+        private final int index;      // position in the offsets array
+
+        Reminder(Appointment appointment, long offsetMillis, int index, boolean isFinal) {
+            this.appointment = appointment;
+            this.offsetMillis = offsetMillis;
+            this.index = index;
+            this.isFinal = isFinal;
+        }
+
+        // Identity used to never show the same reminder twice
+        long key() {
+            return appointment.getId() * MAX_REMINDERS + index;
+        }
+    }
+
+    /**
+     * What the engine makes happen (notification, status publishing).
+     */
+    public interface Actions {
+        void onReminder(Reminder reminder);
+
+        void onDoctorStatusChanged(String status);
+    }
+
+    /**
+     * Reminders already shown, kept on disk (reminders table) so a new process knows them.
+     * Called on the engine's thread.
+     */
+    public interface ReminderHistory {
+        // Offsets of the reminders already shown for this appointment
+        List<Long> firedOffsets(long appointmentId);
+
+        void recordFired(long appointmentId, long offsetMillis, long firedAtMillis);
+    }
+
+    // No history (tests that do not restart the engine)
+    public static final ReminderHistory NO_HISTORY = new ReminderHistory() {
+        @Override
+        public List<Long> firedOffsets(long appointmentId) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void recordFired(long appointmentId, long offsetMillis, long firedAtMillis) {
+        }
+    };
+
+    /**
+     * Where the two alarms are registered (AlarmManager on the device, a fake in tests).
+     */
+    public interface AlarmBackend {
+        // Must wake the device (reminder, Doze-safe)
+        void setReminderAlarm(long triggerAtMillis);
+
+        // May wait until the device is awake (status change only)
+        void setStatusAlarm(long triggerAtMillis);
+
+        void cancelReminderAlarm();
+
+        void cancelStatusAlarm();
+    }
+
+    private final AppointmentRepository repository;
+    private final AppClock clock;
+    private final AlarmBackend alarms;
+    private final Actions actions;
+    private final ReminderHistory history;
+    private final long[] reminderOffsets; // largest first
+
+    private final PriorityQueue<Event> upcoming = new PriorityQueue<>();
+
+    // Reminder timers of every future appointment, and the handles to cancel them
+    private TimerWheel<Reminder> reminderWheel;
+    private final Map<Long, List<TimerWheel.Timer<Reminder>>> timersByAppointment = new HashMap<>();
+    private final List<Reminder> dueNow = new ArrayList<>(); // late reminders, fired on the next run
+
+    // Status events at or before this instant have been handled
+    private long processedUntil;
+
+    // Reminders already shown (key -> appointment start), pruned once the appointment starts
+    private final Map<Long, Long> shown = new HashMap<>();
+
+    private String doctorStatus;          // last published status (null before start())
+    private long reminderAlarmAt = NO_ALARM;
+    private long statusAlarmAt = NO_ALARM;
+
+    // Measurements
+    private long wakeups;
+    private final long[] dispatched = new long[EventType.values().length];
+
+    public AppointmentEngine(AppointmentRepository repository, AppClock clock,
+                             AlarmBackend alarms, Actions actions) {
+        this(repository, clock, alarms, actions, NO_HISTORY, ReminderScheduler.REMINDER_OFFSETS_MILLIS);
+    }
+
+    public AppointmentEngine(AppointmentRepository repository, AppClock clock,
+                             AlarmBackend alarms, Actions actions, long[] reminderOffsets) {
+        this(repository, clock, alarms, actions, NO_HISTORY, reminderOffsets);
+    }
+
+    /**
+     * @param reminderOffsets how long before the start each reminder fires, largest first
+     */
+    public AppointmentEngine(AppointmentRepository repository, AppClock clock, AlarmBackend alarms,
+                             Actions actions, ReminderHistory history, long[] reminderOffsets) {
+        this.repository = repository;
+        this.clock = clock;
+        this.alarms = alarms;
+        this.actions = actions;
+        this.history = history;
+        if (reminderOffsets.length == 0 || reminderOffsets.length > MAX_REMINDERS) {
+            throw new IllegalArgumentException("1 to " + MAX_REMINDERS + " reminder offsets expected");
+        }
+        this.reminderOffsets = reminderOffsets.clone();
+    }
+
+    // ================================
+    // ENTRY POINTS
+    // ================================
+
+    /**
+     * First run after process start: load the reminders, publish the current status and
+     * arm the alarms. Status events that happened while the process was not running are not
+     * replayed; a reminder due right now (its alarm started the process) is shown.
+     */
+    public synchronized void start() {
+        long now = clock.currentTimeMillis();
+        processedUntil = now;
+        loadReminders(now);
+        run();
+    }
+
+    /**
+     * One of the alarms fired.
+     */
+    public synchronized void onAlarm() {
+        wakeups++;
+        run();
+    }
+
+    /**
+     * The clock or time zone changed: recompute everything.
+     */
+    public synchronized void reschedule() {
+        run();
+    }
+
+    @Override
+    public synchronized void onAppointmentAdded(Appointment appointment) {
+        if (reminderWheel != null) {
+            scheduleReminders(appointment, clock.currentTimeMillis());
+            run();
+        }
+    }
+
+    @Override
+    public synchronized void onAppointmentRemoved(Appointment appointment) {
+        if (reminderWheel != null) {
+            cancelReminders(appointment.getId());
+            run();
+        }
+    }
+
+    // ================================
+    // MEASUREMENTS
+    // ================================
+
+    public synchronized long getWakeupCount() {
+        return wakeups;
+    }
+
+    public synchronized long getDispatchedCount(EventType type) {
+        return dispatched[type.ordinal()];
+    }
+
+    public synchronized long getReminderAlarmAt() {
+        return reminderAlarmAt;
+    }
+
+    public synchronized long getStatusAlarmAt() {
+        return statusAlarmAt;
+    }
+
+    public synchronized int getScheduledReminderCount() {
+        return reminderWheel != null ? reminderWheel.size() : 0;
+    }
+
+    public synchronized String getDoctorStatus() {
+        return doctorStatus;
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private void run() {
+        long now = clock.currentTimeMillis();
+        if (now < processedUntil) {
+            // Clock moved back: the wheel only moves forward, rebuild it for the new "now"
+            // (reminders already shown are remembered in "shown")
+            processedUntil = now;
+            loadReminders(now);
+        }
+
+        // Reminders: late reminders, then every expired wheel timer (one batch)
+        List<Reminder> late = new ArrayList<>(dueNow);
+        dueNow.clear();
+        for (Reminder reminder : late) {
+            dispatchReminder(reminder, now);
+        }
+        reminderWheel.advanceTo(now, reminder -> dispatchReminder(reminder, now));
+
+        // Status events: dispatch until nothing else is due
+        boolean dispatchedSomething;
+        do {
+            rebuildStatusEvents();
+            dispatchedSomething = false;
+            while (!upcoming.isEmpty() && upcoming.peek().atMillis <= now) {
+                Event event = upcoming.poll();
+                dispatched[event.type.ordinal()]++;
+                dispatchedSomething = true;
+            }
+            processedUntil = now;
+        } while (dispatchedSomething);
+
+        pruneShown(now);
+        publishStatus(now);
+        armAlarms();
+    }
+
+    private void loadReminders(long now) {
+        reminderWheel = new TimerWheel<>(WHEEL_TICK_MILLIS, now);
+        timersByAppointment.clear();
+        dueNow.clear();
+        for (Appointment appointment : repository.range(now + 1, Long.MAX_VALUE)) {
+            scheduleReminders(appointment, now);
+        }
+    }
+
+    private void scheduleReminders(Appointment appointment, long now) {
+        List<TimerWheel.Timer<Reminder>> timers = new ArrayList<>(reminderOffsets.length);
+        List<Long> fired = null; // read from the history only if a reminder is late
+        for (int i = 0; i < reminderOffsets.length; i++) {
+            boolean isFinal = i == reminderOffsets.length - 1;
+            Reminder reminder = new Reminder(appointment, reminderOffsets[i], i, isFinal);
+            if (shown.containsKey(reminder.key())) {
+                continue;
+            }
+            long lateGrace = isFinal ? reminderOffsets[i]
+                    : ReminderScheduler.lateGrace(reminderOffsets[i], reminderOffsets[i + 1]);
+            long at = ReminderScheduler.computeTriggerTime(
+                    appointment.getStartMillis(), reminderOffsets[i], lateGrace, now);
+            if (at == ReminderScheduler.NO_REMINDER) {
+                continue;
+            }
+            if (at <= now) {
+                if (fired == null) {
+                    fired = history.firedOffsets(appointment.getId());
+                }
+                if (fired.contains(reminderOffsets[i])) {
+                    shown.put(reminder.key(), appointment.getStartMillis()); // shown by an earlier process
+                } else {
+                    dueNow.add(reminder);
+                }
+            } else {
+                timers.add(reminderWheel.schedule(at, reminder));
+            }
+        }
+        if (!timers.isEmpty()) {
+            timersByAppointment.put(appointment.getId(), timers);
+        }
+    }
+
+    private void cancelReminders(long appointmentId) {
+        List<TimerWheel.Timer<Reminder>> timers = timersByAppointment.remove(appointmentId);
+        if (timers != null) {
+            for (TimerWheel.Timer<Reminder> timer : timers) {
+                reminderWheel.cancel(timer);
+            }
+        }
+        Iterator<Reminder> late = dueNow.iterator();
+        while (late.hasNext()) {
+            if (late.next().appointment.getId() == appointmentId) {
+                late.remove();
+            }
+        }
+    }
+
+    private void dispatchReminder(Reminder reminder, long now) {
+        // Stale after a big clock jump, or already shown
+        if (reminder.appointment.getStartMillis() <= now || shown.containsKey(reminder.key())) {
+            return;
+        }
+        shown.put(reminder.key(), reminder.appointment.getStartMillis());
+        dispatched[EventType.REMINDER.ordinal()]++;
+        actions.onReminder(reminder);
+        history.recordFired(reminder.appointment.getId(), reminder.offsetMillis, now);
+    }
+
+    /**
+     * Fill the queue with the start / end events of the next appointments.
+     * Start times are sorted, so stop at the first appointment that starts after
+     * an event already queued.
+     */
+    private void rebuildStatusEvents() {
+        upcoming.clear();
+        long earliest = Long.MAX_VALUE;
+
+        // First appointment whose consultation is not over yet
+        Appointment appointment = repository.nextUpcoming(processedUntil - AppointmentTimeEngine.CONSULTATION_MILLIS + 1);
+        while (appointment != null && appointment.getStartMillis() <= earliest) {
+            long start = appointment.getStartMillis();
+            if (start > processedUntil) {
+                upcoming.add(new Event(start, EventType.CONSULTATION_START, appointment));
+                earliest = Math.min(earliest, start);
+            }
+            long end = AppointmentTimeEngine.consultationEnd(start);
+            if (end > processedUntil) {
+                upcoming.add(new Event(end, EventType.CONSULTATION_END, appointment));
+                earliest = Math.min(earliest, end);
+            }
+            appointment = repository.nextAfter(appointment);
+        }
+    }
+
+    private void pruneShown(long now) {
+        Iterator<Long> starts = shown.values().iterator();
+        while (starts.hasNext()) {
+            if (starts.next() <= now) {
+                starts.remove();
+            }
+        }
+        Iterator<List<TimerWheel.Timer<Reminder>>> handles = timersByAppointment.values().iterator();
+        while (handles.hasNext()) {
+            boolean anyLeft = false;
+            for (TimerWheel.Timer<Reminder> timer : handles.next()) {
+                anyLeft |= timer.isScheduled();
+            }
+            if (!anyLeft) {
+                handles.remove();
+            }
+        }
+    }
+
+    private void publishStatus(long now) {
+        // Appointment in consultation, or else the next one
+        Appointment current = repository.nextUpcoming(now - AppointmentTimeEngine.CONSULTATION_MILLIS + 1);
+        long start = current != null ? current.getStartMillis() : AppointmentSnapshotCache.NO_APPOINTMENT;
+        String status = DoctorStatusMachine.statusAt(start, now);
+        if (!status.equals(doctorStatus)) {
+            doctorStatus = status;
+            actions.onDoctorStatusChanged(status);
+        }
+    }
+
+    private void armAlarms() {
+        long nextReminder = reminderWheel.nextDeadline();
+        if (nextReminder == TimerWheel.NO_DEADLINE) {
+            nextReminder = NO_ALARM;
+        }
+        long nextStatus = upcoming.isEmpty() ? NO_ALARM : upcoming.peek().atMillis;
+
+        if (nextReminder != reminderAlarmAt) {
+            if (nextReminder == NO_ALARM) {
+                alarms.cancelReminderAlarm();
+            } else {
+                alarms.setReminderAlarm(nextReminder);
+            }
+            reminderAlarmAt = nextReminder;
+        }
+        if (nextStatus != statusAlarmAt) {
+            if (nextStatus == NO_ALARM) {
+                alarms.cancelStatusAlarm();
+            } else {
+                alarms.setStatusAlarm(nextStatus);
+            }
+            statusAlarmAt = nextStatus;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.content.Intent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * APPOINTMENT ENGINE HOST - Android side of AppointmentEngine (one per process).
+ *
+ * - Alarms go to AlarmManager (AndroidAlarmBackend -> AppointmentAlarmReceiver)
+ * - Reminders (24 h, 1 h, 10 min, 1 min) start AppointmentReminderService; when Android
+ *   does not let a background app start it (8+), the reminder is posted directly
+ * - Shown reminders are recorded in the database (reminders table): a process started
+ *   by a reminder's alarm knows whether an earlier process already showed it
+ * - Doctor status is published on DOCTOR_STATUS_BUS (in-process, sticky, main thread)
+ * - Any booking / removal adds / cancels its reminder timers on the appointment IO thread
+ *
+ * No long-running service: between two events nothing of ours runs.
+ */
+public final class AppointmentEngineHost {
+
+    private static final String TAG = "AppointmentEngine";
+
+    // Doctor status for screens in this process, delivered on the main thread.
+    // Sticky: a screen that subscribes later gets the current status immediately.
+    public static final StatusBus<String> DOCTOR_STATUS_BUS = new StatusBus<>(MainThreadExecutor.INSTANCE);
+
+    private static volatile AppointmentEngine engine;
+
+    private AppointmentEngineHost() {
+    }
+
+    /**
+     * Create and start the engine in the background (called at process start).
+     */
+    public static void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        AppointmentStorage.execute(() -> engine(appContext));
+    }
+
+    /**
+     * The shared engine, created (and started) on first use.
+     */
+    public static AppointmentEngine engine(Context context) {
+        AppointmentEngine result = engine;
+        if (result == null) {
+            synchronized (AppointmentEngineHost.class) {
+                result = engine;
+                if (result == null) {
+                    result = create(context.getApplicationContext());
+                    engine = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static AppointmentEngine create(Context context) {
+        AppointmentRepository repository = AppointmentStorage.repository(context);
+        AppointmentEngine created = new AppointmentEngine(repository, AppClock.SYSTEM,
+                new AndroidAlarmBackend(context), new AppointmentEngine.Actions() {
+                    @Override
+                    public void onReminder(AppointmentEngine.Reminder reminder) {
+                        AppLog.event(AppLog.DEBUG, TAG, "reminder_appointment", reminder.appointment.getId());
+                        AppLog.event(AppLog.DEBUG, TAG, "reminder_offset_millis", reminder.offsetMillis);
+                        Intent serviceIntent = new Intent(context, AppointmentReminderService.class);
+                        serviceIntent.setAction(AppointmentReminderService.ACTION_SHOW_REMINDER);
+                        serviceIntent.putExtra(AppointmentReminderService.EXTRA_APPOINTMENT_ID, reminder.appointment.getId());
+                        serviceIntent.putExtra(AppointmentReminderService.EXTRA_OFFSET_MILLIS, reminder.offsetMillis);
+                        serviceIntent.putExtra(AppointmentReminderService.EXTRA_FINAL, reminder.isFinal);
+                        try {
+                            context.startService(serviceIntent);
+                        } catch (IllegalStateException e) {
+                            // Background start not allowed: the notification alone (its channel
+                            // sounds and vibrates) instead of the service's ringtone
+                            AppLog.w(TAG, "Reminder service not allowed now, posting directly");
+                            ReminderNotifications.show(context, reminder.appointment.getId(),
+                                    reminder.offsetMillis, reminder.isFinal);
+                        }
+                    }
+
+                    @Override
+                    public void onDoctorStatusChanged(String status) {
+                        AppLog.d(TAG, "Doctor status changed to: ", status);
+                        DOCTOR_STATUS_BUS.post(status);
+                    }
+                }, new DatabaseReminderHistory(context), ReminderScheduler.REMINDER_OFFSETS_MILLIS);
+
+        // Add / cancel the reminder timers off the caller's thread (bookings are made on the main thread)
+        repository.addChangeListener(new AppointmentRepository.ChangeListener() {
+            @Override
+            public void onAppointmentAdded(Appointment appointment) {
+                AppointmentStorage.execute(() -> created.onAppointmentAdded(appointment));
+            }
+
+            @Override
+            public void onAppointmentRemoved(Appointment appointment) {
+                AppointmentStorage.execute(() -> created.onAppointmentRemoved(appointment));
+            }
+        });
+        created.start();
+        AppLog.event(AppLog.INFO, TAG, "engine_started_reminders", created.getScheduledReminderCount());
+        return created;
+    }
+
+    /**
+     * Reminder history in the reminders table. The engine runs on the appointment IO
+     * thread, the database's thread, so it is read and written directly.
+     */
+    private static final class DatabaseReminderHistory implements AppointmentEngine.ReminderHistory {
+        private final Context context;
+
+        DatabaseReminderHistory(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public List<Long> firedOffsets(long appointmentId) {
+            try {
+                return AppointmentStorage.database(context).firedReminderOffsets(appointmentId);
+            } catch (IOException e) {
+                // Unknown history: showing a reminder twice beats missing it
+                AppLog.e(TAG, "Could not read reminder history", e);
+                return new ArrayList<>();
+            }
+        }
+
+        @Override
+        public void recordFired(long appointmentId, long offsetMillis, long firedAtMillis) {
+            try {
+                AppointmentStorage.database(context).recordReminder(appointmentId, offsetMillis, firedAtMillis);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Could not record reminder", e);
+            }
+        }
+    }
+}
@@ -7,7 +7,6 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
@@ -16,13 +15,6 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.Vibrator;
 import android.os.VibrationEffect;
-import android.util.Log;
-
-import androidx.core.app.NotificationCompat;
-
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Locale;
 
 public class AppointmentReminderService extends Service {
 
@@ -30,161 +22,109 @@ public class AppointmentReminderService extends Service {
     //A notification channel is registered to allow notifications to be displayed
     // on Android 8.0+ and to define their importance and behavior.
     // (without it android won't let u display ur notification)
-    private static final String CHANNEL_ID = "AppointmentReminderChannel";
-    private static final int NOTIFICATION_ID = 1001;
-
-    //The Handler is used to schedule and repeatedly execute a
-    // task every 5 seconds in the background without blocking the main thread.
+    // Notifications themselves are posted by ReminderNotifications (one id per appointment)
+    static final String CHANNEL_ID = "AppointmentReminderChannel";
+    // Early reminders (24 h, 1 h, 10 min) and the group summary: low importance, no
+    // heads-up, no sound or vibration (on Android 8+ the channel decides, not the notification)
+    static final String EARLY_CHANNEL_ID = "AppointmentEarlyReminderChannel";
+
+    // Sent by AppointmentEngine when a reminder is due (24 h, 1 h, 10 min or 1 min before)
+    public static final String ACTION_SHOW_REMINDER = "com.example.medicalsystem2.SHOW_REMINDER";
+    public static final String EXTRA_APPOINTMENT_ID = "appointment_id";
+    public static final String EXTRA_OFFSET_MILLIS = "offset_millis";
+    // Only the final (1 minute) reminder rings and vibrates
+    public static final String EXTRA_FINAL = "final_reminder";
+
+    // Time to check the appointment and post the reminder (see Metrics)
+    private static final Metrics.Timer SHOW_REMINDER_TIMER = Metrics.timer("reminder.show");
+
+    // How long the ringtone plays before the service stops itself
+    private static final long RINGTONE_DURATION_MILLIS = 30000;
+
+    //The Handler is only used to stop the ringtone after 30 seconds.
+    // There is no polling anymore: AppointmentEngine registers the reminder as an exact alarm
+    // and this service only runs when that reminder is due.
     private Handler handler;
 
-    // We find in it the logic that will executed in handler
-    private Runnable checkAppointmentRunnable;
     //java object : The Ringtone class is used to play the system’s default sound
     // sound as an audible alert when an appointment reminder is triggered.
     private Ringtone ringtone;
-    private boolean notificationShown = false;
 
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "========== Service Created! ==========");
+        AppLog.d(TAG, "========== Service Created! ==========");
 
-
-        createNotificationChannel();
+        createNotificationChannel(this);
         handler = new Handler();
-
-        // Check appointments every 5 secs
-        checkAppointmentRunnable = new Runnable() {
-            @Override
-            public void run() {
-                checkForUpcomingAppointments();
-                handler.postDelayed(this, 5000); // Check every 5 seconds : re execute itself
-            }
-        };
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        Log.d(TAG, "========== Service Started! ==========");
-
-        // Start checking for appointments
-        handler.post(checkAppointmentRunnable);
+        AppLog.d(TAG, "========== Service Started! ==========");
+
+        if (intent != null && ACTION_SHOW_REMINDER.equals(intent.getAction())) {
+            // The reminder is due: alert the user, then stop once the ringtone is done
+            long appointmentId = intent.getLongExtra(EXTRA_APPOINTMENT_ID, -1L);
+            long offsetMillis = intent.getLongExtra(EXTRA_OFFSET_MILLIS, ReminderScheduler.REMINDER_OFFSET_MILLIS);
+            boolean isFinal = intent.getBooleanExtra(EXTRA_FINAL, true);
+            long started = SHOW_REMINDER_TIMER.start();
+            showReminderIfStillValid(appointmentId, offsetMillis, isFinal, startId);
+            SHOW_REMINDER_TIMER.stop(started);
+        } else {
+            // Plain start: scheduling belongs to AppointmentEngine, nothing to do here
+            stopSelf(startId);
+        }
 
-        return START_STICKY; // Service will restart if killed by system because of cpu overuse etc
+        // Nothing to restart: the pending alarm survives even if this process is killed
+        return START_NOT_STICKY;
     }
 
-    private void checkForUpcomingAppointments() {
-        //MODE_PRIVATE ensures that the SharedPreferences data is accessible only to the current
-        // application and cannot be read or modified by other apps (malware etc)
-        SharedPreferences prefs = getSharedPreferences("AppointmentPrefs", MODE_PRIVATE);
+    private void showReminderIfStillValid(long appointmentId, long offsetMillis, boolean isFinal, int startId) {
+        AppointmentRepository repository = AppointmentStorage.repository(this);
+        Appointment appointment = repository.get(appointmentId);
 
-        // second default value
-        String appointmentDateTime = prefs.getString("appointment_datetime", "");
-
-        if (appointmentDateTime.isEmpty()) {
-            Log.d(TAG, "No appointment scheduled");
-            return; //complete this method and wait 5 sec to repeat the process
+        // The appointment may have been cancelled after the alarm was set
+        if (appointment == null || appointment.getStartMillis() <= System.currentTimeMillis()) {
+            AppLog.event(AppLog.DEBUG, TAG, "reminder_skipped_appointment", appointmentId);
+            stopSelf(startId);
+            return;
         }
 
-        //This code converts the appointment time from a string into a calendar object,
-        // gets the current time, normalizes both by removing seconds,
-        // and calculates the remaining time until the appointment in
-        // milliseconds, seconds, and minutes for accurate comparison.
-        try {
-            //Defines how date and time text is written ex: "2025-03-14 16:45"
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            //creates a calendar object :By default, it is initialized
-            // with the current date and time according to the device’s clock.
-            Calendar appointmentTime = Calendar.getInstance();
-            //sdf.parse() converts the String into a Date . format sdf : yyyy-mm-dd ...
-            appointmentTime.setTime(sdf.parse(appointmentDateTime));
-
-            Calendar now = Calendar.getInstance();
-
-            // Set seconds to 0 for accurate comparison
-            appointmentTime.set(Calendar.SECOND, 0);
-            now.set(Calendar.SECOND, 0);
-
-            // Calculate difference in seconds
-            long diffInMillis = appointmentTime.getTimeInMillis() - now.getTimeInMillis();
-            long diffInSeconds = diffInMillis / 1000;
-            long diffInMinutes = diffInSeconds / 60;
-
-            Log.d(TAG, "📅 Appointment scheduled for: " + sdf.format(appointmentTime.getTime()));
-            Log.d(TAG, "🕐 Current time: " + sdf.format(now.getTime()));
-            Log.d(TAG, "⏱️ Minutes until appointment: " + diffInMinutes);
-            Log.d(TAG, "⏱️ Seconds until appointment: " + diffInSeconds);
-
-            // If appointment is in 1 minute (between 50 and 70 seconds to catch it reliably)
-            if (diffInSeconds >= 50 && diffInSeconds <= 70 && !notificationShown) {
-                Log.d(TAG, "🔔 REMINDER TRIGGERED - Appointment in 1 minute!");
-                Log.d(TAG, "⏰ NOTIFICATION WILL BE SHOWN NOW");
-                showNotificationWithRingtone();
-                notificationShown = true;
-            } else if (diffInSeconds >= 50 && diffInSeconds <= 70 && notificationShown) {
-                // juste clarification
-                Log.d(TAG, "⚠️ Reminder already shown, waiting for appointment");
-            } else if (diffInSeconds > 70) {
-                Log.d(TAG, "⏳ Appointment is still " + diffInSeconds + " seconds away (need to wait until 50-70 seconds)");
-            } else if (diffInSeconds < 50) {
-                Log.d(TAG, "⚡ Appointment is very soon! " + diffInSeconds + " seconds remaining");
-            }
-            // tous les else if pour logging ctt
-
-            // If appointment time has passed, clear it
-            // pour que sharedprefs stay empty
-            if (diffInSeconds < 0) {
-                Log.d(TAG, "✅ Appointment time has passed, clearing from preferences");
-                prefs.edit().remove("appointment_datetime").apply();
-                notificationShown = false;
-            }
+        String when = ReminderScheduler.describeOffset(offsetMillis);
+        AppLog.d(TAG, "🔔 REMINDER TRIGGERED - Appointment in ", when);
+        showNotification(appointmentId, ReminderNotifications.reminderText(offsetMillis), isFinal);
 
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Error checking appointment: " + e.getMessage(), e);
+        if (isFinal) {
+            // Stop the service once the ringtone has finished
+            handler.postDelayed(() -> stopSelf(startId), RINGTONE_DURATION_MILLIS);
+        } else {
+            // Early reminders are silent: stop once the notification is out (it may wait for the rate limit)
+            ReminderNotifications.dispatcher(this).whenIdle(() -> stopSelf(startId));
         }
     }
 
 
-    // This method creates and posts notification to alert the user of an upcoming appointment.
-    private void showNotificationWithRingtone() {
+    // This method hands the notification to the dispatcher, which posts it (one per appointment,
+    // grouped and rate-limited when many reminders fire together).
+    // Only the final reminder plays the ringtone and vibrates.
+    private void showNotification(long appointmentId, String text, boolean withRingtone) {
         // Log a debug message to indicate that the notification method has started
-        Log.d(TAG, "📢 Showing notification (non-interactive)");
-
-        // Create a NotificationCompat.Builder to build the notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setSmallIcon(android.R.drawable.ic_dialog_info)
-                // Set the small icon for the notification (mandatory)
-                .setContentTitle("Appointment Reminder 🏥")
-                // Set the title text of the notification
-                .setContentText("Your appointment is in 1 minute!")
-                // Set the main content/message
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                // Set the priority so it can pop up as heads-up on newer Android versions
-                .setCategory(NotificationCompat.CATEGORY_ALARM)
-                // Categorize this notification as an alarm (affects behavior)
-                // to become same behaviour as alarm
-                .setAutoCancel(true)
-                // Dismiss the notification automatically when user taps it
-                .setVibrate(new long[]{0, 1000, 500, 1000});
-        // Vibration pattern: wait 0ms, vibrate 1s, pause 0.5s, vibrate 1s
-
-        // Get the NotificationManager system service to actually post notifications
-        // NotificationManager : c'est qui qui handle every notif in android
-        NotificationManager notificationManager =
-                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-
-        // Post the notification with a unique ID so it can be updated or removed later
-        // trigger notification
-        notificationManager.notify(NOTIFICATION_ID, builder.build());
-
-        // Log a message indicating the notification was successfully posted
-        Log.d(TAG, "✅ Non-interactive notification posted");
-
-        // Play a custom ringtone (method defined elsewhere)
-        playRingtone();
-
-        // Vibrate the phone manually (method defined elsewhere)
-        vibratePhone();
+        AppLog.d(TAG, "📢 Showing notification (non-interactive)");
+
+        // The dispatcher keeps the NotificationManager and the builders: nothing is looked up or rebuilt here
+        ReminderNotifications.dispatcher(this)
+                .submit(new NotificationDispatcher.Notice(appointmentId, text, withRingtone));
+        AppLog.d(TAG, "✅ Non-interactive notification queued");
+
+        // Many final reminders at once (a staff device): one ringtone, not one per reminder
+        if (withRingtone && (ringtone == null || !ringtone.isPlaying())) {
+            // Play a custom ringtone (method defined elsewhere)
+            playRingtone();
+
+            // Vibrate the phone manually (method defined elsewhere)
+            vibratePhone();
+        }
     }
 
 
@@ -205,7 +145,7 @@ public class AppointmentReminderService extends Service {
             ringtone.play();
 
             // its only for debugging
-            Log.d(TAG, "🔊 Ringtone is playing!");
+            AppLog.d(TAG, "🔊 Ringtone is playing!");
 
             // Schedule a task to automatically stop the ringtone after 30 seconds
             // Using the Handler to post a delayed Runnable ensures it runs on the main thread after 30,000 milliseconds
@@ -215,12 +155,12 @@ public class AppointmentReminderService extends Service {
                     // Call stopRingtone() to stop the sound
                     stopRingtone();
                 }
-            }, 30000); // 30,000 milliseconds = 30 seconds
+            }, RINGTONE_DURATION_MILLIS); // 30,000 milliseconds = 30 seconds
 
         } catch (Exception e) {
             // Catch any exceptions (e.g., ringtone file not found or playback issues)
             // Log the error for debugging purposes
-            Log.e(TAG, " Error playing ringtone: " + e.getMessage(), e);
+            AppLog.e(TAG, " Error playing ringtone: " + e.getMessage(), e);
         }
     }
 
@@ -229,7 +169,7 @@ public class AppointmentReminderService extends Service {
         if (ringtone != null && ringtone.isPlaying()) {
             // Stop the ringtone playback immediately
             ringtone.stop();
-            Log.d(TAG, "🔇 Ringtone stopped!");
+            AppLog.d(TAG, "🔇 Ringtone stopped!");
         }
     }
 
@@ -267,20 +207,22 @@ public class AppointmentReminderService extends Service {
                     vibrator.vibrate(pattern, -1); // -1 = do not repeat
                 }
 
-                Log.d(TAG, "📳 Phone is vibrating!");
+                AppLog.d(TAG, "📳 Phone is vibrating!");
             } else {
-                Log.w(TAG, "⚠️ Device does not have vibrator");
+                AppLog.w(TAG, "⚠️ Device does not have vibrator");
             }
 
         } catch (Exception e) {
             // Catch and log any exceptions related to vibration
-            Log.e(TAG, "❌ Error vibrating: " + e.getMessage(), e);
+            AppLog.e(TAG, "❌ Error vibrating: " + e.getMessage(), e);
         }
     }
 
 
 
-    private void createNotificationChannel() {
+    // Static: also called by the startup pipeline (MainActivity), so the channel exists
+    // before the first reminder. Creating an existing channel is a cheap no-op.
+    static void createNotificationChannel(Context context) {
         // Only create a notification channel on Android 8.0 (Oreo / API 26) and above
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
 
@@ -306,14 +248,24 @@ public class AppointmentReminderService extends Service {
             channel.setVibrationPattern(new long[]{0, 1000, 500, 1000});
 
             // Get the system NotificationManager to register the channel
-            NotificationManager manager = getSystemService(NotificationManager.class);
+            NotificationManager manager = context.getSystemService(NotificationManager.class);
 
             // Register the channel with the system
             // If the channel already exists, Android will ignore this call
             manager.createNotificationChannel(channel);
 
-            // Log a debug message indicating the channel was successfully created
-            Log.d(TAG, "✅ Notification channel created");
+            // Quiet channel for the early reminders: shown in the shade and the status bar only
+            NotificationChannel early = new NotificationChannel(
+                    EARLY_CHANNEL_ID,
+                    "Early Appointment Reminders",
+                    NotificationManager.IMPORTANCE_LOW
+            );
+            early.setDescription("Reminders a day, an hour and 10 minutes before an appointment");
+            early.enableVibration(false);
+            manager.createNotificationChannel(early);
+
+            // Log a debug message indicating the channels were successfully created
+            AppLog.d(TAG, "✅ Notification channels created");
         }
     }
 
@@ -322,9 +274,9 @@ public class AppointmentReminderService extends Service {
     public void onDestroy() {
         super.onDestroy();
 
-        // Stop handler
+        // Drop the pending ringtone / stopSelf callbacks
         if (handler != null) {
-            handler.removeCallbacks(checkAppointmentRunnable);
+            handler.removeCallbacksAndMessages(null);
         }
 
         // Stop ringtone
@@ -344,4 +296,4 @@ public class AppointmentReminderService extends Service {
         return null;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,381 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * APPOINTMENT REPOSITORY - All booked appointments, for every user.
+ *
+ * - Keyed by id (HashMap)
+ * - Indexed by start time (TreeSet) globally and per user, so "next upcoming"
+ *   and range queries are O(log n)
+ * - Persisted in an AppointmentStore (SQLite tables, AppointmentDatabase)
+ * - Optional write-behind: changes are visible in memory at once and written by a
+ *   background thread; all changes made within maxFlushDelayMillis share one commit
+ *
+ * Replaces the single "appointment_datetime" preference, where booking a second
+ * appointment overwrote the first. Pure Java: the Android side is AppointmentStorage.
+ */
+public class AppointmentRepository {
+
+    // Caller-side cost of add / remove, and cost of one batched commit (see Metrics)
+    private static final Metrics.Timer WRITE_TIMER = Metrics.timer("storage.write");
+    private static final Metrics.Timer COMMIT_TIMER = Metrics.timer("storage.commit");
+
+    /**
+     * Notified (on the thread that made the change) after appointments are added or removed.
+     */
+    public interface Listener {
+        void onAppointmentsChanged();
+    }
+
+    /**
+     * Same notification with the appointment that changed, for listeners that keep their
+     * own per-appointment state (e.g. the reminder timers of AppointmentEngine).
+     */
+    public interface ChangeListener {
+        void onAppointmentAdded(Appointment appointment);
+
+        void onAppointmentRemoved(Appointment appointment);
+    }
+
+    /**
+     * A change waiting for the write-behind thread (put, or delete when appointment is null).
+     */
+    private static final class PendingWrite {
+        final Appointment appointment;
+        final long deleteId;
+
+        PendingWrite(Appointment appointment, long deleteId) {
+            this.appointment = appointment;
+            this.deleteId = deleteId;
+        }
+
+        void writeTo(AppointmentStore store) throws IOException {
+            if (appointment != null) {
+                store.appendPut(appointment);
+            } else {
+                store.appendDelete(deleteId);
+            }
+        }
+    }
+
+    private final AppointmentStore store;
+    private final Map<Long, Appointment> byId = new HashMap<>();
+    private final TreeSet<Appointment> byStart = new TreeSet<>(Appointment.BY_START);
+    private final Map<String, TreeSet<Appointment>> byUser = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private long nextId = 1;
+
+    // Write-behind (writer == null -> every change is committed before add()/remove() return)
+    private final ScheduledExecutorService writer;
+    private final long maxFlushDelayMillis;
+    private final Object storeLock = new Object(); // held by the writer while it touches the store
+    private final List<PendingWrite> pending = new ArrayList<>();
+    private final Runnable flushTask = this::flushInBackground;
+    private boolean flushScheduled;
+    private volatile long flushCount;
+    private volatile IOException lastFlushError;
+
+    private AppointmentRepository(AppointmentStore store, ScheduledExecutorService writer, long maxFlushDelayMillis) {
+        this.store = store;
+        this.writer = writer;
+        this.maxFlushDelayMillis = maxFlushDelayMillis;
+    }
+
+    /**
+     * Open on a store and build the in-memory index. With write-behind, add()/remove()
+     * only update memory and the store is committed on the writer thread at most
+     * maxFlushDelayMillis later (one commit per batch).
+     *
+     * @param writer single-threaded executor that owns the store, or null for synchronous writes
+     */
+    public static AppointmentRepository open(AppointmentStore store, ScheduledExecutorService writer,
+                                             long maxFlushDelayMillis) throws IOException {
+        AppointmentRepository repository = new AppointmentRepository(store, writer, maxFlushDelayMillis);
+        for (Appointment appointment : store.load().values()) {
+            repository.index(appointment);
+        }
+        repository.nextId = Math.max(repository.nextId, store.getHighestId() + 1);
+        return repository;
+    }
+
+    // ================================
+    // WRITES
+    // ================================
+
+    /**
+     * Book a new appointment. The id is assigned by the repository.
+     * With write-behind nothing touches the disk here (safe on the main thread).
+     */
+    public Appointment add(String userEmail, String doctorName, long startMillis, boolean customTime)
+            throws IOException {
+        long started = WRITE_TIMER.start();
+        Appointment appointment;
+        synchronized (this) {
+            appointment = new Appointment(nextId, userEmail, doctorName, startMillis, customTime);
+            if (writer != null) {
+                enqueue(new PendingWrite(appointment, 0));
+            } else {
+                store.appendPut(appointment);
+                store.commit();
+            }
+            index(appointment);
+        }
+        WRITE_TIMER.stop(started);
+        for (ChangeListener listener : changeListeners) {
+            listener.onAppointmentAdded(appointment);
+        }
+        notifyListeners();
+        return appointment;
+    }
+
+    /**
+     * Remove an appointment by id.
+     *
+     * @return true if it existed
+     */
+    public boolean remove(long id) throws IOException {
+        long started = WRITE_TIMER.start();
+        Appointment existing;
+        synchronized (this) {
+            existing = byId.get(id);
+            if (existing == null) {
+                return false;
+            }
+            if (writer != null) {
+                unindex(existing);
+                enqueue(new PendingWrite(null, id));
+            } else {
+                store.appendDelete(id);
+                store.commit();
+                unindex(existing);
+            }
+        }
+        WRITE_TIMER.stop(started);
+        for (ChangeListener listener : changeListeners) {
+            listener.onAppointmentRemoved(existing);
+        }
+        notifyListeners();
+        return true;
+    }
+
+    // ================================
+    // QUERIES
+    // ================================
+
+    public synchronized Appointment get(long id) {
+        return byId.get(id);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * First appointment starting at or after the given time, or null.
+     */
+    public synchronized Appointment nextUpcoming(long fromMillis) {
+        return byStart.ceiling(probe(fromMillis));
+    }
+
+    /**
+     * First appointment of this user starting at or after the given time, or null.
+     */
+    public synchronized Appointment nextUpcomingForUser(String userEmail, long fromMillis) {
+        TreeSet<Appointment> userIndex = byUser.get(userEmail);
+        return userIndex != null ? userIndex.ceiling(probe(fromMillis)) : null;
+    }
+
+    /**
+     * Appointment that comes right after the given one in time order, or null.
+     */
+    public synchronized Appointment nextAfter(Appointment appointment) {
+        return byStart.higher(appointment);
+    }
+
+    /**
+     * Appointments starting in [fromMillis, toMillis), ordered by start time.
+     */
+    public synchronized List<Appointment> range(long fromMillis, long toMillis) {
+        return copyRange(byStart, fromMillis, toMillis);
+    }
+
+    public synchronized List<Appointment> rangeForUser(String userEmail, long fromMillis, long toMillis) {
+        TreeSet<Appointment> userIndex = byUser.get(userEmail);
+        if (userIndex == null) {
+            return Collections.emptyList();
+        }
+        return copyRange(userIndex, fromMillis, toMillis);
+    }
+
+    // ================================
+    // LISTENERS
+    // ================================
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // ================================
+    // WRITE-BEHIND
+    // ================================
+
+    /**
+     * Write and commit every pending change now (no-op for synchronous repositories).
+     * Called by the writer thread; may also be called directly, e.g. before closing.
+     */
+    public void flush() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        synchronized (storeLock) {
+            List<PendingWrite> batch;
+            synchronized (this) {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+
+            long started = COMMIT_TIMER.start();
+            try {
+                for (PendingWrite write : batch) {
+                    write.writeTo(store);
+                }
+                store.commit();
+                COMMIT_TIMER.stop(started);
+            } catch (IOException e) {
+                // Keep the batch (in order) for the next attempt; replaying a record twice is harmless
+                synchronized (this) {
+                    pending.addAll(0, batch);
+                }
+                throw e;
+            }
+            flushCount++;
+        }
+    }
+
+    /**
+     * Number of batched commits done by the writer (tests and diagnostics).
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public synchronized int getPendingWriteCount() {
+        return pending.size();
+    }
+
+    /**
+     * Last background write failure (it is retried), or null.
+     */
+    public IOException getLastFlushError() {
+        return lastFlushError;
+    }
+
+    public void close() throws IOException {
+        flush();
+        synchronized (storeLock) {
+            synchronized (this) {
+                store.close();
+            }
+        }
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private void index(Appointment appointment) {
+        byId.put(appointment.getId(), appointment);
+        byStart.add(appointment);
+        TreeSet<Appointment> userIndex = byUser.get(appointment.getUserEmail());
+        if (userIndex == null) {
+            userIndex = new TreeSet<>(Appointment.BY_START);
+            byUser.put(appointment.getUserEmail(), userIndex);
+        }
+        userIndex.add(appointment);
+        nextId = Math.max(nextId, appointment.getId() + 1);
+    }
+
+    private void unindex(Appointment appointment) {
+        byId.remove(appointment.getId());
+        byStart.remove(appointment);
+        TreeSet<Appointment> userIndex = byUser.get(appointment.getUserEmail());
+        if (userIndex != null) {
+            userIndex.remove(appointment);
+            if (userIndex.isEmpty()) {
+                byUser.remove(appointment.getUserEmail());
+            }
+        }
+    }
+
+    // Caller holds the repository lock
+    private void enqueue(PendingWrite write) {
+        pending.add(write);
+        if (!flushScheduled) {
+            // First change of a batch: commit it (and whatever follows) within the delay
+            flushScheduled = true;
+            writer.schedule(flushTask, maxFlushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+            lastFlushError = null;
+        } catch (IOException e) {
+            lastFlushError = e;
+            synchronized (this) {
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    writer.schedule(flushTask, maxFlushDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.onAppointmentsChanged();
+        }
+    }
+
+    private static List<Appointment> copyRange(TreeSet<Appointment> index, long fromMillis, long toMillis) {
+        if (toMillis <= fromMillis) {
+            return Collections.emptyList();
+        }
+        NavigableSet<Appointment> view = index.subSet(probe(fromMillis), true, probe(toMillis), false);
+        return new ArrayList<>(view);
+    }
+
+    // Smallest possible entry at this start time (ids are always > Long.MIN_VALUE)
+    private static Appointment probe(long startMillis) {
+        return new Appointment(Long.MIN_VALUE, "", "", startMillis, false);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.medicalsystem2;
+
+/**
+ * APPOINTMENT SNAPSHOT CACHE - Process-wide, thread-safe view of the "current" appointment
+ * (the one in consultation, or else the next upcoming one).
+ *
+ * The services used to read the stored value and build a SimpleDateFormat + Calendar on
+ * every call. Here the appointment start is kept as a plain epoch-millis long and only
+ * recomputed when:
+ * - the repository changes (this cache is registered as its listener), or
+ * - the cached appointment's consultation is over (the "current" one moves on).
+ *
+ * Reads are a volatile field load plus arithmetic: no allocation.
+ */
+public final class AppointmentSnapshotCache implements AppointmentRepository.Listener {
+
+    public static final long NO_APPOINTMENT = -1L;
+
+    /**
+     * Immutable cached state. A new instance is published on every refresh.
+     */
+    private static final class Snapshot {
+        final Appointment appointment; // null if none
+        final long startMillis;        // NO_APPOINTMENT if none
+        final long validFromMillis;    // time it was computed (clock moved back -> refresh)
+        final long validUntilMillis;   // refresh once "now" reaches this instant
+
+        Snapshot(Appointment appointment, long nowMillis) {
+            this.appointment = appointment;
+            this.validFromMillis = nowMillis;
+            this.startMillis = appointment != null ? appointment.getStartMillis() : NO_APPOINTMENT;
+            this.validUntilMillis = appointment != null
+                    ? AppointmentTimeEngine.consultationEnd(appointment.getStartMillis())
+                    : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Last rendered status text with the minute difference it was built for.
+     */
+    private static final class RenderedStatus {
+        final long minutes;
+        final String text;
+
+        RenderedStatus(long minutes, String text) {
+            this.minutes = minutes;
+            this.text = text;
+        }
+    }
+
+    private final AppointmentRepository repository;
+
+    private volatile Snapshot snapshot;  // null = invalidated
+    private volatile long generation;    // bumped on every invalidation
+    private volatile RenderedStatus rendered;
+
+    public AppointmentSnapshotCache(AppointmentRepository repository) {
+        this.repository = repository;
+        repository.addListener(this);
+    }
+
+    @Override
+    public void onAppointmentsChanged() {
+        invalidate();
+    }
+
+    public void invalidate() {
+        synchronized (this) {
+            generation++;
+            snapshot = null;
+        }
+    }
+
+    // ================================
+    // READS (allocation-free when cached)
+    // ================================
+
+    /**
+     * Start of the current appointment in epoch millis, or NO_APPOINTMENT.
+     */
+    public long currentStartMillis(long nowMillis) {
+        return snapshotAt(nowMillis).startMillis;
+    }
+
+    /**
+     * Current appointment (in consultation or next upcoming), or null.
+     */
+    public Appointment currentAppointment(long nowMillis) {
+        return snapshotAt(nowMillis).appointment;
+    }
+
+    public boolean hasAppointment(long nowMillis) {
+        return snapshotAt(nowMillis).startMillis != NO_APPOINTMENT;
+    }
+
+    /**
+     * Whole minutes until the current appointment (truncated), or -1 if none.
+     */
+    public int minutesUntil(long nowMillis) {
+        long start = currentStartMillis(nowMillis);
+        if (start == NO_APPOINTMENT) {
+            return -1;
+        }
+        return (int) AppointmentTimeEngine.minutesUntil(start, nowMillis);
+    }
+
+    /**
+     * Difference in minutes with both times truncated to the minute (seconds ignored),
+     * the way the status text has always been computed. Long.MIN_VALUE if none.
+     */
+    public long minuteDifference(long nowMillis) {
+        long start = currentStartMillis(nowMillis);
+        if (start == NO_APPOINTMENT) {
+            return Long.MIN_VALUE;
+        }
+        return AppointmentTimeEngine.minuteDifference(start, nowMillis);
+    }
+
+    /**
+     * Status text shown by the bounded service. The string is only rebuilt when the
+     * minute difference changes.
+     */
+    public String statusText(long nowMillis) {
+        long diffInMinutes = minuteDifference(nowMillis);
+        RenderedStatus last = rendered;
+        if (last != null && last.minutes == diffInMinutes) {
+            return last.text;
+        }
+
+        String status;
+        if (diffInMinutes == Long.MIN_VALUE) {
+            status = "No Appointment Scheduled";
+        } else if (diffInMinutes > 0) {
+            status = "Appointment in " + diffInMinutes + " minutes";
+        } else if (diffInMinutes < 0) {
+            status = "Appointment Completed";
+        } else {
+            status = "Appointment Starting Now!";
+        }
+
+        rendered = new RenderedStatus(diffInMinutes, status);
+        return status;
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private Snapshot snapshotAt(long nowMillis) {
+        Snapshot current = snapshot;
+        if (current != null && nowMillis >= current.validFromMillis && nowMillis < current.validUntilMillis) {
+            return current;
+        }
+        return refresh(nowMillis);
+    }
+
+    private Snapshot refresh(long nowMillis) {
+        long startGeneration = generation;
+
+        // Appointment in consultation, or else the next one
+        Appointment appointment = repository.nextUpcoming(
+                nowMillis - AppointmentTimeEngine.CONSULTATION_MILLIS + 1);
+        Snapshot fresh = new Snapshot(appointment, nowMillis);
+
+        synchronized (this) {
+            // Publish only if nothing changed while we were reading the repository
+            if (generation == startGeneration) {
+                snapshot = fresh;
+            }
+        }
+        return fresh;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.medicalsystem2;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * APPOINTMENT STATUS STREAM - Pushes the appointment status to any number of listeners.
+ *
+ * Screens used to ask the bounded service for the status (and the minutes left) every
+ * time they wanted to draw it. Here the stream:
+ * - ticks once per minute, exactly on the wall-clock minute boundary (hh:mm:00.000),
+ *   because the status text only changes when the minute changes
+ * - re-checks right away when an appointment is booked or removed (refresh())
+ * - only calls the listeners when the rendered status actually changed
+ * - sleeps (no tick scheduled) while nobody is listening
+ *
+ * All methods must be called on the same thread (the service's main thread).
+ * Pure Java so the timing can be unit tested on the JVM.
+ */
+public final class AppointmentStatusStream {
+
+    /**
+     * Status as shown on screen (immutable).
+     */
+    public static final class Status {
+        private final String text;
+        private final int minutesUntil; // -1 if there is no appointment
+
+        Status(String text, int minutesUntil) {
+            this.text = text;
+            this.minutesUntil = minutesUntil;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getMinutesUntil() {
+            return minutesUntil;
+        }
+
+        boolean sameAs(Status other) {
+            return other != null && minutesUntil == other.minutesUntil && text.equals(other.text);
+        }
+
+        @Override
+        public String toString() {
+            return text + " (" + minutesUntil + " min)";
+        }
+    }
+
+    /**
+     * Receives every status change (called on the stream's thread).
+     */
+    public interface Listener {
+        void onStatusChanged(Status status);
+    }
+
+    /**
+     * Runs the next tick later (a Handler in the app, a fake in tests).
+     */
+    public interface Ticker {
+        void schedule(Runnable tick, long delayMillis);
+
+        void cancel(Runnable tick);
+    }
+
+    private final AppointmentSnapshotCache snapshotCache;
+    private final AppClock clock;
+    private final Ticker ticker;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable tick = this::onTick;
+
+    private Status latest;           // last emitted status (null before the first one)
+    private boolean tickScheduled;
+
+    public AppointmentStatusStream(AppointmentSnapshotCache snapshotCache, AppClock clock, Ticker ticker) {
+        this.snapshotCache = snapshotCache;
+        this.clock = clock;
+        this.ticker = ticker;
+    }
+
+    // ================================
+    // LISTENERS
+    // ================================
+
+    /**
+     * Add a listener. It receives the current status immediately, then every change.
+     */
+    public void addListener(Listener listener) {
+        if (listener == null || listeners.contains(listener)) {
+            return;
+        }
+        listeners.add(listener);
+
+        if (listeners.size() == 1) {
+            // First listener: start ticking (and compute a fresh status)
+            latest = null;
+            onTick();
+        } else {
+            listener.onStatusChanged(latest);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            stop();
+        }
+    }
+
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
+    // ================================
+    // STATUS
+    // ================================
+
+    /**
+     * Current status, computed from the shared snapshot (no disk read, no parsing).
+     */
+    public Status current() {
+        long now = clock.currentTimeMillis();
+        return new Status(snapshotCache.statusText(now), snapshotCache.minutesUntil(now));
+    }
+
+    /**
+     * Re-check now (e.g. after the repository changed) instead of waiting for the next minute.
+     */
+    public void refresh() {
+        if (!listeners.isEmpty()) {
+            onTick();
+        }
+    }
+
+    /**
+     * Stop ticking and forget all listeners (service destroyed).
+     */
+    public void close() {
+        listeners.clear();
+        stop();
+    }
+
+    /**
+     * Delay from "now" to the start of the next wall-clock minute (1 .. 60000 ms).
+     */
+    public static long delayToNextMinute(long nowMillis) {
+        long nextMinute = (AppointmentTimeEngine.epochMinute(nowMillis) + 1) * AppointmentTimeEngine.MINUTE_MILLIS;
+        return nextMinute - nowMillis;
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private void onTick() {
+        tickScheduled = false;
+
+        Status status = current();
+        if (!status.sameAs(latest)) {
+            latest = status;
+            for (Listener listener : listeners) {
+                listener.onStatusChanged(status);
+            }
+        }
+
+        scheduleNextTick();
+    }
+
+    private void scheduleNextTick() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (tickScheduled) {
+            ticker.cancel(tick);
+        }
+        ticker.schedule(tick, delayToNextMinute(clock.currentTimeMillis()));
+        tickScheduled = true;
+    }
+
+    private void stop() {
+        if (tickScheduled) {
+            ticker.cancel(tick);
+            tickScheduled = false;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.sqlite.SQLiteDatabaseCorruptException;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * APPOINTMENT STORAGE - Process-wide access to the AppointmentRepository.
+ *
+ * Opens the SQLite database (databases/appointments.db) once and, the first time it runs,
+ * imports the old single "appointment_datetime" preference.
+ * Rows are stored encrypted with the app's data key (DataKeys, unwrapped on the IO thread).
+ *
+ * No disk access on the main thread:
+ * - preload() (called from MedicalSystemApp at process start) opens the database and runs
+ *   the migration on the "appointment-io" thread, so screens read from memory
+ * - the repository is write-behind: bookings are committed by the same thread,
+ *   batched (one transaction per batch), at most FLUSH_DELAY_MILLIS after the change
+ */
+public final class AppointmentStorage {
+
+    private static final String TAG = "AppointmentStorage";
+
+    // Opening (and loading) the appointment database at startup (see Metrics)
+    private static final Metrics.Timer LOAD_TIMER = Metrics.timer("storage.load");
+
+    private static final String DATABASE_NAME = "appointments.db";
+
+    // Old storage (one appointment only)
+    private static final String LEGACY_PREFS = "AppointmentPrefs";
+    private static final String LEGACY_KEY_DATETIME = "appointment_datetime";
+    private static final String LEGACY_KEY_CUSTOM = "is_custom_time";
+
+    // Doctor of the imported (and of any unassigned) appointment
+    public static final String DEFAULT_DOCTOR = DoctorDirectory.DEFAULT_DOCTOR;
+
+    // Upper bound between a change and its commit (changes within this window share one fsync)
+    public static final long FLUSH_DELAY_MILLIS = 100;
+
+    // Single background thread that owns the appointment database (load + all writes)
+    private static volatile Thread ioThread;
+    private static final ScheduledExecutorService IO_THREAD =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "appointment-io");
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                ioThread = thread;
+                return thread;
+            });
+
+    private static Future<AppointmentRepository> preloading; // guarded by AppointmentStorage.class
+    private static volatile AppointmentRepository repository;
+    private static volatile AppointmentSnapshotCache snapshotCache;
+    private static volatile BookingService bookingService;
+    private static volatile AppointmentDatabase database;
+
+    private AppointmentStorage() {
+    }
+
+    /**
+     * Start loading the repository in the background (no-op if already started).
+     */
+    public static void preload(Context context) {
+        Context appContext = context.getApplicationContext();
+        synchronized (AppointmentStorage.class) {
+            if (repository == null && preloading == null) {
+                preloading = IO_THREAD.submit(() -> open(appContext));
+            }
+        }
+    }
+
+    /**
+     * The shared repository. Normally already loaded by preload(); if not, waits
+     * for the background load (the disk is still only touched on the IO thread).
+     *
+     * @throws IllegalStateException if it could not be loaded (e.g. the Keystore failed);
+     *                               the next call tries again
+     */
+    public static AppointmentRepository repository(Context context) {
+        AppointmentRepository result = repository;
+        if (result == null) {
+            preload(context);
+            synchronized (AppointmentStorage.class) {
+                result = repository;
+                if (result == null) {
+                    try {
+                        if (Thread.currentThread() == ioThread && !preloading.isDone()) {
+                            // Already on the IO thread: the queued load would wait behind us, load here
+                            preloading.cancel(false);
+                            result = open(context.getApplicationContext());
+                        } else {
+                            result = await(preloading);
+                        }
+                        repository = result;
+                    } finally {
+                        preloading = null; // a failed load is started again by the next call
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Run a task on the appointment IO thread (same thread as the database writes).
+     */
+    public static void execute(Runnable task) {
+        IO_THREAD.execute(task);
+    }
+
+    /**
+     * The appointment database behind the repository (record pages, reminder history).
+     * Only use it on the IO thread, see execute().
+     */
+    public static AppointmentDatabase database(Context context) {
+        repository(context);
+        return database;
+    }
+
+    private static AppointmentRepository await(Future<AppointmentRepository> loading) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return loading.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Appointment storage unavailable", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The shared snapshot of the current appointment (parsed once, invalidated on changes).
+     */
+    public static AppointmentSnapshotCache snapshot(Context context) {
+        AppointmentSnapshotCache result = snapshotCache;
+        if (result == null) {
+            synchronized (AppointmentStorage.class) {
+                result = snapshotCache;
+                if (result == null) {
+                    result = new AppointmentSnapshotCache(repository(context));
+                    snapshotCache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The shared booking service: every booking of this process goes through it, so two
+     * screens (or two taps) can never get the same doctor slot. The slots of the
+     * appointments already saved are restored the first time it is used.
+     *
+     * In-process backend: it does not see other devices' bookings. Those conflicts are
+     * only found by the sync server, after the fact (see SyncHost).
+     */
+    public static BookingService bookingService(Context context) {
+        BookingService result = bookingService;
+        if (result == null) {
+            synchronized (AppointmentStorage.class) {
+                result = bookingService;
+                if (result == null) {
+                    AppointmentRepository loaded = repository(context);
+                    result = new BookingService(new InMemoryBookingBackend(), loaded, ZoneId.systemDefault(),
+                            SlotEngine.DEFAULT_SLOT_MINUTES, AppointmentTimeEngine.CONSULTATION_MILLIS);
+                    result.restore(loaded.range(Long.MIN_VALUE, Long.MAX_VALUE));
+                    bookingService = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static AppointmentRepository open(Context context) {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        // The key first: a Keystore that fails now says nothing about the database (a later call retries)
+        DataCipher cipher;
+        try {
+            cipher = DataKeys.cipher(context);
+        } catch (IOException e) {
+            throw new IllegalStateException("Data key unavailable", e);
+        }
+        try {
+            long started = LOAD_TIMER.start();
+            AppointmentDatabase opened = openDatabase(file, cipher);
+            AppointmentRepository loaded = AppointmentRepository.open(opened, IO_THREAD, FLUSH_DELAY_MILLIS);
+            migrateLegacyPreference(context, loaded);
+            database = opened;
+            LOAD_TIMER.stop(started);
+            AppLog.event(AppLog.DEBUG, TAG, "appointments_loaded", loaded.size());
+            return loaded;
+        } catch (IOException e) {
+            if (!isDamaged(e)) {
+                // Disk full, file locked, newer schema...: keep the file, a later call retries
+                throw new IllegalStateException("Appointment storage unavailable", e);
+            }
+            // Corrupted database: keep a copy for support and start from an empty one
+            AppLog.e(TAG, "Could not load appointments: " + e.getMessage(), e);
+            file.renameTo(new File(file.getPath() + ".corrupt"));
+            new File(file.getPath() + "-wal").delete();
+            new File(file.getPath() + "-shm").delete();
+            try {
+                AppointmentDatabase empty = openDatabase(file, cipher);
+                database = empty;
+                return AppointmentRepository.open(empty, IO_THREAD, FLUSH_DELAY_MILLIS);
+            } catch (IOException again) {
+                throw new IllegalStateException("Appointment storage unavailable", again);
+            }
+        }
+    }
+
+    private static AppointmentDatabase openDatabase(File file, DataCipher cipher) throws IOException {
+        File folder = file.getParentFile();
+        if (folder != null) {
+            folder.mkdirs();
+        }
+        return AppointmentDatabase.open(AndroidSqlDatabase.open(file), cipher);
+    }
+
+    // Only a damaged file (SQLite says so) or rows that do not open with our key are set aside
+    private static boolean isDamaged(IOException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLiteDatabaseCorruptException || cause instanceof DataCipher.RejectedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One-time import of the appointment saved by older versions of the app.
+     */
+    private static void migrateLegacyPreference(Context context, AppointmentRepository target)
+            throws IOException {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+        String legacy = prefs.getString(LEGACY_KEY_DATETIME, "");
+        if (legacy.isEmpty()) {
+            return;
+        }
+
+        long startMillis = AppointmentTimeEngine.parse(legacy, ZoneId.systemDefault());
+        if (startMillis >= 0) {
+            target.add("", DEFAULT_DOCTOR, startMillis, prefs.getBoolean(LEGACY_KEY_CUSTOM, false));
+            AppLog.d(TAG, "Migrated legacy appointment ", legacy);
+        }
+        // Commit the imported appointment before forgetting the old value
+        target.flush();
+        prefs.edit().remove(LEGACY_KEY_DATETIME).remove(LEGACY_KEY_CUSTOM).apply();
+    }
+}
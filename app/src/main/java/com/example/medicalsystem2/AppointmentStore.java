@@ -0,0 +1,35 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * APPOINTMENT STORE - Where AppointmentRepository persists its changes.
+ *
+ * The app's store is AppointmentDatabase (SQLite tables). The repository appends any
+ * number of changes, then commits them at once (one transaction per write-behind batch). Replaying a change twice
+ * must be harmless: a failed batch is appended again.
+ */
+public interface AppointmentStore {
+
+    /**
+     * Every stored appointment by id (called once, when the repository opens).
+     */
+    Map<Long, Appointment> load() throws IOException;
+
+    /**
+     * Highest id ever stored, deleted ones included (ids are never reused).
+     */
+    long getHighestId();
+
+    void appendPut(Appointment appointment) throws IOException;
+
+    void appendDelete(long id) throws IOException;
+
+    /**
+     * Make the appended changes durable, all or nothing.
+     */
+    void commit() throws IOException;
+
+    void close() throws IOException;
+}
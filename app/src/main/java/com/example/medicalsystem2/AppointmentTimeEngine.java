@@ -0,0 +1,123 @@
+package com.example.medicalsystem2;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DecimalStyle;
+import java.time.format.ResolverStyle;
+import java.util.Locale;
+
+/**
+ * APPOINTMENT TIME ENGINE - All appointment time math in one place.
+ *
+ * - One pre-built, immutable (thread-safe) formatter instead of a new SimpleDateFormat per call
+ * - Locale.ROOT + standard digits: "2025-03-14 16:45" parses the same on a device set to an
+ *   Arabic-numeral locale (Locale.getDefault() parsing failed there)
+ * - Appointment start, consultation end, reminder time and "minutes until" are primitive
+ *   epoch-millis / epoch-minute arithmetic: no Calendar, no allocation
+ *
+ * Uses java.time (desugared for minSdk 24). Pure JVM code, unit tested on the host.
+ */
+public final class AppointmentTimeEngine {
+
+    public static final long MINUTE_MILLIS = 60_000L;
+
+    // Reminder is shown 1 minute before the appointment starts
+    public static final long REMINDER_OFFSET_MILLIS = MINUTE_MILLIS;
+
+    // Consultation length (appointment + 1 minute for testing)
+    public static final long CONSULTATION_MILLIS = MINUTE_MILLIS;
+
+    // Returned by parse() for an empty or invalid string
+    public static final long INVALID = -1L;
+
+    // Storage / UI format: "2025-03-14 16:45" (uuuu = proleptic year, required by STRICT)
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter
+            .ofPattern("uuuu-MM-dd HH:mm", Locale.ROOT)
+            .withDecimalStyle(DecimalStyle.STANDARD)
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private AppointmentTimeEngine() {
+    }
+
+    // ================================
+    // PARSE / FORMAT
+    // ================================
+
+    /**
+     * "yyyy-MM-dd HH:mm" wall-clock time in the given zone -> epoch millis.
+     * A time skipped by a DST jump is moved forward by the length of the gap;
+     * an ambiguous time (clocks going back) uses the earlier offset.
+     *
+     * @return epoch millis, or INVALID
+     */
+    public static long parse(String dateTime, ZoneId zone) {
+        if (dateTime == null || dateTime.isEmpty()) {
+            return INVALID;
+        }
+        try {
+            return LocalDateTime.parse(dateTime, DATE_TIME_FORMATTER)
+                    .atZone(zone)
+                    .toInstant()
+                    .toEpochMilli();
+        } catch (DateTimeException e) {
+            return INVALID;
+        }
+    }
+
+    /**
+     * Epoch millis -> "yyyy-MM-dd HH:mm" in the given zone (always ASCII digits).
+     */
+    public static String format(long epochMillis, ZoneId zone) {
+        return DATE_TIME_FORMATTER.format(Instant.ofEpochMilli(epochMillis).atZone(zone));
+    }
+
+    /**
+     * Date and time picked in the UI -> epoch millis (seconds and millis are 0).
+     *
+     * @param month 1-12
+     */
+    public static long toEpochMillis(int year, int month, int day, int hour, int minute, ZoneId zone) {
+        return LocalDateTime.of(year, month, day, hour, minute)
+                .atZone(zone)
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    // ================================
+    // ARITHMETIC (primitive, allocation-free)
+    // ================================
+
+    /**
+     * Minutes since epoch (floor), i.e. the time with seconds removed.
+     */
+    public static long epochMinute(long epochMillis) {
+        return Math.floorDiv(epochMillis, MINUTE_MILLIS);
+    }
+
+    public static long consultationEnd(long startMillis) {
+        return startMillis + CONSULTATION_MILLIS;
+    }
+
+    public static long reminderTime(long startMillis) {
+        return startMillis - REMINDER_OFFSET_MILLIS;
+    }
+
+    /**
+     * Whole minutes left until the start (truncated toward zero).
+     * Real elapsed time, so a DST jump in between does not add or remove an hour.
+     */
+    public static long minutesUntil(long startMillis, long nowMillis) {
+        return (startMillis - nowMillis) / MINUTE_MILLIS;
+    }
+
+    /**
+     * Difference in minutes with both times truncated to the minute (seconds ignored).
+     * 0 means "starting now".
+     */
+    public static long minuteDifference(long startMillis, long nowMillis) {
+        return epochMinute(startMillis) - epochMinute(nowMillis);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AVATAR LOADER - Shows the user's profile picture without decoding on the main thread.
+ *
+ * - Decoding runs on the "avatar-decode" thread, with inSampleSize so a 48 MP photo is
+ *   decoded at about the size of the ImageView (see ImageSizing), not at 192 MB
+ * - Decoded avatars stay in an LRU memory cache (1/8 of the heap at most)
+ * - The picked photo is saved as a small JPEG thumbnail in files/avatars/, so the
+ *   avatar is back (instantly) after a restart
+ * - Results go to the main thread; a view that asked for another avatar meanwhile
+ *   (or is gone) is left alone
+ */
+public final class AvatarLoader {
+
+    private static final String TAG = "AvatarLoader";
+
+    // Decoding a picked photo / a saved thumbnail, and cache hits (see Metrics)
+    private static final Metrics.Timer DECODE_TIMER = Metrics.timer("avatar.decode");
+    private static final Metrics.Timer THUMBNAIL_TIMER = Metrics.timer("avatar.thumbnail");
+    private static final Metrics.Counter MEMORY_HITS = Metrics.counter("avatar.memoryHit");
+
+    private static final String DIRECTORY = "avatars";
+    private static final int JPEG_QUALITY = 90;
+
+    // Used when the view has no size yet (not laid out, wrap_content)
+    private static final int FALLBACK_SIZE_PX = 256;
+
+    private static final ExecutorService DECODE_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "avatar-decode");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    // Key -> bitmap, sized in KB
+    private static final LruCache<String, Bitmap> MEMORY_CACHE =
+            new LruCache<String, Bitmap>(ImageSizing.memoryCacheKb(Runtime.getRuntime().maxMemory(), 8)) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return bitmap.getByteCount() / 1024;
+                }
+            };
+
+    private AvatarLoader() {
+    }
+
+    /**
+     * Show the avatar saved for this user, if any (keeps the placeholder otherwise).
+     */
+    public static void loadSaved(ImageView view, String userEmail) {
+        String key = key(userEmail);
+        Bitmap cached = MEMORY_CACHE.get(key);
+        view.setTag(R.id.avatarImage, key);
+        if (cached != null) {
+            MEMORY_HITS.increment();
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        File thumbnail = thumbnailFile(view.getContext(), key);
+        WeakReference<ImageView> target = new WeakReference<>(view);
+        DECODE_THREAD.execute(() -> {
+            if (!thumbnail.exists()) {
+                return;
+            }
+            long started = THUMBNAIL_TIMER.start();
+            Bitmap bitmap = BitmapFactory.decodeFile(thumbnail.getPath());
+            THUMBNAIL_TIMER.stop(started);
+            if (bitmap != null) {
+                MEMORY_CACHE.put(key, bitmap);
+                deliver(target, key, bitmap);
+            }
+        });
+    }
+
+    /**
+     * Decode the picked photo to the view size, show it and save it as this user's avatar.
+     */
+    public static void setFromUri(ImageView view, Uri imageUri, String userEmail) {
+        String key = key(userEmail);
+        Context appContext = view.getContext().getApplicationContext();
+        int targetWidth = targetSize(view, true);
+        int targetHeight = targetSize(view, false);
+        view.setTag(R.id.avatarImage, key);
+
+        WeakReference<ImageView> target = new WeakReference<>(view);
+        DECODE_THREAD.execute(() -> {
+            long started = DECODE_TIMER.start();
+            Bitmap bitmap = decodeSampled(appContext, imageUri, targetWidth, targetHeight);
+            DECODE_TIMER.stop(started);
+            if (bitmap == null) {
+                return;
+            }
+            MEMORY_CACHE.put(key, bitmap);
+            deliver(target, key, bitmap);
+            saveThumbnail(thumbnailFile(appContext, key), bitmap);
+        });
+    }
+
+    /**
+     * Two passes: read only the image size, then decode with the matching inSampleSize.
+     */
+    static Bitmap decodeSampled(Context context, Uri imageUri, int targetWidth, int targetHeight) {
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            try (InputStream bounds = context.getContentResolver().openInputStream(imageUri)) {
+                BitmapFactory.decodeStream(bounds, null, options);
+            }
+
+            options.inSampleSize = ImageSizing.inSampleSize(
+                    options.outWidth, options.outHeight, targetWidth, targetHeight);
+            options.inJustDecodeBounds = false;
+            AppLog.d(TAG, "Decoding avatar with inSampleSize ", options.inSampleSize);
+            try (InputStream pixels = context.getContentResolver().openInputStream(imageUri)) {
+                return BitmapFactory.decodeStream(pixels, null, options);
+            }
+        } catch (IOException | SecurityException e) {
+            AppLog.e(TAG, "Could not read avatar " + imageUri, e);
+            return null;
+        }
+    }
+
+    private static void saveThumbnail(File file, Bitmap bitmap) {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            AppLog.e(TAG, "Could not create " + directory, null);
+            return;
+        }
+        // Written next to the old thumbnail, then renamed: a crash never leaves half a JPEG
+        File partial = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            AppLog.e(TAG, "Could not save avatar", e);
+            partial.delete();
+            return;
+        }
+        if (!partial.renameTo(file)) {
+            AppLog.e(TAG, "Could not replace " + file, null);
+        }
+    }
+
+    private static void deliver(WeakReference<ImageView> target, String key, Bitmap bitmap) {
+        MainThreadExecutor.INSTANCE.execute(() -> {
+            ImageView view = target.get();
+            if (view != null && key.equals(view.getTag(R.id.avatarImage))) {
+                view.setImageBitmap(bitmap);
+            }
+        });
+    }
+
+    private static int targetSize(ImageView view, boolean width) {
+        int measured = width ? view.getWidth() : view.getHeight();
+        if (measured > 0) {
+            return measured;
+        }
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int declared = params == null ? 0 : (width ? params.width : params.height);
+        return declared > 0 ? declared : FALLBACK_SIZE_PX;
+    }
+
+    private static File thumbnailFile(Context context, String key) {
+        return new File(new File(context.getFilesDir(), DIRECTORY), key + ".jpg");
+    }
+
+    // One avatar per account on this device: SHA-256 of the email, so two accounts never
+    // share a thumbnail (a 32-bit hashCode() does collide) and the file name hides the email
+    private static String key(String userEmail) {
+        String email = userEmail != null ? userEmail.trim().toLowerCase(Locale.ROOT) : "";
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(email.getBytes(StandardCharsets.UTF_8));
+            return "avatar_" + SecureValues.toHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is always available on Android
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.medicalsystem2;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * BOOKING BACKEND - Where the taken slots of every doctor-day live (pluggable).
+ *
+ * Each doctor-day is one versioned record. Writers never lock it: they read it,
+ * build the next version and ask the backend to swap it in only if nobody wrote
+ * in between (compare-and-set on the version). BookingService retries on conflict.
+ *
+ * - InMemoryBookingBackend: in-process implementation (the app, and tests); the only
+ *   one so far, so the guarantee stops at this device
+ * - A server implementation only needs the same conditional write (e.g. a
+ *   transaction or a "version == expected" precondition)
+ */
+public interface BookingBackend {
+
+    /**
+     * Current record of that doctor-day (version 0 and nothing taken if never written).
+     */
+    DoctorDay read(String doctorName, LocalDate day);
+
+    /**
+     * Replace "expected" with "updated" if the stored version is still expected.getVersion().
+     *
+     * @return false if another writer got there first (read again and retry)
+     */
+    boolean compareAndSet(DoctorDay expected, DoctorDay updated);
+
+    /**
+     * Taken slots of one doctor on one day, at one version (immutable).
+     * Bit i of the bitset = slot i of the day (the slot length is the caller's business).
+     */
+    final class DoctorDay {
+        private final String doctorName;
+        private final LocalDate day;
+        private final long version;
+        private final long[] taken; // never modified once built
+
+        private DoctorDay(String doctorName, LocalDate day, long version, long[] taken) {
+            this.doctorName = doctorName;
+            this.day = day;
+            this.version = version;
+            this.taken = taken;
+        }
+
+        public static DoctorDay empty(String doctorName, LocalDate day) {
+            return new DoctorDay(doctorName, day, 0, new long[0]);
+        }
+
+        public String getDoctorName() {
+            return doctorName;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isTaken(int slot) {
+            int word = slot >>> 6;
+            return word < taken.length && (taken[word] & (1L << slot)) != 0;
+        }
+
+        /**
+         * True if any slot of [fromSlot, toSlot) is taken.
+         */
+        public boolean anyTaken(int fromSlot, int toSlot) {
+            for (int slot = fromSlot; slot < toSlot; slot++) {
+                if (isTaken(slot)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int takenCount() {
+            int count = 0;
+            for (long word : taken) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * Next version with the slots [fromSlot, toSlot) taken (reserve) or free (release).
+         */
+        public DoctorDay withSlots(int fromSlot, int toSlot, boolean reserve) {
+            long[] next = Arrays.copyOf(taken, Math.max(taken.length, (toSlot + 63) >>> 6));
+            for (int slot = fromSlot; slot < toSlot; slot++) {
+                if (reserve) {
+                    next[slot >>> 6] |= 1L << slot;
+                } else {
+                    next[slot >>> 6] &= ~(1L << slot);
+                }
+            }
+            return new DoctorDay(doctorName, day, version + 1, next);
+        }
+
+        @Override
+        public String toString() {
+            return "DoctorDay{" + doctorName + " " + day + " v" + version + ", " + takenCount() + " taken}";
+        }
+    }
+}
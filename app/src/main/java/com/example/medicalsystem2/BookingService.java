@@ -0,0 +1,198 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * BOOKING SERVICE - Books a doctor slot without ever giving it to two patients.
+ *
+ * Optimistic concurrency on the doctor-day record of the BookingBackend:
+ * 1. read the doctor-day (taken slots + version)
+ * 2. slot already taken -> SLOT_TAKEN (nothing written)
+ * 3. write version + 1 with the slot taken, only if the version did not move
+ * 4. version moved (another booking of that doctor-day won the race) -> back to 1
+ * Only the reservation winner adds the appointment to the repository; if that
+ * fails the slot is released again. Bookings of other doctors or days never conflict.
+ *
+ * A booking takes every slot its consultation overlaps on its start day.
+ * Pure Java so it is unit tested (and stress tested) on the JVM.
+ *
+ * Only as wide as its backend: the app runs it on InMemoryBookingBackend, so it
+ * keeps two bookings of this phone apart, not two phones. There is no shared booking
+ * server yet; a slot taken on another device is only caught afterwards, when the sync
+ * server refuses the booking (SyncHost cancels it here and tells the user).
+ */
+public final class BookingService {
+
+    // Give up after this many lost races in a row (the caller may try again)
+    public static final int MAX_ATTEMPTS = 16;
+
+    // Booking duration, reservations lost to a concurrent write, slots already taken (see Metrics)
+    private static final Metrics.Timer BOOK_TIMER = Metrics.timer("booking.book");
+    private static final Metrics.Counter CONFLICTS = Metrics.counter("booking.conflict");
+    private static final Metrics.Counter TAKEN = Metrics.counter("booking.slot_taken");
+
+    public enum Status {
+        BOOKED,
+        SLOT_TAKEN,          // someone else has (part of) this slot
+        TOO_MANY_CONFLICTS   // kept losing the race for this doctor-day
+    }
+
+    /**
+     * Outcome of book(): the status, the saved appointment (BOOKED only) and how many
+     * reservation attempts it took.
+     */
+    public static final class Result {
+        private final Status status;
+        private final Appointment appointment;
+        private final int attempts;
+
+        Result(Status status, Appointment appointment, int attempts) {
+            this.status = status;
+            this.appointment = appointment;
+            this.attempts = attempts;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isBooked() {
+            return status == Status.BOOKED;
+        }
+
+        public Appointment getAppointment() {
+            return appointment;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" + status + " after " + attempts + " attempt(s)"
+                    + (appointment != null ? ", " + appointment : "") + "}";
+        }
+    }
+
+    private final BookingBackend backend;
+    private final AppointmentRepository repository;
+    private final ZoneId zone;
+    private final int slotMinutes;
+    private final long bookingMillis;
+
+    public BookingService(BookingBackend backend, AppointmentRepository repository, ZoneId zone,
+                          int slotMinutes, long bookingMillis) {
+        if (slotMinutes <= 0 || SlotEngine.MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalArgumentException("Slot length must divide a day: " + slotMinutes);
+        }
+        this.backend = backend;
+        this.repository = repository;
+        this.zone = zone;
+        this.slotMinutes = slotMinutes;
+        this.bookingMillis = Math.max(1, bookingMillis);
+    }
+
+    /**
+     * Reserve the slot and save the appointment. Safe to call from any number of
+     * threads at once (and from several devices once they share a backend).
+     *
+     * @throws IOException if the repository could not save it (the slot is released)
+     */
+    public Result book(String userEmail, String doctorName, long startMillis, boolean customTime)
+            throws IOException {
+        long started = BOOK_TIMER.start();
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), zone);
+        int startMinute = local.getHour() * 60 + local.getMinute();
+        int fromSlot = startMinute / slotMinutes;
+        int toSlot = slotEnd(startMinute);
+
+        // 1-4: optimistic reservation of the doctor-day
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            BookingBackend.DoctorDay current = backend.read(doctorName, local.toLocalDate());
+            if (current.anyTaken(fromSlot, toSlot)) {
+                TAKEN.increment();
+                return new Result(Status.SLOT_TAKEN, null, attempts);
+            }
+            if (backend.compareAndSet(current, current.withSlots(fromSlot, toSlot, true))) {
+                break;
+            }
+            CONFLICTS.increment();
+            if (attempts == MAX_ATTEMPTS) {
+                return new Result(Status.TOO_MANY_CONFLICTS, null, attempts);
+            }
+        }
+
+        // The slot is ours: save the appointment
+        Appointment appointment;
+        try {
+            appointment = repository.add(userEmail, doctorName, startMillis, customTime);
+        } catch (IOException | RuntimeException e) {
+            release(doctorName, local, fromSlot, toSlot);
+            throw e;
+        }
+        BOOK_TIMER.stop(started);
+        return new Result(Status.BOOKED, appointment, attempts);
+    }
+
+    /**
+     * Mark the slots of appointments that already exist (e.g. loaded from disk) as taken.
+     * Overlapping old appointments are kept as they are.
+     */
+    public void restore(Iterable<Appointment> appointments) {
+        for (Appointment appointment : appointments) {
+            LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(appointment.getStartMillis()), zone);
+            int startMinute = local.getHour() * 60 + local.getMinute();
+            update(appointment.getDoctorName(), local, startMinute / slotMinutes, slotEnd(startMinute), true);
+        }
+    }
+
+    /**
+     * Remove a booked appointment and free its slots.
+     *
+     * @return true if it existed
+     */
+    public boolean cancel(Appointment appointment) throws IOException {
+        if (!repository.remove(appointment.getId())) {
+            return false;
+        }
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(appointment.getStartMillis()), zone);
+        int startMinute = local.getHour() * 60 + local.getMinute();
+        release(appointment.getDoctorName(), local, startMinute / slotMinutes, slotEnd(startMinute));
+        return true;
+    }
+
+    public boolean isTaken(String doctorName, long startMillis) {
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), zone);
+        int startMinute = local.getHour() * 60 + local.getMinute();
+        return backend.read(doctorName, local.toLocalDate()).anyTaken(startMinute / slotMinutes, slotEnd(startMinute));
+    }
+
+    private void release(String doctorName, LocalDateTime local, int fromSlot, int toSlot) {
+        update(doctorName, local, fromSlot, toSlot, false);
+    }
+
+    // Unconditional change (retried until it lands; it cannot be refused like a booking)
+    private void update(String doctorName, LocalDateTime local, int fromSlot, int toSlot, boolean reserve) {
+        while (true) {
+            BookingBackend.DoctorDay current = backend.read(doctorName, local.toLocalDate());
+            if (backend.compareAndSet(current, current.withSlots(fromSlot, toSlot, reserve))) {
+                return;
+            }
+            CONFLICTS.increment();
+        }
+    }
+
+    // First slot after the consultation (it ends at midnight at the latest)
+    private int slotEnd(int startMinute) {
+        long endMinute = startMinute + (bookingMillis + AppointmentTimeEngine.MINUTE_MILLIS - 1)
+                / AppointmentTimeEngine.MINUTE_MILLIS;
+        int capped = (int) Math.min(endMinute, SlotEngine.MINUTES_PER_DAY);
+        return (capped + slotMinutes - 1) / slotMinutes;
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.medicalsystem2;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * CHUNKED CIPHER - Streaming AES-256-GCM for large files (report attachments).
+ *
+ * The file is cut into chunks of chunkBytes (64 KB), each sealed on its own, so:
+ * - encrypting and decrypting hold one chunk in memory, whatever the file size
+ * - SealedFile decrypts only the chunks a page needs (the viewer's first page of a
+ *   50 MB export costs one chunk, not the file)
+ * - each chunk is authenticated before any of its bytes are returned
+ *
+ * Chunk nonce = the file's random 8 byte prefix + the chunk index (+ a "last chunk" bit),
+ * and every chunk authenticates the header: chunks cannot be reordered, moved to another
+ * file, or dropped from the end without the tag check failing.
+ *
+ * File layout:
+ *   header : int MAGIC, int chunkBytes, 8 byte nonce prefix
+ *   chunks : (ciphertext, 16 byte tag) * n; all full but the last (empty only for an empty file)
+ *
+ * Pure Java so it is unit tested (and benchmarked) on the JVM.
+ */
+public final class ChunkedCipher {
+
+    public static final int DEFAULT_CHUNK_BYTES = 64 * 1024;
+
+    private static final int MAGIC = 0x4D534346; // "MSCF"
+    static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final int PREFIX_BYTES = 8;
+    private static final int TAG_BYTES = DataCipher.TAG_BYTES;
+    private static final int LAST_CHUNK = 0x80000000;
+
+    // Largest chunk a header may declare (a corrupt header must not allocate gigabytes)
+    private static final int MAX_CHUNK_BYTES = 16 * 1024 * 1024;
+
+    private final SecretKey key;
+    private final int chunkBytes;
+    private final SecureRandom random = new SecureRandom();
+
+    ChunkedCipher(SecretKey key, int chunkBytes) {
+        if (chunkBytes <= 0 || chunkBytes > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("chunkBytes " + chunkBytes);
+        }
+        this.key = key;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * Size on disk of "plainSize" bytes once encrypted.
+     */
+    public long sealedSize(long plainSize) {
+        long chunks = Math.max(1, (plainSize + chunkBytes - 1) / chunkBytes); // An empty file has one empty chunk
+        return HEADER_BYTES + plainSize + chunks * TAG_BYTES;
+    }
+
+    /**
+     * Stream that encrypts into "out" (the header is written now). close() seals the
+     * last chunk and closes "out": a stream that is not closed is not a valid file.
+     */
+    public OutputStream encrypt(OutputStream out) throws IOException {
+        byte[] header = new byte[HEADER_BYTES];
+        ByteBuffer.wrap(header).putInt(MAGIC).putInt(chunkBytes);
+        byte[] prefix = new byte[PREFIX_BYTES];
+        random.nextBytes(prefix);
+        System.arraycopy(prefix, 0, header, 8, PREFIX_BYTES);
+        out.write(header);
+        return new SealingStream(out, header);
+    }
+
+    /**
+     * Stream of the plain bytes of an encrypted stream. A chunk that fails its tag check
+     * (or a stream cut short) is an IOException.
+     */
+    public InputStream decrypt(InputStream in) throws IOException {
+        byte[] header = new byte[HEADER_BYTES];
+        try {
+            new DataInputStream(in).readFully(header);
+        } catch (EOFException e) {
+            throw new IOException("Not an encrypted file (too short)");
+        }
+        return new OpeningStream(in, header, checkHeader(header));
+    }
+
+    /**
+     * Random access to an encrypted file (the caller closes it).
+     */
+    public SealedFile open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new SealedFile(raf);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    // ================================
+    // RANDOM ACCESS
+    // ================================
+
+    /**
+     * An encrypted file read at any position: the chunks covering the bytes asked for
+     * are read and decrypted into one reused buffer (the last chunk stays decrypted,
+     * so reading on through it costs nothing more). Not thread-safe: one reader thread.
+     */
+    public final class SealedFile implements Closeable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final byte[] header = new byte[HEADER_BYTES];
+        private final int fileChunkBytes;
+        private final int chunkCount;
+        private final long size;
+        private final Cipher cipher = DataCipher.newGcm();
+        private final ByteBuffer sealedChunk;
+        private final byte[] plainChunk;
+        private int plainIndex = -1;
+        private int plainLength;
+
+        SealedFile(RandomAccessFile file) throws IOException {
+            this.file = file;
+            this.channel = file.getChannel();
+            file.readFully(header);
+            fileChunkBytes = checkHeader(header);
+            long body = channel.size() - HEADER_BYTES;
+            long stride = fileChunkBytes + TAG_BYTES;
+            long chunks = (body + stride - 1) / stride;
+            if (body < TAG_BYTES || chunks > Integer.MAX_VALUE || body - (chunks - 1) * stride < TAG_BYTES) {
+                throw new IOException("Encrypted file cut short: " + channel.size() + " bytes");
+            }
+            chunkCount = (int) chunks;
+            size = body - chunks * TAG_BYTES;
+            sealedChunk = ByteBuffer.allocate(fileChunkBytes + TAG_BYTES);
+            plainChunk = new byte[fileChunkBytes];
+        }
+
+        /**
+         * Plain size of the file.
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Plain bytes [position, position + length). Within one chunk the buffer is a view
+         * of the decrypted chunk, valid until the next read().
+         */
+        public ByteBuffer read(long position, int length) throws IOException {
+            if (position < 0 || length < 0 || position + length > size) {
+                throw new IndexOutOfBoundsException(position + "+" + length + " of " + size);
+            }
+            int first = (int) (position / fileChunkBytes);
+            int offset = (int) (position - (long) first * fileChunkBytes);
+            if (length == 0 || offset + length <= fileChunkBytes) {
+                decryptChunk(first);
+                return ByteBuffer.wrap(plainChunk, offset, length).slice();
+            }
+            // Crosses chunks: copied together
+            ByteBuffer joined = ByteBuffer.allocate(length);
+            int index = first;
+            while (joined.hasRemaining()) {
+                decryptChunk(index++);
+                int count = Math.min(joined.remaining(), plainLength - offset);
+                joined.put(plainChunk, offset, count);
+                offset = 0;
+            }
+            joined.flip();
+            return joined;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+
+        private void decryptChunk(int index) throws IOException {
+            if (index == plainIndex) {
+                return;
+            }
+            plainIndex = -1;
+            long stride = fileChunkBytes + TAG_BYTES;
+            long start = HEADER_BYTES + index * stride;
+            int sealedLength = (int) Math.min(stride, channel.size() - start);
+            sealedChunk.clear().limit(sealedLength);
+            while (sealedChunk.hasRemaining()) {
+                if (channel.read(sealedChunk, start + sealedChunk.position()) < 0) {
+                    throw new EOFException("Encrypted file cut short");
+                }
+            }
+            plainLength = openChunk(cipher, header, index, index == chunkCount - 1,
+                    sealedChunk.array(), sealedLength, plainChunk);
+            plainIndex = index;
+        }
+    }
+
+    // ================================
+    // STREAMS
+    // ================================
+
+    private final class SealingStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] header;
+        private final Cipher cipher = DataCipher.newGcm();
+        private final byte[] plain = new byte[chunkBytes];
+        private final byte[] sealed = new byte[chunkBytes + TAG_BYTES];
+        private int buffered;
+        private int index;
+        private boolean closed;
+
+        SealingStream(OutputStream out, byte[] header) {
+            this.out = out;
+            this.header = header;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (length > 0) {
+                // A full chunk is only sealed once more bytes come: the last one must be marked
+                if (buffered == chunkBytes) {
+                    sealChunk(false);
+                }
+                int count = Math.min(length, chunkBytes - buffered);
+                System.arraycopy(bytes, offset, plain, buffered, count);
+                buffered += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                sealChunk(true);
+            } finally {
+                out.close();
+            }
+        }
+
+        private void sealChunk(boolean last) throws IOException {
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, chunkNonce(header, index, last));
+                cipher.updateAAD(header);
+                int length = cipher.doFinal(plain, 0, buffered, sealed, 0);
+                out.write(sealed, 0, length);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-GCM failed", e);
+            }
+            index++;
+            buffered = 0;
+        }
+    }
+
+    private final class OpeningStream extends InputStream {
+        private final InputStream in;
+        private final byte[] header;
+        private final Cipher cipher = DataCipher.newGcm();
+        private final byte[] sealed;
+        private final byte[] plain;
+        private int plainLength;
+        private int position;
+        private int index;
+        private int lookahead = -1; // First byte of the next chunk, read to find the end
+        private boolean done;
+
+        OpeningStream(InputStream in, byte[] header, int fileChunkBytes) {
+            this.in = in;
+            this.header = header;
+            this.sealed = new byte[fileChunkBytes + TAG_BYTES];
+            this.plain = new byte[fileChunkBytes];
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == plainLength) {
+                if (done) {
+                    return -1;
+                }
+                nextChunk();
+            }
+            int count = Math.min(length, plainLength - position);
+            System.arraycopy(plain, position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return plainLength - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void nextChunk() throws IOException {
+            int length = 0;
+            if (lookahead >= 0) {
+                sealed[length++] = (byte) lookahead;
+                lookahead = -1;
+            }
+            int read;
+            while (length < sealed.length && (read = in.read(sealed, length, sealed.length - length)) != -1) {
+                length += read;
+            }
+            // A full chunk is the last one only if nothing follows it
+            boolean last = length < sealed.length || (lookahead = in.read()) == -1;
+            plainLength = openChunk(cipher, header, index++, last, sealed, length, plain);
+            position = 0;
+            done = last;
+        }
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    // Chunk size declared by a header (IOException if it is not one of ours)
+    private static int checkHeader(byte[] header) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        int magic = buffer.getInt();
+        int fileChunkBytes = buffer.getInt();
+        if (magic != MAGIC || fileChunkBytes <= 0 || fileChunkBytes > MAX_CHUNK_BYTES) {
+            throw new IOException("Not an encrypted file");
+        }
+        return fileChunkBytes;
+    }
+
+    private static GCMParameterSpec chunkNonce(byte[] header, int index, boolean last) {
+        byte[] nonce = new byte[DataCipher.NONCE_BYTES];
+        System.arraycopy(header, 8, nonce, 0, PREFIX_BYTES);
+        ByteBuffer.wrap(nonce, PREFIX_BYTES, 4).putInt(last ? index | LAST_CHUNK : index);
+        return new GCMParameterSpec(TAG_BYTES * 8, nonce);
+    }
+
+    // Decrypt (and authenticate) one chunk into "plain"; returns the plain length
+    private int openChunk(Cipher cipher, byte[] header, int index, boolean last, byte[] sealed, int length,
+                          byte[] plain) throws IOException {
+        if (length < TAG_BYTES) {
+            throw new IOException("Encrypted chunk " + index + " cut short");
+        }
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, chunkNonce(header, index, last));
+            cipher.updateAAD(header);
+            return cipher.doFinal(sealed, 0, length, plain, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Encrypted chunk " + index + " rejected (tampered or cut short)", e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * DATA CIPHER - AES-256-GCM for the health data the app keeps on disk.
+ *
+ * - seal() / open(): one small value (a database row, an outbox record, a preference).
+ *   Every value gets its own random 96-bit nonce, and the GCM tag is checked on open,
+ *   so a value changed on disk (or copied from another row) is an IOException, never
+ *   wrong data
+ * - "context" (e.g. "appointments#42") is authenticated with the value but not stored:
+ *   a value only opens where it was sealed
+ * - blindIndex(): a keyed hash (HMAC-SHA256) of a value SQLite must still look up
+ *   (a user's email), so the database holds the tag instead of the value
+ * - files(): the streaming, chunked cipher for attachments (ChunkedCipher)
+ *
+ * The three purposes use three keys derived from one data key (HMAC-SHA256 of a label).
+ * On the device the data key is wrapped by a key that never leaves the Android
+ * Keystore (DataKeys). Thread-safe: one Cipher / Mac per thread.
+ *
+ * Sealed value layout: byte FORMAT, 12 byte nonce, ciphertext, 16 byte tag.
+ * Pure Java so it is unit tested (and benchmarked) on the JVM.
+ */
+public final class DataCipher {
+
+    static final byte FORMAT = 1;
+    static final int NONCE_BYTES = 12;
+    static final int TAG_BYTES = 16;
+    public static final int KEY_BYTES = 32;
+
+    // Bytes a sealed value takes on top of the value itself
+    public static final int OVERHEAD = 1 + NONCE_BYTES + TAG_BYTES;
+
+    // Values that failed their tag check (tampered, truncated, or another key; see Metrics)
+    private static final Metrics.Counter REJECTED = Metrics.counter("crypto.rejected");
+
+    /**
+     * A sealed value that does not open: changed, cut, sealed somewhere else or with
+     * another key. Unlike other IOExceptions, trying again will not help.
+     */
+    public static final class RejectedException extends IOException {
+        RejectedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final SecretKey valueKey;
+    private final SecretKey indexKey;
+    private final ChunkedCipher files;
+    private final SecureRandom random = new SecureRandom();
+
+    // Cipher and Mac objects are not thread-safe, and slow to look up: one of each per thread
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return newGcm();
+        }
+    };
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            return newMac(indexKey);
+        }
+    };
+
+    public DataCipher(SecretKey dataKey) {
+        this(dataKey, ChunkedCipher.DEFAULT_CHUNK_BYTES);
+    }
+
+    public DataCipher(SecretKey dataKey, int fileChunkBytes) {
+        this.valueKey = derive(dataKey, "values", "AES");
+        this.indexKey = derive(dataKey, "index", "HmacSHA256");
+        this.files = new ChunkedCipher(derive(dataKey, "files", "AES"), fileChunkBytes);
+    }
+
+    /**
+     * A new random AES-256 data key.
+     */
+    public static SecretKey newKey() {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(KEY_BYTES * 8);
+            return generator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e); // AES is always available on Android and the JVM
+        }
+    }
+
+    // ================================
+    // SMALL VALUES
+    // ================================
+
+    public byte[] seal(byte[] plain, String context) {
+        byte[] sealed = new byte[OVERHEAD + plain.length];
+        sealed[0] = FORMAT;
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        System.arraycopy(nonce, 0, sealed, 1, NONCE_BYTES);
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, valueKey, new GCMParameterSpec(TAG_BYTES * 8, nonce));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            cipher.doFinal(plain, 0, plain.length, sealed, 1 + NONCE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM failed", e);
+        }
+        return sealed;
+    }
+
+    /**
+     * The value sealed in "context", or a RejectedException if it was changed, cut, or
+     * sealed somewhere else (or with another key).
+     */
+    public byte[] open(byte[] sealed, String context) throws IOException {
+        if (sealed == null || sealed.length < OVERHEAD || sealed[0] != FORMAT) {
+            REJECTED.increment();
+            throw new RejectedException("Not a sealed value (" + context + ")", null);
+        }
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, valueKey, new GCMParameterSpec(TAG_BYTES * 8, sealed, 1, NONCE_BYTES));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(sealed, 1 + NONCE_BYTES, sealed.length - 1 - NONCE_BYTES);
+        } catch (GeneralSecurityException e) {
+            REJECTED.increment();
+            throw new RejectedException("Sealed value rejected (" + context + ")", e);
+        }
+    }
+
+    public byte[] sealString(String plain, String context) {
+        return seal(plain.getBytes(StandardCharsets.UTF_8), context);
+    }
+
+    public String openString(byte[] sealed, String context) throws IOException {
+        return new String(open(sealed, context), StandardCharsets.UTF_8);
+    }
+
+    // ================================
+    // LOOKUP TAGS AND FILES
+    // ================================
+
+    /**
+     * 64-bit keyed hash of "value" for an index ("kind" keeps e.g. user and doctor tags apart).
+     * Equal values give equal tags; without the key, a tag does not tell the value.
+     */
+    public long blindIndex(String kind, String value) {
+        Mac mac = macs.get();
+        mac.update(kind.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] hash = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        long tag = 0;
+        for (int i = 0; i < 8; i++) {
+            tag = (tag << 8) | (hash[i] & 0xFF);
+        }
+        return tag;
+    }
+
+    /**
+     * A fresh keyed hash (HMAC-SHA256, index key) for content too large to pass at once,
+     * e.g. the name of an attachment file. Not shared: the caller owns it.
+     */
+    public Mac newContentMac() {
+        return newMac(indexKey);
+    }
+
+    public ChunkedCipher files() {
+        return files;
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    static Cipher newGcm() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Mac newMac(SecretKey key) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // HMAC-SHA256(dataKey, label): one independent key per purpose
+    private static SecretKey derive(SecretKey dataKey, String label, String algorithm) {
+        Mac mac = newMac(new SecretKeySpec(dataKey.getEncoded(), "HmacSHA256"));
+        return new SecretKeySpec(mac.doFinal(label.getBytes(StandardCharsets.UTF_8)), algorithm);
+    }
+}
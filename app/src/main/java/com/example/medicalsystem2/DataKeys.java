@@ -0,0 +1,164 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.security.keystore.KeyProperties;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * DATA KEYS - The key the app's health data is encrypted with (see DataCipher).
+ *
+ * Envelope encryption:
+ * - The master key is an AES-256 key generated inside the Android Keystore (hardware
+ *   backed where the device has it): it can be used, never read
+ * - The data key is a random AES-256 key, stored only wrapped (AES-GCM) by the master
+ *   key in no_backup/data_key, and unwrapped once per process
+ *
+ * Why not encrypt with the Keystore key directly: every Keystore operation is a call
+ * into the Keystore service (and the TEE), far too slow for every row and every 64 KB
+ * chunk, and the Keystore picks GCM nonces itself, so chunked files could not derive
+ * theirs from the chunk index.
+ *
+ * The wrapped key is in no_backup: a backup restored on another device has no master
+ * key to unwrap it with. Only when the master key is really gone is a new data key
+ * created (the old encrypted data can no longer be read and the stores start over):
+ * - the alias is missing (Keystore reset, or data restored on another device)
+ * - the key was permanently invalidated (KeyPermanentlyInvalidatedException)
+ * - the key is there but the tag check fails (AEADBadTagException: the file was wrapped
+ *   by an earlier master key, or is damaged)
+ * Any other failure (Keystore busy, IO error) is thrown: the next call tries again,
+ * and the data stays readable.
+ */
+public final class DataKeys {
+
+    private static final String TAG = "DataKeys";
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String MASTER_ALIAS = "medical_data_master";
+    private static final String DATA_KEY_FILE = "data_key";
+    private static final int NONCE_BYTES = 12;
+
+    // Unwrapping (or creating) the data key at startup: one Keystore operation (see Metrics)
+    private static final Metrics.Timer UNWRAP_TIMER = Metrics.timer("crypto.unwrap");
+
+    private static DataCipher cipher; // guarded by DataKeys.class
+
+    private DataKeys() {
+    }
+
+    /**
+     * The process-wide DataCipher (first call unwraps the data key: call it off the main thread).
+     */
+    public static synchronized DataCipher cipher(Context context) throws IOException {
+        if (cipher == null) {
+            long started = UNWRAP_TIMER.start();
+            cipher = new DataCipher(loadDataKey(context.getApplicationContext()));
+            UNWRAP_TIMER.stop(started);
+        }
+        return cipher;
+    }
+
+    private static SecretKey loadDataKey(Context context) throws IOException {
+        File file = new File(context.getNoBackupFilesDir(), DATA_KEY_FILE);
+        try {
+            SecretKey master = existingMasterKey();
+            if (file.exists()) {
+                if (master == null) {
+                    lost(file, "The master key is gone, creating a new data key", null);
+                } else {
+                    try {
+                        return unwrap(master, file);
+                    } catch (KeyPermanentlyInvalidatedException | AEADBadTagException e) {
+                        lost(file, "The data key no longer unwraps, creating a new one", e);
+                    }
+                }
+            }
+            if (master == null) {
+                master = newMasterKey();
+            }
+            SecretKey dataKey = DataCipher.newKey();
+            wrap(master, dataKey, file);
+            return dataKey;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Android Keystore unavailable", e);
+        }
+    }
+
+    // The data sealed with the old data key is lost: keep its file for support
+    private static void lost(File file, String message, Exception cause) {
+        AppLog.e(TAG, message, cause);
+        file.renameTo(new File(file.getPath() + ".corrupt"));
+    }
+
+    // Null if the Keystore has no master key (never created, or reset)
+    private static SecretKey existingMasterKey() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        KeyStore.Entry entry = keyStore.getEntry(MASTER_ALIAS, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) {
+            return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+        }
+        return null;
+    }
+
+    private static SecretKey newMasterKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(MASTER_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(DataCipher.KEY_BYTES * 8)
+                .build());
+        return generator.generateKey();
+    }
+
+    // File: 12 byte nonce (picked by the Keystore), wrapped key + tag
+    private static void wrap(SecretKey master, SecretKey dataKey, File file)
+            throws GeneralSecurityException, IOException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, master);
+        byte[] wrapped = cipher.doFinal(dataKey.getEncoded());
+        File folder = file.getParentFile();
+        if (folder != null) {
+            folder.mkdirs();
+        }
+        File partial = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(partial)) {
+            out.write(cipher.getIV());
+            out.write(wrapped);
+            out.getFD().sync();
+        }
+        if (!partial.renameTo(file)) {
+            throw new IOException("Could not write " + file);
+        }
+    }
+
+    private static SecretKey unwrap(SecretKey master, File file) throws GeneralSecurityException, IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(bytes);
+        }
+        if (bytes.length <= NONCE_BYTES) {
+            throw new AEADBadTagException("Data key file too short"); // damaged: it never unwraps
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, master, new GCMParameterSpec(DataCipher.TAG_BYTES * 8, bytes, 0, NONCE_BYTES));
+        byte[] raw = cipher.doFinal(bytes, NONCE_BYTES, bytes.length - NONCE_BYTES);
+        return new SecretKeySpec(raw, "AES");
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.medicalsystem2;
+
+import java.util.Comparator;
+
+/**
+ * DOCTOR - One doctor of the directory (immutable).
+ *
+ * The status ("Available" / "In Consultation") is the only part that changes while
+ * the app runs; withStatus() returns a copy so a list adapter can diff old vs new.
+ */
+public final class Doctor {
+
+    // "Top rated" order: rating, then number of reviews, then id (stable for equal doctors)
+    public static final Comparator<Doctor> TOP_RATED = (a, b) -> {
+        int byRating = Float.compare(b.rating, a.rating);
+        if (byRating != 0) {
+            return byRating;
+        }
+        int byReviews = Integer.compare(b.reviewCount, a.reviewCount);
+        return byReviews != 0 ? byReviews : Long.compare(a.id, b.id);
+    };
+
+    private final long id;
+    private final String name;
+    private final String specialty;
+    private final String location;     // city
+    private final float rating;        // 0.0 - 5.0
+    private final int reviewCount;
+    private final int pricePerSession; // dollars
+    private final String status;
+
+    public Doctor(long id, String name, String specialty, String location, float rating, int reviewCount,
+                  int pricePerSession, String status) {
+        this.id = id;
+        this.name = name != null ? name : "";
+        this.specialty = specialty != null ? specialty : "";
+        this.location = location != null ? location : "";
+        this.rating = rating;
+        this.reviewCount = reviewCount;
+        this.pricePerSession = pricePerSession;
+        this.status = status != null ? status : DoctorStatusMachine.STATUS_AVAILABLE;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSpecialty() {
+        return specialty;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public float getRating() {
+        return rating;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    public int getPricePerSession() {
+        return pricePerSession;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isAvailable() {
+        return DoctorStatusMachine.STATUS_AVAILABLE.equals(status);
+    }
+
+    /**
+     * Same doctor with another status (this instance if the status is unchanged).
+     */
+    public Doctor withStatus(String newStatus) {
+        if (status.equals(newStatus)) {
+            return this;
+        }
+        return new Doctor(id, name, specialty, location, rating, reviewCount, pricePerSession, newStatus);
+    }
+
+    /**
+     * True if everything but the status is the same (a status change rebinds only the status views).
+     */
+    public boolean sameProfile(Doctor other) {
+        return id == other.id
+                && name.equals(other.name)
+                && specialty.equals(other.specialty)
+                && location.equals(other.location)
+                && Float.compare(rating, other.rating) == 0
+                && reviewCount == other.reviewCount
+                && pricePerSession == other.pricePerSession;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Doctor)) {
+            return false;
+        }
+        Doctor doctor = (Doctor) other;
+        return sameProfile(doctor) && status.equals(doctor.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id) * 31 + status.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Doctor{id=" + id + ", " + name + ", " + specialty + ", " + location + ", " + rating + " (" + reviewCount
+                + "), $" + pricePerSession + ", " + status + "}";
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.medicalsystem2;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * DOCTOR ADAPTER - Doctor cards (doctor_card.xml) for the top rated RecyclerView.
+ *
+ * - ListAdapter: submitList() diffs the old and new lists on a background thread
+ *   (DiffUtil), then applies only the changed rows
+ * - Stable ids (doctor id), so RecyclerView keeps each card attached to its doctor
+ * - A status-only change is sent as PAYLOAD_STATUS: just the status dot and text
+ *   are rebound, not the whole card
+ */
+public class DoctorAdapter extends ListAdapter<Doctor, DoctorAdapter.ViewHolder> {
+
+    /**
+     * Called when "Book Now" is pressed on a card.
+     */
+    public interface OnBookListener {
+        void onBook(Doctor doctor);
+    }
+
+    static final Object PAYLOAD_STATUS = new Object();
+
+    // Rows rebound completely vs status only (see Metrics)
+    private static final Metrics.Counter FULL_BINDS = Metrics.counter("doctors.bind.full");
+    private static final Metrics.Counter STATUS_BINDS = Metrics.counter("doctors.bind.status");
+
+    private static final DiffUtil.ItemCallback<Doctor> DIFF = new DiffUtil.ItemCallback<Doctor>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Doctor oldItem, @NonNull Doctor newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Doctor oldItem, @NonNull Doctor newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Doctor oldItem, @NonNull Doctor newItem) {
+            return oldItem.sameProfile(newItem) ? PAYLOAD_STATUS : null;
+        }
+    };
+
+    private final OnBookListener onBookListener;
+
+    public DoctorAdapter(OnBookListener onBookListener) {
+        super(DIFF);
+        this.onBookListener = onBookListener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View card = LayoutInflater.from(parent.getContext()).inflate(R.layout.doctor_card, parent, false);
+        ViewHolder holder = new ViewHolder(card);
+        // One listener per card, it looks up the doctor currently shown in it
+        holder.bookButton.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                onBookListener.onBook(getItem(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        FULL_BINDS.increment();
+        Doctor doctor = getItem(position);
+        holder.name.setText(doctor.getName());
+        holder.rating.setText(String.format(Locale.US, "%.1f", doctor.getRating()));
+        holder.reviews.setText("(" + doctor.getReviewCount() + ")");
+        holder.specialty.setText(doctor.getSpecialty());
+        holder.price.setText("$" + doctor.getPricePerSession() + " - session");
+        holder.bindStatus(doctor);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.contains(PAYLOAD_STATUS)) {
+            STATUS_BINDS.increment();
+            holder.bindStatus(getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    /**
+     * Views of one doctor card, looked up once when the card is created.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView name;
+        final TextView rating;
+        final TextView reviews;
+        final TextView specialty;
+        final TextView price;
+        final TextView statusText;
+        final View statusDot;
+        final View bookButton;
+
+        ViewHolder(View card) {
+            super(card);
+            name = card.findViewById(R.id.doctorName);
+            rating = card.findViewById(R.id.ratingNumber);
+            reviews = card.findViewById(R.id.reviewCount);
+            specialty = card.findViewById(R.id.doctorSpecialty);
+            price = card.findViewById(R.id.doctorPrice);
+            statusText = card.findViewById(R.id.statusText);
+            statusDot = card.findViewById(R.id.statusDot);
+            bookButton = card.findViewById(R.id.bookButton);
+        }
+
+        void bindStatus(Doctor doctor) {
+            statusText.setText(doctor.getStatus());
+            if (doctor.isAvailable()) {
+                // Green for available
+                statusText.setTextColor(ContextCompat.getColor(itemView.getContext(), android.R.color.holo_green_dark));
+                statusDot.setBackgroundResource(R.drawable.status_dot_green);
+            } else {
+                // Red for in consultation
+                statusText.setTextColor(ContextCompat.getColor(itemView.getContext(), android.R.color.holo_red_dark));
+                statusDot.setBackgroundResource(R.drawable.status_dot_red);
+            }
+        }
+    }
+}
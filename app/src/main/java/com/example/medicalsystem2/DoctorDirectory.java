@@ -0,0 +1,151 @@
+package com.example.medicalsystem2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * DOCTOR DIRECTORY - All doctors the app knows about, kept in "top rated" order.
+ *
+ * - Sorted once when doctors are added; a status change replaces one entry in place
+ *   (the order does not depend on the status), found through an id -> position index
+ * - topRated() returns a new immutable list every time, so ListAdapter can diff the
+ *   previous list against it in the background
+ * - Listeners (the search index) get every added or changed doctor
+ *
+ * Thread-safe. Pure Java so it is unit tested on the JVM.
+ */
+public final class DoctorDirectory {
+
+    /**
+     * Told about added / changed doctors (called on the thread that changed them).
+     */
+    public interface Listener {
+        void onDoctorsChanged(List<Doctor> changed);
+    }
+
+    // Doctor of every booking made before doctors could be picked (and of the old storage)
+    public static final String DEFAULT_DOCTOR = "Dr. Ahmed Hassan";
+
+    private final List<Doctor> sorted = new ArrayList<>();
+    private final Map<Long, Integer> positionById = new HashMap<>();
+    private final Map<String, Long> idByName = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public DoctorDirectory(List<Doctor> doctors) {
+        addAll(doctors);
+    }
+
+    /**
+     * Built-in directory (until doctors come from a server), DEFAULT_DOCTOR first.
+     */
+    public static DoctorDirectory createDefault() {
+        String available = DoctorStatusMachine.STATUS_AVAILABLE;
+        return new DoctorDirectory(Arrays.asList(
+                new Doctor(1, DEFAULT_DOCTOR, "Cardiologist", "Tunis", 4.9f, 312, 30, available),
+                new Doctor(2, "Dr. Emily Carter", "Cardiologist", "Sousse", 4.8f, 230, 25, available),
+                new Doctor(3, "Dr. Sara Benali", "Cardiologist", "Sfax", 4.7f, 188, 25, available),
+                new Doctor(4, "Dr. Karim Mansour", "Cardiologist", "Tunis", 4.7f, 95, 20, available),
+                new Doctor(5, "Dr. Lina Haddad", "Cardiologist", "Monastir", 4.6f, 141, 20, available),
+                new Doctor(6, "Dr. Omar Trabelsi", "Cardiologist", "Nabeul", 4.5f, 77, 18, available)));
+    }
+
+    /**
+     * Add doctors (a doctor with a known id replaces the old entry), then re-sort.
+     */
+    public void addAll(List<Doctor> doctors) {
+        synchronized (this) {
+            addAllLocked(doctors);
+        }
+        notifyChanged(doctors);
+    }
+
+    private void addAllLocked(List<Doctor> doctors) {
+        Map<Long, Doctor> byId = new HashMap<>();
+        for (Doctor doctor : sorted) {
+            byId.put(doctor.getId(), doctor);
+        }
+        for (Doctor doctor : doctors) {
+            byId.put(doctor.getId(), doctor);
+        }
+        sorted.clear();
+        sorted.addAll(byId.values());
+        Collections.sort(sorted, Doctor.TOP_RATED);
+
+        positionById.clear();
+        idByName.clear();
+        for (int i = 0; i < sorted.size(); i++) {
+            Doctor doctor = sorted.get(i);
+            positionById.put(doctor.getId(), i);
+            idByName.put(doctor.getName(), doctor.getId());
+        }
+    }
+
+    /**
+     * Set one doctor's status. Returns false if the doctor is unknown or already had it.
+     */
+    public boolean updateStatus(long doctorId, String status) {
+        Doctor updated;
+        synchronized (this) {
+            Integer position = positionById.get(doctorId);
+            if (position == null) {
+                return false;
+            }
+            Doctor current = sorted.get(position);
+            updated = current.withStatus(status);
+            if (updated == current) {
+                return false;
+            }
+            sorted.set(position, updated);
+        }
+        notifyChanged(Collections.singletonList(updated));
+        return true;
+    }
+
+    /**
+     * Same as updateStatus(id, status) for callers that only know the name (appointments).
+     */
+    public boolean updateStatus(String doctorName, String status) {
+        Long id;
+        synchronized (this) {
+            id = idByName.get(doctorName);
+        }
+        return id != null && updateStatus(id, status);
+    }
+
+    public synchronized Doctor find(long doctorId) {
+        Integer position = positionById.get(doctorId);
+        return position != null ? sorted.get(position) : null;
+    }
+
+    /**
+     * The best rated doctors first, at most "limit" of them.
+     */
+    public synchronized List<Doctor> topRated(int limit) {
+        int count = Math.min(limit, sorted.size());
+        return Collections.unmodifiableList(new ArrayList<>(sorted.subList(0, count)));
+    }
+
+    public synchronized int size() {
+        return sorted.size();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Outside the lock: a listener may be slow (indexing) or read the directory back
+    private void notifyChanged(List<Doctor> changed) {
+        for (Listener listener : listeners) {
+            listener.onDoctorsChanged(changed);
+        }
+    }
+}
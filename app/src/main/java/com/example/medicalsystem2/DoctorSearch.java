@@ -0,0 +1,108 @@
+package com.example.medicalsystem2;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DOCTOR SEARCH - Debounced, cancelable queries on a DoctorSearchIndex (the Home search bar).
+ *
+ * - query() is called on every keystroke; the search starts DEBOUNCE_MILLIS after the
+ *   last one, on the worker thread
+ * - Every keystroke makes the previous query stale: not started yet -> dropped, already
+ *   running -> stops at its next Cancellation check, finished -> result not delivered
+ * - Results are delivered on the callback executor (main thread), newest query only
+ *
+ * Pure Java so it is unit tested on the JVM.
+ */
+public final class DoctorSearch {
+
+    /**
+     * Receives the results of the latest query (empty query -> empty list).
+     */
+    public interface Callback {
+        void onResults(String query, List<Doctor> results);
+    }
+
+    public static final long DEBOUNCE_MILLIS = 150;
+
+    // Query duration, and queries dropped because a newer one arrived (see Metrics)
+    private static final Metrics.Timer QUERY_TIMER = Metrics.timer("search.query");
+    private static final Metrics.Counter CANCELLED = Metrics.counter("search.cancelled");
+
+    private final DoctorSearchIndex index;
+    private final ScheduledExecutorService worker;
+    private final Executor callbacks;
+    private final long debounceMillis;
+    private final int limit;
+    private final Callback callback;
+
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending; // guarded by this
+
+    public DoctorSearch(DoctorSearchIndex index, ScheduledExecutorService worker, Executor callbacks,
+                        long debounceMillis, int limit, Callback callback) {
+        this.index = index;
+        this.worker = worker;
+        this.callbacks = callbacks;
+        this.debounceMillis = debounceMillis;
+        this.limit = limit;
+        this.callback = callback;
+    }
+
+    /**
+     * The search text changed: abandon the previous query and schedule this one.
+     */
+    public synchronized void query(String text) {
+        final long myGeneration = generation.incrementAndGet();
+        if (pending != null && pending.cancel(false)) {
+            CANCELLED.increment();
+        }
+        final String query = text != null ? text : "";
+        if (query.trim().isEmpty()) {
+            pending = null;
+            deliver(myGeneration, query, Collections.<Doctor>emptyList());
+            return;
+        }
+
+        pending = worker.schedule(() -> {
+            DoctorSearchIndex.Cancellation stale = () -> generation.get() != myGeneration;
+            if (stale.isCancelled()) {
+                return;
+            }
+            long started = QUERY_TIMER.start();
+            try {
+                List<Doctor> results = index.search(query, limit, stale);
+                QUERY_TIMER.stop(started);
+                deliver(myGeneration, query, results);
+            } catch (CancellationException e) {
+                CANCELLED.increment();
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drop any pending or running query (screen closed).
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private void deliver(long myGeneration, String query, List<Doctor> results) {
+        callbacks.execute(() -> {
+            // A newer keystroke may have arrived while this result was on its way
+            if (generation.get() == myGeneration) {
+                callback.onResults(query, results);
+            }
+        });
+    }
+}
@@ -0,0 +1,439 @@
+package com.example.medicalsystem2;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * DOCTOR SEARCH INDEX - In-memory index for as-you-type search by name, specialty and city.
+ *
+ * Every word of a doctor is indexed under:
+ * - "^a" and "^ab": its first one / two letters (1-2 letter queries are word prefixes)
+ * - all its trigrams ("has", "ass", "ssa", ...) (3+ letter queries match anywhere in a word)
+ * Posting lists are sorted int arrays of doctor slots (no boxed ids to hash and compare
+ * while intersecting). A query term is looked up by its grams (its shortest list stands for
+ * it), the terms' lists are intersected by walking them together from the shortest one
+ * (one pass each, no lookups), and candidates are checked against the real text only
+ * when the grams alone cannot prove the match (terms longer than 3 letters).
+ * "ahmed car" = doctors matching both terms. Results are the best rated first.
+ *
+ * Short prefixes ("d", "dr") match most doctors: their lists are too long to scan. Those
+ * queries walk the doctors best rated first instead (byRank) and stop at "limit" matches,
+ * falling back to the list scan if matches turn out rare (RANK_WALK_SHARE).
+ *
+ * - Lower case, accents removed ("Hélène" is found with "helene")
+ * - Incremental: addOrUpdate() / remove() touch only that doctor's grams, and as a
+ *   DoctorDirectory.Listener it follows the directory
+ * - Thread-safe: any number of queries in parallel, updates take the write lock
+ * - Queries check their Cancellation while scanning and stop with CancellationException
+ *
+ * Pure Java so it is unit tested (and benchmarked) on the JVM.
+ */
+public final class DoctorSearchIndex implements DoctorDirectory.Listener {
+
+    /**
+     * Lets a running query know it is no longer wanted (a newer keystroke arrived).
+     */
+    public interface Cancellation {
+        boolean isCancelled();
+    }
+
+    public static final Cancellation NOT_CANCELLABLE = () -> false;
+
+    // How many candidates are checked between two Cancellation checks
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    // Shortest list from which a query walks the doctors by rank, and how far (a share of that list)
+    // before falling back to the list scan: the walk never costs much more than the scan
+    private static final int RANK_WALK_MIN_LIST = 2048;
+    private static final int RANK_WALK_SHARE = 4;
+
+    /**
+     * One indexed doctor: the doctor and its normalized words (" word1 word2 ...").
+     */
+    private static final class Entry {
+        final int slot;
+        final Doctor doctor;
+        final String text;
+        final Set<String> grams;
+
+        Entry(int slot, Doctor doctor, String text, Set<String> grams) {
+            this.slot = slot;
+            this.doctor = doctor;
+            this.text = text;
+            this.grams = grams;
+        }
+    }
+
+    /**
+     * Sorted set of slots in a plain int array (binary search lookups).
+     */
+    static final class SlotList {
+        private int[] slots = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return slots[index];
+        }
+
+        boolean contains(int slot) {
+            return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+        }
+
+        void add(int slot) {
+            if (size > 0 && slots[size - 1] < slot) {
+                append(slot); // usual case while indexing: slots are handed out in order
+                return;
+            }
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, insertAt, slots, insertAt + 1, size - insertAt);
+            slots[insertAt] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+            }
+        }
+
+        private void append(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final List<Entry> bySlot = new ArrayList<>();  // null = free slot
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, SlotList> postings = new HashMap<>();
+    // Every entry, best rated first (Doctor.TOP_RATED ends on the id: a total order)
+    private final TreeSet<Entry> byRank = new TreeSet<>((a, b) -> Doctor.TOP_RATED.compare(a.doctor, b.doctor));
+
+    @Override
+    public void onDoctorsChanged(List<Doctor> changed) {
+        addAll(changed);
+    }
+
+    public void addAll(Collection<Doctor> doctors) {
+        lock.writeLock().lock();
+        try {
+            for (Doctor doctor : doctors) {
+                addLocked(doctor);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index a new doctor or re-index a changed one.
+     */
+    public void addOrUpdate(Doctor doctor) {
+        lock.writeLock().lock();
+        try {
+            addLocked(doctor);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long doctorId) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.remove(doctorId);
+            if (old != null) {
+                unindex(old.slot, old.grams);
+                byRank.remove(old);
+                bySlot.set(old.slot, null);
+                freeSlots.add(old.slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Doctors matching every word of the query, best rated first (at most "limit").
+     * An empty query matches nothing.
+     *
+     * @throws CancellationException if "cancellation" says so while searching
+     */
+    public List<Doctor> search(String query, int limit, Cancellation cancellation) {
+        String[] terms = words(query);
+        if (terms.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            // The shortest gram list of each term (a longer term is checked against the text
+            // anyway, its other grams would prove nothing more); the shortest of all drives the scan
+            List<SlotList> lists = new ArrayList<>();
+            boolean needsTextCheck = false;
+            double matchShare = 1; // Estimated share of the doctors matching the query
+            for (String term : terms) {
+                SlotList termList = null;
+                for (String gram : queryGrams(term)) {
+                    SlotList posting = postings.get(gram);
+                    if (posting == null) {
+                        return Collections.emptyList(); // one gram nobody has: no match
+                    }
+                    if (termList == null || posting.size() < termList.size()) {
+                        termList = posting;
+                    }
+                }
+                lists.add(termList);
+                matchShare *= termList.size() / (double) entries.size();
+                needsTextCheck |= term.length() > 3;
+            }
+            String[] needles = needles(terms);
+            SlotList shortest = lists.get(0);
+            for (SlotList list : lists) {
+                if (list.size() < shortest.size()) {
+                    shortest = list;
+                }
+            }
+            // Walk by rank when "limit" matches should come quickly (about limit / matchShare doctors)
+            int maxSteps = shortest.size() / RANK_WALK_SHARE;
+            if (shortest.size() >= RANK_WALK_MIN_LIST && limit <= matchShare * maxSteps) {
+                List<Doctor> results = walkByRank(query, needles, lists, needsTextCheck, limit,
+                        maxSteps, cancellation);
+                if (results != null) {
+                    return results;
+                }
+            }
+
+            // Keep the "limit" best rated matches (worst of them on top of the heap). The lists
+            // are merged: slots come in ascending order, so each list is walked once (no lookups)
+            PriorityQueue<Doctor> best = new PriorityQueue<>(limit + 1, Collections.reverseOrder(Doctor.TOP_RATED));
+            int[] cursors = new int[lists.size()];
+            for (int i = 0; i < shortest.size(); i++) {
+                if (i % CANCEL_CHECK_INTERVAL == CANCEL_CHECK_INTERVAL - 1 && cancellation.isCancelled()) {
+                    throw new CancellationException("Search cancelled: " + query);
+                }
+                int slot = shortest.get(i);
+                if (!advanceAll(slot, lists, cursors)) {
+                    continue;
+                }
+                Entry entry = bySlot.get(slot);
+                if (needsTextCheck && !matchesText(entry.text, needles)) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(entry.doctor);
+                } else if (Doctor.TOP_RATED.compare(entry.doctor, best.peek()) < 0) {
+                    best.poll();
+                    best.add(entry.doctor);
+                }
+            }
+
+            List<Doctor> results = new ArrayList<>(best);
+            Collections.sort(results, Doctor.TOP_RATED);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The first "limit" matches in rank order, or null if "maxSteps" doctors were not enough
+    private List<Doctor> walkByRank(String query, String[] needles, List<SlotList> lists, boolean needsTextCheck,
+                                    int limit, int maxSteps, Cancellation cancellation) {
+        List<Doctor> results = new ArrayList<>(limit);
+        int steps = 0;
+        for (Entry entry : byRank) {
+            if (steps == maxSteps) {
+                return null;
+            }
+            if (steps++ % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled()) {
+                throw new CancellationException("Search cancelled: " + query);
+            }
+            if (!inAll(entry.slot, lists) || (needsTextCheck && !matchesText(entry.text, needles))) {
+                continue;
+            }
+            results.add(entry.doctor);
+            if (results.size() == limit) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private void addLocked(Doctor doctor) {
+        String text = " " + normalize(doctor.getName() + " " + doctor.getSpecialty() + " " + doctor.getLocation()) + " ";
+        Entry old = entries.get(doctor.getId());
+        if (old != null && old.text.equals(text)) {
+            // Same searchable text (e.g. only the status changed): keep the grams
+            Entry updated = new Entry(old.slot, doctor, text, old.grams);
+            byRank.remove(old);
+            byRank.add(updated);
+            entries.put(doctor.getId(), updated);
+            bySlot.set(old.slot, updated);
+            return;
+        }
+
+        Set<String> grams = new HashSet<>();
+        for (String word : words(text)) {
+            addWordGrams(word, grams);
+        }
+        int slot;
+        if (old != null) {
+            slot = old.slot;
+            unindex(slot, old.grams);
+            byRank.remove(old);
+        } else if (!freeSlots.isEmpty()) {
+            slot = freeSlots.poll();
+        } else {
+            slot = bySlot.size();
+            bySlot.add(null);
+        }
+        Entry entry = new Entry(slot, doctor, text, grams);
+        entries.put(doctor.getId(), entry);
+        bySlot.set(slot, entry);
+        byRank.add(entry);
+        for (String gram : grams) {
+            SlotList posting = postings.get(gram);
+            if (posting == null) {
+                posting = new SlotList();
+                postings.put(gram, posting);
+            }
+            posting.add(slot);
+        }
+    }
+
+    private void unindex(int slot, Set<String> grams) {
+        for (String gram : grams) {
+            SlotList posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(slot);
+                if (posting.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static boolean inAll(int slot, List<SlotList> lists) {
+        for (SlotList list : lists) {
+            if (!list.contains(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Slots asked in ascending order: move each list's cursor up to "slot" (a list that
+    // passes it does not have it). The list being scanned simply lands on it.
+    private static boolean advanceAll(int slot, List<SlotList> lists, int[] cursors) {
+        boolean found = true;
+        for (int i = 0; i < cursors.length; i++) {
+            SlotList list = lists.get(i);
+            int cursor = cursors[i];
+            while (cursor < list.size() && list.get(cursor) < slot) {
+                cursor++;
+            }
+            cursors[i] = cursor;
+            found &= cursor < list.size() && list.get(cursor) == slot;
+        }
+        return found;
+    }
+
+    // 1-2 letters: start of a word, 3+: anywhere in a word (the grams may come from different words)
+    private static String[] needles(String[] terms) {
+        String[] needles = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            needles[i] = terms[i].length() <= 2 ? " " + terms[i] : terms[i];
+        }
+        return needles;
+    }
+
+    private static boolean matchesText(String text, String[] needles) {
+        for (String needle : needles) {
+            if (!text.contains(needle)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void addWordGrams(String word, Set<String> grams) {
+        grams.add("^" + word.charAt(0));
+        if (word.length() >= 2) {
+            grams.add("^" + word.substring(0, 2));
+        }
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            grams.add(word.substring(i, i + 3));
+        }
+    }
+
+    static List<String> queryGrams(String term) {
+        List<String> grams = new ArrayList<>();
+        if (term.length() <= 2) {
+            grams.add("^" + term);
+        } else {
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                grams.add(term.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Lower case without accents, punctuation turned into spaces ("Dr. Hélène" -> "dr helene").
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // accent of the previous letter
+            }
+            out.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+        return out.toString().trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String[] words(String text) {
+        String normalized = normalize(text);
+        return normalized.isEmpty() ? new String[0] : normalized.split(" +");
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.medicalsystem2;
+
+/**
+ * DOCTOR STATUS MACHINE - Timed state machine behind the doctor status (see AppointmentEngine).
+ *
+ *   AVAILABLE --(appointment start)--> IN CONSULTATION --(consultation end)--> AVAILABLE
+ *
+ * Instead of re-checking the time every few seconds, the engine queues the
+ * transition instants (start, end) and sleeps until exactly the next one.
+ * Pure Java so the transitions can be unit tested on the JVM.
+ */
+public final class DoctorStatusMachine {
+
+    public static final String STATUS_AVAILABLE = "Available";
+    public static final String STATUS_IN_CONSULTATION = "In Consultation";
+
+    // Consultation length (appointment + 1 minute for testing)
+    public static final long CONSULTATION_MILLIS = AppointmentTimeEngine.CONSULTATION_MILLIS;
+
+    private DoctorStatusMachine() {
+    }
+
+    /**
+     * Status of the doctor at time "now".
+     *
+     * @param appointmentMillis appointment start, or a negative value if none is stored
+     */
+    public static String statusAt(long appointmentMillis, long nowMillis) {
+        if (appointmentMillis >= 0
+                && nowMillis >= appointmentMillis
+                && nowMillis < consultationEnd(appointmentMillis)) {
+            return STATUS_IN_CONSULTATION;
+        }
+        return STATUS_AVAILABLE;
+    }
+
+    public static long consultationEnd(long appointmentMillis) {
+        return AppointmentTimeEngine.consultationEnd(appointmentMillis);
+    }
+}
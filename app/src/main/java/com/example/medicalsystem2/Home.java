@@ -1,34 +1,51 @@
 package com.example.medicalsystem2;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 // ✅ IMPORTS FOR BOUNDED SERVICE
 import android.content.ComponentName;
 import android.content.ServiceConnection;
 import android.os.IBinder;
 
+import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.imageview.ShapeableImageView;
 
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 public class Home extends AppCompatActivity {
 
     // Request codes for identifying results from launched activities
     private static final int APPOINTMENT_REQUEST_CODE = 100;
     // Used to identify result from appointment booking activity
     private static final int GALLERY_REQUEST_CODE = 200;
+
+    // How long onCreate() and each per-minute status update take (see Metrics)
+    private static final Metrics.Timer ON_CREATE_TIMER = Metrics.timer("home.onCreate");
+    private static final Metrics.Timer STATUS_UPDATE_TIMER = Metrics.timer("home.statusUpdate");
+
+    // Time to first frame: from onCreate, and (first Home of the process) from process start
+    private static final Metrics.Timer FIRST_FRAME_TIMER = Metrics.timer("home.timeToFirstFrame");
+    private static final Metrics.Timer COLD_START_TIMER = Metrics.timer("startup.processToHomeFirstFrame");
+    private static boolean firstHomeOfProcess = true; // main thread only
     // Used to identify result from gallery image picker
 
     // ================= BOUNDED SERVICE VARIABLES =================
@@ -37,12 +54,18 @@ public class Home extends AppCompatActivity {
     private boolean isBoundedServiceConnected = false;
     // Tracks if the activity is currently bound to the service
     private ServiceConnection serviceConnection;
+
+    // Receives the status pushed by the bounded service (text + minutes left)
+    private final AppointmentBoundedService.AppointmentStatusListener statusListener =
+            status -> updateBoundedServiceUI(status);
     // Manages the connection lifecycle between activity and service
 
     private ShapeableImageView avatarImage;
     // User avatar image view in the UI
-    private BroadcastReceiver statusReceiver;
-    // Receives updates about doctor availability from a background service
+    private StatusBus<String>.Subscription doctorStatusSubscription;
+    // Receives updates about doctor availability from a background service (in-process bus)
+    private StatusBus<Boolean>.Subscription sessionSubscription;
+    // Tells us when Firebase ended the session (account deleted / disabled)
 
     private CardView reminderCard;
     // The container card that shows an appointment reminder
@@ -55,14 +78,30 @@ public class Home extends AppCompatActivity {
     // TextView showing current appointment status from bounded service
     private TextView minutesUntilAppointmentText;
     // TextView showing remaining minutes until the appointment
+    private String userEmail;
+    // Email of the signed-in user (used to look up their appointments)
+
+    // Doctors shown in the top rated row, and the RecyclerView adapter that draws them
+    private static final int TOP_RATED_LIMIT = 100;
+    private final DoctorDirectory doctorDirectory = DoctorDirectory.createDefault();
+    private DoctorAdapter doctorAdapter;
+    private String consultingDoctor; // doctor shown "In Consultation", null if none
+
+    // Search bar: index of the directory, debounced queries, and the current text
+    private final DoctorSearchIndex searchIndex = new DoctorSearchIndex();
+    private ScheduledExecutorService searchWorker;
+    private DoctorSearch doctorSearch;
+    private String currentQuery = "";
 
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long started = ON_CREATE_TIMER.start();
         super.onCreate(savedInstanceState);
 
         // show home activity content
         setContentView(R.layout.activity_home);
+        measureFirstFrame(started);
 
 
         // ================= FIND VIEWS =================
@@ -84,11 +123,15 @@ public class Home extends AppCompatActivity {
 
         if (extras != null) {
             String email = extras.getString("user_email"); // Retrieve email from extras
+            userEmail = email;
             if (email != null && !email.isEmpty()) {
                 emailText.setText(email); // Display email in the TextView
             }
         }
 
+        // Show the avatar saved last time (from memory, or decoded from its thumbnail)
+        AvatarLoader.loadSaved(avatarImage, userEmail);
+
         // INITIALIZE REMINDER CARD
         // Setup the appointment reminder card views (text + close button)
         initializeReminderCard();
@@ -102,28 +145,62 @@ public class Home extends AppCompatActivity {
             startActivityForResult(intent, GALLERY_REQUEST_CODE); // Launch gallery
         });
 
-        // ================= BOOK NOW BUTTON =================
-        // Setup the click listener for booking an appointment
-        setupBookNowButton();
+        // ================= DOCTOR LIST =================
+        // Top rated doctors, each card with its own "Book Now" button
+        setupDoctorList();
+
+        // ================= DOCTOR SEARCH =================
+        // Search doctors by name, specialty or city from the search bar
+        setupDoctorSearch();
+
+        // ================= BOTTOM NAVIGATION =================
+        // "Reports" opens the user's lab results and medical reports
+        setupBottomNavigation();
 
-        // ================= BROADCAST RECEIVER =================
-        // Register receiver to get updates about doctor's availability
-      //  setupStatusReceiver(); : second service
+        // ================= DOCTOR STATUS =================
+        // Subscribe to updates about doctor's availability (current status is shown right away)
+        setupDoctorStatusSubscription();
+
+        // ================= SESSION =================
+        // Back to Login if the background session check fails
+        setupSessionSubscription();
 
         // ================= LOAD SAVED APPOINTMENT =================
-        // Check SharedPreferences and display any existing appointment
+        // Check the AppointmentRepository and display the next appointment
         loadSavedAppointment();
 
-        // ================= START BACKGROUND SERVICE =================
-        // Start the DoctorAvailabilityService to keep track of doctor status
-        startAvailabilityService();
+        // Doctor status needs no service to start: AppointmentEngine (started with the
+        // app process) publishes it on AppointmentEngineHost.DOCTOR_STATUS_BUS
 
         // ================= BOUNDED SERVICE CONNECTION =================
         // Bind to the AppointmentBoundedService to get live appointment data
         setupBoundedServiceConnection();
+
+        ON_CREATE_TIMER.stop(started);
     }
 
 
+    // Record when the first frame of Home is about to be drawn, then tell the system
+    // the screen is fully drawn (shows up in "adb shell am start -W" / startup benchmarks)
+    private void measureFirstFrame(long onCreateStarted) {
+        View content = getWindow().getDecorView();
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                FIRST_FRAME_TIMER.stop(onCreateStarted);
+                if (firstHomeOfProcess) {
+                    firstHomeOfProcess = false;
+                    long sinceProcessStart = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+                    COLD_START_TIMER.recordNanos(sinceProcessStart * 1_000_000L);
+                    AppLog.event(AppLog.INFO, "HomeActivity", "cold_start_first_frame_ms", sinceProcessStart);
+                }
+                reportFullyDrawn();
+                return true;
+            }
+        });
+    }
+
     private void initializeReminderCard() {
         reminderCard = findViewById(R.id.reminderCard);
         appointmentReminderText = findViewById(R.id.appointmentReminderText);
@@ -135,37 +212,80 @@ public class Home extends AppCompatActivity {
         }
     }
 
-    private void setupBookNowButton() {
-        try {
-            // Step 1: Find the container layout for the doctor card
-            View doctorCardFrame = findViewById(R.id.doctorCard1);
+    private void setupDoctorList() {
+        // Step 1: Horizontal RecyclerView of doctor cards (only the visible cards are inflated)
+        RecyclerView doctorList = findViewById(R.id.doctorList);
+        doctorList.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
+        doctorList.setHasFixedSize(true);
+
+        // Step 2: "Book Now" on a card opens the booking screen for that doctor
+        doctorAdapter = new DoctorAdapter(doctor -> {
+            Intent intent = new Intent(Home.this, appointment.class);
+            intent.putExtra(appointment.EXTRA_DOCTOR_NAME, doctor.getName());
+
+            // Start appointment activity expecting a result (appointment details)
+            startActivityForResult(intent, APPOINTMENT_REQUEST_CODE);
+        });
+        doctorList.setAdapter(doctorAdapter);
+
+        // Step 3: Show the best rated doctors (diffed in the background)
+        doctorAdapter.submitList(doctorDirectory.topRated(TOP_RATED_LIMIT));
+    }
+
+    private void setupBottomNavigation() {
+        BottomNavigationView bottomNavigation = findViewById(R.id.bottomNavigationView);
+        bottomNavigation.setSelectedItemId(R.id.nav_home);
+        bottomNavigation.setOnItemSelectedListener(item -> {
+            if (item.getItemId() == R.id.nav_history) {
+                Intent intent = new Intent(Home.this, Reports.class);
+                intent.putExtra("user_email", userEmail);
+                startActivity(intent);
+                return false; // Home stays the selected tab
+            }
+            return item.getItemId() == R.id.nav_home;
+        });
+    }
+
+    // ====================== DOCTOR SEARCH CODE ======================
 
-            if (doctorCardFrame != null) {
-                // Step 2: Inside the doctor card, find the "Book Now" button
-                View bookButton = doctorCardFrame.findViewById(R.id.bookButton);
+    private void setupDoctorSearch() {
+        // 1️⃣ The index is built and kept up to date on the "doctor-search" thread
+        searchWorker = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "doctor-search"));
+        doctorDirectory.addListener(changed -> searchWorker.execute(() -> searchIndex.onDoctorsChanged(changed)));
+        searchWorker.execute(() -> searchIndex.addAll(doctorDirectory.topRated(Integer.MAX_VALUE)));
 
-                if (bookButton != null) {
-                    // Step 3: Set a click listener for the book button
-                    bookButton.setOnClickListener(v -> {
+        // 2️⃣ Debounced: a new keystroke abandons the previous query
+        doctorSearch = new DoctorSearch(searchIndex, searchWorker, MainThreadExecutor.INSTANCE,
+                DoctorSearch.DEBOUNCE_MILLIS, TOP_RATED_LIMIT, (query, results) -> showSearchResults(query, results));
 
-                        // Launch the appointment activity when button is clicked
-                        Intent intent = new Intent(Home.this, appointment.class);
+        // 3️⃣ Search as the user types
+        EditText searchInput = findViewById(R.id.searchInput);
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+            }
 
-                        // Start appointment activity expecting a result (appointment details)
-                        startActivityForResult(intent, APPOINTMENT_REQUEST_CODE);
-                    });
+            @Override
+            public void onTextChanged(CharSequence text, int start, int before, int count) {
+                currentQuery = text.toString();
+                doctorSearch.query(currentQuery);
+            }
 
-                } else {
-                    // Log error if book button could not be found inside doctor card
-                    Log.e("HomeActivity", "Book button not found in doctor card");
-                }
-            } else {
-                // Log error if doctor card frame itself is not found in the layout
-                Log.e("HomeActivity", "Doctor card frame not found");
+            @Override
+            public void afterTextChanged(Editable text) {
             }
-        } catch (Exception e) {
-            // Catch any exceptions during setup and log them
-            Log.e("HomeActivity", "Error setting up book button: " + e.getMessage());
+        });
+    }
+
+    private void showSearchResults(String query, List<Doctor> results) {
+        TextView title = findViewById(R.id.topRatedTitle);
+        if (query.trim().isEmpty()) {
+            // Search cleared: back to the top rated doctors
+            title.setText("Top Rated Cardiologists");
+            doctorAdapter.submitList(doctorDirectory.topRated(TOP_RATED_LIMIT));
+        } else {
+            title.setText("Search results (" + results.size() + ")");
+            doctorAdapter.submitList(results);
         }
     }
     // Handles results returned from activities that were launched with startActivityForResult()
@@ -188,14 +308,10 @@ public class Home extends AppCompatActivity {
                 // Display the appointment reminder in the UI
                 displayAppointmentReminder(appointmentDateTime);
 
-                Log.d("HomeActivity", "Appointment set: " + appointmentDateTime + " (Custom: " + isCustomTime + ")");
+                AppLog.d("HomeActivity", "Appointment set: " + appointmentDateTime + " (Custom: " + isCustomTime + ")");
 
-                // If bounded service is connected, update the UI with the service status
-                if (isBoundedServiceConnected && boundedService != null) {
-                    // on a consommer le service through binder
-                    String status = boundedService.getAppointmentStatus();
-                    updateBoundedServiceUI(status);
-                }
+                // No need to ask the bounded service: it pushes the new status
+                // to statusListener as soon as the appointment is saved
             }
         }
 
@@ -206,7 +322,8 @@ public class Home extends AppCompatActivity {
             Uri imageUri = data.getData(); // Get the selected image URI
             if (imageUri != null) {
                 // Set the selected image as the user's avatar
-                avatarImage.setImageURI(imageUri);
+                // (decoded in the background at the avatar size, and saved for next time)
+                AvatarLoader.setFromUri(avatarImage, imageUri, userEmail);
             }
             // we could handle it in case of error when getting image
         }
@@ -231,119 +348,91 @@ public class Home extends AppCompatActivity {
     }
 
     private void loadSavedAppointment() {
-        // Load appointment from SharedPreferences if it exists
-        SharedPreferences prefs = getSharedPreferences("AppointmentPrefs", MODE_PRIVATE);
-        String savedAppointment = prefs.getString("appointment_datetime", "");
+        // Load the next appointment of this user from the AppointmentRepository
+        AppointmentRepository repository = AppointmentStorage.repository(this);
+        long now = System.currentTimeMillis();
 
-        // 3️⃣ If a saved appointment exists (string is not empty), display it in the reminder card
-        if (!savedAppointment.isEmpty()) {
-            displayAppointmentReminder(savedAppointment);
+        Appointment next = null;
+        if (userEmail != null && !userEmail.isEmpty()) {
+            next = repository.nextUpcomingForUser(userEmail, now);
         }
-    }
-/*
-====================== DOCTOR AVAILABILITY UPDATE CODE ======================
-
-private void setupStatusReceiver() {
-    // 1️⃣ Create a new BroadcastReceiver instance
-    statusReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            // 2️⃣ Extract the status string sent from the service via Intent extras
-            String status = intent.getStringExtra(DoctorAvailabilityService.EXTRA_STATUS);
-
-            // 3️⃣ If a valid status is received, log it and update the doctor status in UI
-            if (status != null) {
-                Log.d("HomeActivity", "Received status update: " + status);
-                updateDoctorStatus(status); // Calls UI method to show green/red status
-            }
+        if (next == null) {
+            // Appointments imported from the old single-appointment storage have no user
+            next = repository.nextUpcomingForUser("", now);
         }
-    };
 
-    // 4️⃣ Define an IntentFilter for the specific action sent by the service
-    IntentFilter filter = new IntentFilter(DoctorAvailabilityService.ACTION_STATUS_CHANGED);
-
-    // 5️⃣ Register the BroadcastReceiver with the system
-    try {
-        registerReceiver(statusReceiver, filter);
-        Log.d("HomeActivity", "BroadcastReceiver registered");
-    } catch (Exception e) {
-        Log.e("HomeActivity", "Error registering receiver: " + e.getMessage());
+        // 3️⃣ If an upcoming appointment exists, display it in the reminder card
+        if (next != null) {
+            displayAppointmentReminder(next.formatStart());
+        }
     }
-}
-
-private void updateDoctorStatus(String status) {
-    Log.d("HomeActivity", "Updating doctor status to: " + status);
-
-    try {
-        // Find the doctor card
-        View doctorCardFrame = findViewById(R.id.doctorCard1);
-
-        if (doctorCardFrame != null) {
-            TextView statusText = doctorCardFrame.findViewById(R.id.statusText);
-            View statusDot = doctorCardFrame.findViewById(R.id.statusDot);
-
-            if (statusText != null && statusDot != null) {
-                statusText.setText(status);
-
-                if (status.equals(DoctorAvailabilityService.STATUS_AVAILABLE)) {
-                    // Green for available
-                    statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
-                    statusDot.setBackgroundResource(R.drawable.status_dot_green);
-                    Log.d("HomeActivity", "Status updated to AVAILABLE (GREEN)");
-                } else {
-                    // Red for in consultation
-                    statusText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                    statusDot.setBackgroundResource(R.drawable.status_dot_red);
-                    Log.d("HomeActivity", "Status updated to IN CONSULTATION (RED)");
-                }
-            } else {
-                Log.e("HomeActivity", "Could not find statusText or statusDot views!");
+
+    // ====================== SESSION CODE ======================
+
+    private void setupSessionSubscription() {
+        // Home may be shown from the cached session before Firebase confirmed it;
+        // SessionStore posts false here if the account turned out to be invalid
+        sessionSubscription = SessionStore.SIGNED_IN_BUS.subscribe(signedIn -> {
+            if (!signedIn) {
+                AppLog.w("HomeActivity", "⚠️ Session ended, back to Login");
+                Intent intent = new Intent(Home.this, Login.class);
+                intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+                startActivity(intent);
+                finish();
             }
-        } else {
-            Log.e("HomeActivity", "Doctor card not found!");
-        }
-    } catch (Exception e) {
-        Log.e("HomeActivity", "Error updating doctor status: " + e.getMessage());
+        });
     }
-}
 
-====================== END OF DOCTOR AVAILABILITY UPDATE ======================
-*/
+    // ====================== DOCTOR AVAILABILITY UPDATE CODE ======================
+
+    private void setupDoctorStatusSubscription() {
+        // 1️⃣ Subscribe to the in-process doctor status bus of AppointmentEngine
+        //    (no BroadcastReceiver / IntentFilter: the status never leaves our process)
+        // 2️⃣ The bus is sticky: if the service already published a status,
+        //    it is delivered immediately, so the card is correct on first draw
+        // 3️⃣ Values are delivered on the main thread, the UI can be updated directly
+        doctorStatusSubscription = AppointmentEngineHost.DOCTOR_STATUS_BUS.subscribe(status -> {
+            AppLog.d("HomeActivity", "Received status update: ", status);
+            updateDoctorStatus(status); // Calls UI method to show green/red status
+        });
+        AppLog.d("HomeActivity", "Doctor status subscription registered");
+    }
 
-    // Start availability service
-    /**
-     * Starts the DoctorAvailabilityService, which is an unbounded (started) service.
-     * An unbounded service runs in the background independently of any activity.
-     * It is useful for tasks that need to continue even if the activity is destroyed.
-     * the service start through intent
-     */
-    private void startAvailabilityService() {
-        try {
-            // 1️⃣ Create an Intent to specify the service we want to start
-            // 'this' is the current Activity context
-            // DoctorAvailabilityService.class is the target service class
-            Intent serviceIntent = new Intent(this, DoctorAvailabilityService.class);
-
-            // 2️⃣ Start the service using startService()
-            // This tells Android to start the service if it isn't already running
-            // Once started, it keeps running until it stops itself with stopSelf() or is killed by the system
-            startService(serviceIntent);
-
-
-        } catch (Exception e) {
-            // 4️⃣ Catch any exceptions that may occur while starting the service
-            // Log the error message for debugging purposes
-            Log.e("HomeActivity", "Error starting availability service: " + e.getMessage());
+    private void updateDoctorStatus(String status) {
+        AppLog.d("HomeActivity", "Updating doctor status to: ", status);
+
+        // The engine's status is about the current appointment: find its doctor
+        boolean changed = false;
+        if (consultingDoctor != null) {
+            changed = doctorDirectory.updateStatus(consultingDoctor, DoctorStatusMachine.STATUS_AVAILABLE);
+            consultingDoctor = null;
+        }
+        if (DoctorStatusMachine.STATUS_IN_CONSULTATION.equals(status)) {
+            Appointment current = AppointmentStorage.snapshot(this).currentAppointment(System.currentTimeMillis());
+            consultingDoctor = current != null && !current.getDoctorName().isEmpty()
+                    ? current.getDoctorName()
+                    : AppointmentStorage.DEFAULT_DOCTOR;
+            changed |= doctorDirectory.updateStatus(consultingDoctor, status);
+        }
+
+        // Only the doctors whose status changed are rebound (status views only)
+        if (changed) {
+            if (currentQuery.trim().isEmpty()) {
+                doctorAdapter.submitList(doctorDirectory.topRated(TOP_RATED_LIMIT));
+            } else {
+                doctorSearch.query(currentQuery); // same results, new status
+            }
         }
     }
 
+    // ====================== END OF DOCTOR AVAILABILITY UPDATE ======================
 
     // ✅ NEW: BOUNDED SERVICE SETUP METHOD
     /**
      * Setup the connection between Home activity and AppointmentBoundedService
      */
     private void setupBoundedServiceConnection() {
-        Log.d("HomeActivity", "SETTING UP BOUNDED SERVICE");
+        AppLog.d("HomeActivity", "SETTING UP BOUNDED SERVICE");
 
         // ServiceConnection handles binding callbacks
         serviceConnection = new ServiceConnection() {
@@ -351,7 +440,7 @@ private void updateDoctorStatus(String status) {
             // Called when service is connected
             @Override
             public void onServiceConnected(ComponentName name, IBinder service) {
-                Log.d("HomeActivity", "✅ onServiceConnected() called");
+                AppLog.d("HomeActivity", "✅ onServiceConnected() called");
 
                 // Cast IBinder to LocalBinder to access service
                 AppointmentBoundedService.LocalBinder binder =
@@ -361,12 +450,9 @@ private void updateDoctorStatus(String status) {
                 boundedService = binder.getService();
                 isBoundedServiceConnected = true;
 
-                // Optional: listen for status updates
-                boundedService.setStatusListener(newStatus -> updateBoundedServiceUI(newStatus));
-
-                // Fetch initial data and update UI
-                String initialStatus = boundedService.getAppointmentStatus();
-                updateBoundedServiceUI(initialStatus);
+                // Listen for status updates (the current status is delivered right away,
+                // then once per minute when it changes)
+                boundedService.addStatusListener(statusListener);
             }
 
             // Called if service is unexpectedly disconnected
@@ -374,59 +460,61 @@ private void updateDoctorStatus(String status) {
             public void onServiceDisconnected(ComponentName name) {
                 isBoundedServiceConnected = false;
                 boundedService = null;
-                Log.d("HomeActivity", "❌ SERVICE DISCONNECTED");
+                AppLog.d("HomeActivity", "❌ SERVICE DISCONNECTED");
             }
         };
 
         // Bind activity to service
         Intent intent = new Intent(this, AppointmentBoundedService.class);
         bindService(intent, serviceConnection, BIND_AUTO_CREATE);
-        Log.d("HomeActivity", "bindService() called");
+        AppLog.d("HomeActivity", "bindService() called");
     }
 
 
     // ✅ NEW: Update UI with bounded service status
-    private void updateBoundedServiceUI(String status) {
-        Log.d("HomeActivity", "📱 Updating UI with bounded service status: " + status);
+    private void updateBoundedServiceUI(AppointmentStatusStream.Status status) {
+        long started = STATUS_UPDATE_TIMER.start();
+        // Called every minute: AppLog builds the message only when DEBUG is on
+        AppLog.d("HomeActivity", "📱 Updating UI with bounded service status: ", status);
 
         if (boundedServiceStatusText != null) {
-            boundedServiceStatusText.setText(status);
+            boundedServiceStatusText.setText(status.getText());
             boundedServiceStatusText.setVisibility(View.VISIBLE);
         }
 
-        if (isBoundedServiceConnected && boundedService != null) {
-            int minutesLeft = boundedService.getMinutesUntilAppointment();
+        // Minutes left come with the status: no extra call to the service
+        int minutesLeft = status.getMinutesUntil();
 
-            if (minutesUntilAppointmentText != null) {
-                if (minutesLeft >= 0) {
-                    minutesUntilAppointmentText.setText("⏱️ " + minutesLeft + " minutes left");
-                } else {
-                    minutesUntilAppointmentText.setText("⏱️ Appointment passed");
-                }
-                minutesUntilAppointmentText.setVisibility(View.VISIBLE);
+        if (minutesUntilAppointmentText != null) {
+            if (minutesLeft >= 0) {
+                minutesUntilAppointmentText.setText("⏱️ " + minutesLeft + " minutes left");
+            } else {
+                minutesUntilAppointmentText.setText("⏱️ Appointment passed");
             }
+            minutesUntilAppointmentText.setVisibility(View.VISIBLE);
         }
+        STATUS_UPDATE_TIMER.stop(started);
     }
 
     // ✅ NEW: Check appointment status manually (optional)
     private void checkAppointmentWithBoundedService() {
         if (isBoundedServiceConnected && boundedService != null) {
-            Log.d("HomeActivity", "========== MANUAL STATUS CHECK ==========");
+            AppLog.d("HomeActivity", "========== MANUAL STATUS CHECK ==========");
 
             String status = boundedService.getAppointmentStatus();
             int minutesLeft = boundedService.getMinutesUntilAppointment();
             boolean hasAppointment = boundedService.hasAppointment();
             String doctorName = boundedService.getDoctorName();
 
-            Log.d("HomeActivity", "Status: " + status);
-            Log.d("HomeActivity", "Minutes: " + minutesLeft);
-            Log.d("HomeActivity", "Has Appointment: " + hasAppointment);
-            Log.d("HomeActivity", "Doctor: " + doctorName);
+            AppLog.d("HomeActivity", "Status: ", status);
+            AppLog.d("HomeActivity", "Minutes: ", minutesLeft);
+            AppLog.d("HomeActivity", "Has Appointment: ", hasAppointment);
+            AppLog.d("HomeActivity", "Doctor: ", doctorName);
 
+            // The on-screen status is already kept up to date by statusListener
             Toast.makeText(this, status, Toast.LENGTH_SHORT).show();
-            updateBoundedServiceUI(status);
         } else {
-            Log.e("HomeActivity", "❌ Service not connected!");
+            AppLog.e("HomeActivity", "❌ Service not connected!", null);
             Toast.makeText(this, "Service not connected", Toast.LENGTH_SHORT).show();
         }
     }
@@ -434,30 +522,42 @@ private void updateDoctorStatus(String status) {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        Log.d("HomeActivity", "========== ACTIVITY DESTROYING ==========");
-
-        // Unregister broadcast receiver
-        if (statusReceiver != null) {
-            try {
-                unregisterReceiver(statusReceiver);
-                Log.d("HomeActivity", "✅ BroadcastReceiver unregistered");
-            } catch (IllegalArgumentException e) {
-                Log.e("HomeActivity", "Receiver was not registered: " + e.getMessage());
-            }
+        AppLog.d("HomeActivity", "========== ACTIVITY DESTROYING ==========");
+
+        // Stop searching (pending query dropped, index thread ends)
+        if (doctorSearch != null) {
+            doctorSearch.cancel();
+        }
+        if (searchWorker != null) {
+            searchWorker.shutdownNow();
+        }
+
+        // Stop receiving doctor status updates
+        if (doctorStatusSubscription != null) {
+            doctorStatusSubscription.unsubscribe();
+            doctorStatusSubscription = null;
+            AppLog.d("HomeActivity", "✅ Doctor status subscription removed");
+        }
+        if (sessionSubscription != null) {
+            sessionSubscription.unsubscribe();
+            sessionSubscription = null;
         }
 
         // ✅ UNBIND BOUNDED SERVICE
         if (isBoundedServiceConnected) {
-            Log.d("HomeActivity", "Unbinding from bounded service...");
+            AppLog.d("HomeActivity", "Unbinding from bounded service...");
 
+            if (boundedService != null) {
+                boundedService.removeStatusListener(statusListener);
+            }
             unbindService(serviceConnection);
 
             isBoundedServiceConnected = false;
             boundedService = null;
 
-            Log.d("HomeActivity", "✅ Bounded Service Unbound");
+            AppLog.d("HomeActivity", "✅ Bounded Service Unbound");
         }
 
-        Log.d("HomeActivity", "========== ACTIVITY DESTROYED ==========");
+        AppLog.d("HomeActivity", "========== ACTIVITY DESTROYED ==========");
     }
 }
\ No newline at end of file
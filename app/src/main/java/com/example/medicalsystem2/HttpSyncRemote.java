@@ -0,0 +1,85 @@
+package com.example.medicalsystem2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * HTTP SYNC REMOTE - SyncRemote that POSTs each batch to the sync endpoint.
+ *
+ * The body is already compressed by SyncCodec, so it is sent as is (fixed length,
+ * no chunking) and any non-2xx answer is an IOException (SyncEngine retries later).
+ *
+ * The batches carry appointments: the endpoint must be https (refused otherwise) and
+ * every request is signed in as the user ("Authorization: Bearer" + their ID token,
+ * fetched per request so an expired token is never reused).
+ */
+public final class HttpSyncRemote implements SyncRemote {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 15_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * The signed-in user's ID token (IOException when nobody is signed in: the batch
+     * stays in the outbox).
+     */
+    public interface TokenSource {
+        String idToken() throws IOException;
+    }
+
+    private final URL endpoint;
+    private final TokenSource tokens;
+
+    public HttpSyncRemote(URL endpoint, TokenSource tokens) {
+        if (!"https".equalsIgnoreCase(endpoint.getProtocol())) {
+            throw new IllegalArgumentException("Sync endpoint must be https: " + endpoint.getProtocol());
+        }
+        this.endpoint = endpoint;
+        this.tokens = tokens;
+    }
+
+    @Override
+    public byte[] send(byte[] request) throws IOException {
+        String token = tokens.idToken();
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setInstanceFollowRedirects(false); // The token only goes to the endpoint
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(request.length);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(request);
+            } finally {
+                out.close();
+            }
+
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException("Sync server answered " + status);
+            }
+            InputStream in = connection.getInputStream();
+            try {
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    response.write(buffer, 0, read);
+                }
+                return response.toByteArray();
+            } finally {
+                in.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+}
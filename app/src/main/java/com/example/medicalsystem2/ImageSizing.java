@@ -0,0 +1,57 @@
+package com.example.medicalsystem2;
+
+/**
+ * IMAGE SIZING - How much to shrink a photo while decoding it, and how big the
+ * bitmap memory cache may be.
+ *
+ * A 48 MP gallery photo decoded at full size is 8000 x 6000 x 4 bytes = 192 MB.
+ * The avatar is a 50dp circle (150 px on a xxhdpi phone), so AvatarLoader asks
+ * BitmapFactory for a power-of-two inSampleSize and decodes only what fits the view.
+ *
+ * Pure Java so it is unit tested on the JVM.
+ */
+public final class ImageSizing {
+
+    // ARGB_8888: 4 bytes per pixel
+    public static final int BYTES_PER_PIXEL = 4;
+
+    private ImageSizing() {
+    }
+
+    /**
+     * Largest power of two that keeps both decoded sides at least as big as the target
+     * (BitmapFactory.Options.inSampleSize). Unknown sizes (<= 0) mean no downsampling.
+     */
+    public static int inSampleSize(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        if (sourceWidth <= 0 || sourceHeight <= 0 || targetWidth <= 0 || targetHeight <= 0) {
+            return 1;
+        }
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= targetWidth
+                && sourceHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Decoded side for a sample size (BitmapFactory rounds up).
+     */
+    public static int sampledSize(int sourceSize, int sampleSize) {
+        return (sourceSize + sampleSize - 1) / sampleSize;
+    }
+
+    /**
+     * Bitmap memory of the decoded image in bytes.
+     */
+    public static long decodedBytes(int sourceWidth, int sourceHeight, int sampleSize) {
+        return (long) sampledSize(sourceWidth, sampleSize) * sampledSize(sourceHeight, sampleSize) * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Memory cache budget: "divisor"-th of the max heap, in KB (what LruCache.sizeOf returns).
+     */
+    public static int memoryCacheKb(long maxHeapBytes, int divisor) {
+        return (int) Math.min(Integer.MAX_VALUE, maxHeapBytes / 1024 / divisor);
+    }
+}
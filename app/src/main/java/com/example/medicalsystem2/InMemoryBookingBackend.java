@@ -0,0 +1,47 @@
+package com.example.medicalsystem2;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IN-MEMORY BOOKING BACKEND - BookingBackend kept in this process (ConcurrentHashMap).
+ *
+ * Used by the app (one phone, every screen and service share it through
+ * AppointmentStorage) and by the tests as a stand-in for a server.
+ * compareAndSet() is atomic per doctor-day; different days never wait on each other.
+ *
+ * It only knows this process: other devices' bookings are not in it (see BookingService).
+ */
+public final class InMemoryBookingBackend implements BookingBackend {
+
+    private final ConcurrentHashMap<String, DoctorDay> days = new ConcurrentHashMap<>();
+
+    @Override
+    public DoctorDay read(String doctorName, LocalDate day) {
+        DoctorDay current = days.get(key(doctorName, day));
+        return current != null ? current : DoctorDay.empty(doctorName, day);
+    }
+
+    @Override
+    public boolean compareAndSet(DoctorDay expected, DoctorDay updated) {
+        if (updated.getVersion() != expected.getVersion() + 1
+                || !updated.getDoctorName().equals(expected.getDoctorName())
+                || !updated.getDay().equals(expected.getDay())) {
+            throw new IllegalArgumentException("Not the next version of " + expected + ": " + updated);
+        }
+        boolean[] swapped = new boolean[1];
+        days.compute(key(expected.getDoctorName(), expected.getDay()), (key, current) -> {
+            long currentVersion = current != null ? current.getVersion() : 0;
+            if (currentVersion != expected.getVersion()) {
+                return current; // someone else wrote this day since it was read
+            }
+            swapped[0] = true;
+            return updated;
+        });
+        return swapped[0];
+    }
+
+    private static String key(String doctorName, LocalDate day) {
+        return doctorName + '|' + day;
+    }
+}
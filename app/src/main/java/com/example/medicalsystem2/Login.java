@@ -20,27 +20,34 @@ public class Login extends AppCompatActivity {
     private TextView signUpText;      // Text to navigate to SignUp activity
     private FirebaseAuth firebaseAuth; // Firebase Authentication instance
 
+    // Firebase sign-in round trip, and how often it fails (see Metrics)
+    private static final Metrics.Timer SIGN_IN_TIMER = Metrics.timer("auth.signIn");
+    private static final Metrics.Counter SIGN_IN_FAILURES = Metrics.counter("auth.signIn.failed");
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_login);
 
         // Initialize Firebase Authentication
         firebaseAuth = FirebaseAuth.getInstance();
 
-        // Connect UI elements to variables
-        emailEditText = findViewById(R.id.emailEditText);
-        passwordEditText = findViewById(R.id.passwordEditText);
-        loginButton = findViewById(R.id.loginButton);
-        signUpText = findViewById(R.id.signUpText);
-
-        // Check if user is already logged in
+        // Check if user is already logged in BEFORE inflating the layout
+        // (usually MainActivity already sent returning users to Home)
         FirebaseUser currentUser = firebaseAuth.getCurrentUser();
         if (currentUser != null) {
             // If already logged in, skip login screen and go directly to Home
             goToHome(currentUser.getEmail());
+            return;
         }
 
+        setContentView(R.layout.activity_login);
+
+        // Connect UI elements to variables
+        emailEditText = findViewById(R.id.emailEditText);
+        passwordEditText = findViewById(R.id.passwordEditText);
+        loginButton = findViewById(R.id.loginButton);
+        signUpText = findViewById(R.id.signUpText);
+
         // Login button click listener
         loginButton.setOnClickListener(v -> attemptLogin());
 
@@ -65,8 +72,10 @@ public class Login extends AppCompatActivity {
         loginButton.setEnabled(false);
 
         // Firebase method to sign in with email and password
+        long started = SIGN_IN_TIMER.start();
         firebaseAuth.signInWithEmailAndPassword(email, password)
                 .addOnCompleteListener(task -> {
+                    SIGN_IN_TIMER.stop(started);
                     // Re-enable button after Firebase task completes
                     loginButton.setEnabled(true);
 
@@ -75,10 +84,14 @@ public class Login extends AppCompatActivity {
                         FirebaseUser user = firebaseAuth.getCurrentUser(); // Get logged-in user
                         Toast.makeText(Login.this, "Login Successful", Toast.LENGTH_SHORT).show();
 
+                        // Remember the session so the next launch opens Home directly
+                        SessionStore.save(Login.this, user);
+
                         // Navigate to Home activity and pass user email
                         goToHome(user.getEmail());
                     } else {
                         // Login failed, show error message
+                        SIGN_IN_FAILURES.increment();
                         String errorMessage = task.getException() != null
                                 ? task.getException().getMessage()
                                 : "Login failed";
@@ -2,89 +2,163 @@ package com.example.medicalsystem2;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
+import android.os.Process;
+import android.os.SystemClock;
 import android.widget.ProgressBar;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SPLASH SCREEN - Shown only while the startup work runs (no fixed delay anymore).
+ *
+ * The startup pipeline runs in parallel:
+ * - Session: the cached session (SessionStore), no Firebase round trip
+ * - Appointments: wait for the preload started by MedicalSystemApp
+ * - Notification channel for the reminders
+ *
+ * Then: returning user -> Home directly (SessionRouter), otherwise -> Login.
+ * Firebase checks the session afterwards, in the background (Home is already shown).
+ * Timings go to Metrics ("startup.*", see dumpsys of AppointmentBoundedService).
+ */
 public class MainActivity extends AppCompatActivity {
 
-    private ProgressBar progressBar;       // ProgressBar view in layout
-    private int progressStatus = 0;        // Current progress value (0-100)
-    private Handler handler = new Handler(); // Handler to update UI from background thread
-    private boolean isRunning = true;      // Flag to control thread execution
-    private Thread progressThread;         // Background thread to update progress
+    private static final String TAG = "Startup";
+
+    // Process start -> splash first onCreate, and splash onCreate -> next screen started
+    private static final Metrics.Timer PROCESS_TO_SPLASH_TIMER = Metrics.timer("startup.processToSplash");
+    private static final Metrics.Timer SPLASH_TIMER = Metrics.timer("startup.splash");
+
+    private ProgressBar progressBar;        // ProgressBar view in layout (one step per finished task)
+    private StartupPipeline pipeline;       // Init work the splash waits for
+    private ExecutorService workers;        // One thread per task, stopped when the splash is gone
+
+    // Result of the session task (written on a worker thread, read after the pipeline finished)
+    private volatile Session session;
+    private volatile SessionRouter.Destination destination = SessionRouter.Destination.LOGIN;
+
+    // Pipeline finished while the app was in background: route in onStart()
+    private Intent pendingRoute;
+    private boolean started;
+    private long splashStartNanos;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        splashStartNanos = SPLASH_TIMER.start();
+        PROCESS_TO_SPLASH_TIMER.recordNanos(
+                (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) * 1_000_000L);
         setContentView(R.layout.activity_main);
 
         // Connect the ProgressBar from layout
         progressBar = findViewById(R.id.progressBar);
 
-        // Start the progress update
-        startProgress();
+        // Start the startup work (once: onRestart does not start it again)
+        startPipeline();
     }
 
     /**
-     * Start a background thread to increment the progress bar
+     * Run the init tasks in parallel and route as soon as the slowest one is done.
      */
-    private void startProgress() {
-        progressThread = new Thread(() -> {
-            // Loop until progress reaches 100 or the activity is stopped
-            while (progressStatus < 100 && isRunning) {
-                progressStatus++; // Increase progress
-
-                // Post the update to the UI thread using Handler
-                // Update UI from background thread
-
-                handler.post(() -> progressBar.setProgress(progressStatus));
-
-                try {
-                    // Delay for 50 milliseconds to create a smooth animation
-                    Thread.sleep(50);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+    private void startPipeline() {
+        pipeline = new StartupPipeline()
+                .add("session", this::loadSession)
+                .add("appointments", () -> AppointmentStorage.repository(getApplicationContext()))
+                .add("notificationChannel", () ->
+                        AppointmentReminderService.createNotificationChannel(getApplicationContext()));
+
+        workers = Executors.newFixedThreadPool(3);
+        pipeline.start(workers, MainThreadExecutor.INSTANCE, new StartupPipeline.Listener() {
+            @Override
+            public void onProgress(int finishedTasks, int totalTasks) {
+                progressBar.setProgress(finishedTasks * 100 / totalTasks);
             }
 
-            // When progress reaches 100, navigate to the next activity (Login)
-            if (progressStatus >= 100) {
-                startActivity(new Intent(MainActivity.this, Login.class));
-                finish(); // Close MainActivity so user can't go back to it
+            @Override
+            public void onFinished(StartupPipeline.Report report) {
+                AppLog.d(TAG, "Startup: ", report);
+                for (Throwable failure : report.getFailures().values()) {
+                    AppLog.e(TAG, "Startup task failed: " + failure.getMessage(), failure);
+                }
+                route();
             }
         });
-
-        // Start the background thread
-        progressThread.start();
     }
 
     /**
-     * Pause the progress if the app goes to background
+     * Pick the next screen from the cached session (worker thread).
      */
-    @Override
-    protected void onStop() {
-        super.onStop();
-        isRunning = false; // Stop the thread
+    private void loadSession() {
+        Session cached = SessionStore.current(getApplicationContext());
+        if (cached == null) {
+            // Signed in with an older version (no cached session yet): ask Firebase once
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user != null) {
+                cached = new Session(user.getUid(), user.getEmail(), 0, AppClock.SYSTEM.currentTimeMillis());
+            }
+        }
+        session = cached;
+        destination = SessionRouter.route(cached, AppClock.SYSTEM.currentTimeMillis());
     }
 
     /**
-     * Resume progress if the app comes back to foreground
+     * Returning users go straight to Home, everyone else to Login.
      */
+    private void route() {
+        Intent next;
+        if (destination == SessionRouter.Destination.HOME) {
+            next = new Intent(this, Home.class);
+            next.putExtra("user_email", session.getEmail());
+            // The user sees Home while Firebase confirms the account
+            SessionStore.validateInBackground(this);
+        } else {
+            next = new Intent(this, Login.class);
+        }
+
+        if (!started) {
+            // Do not open a screen while the user is in another app
+            pendingRoute = next;
+            return;
+        }
+        SPLASH_TIMER.stop(splashStartNanos);
+        startActivity(next);
+        finish(); // Close MainActivity so user can't go back to it
+    }
+
     @Override
-    protected void onRestart() {
-        super.onRestart();
-        isRunning = true; // Resume the thread
-        startProgress();  // Start progress again
+    protected void onStart() {
+        super.onStart();
+        started = true;
+        if (pendingRoute != null) {
+            Intent next = pendingRoute;
+            pendingRoute = null;
+            startActivity(next);
+            finish();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        started = false;
     }
 
     /**
-     * Ensure the thread stops when activity is destroyed
+     * Drop the pipeline callbacks and stop the worker threads.
      */
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        isRunning = false; // Stop the thread
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+        if (workers != null) {
+            workers.shutdown(); // running tasks finish, nothing new starts
+        }
     }
 }
@@ -0,0 +1,31 @@
+package com.example.medicalsystem2;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * MAIN THREAD EXECUTOR - Runs tasks on the UI thread.
+ *
+ * Already on the main thread -> runs the task right away (no extra message loop turn),
+ * otherwise posts it to the main Looper.
+ */
+public final class MainThreadExecutor implements Executor {
+
+    public static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private MainThreadExecutor() {
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            command.run();
+        } else {
+            handler.post(command);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.medicalsystem2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MAPPED ATTACHMENT - Reads a (large) attachment one page at a time, memory-mapped.
+ *
+ * - page(i) is a read-only MappedByteBuffer over bytes [i * pageBytes, (i + 1) * pageBytes)
+ *   of the file: the OS pages it in from disk, nothing is copied onto the Java heap
+ * - textPage(i) decodes only that page (a 50 MB lab export shows its first page in
+ *   the time it takes to read 16 KB)
+ * - Only the page being read is mapped, so any file size works (a single
+ *   MappedByteBuffer stops at 2 GB)
+ * - Encrypted attachments (RecordAttachments) are read through a ChunkedCipher.SealedFile
+ *   instead: the 64 KB chunk(s) under the page are decrypted into one reused buffer,
+ *   still never the whole file
+ *
+ * PDFs are not read here: PdfRenderer renders them page by page from the file
+ * descriptor (Reports). Not thread-safe: one reader thread. Pure Java so it is
+ * unit tested (and benchmarked) on the JVM.
+ */
+public final class MappedAttachment implements Closeable {
+
+    private final Closeable file;
+    private final FileChannel channel;             // Plain file: mapped
+    private final ChunkedCipher.SealedFile sealed; // Encrypted file: decrypted chunk by chunk
+    private final long size;
+    private final int pageBytes;
+
+    private MappedAttachment(RandomAccessFile file, int pageBytes) throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.sealed = null;
+        this.size = channel.size();
+        this.pageBytes = pageBytes;
+    }
+
+    private MappedAttachment(ChunkedCipher.SealedFile sealed, int pageBytes) {
+        this.file = sealed;
+        this.channel = null;
+        this.sealed = sealed;
+        this.size = sealed.size();
+        this.pageBytes = pageBytes;
+    }
+
+    /**
+     * Pages of a plain file.
+     */
+    public static MappedAttachment open(File file, int pageBytes) throws IOException {
+        checkPageBytes(pageBytes);
+        return new MappedAttachment(new RandomAccessFile(file, "r"), pageBytes);
+    }
+
+    /**
+     * Pages of an encrypted file (closed with the MappedAttachment).
+     */
+    public static MappedAttachment open(ChunkedCipher.SealedFile sealed, int pageBytes) throws IOException {
+        try {
+            checkPageBytes(pageBytes);
+        } catch (IllegalArgumentException e) {
+            sealed.close();
+            throw e;
+        }
+        return new MappedAttachment(sealed, pageBytes);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int pageCount() {
+        return (int) Math.max(1, (size + pageBytes - 1) / pageBytes);
+    }
+
+    /**
+     * Bytes of one page: mapped from a plain file (not a copy), or the decrypted chunk of an
+     * encrypted one (valid until the next page is read).
+     */
+    public ByteBuffer page(int index) throws IOException {
+        long start = (long) checkIndex(index) * pageBytes;
+        return bytes(start, Math.min(pageBytes, size - start));
+    }
+
+    /**
+     * One page of a UTF-8 text file. A character cut by the page boundary belongs to
+     * the page it starts on, so all pages together are exactly the file's text.
+     */
+    public String textPage(int index) throws IOException {
+        long start = (long) checkIndex(index) * pageBytes;
+        long end = Math.min(start + pageBytes, size);
+        // Up to 3 extra bytes on each side to find the character boundaries
+        long mappedStart = Math.max(0, start - 3);
+        long mappedEnd = Math.min(size, end + 3);
+        ByteBuffer bytes = bytes(mappedStart, mappedEnd - mappedStart);
+
+        int from = (int) (start - mappedStart);
+        while (from < bytes.limit() && isContinuation(bytes.get(from))) {
+            from++;
+        }
+        int to = (int) (end - mappedStart);
+        while (to < bytes.limit() && isContinuation(bytes.get(to))) {
+            to++;
+        }
+        if (from >= to) {
+            return "";
+        }
+        bytes.limit(to).position(from);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= pageCount()) {
+            throw new IndexOutOfBoundsException("Page " + index + " of " + pageCount());
+        }
+        return index;
+    }
+
+    private ByteBuffer bytes(long start, long length) throws IOException {
+        if (sealed != null) {
+            return sealed.read(start, (int) length);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    }
+
+    private static void checkPageBytes(int pageBytes) {
+        if (pageBytes <= 0) {
+            throw new IllegalArgumentException("pageBytes " + pageBytes);
+        }
+    }
+
+    // 10xxxxxx: not the first byte of a UTF-8 character
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.medicalsystem2;
+
+/**
+ * MEDICAL RECORD - One lab result or medical report of a user (immutable).
+ *
+ * Only the metadata lives here (and in the "records" table). The attachment (scan,
+ * PDF, lab export) stays on disk, encrypted, under its keyed hash (attachmentKey) and is read
+ * page by page when it is shown, see RecordAttachments.
+ *
+ * Listed newest first: recordedAt, then id. (recordedAt, id) of the last record of
+ * a page is the cursor of the next page (keyset pagination, no OFFSET).
+ */
+public final class MedicalRecord {
+
+    public static final String KIND_LAB_RESULT = "lab_result";
+    public static final String KIND_REPORT = "report";
+
+    private final long id;
+    private final String userEmail;
+    private final String kind;            // KIND_LAB_RESULT or KIND_REPORT
+    private final String title;
+    private final String summary;
+    private final long recordedAtMillis;
+    private final String attachmentName;  // File name shown to the user, "" when there is no attachment
+    private final String attachmentKey;   // Keyed SHA-256 of the content (file name in RecordAttachments)
+    private final String attachmentType;  // MIME type, e.g. "image/jpeg"
+    private final long attachmentSize;    // bytes
+
+    public MedicalRecord(long id, String userEmail, String kind, String title, String summary,
+                         long recordedAtMillis, String attachmentName, String attachmentKey,
+                         String attachmentType, long attachmentSize) {
+        this.id = id;
+        this.userEmail = userEmail != null ? userEmail : "";
+        this.kind = kind != null ? kind : KIND_REPORT;
+        this.title = title != null ? title : "";
+        this.summary = summary != null ? summary : "";
+        this.recordedAtMillis = recordedAtMillis;
+        this.attachmentName = attachmentName != null ? attachmentName : "";
+        this.attachmentKey = attachmentKey != null ? attachmentKey : "";
+        this.attachmentType = attachmentType != null ? attachmentType : "";
+        this.attachmentSize = attachmentSize;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public boolean isLabResult() {
+        return KIND_LAB_RESULT.equals(kind);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public long getRecordedAtMillis() {
+        return recordedAtMillis;
+    }
+
+    public boolean hasAttachment() {
+        return !attachmentName.isEmpty();
+    }
+
+    public String getAttachmentName() {
+        return attachmentName;
+    }
+
+    public String getAttachmentKey() {
+        return attachmentKey;
+    }
+
+    public String getAttachmentType() {
+        return attachmentType;
+    }
+
+    public long getAttachmentSize() {
+        return attachmentSize;
+    }
+
+    @Override
+    public String toString() {
+        return "MedicalRecord{" + id + ", " + kind + ", " + title + "}";
+    }
+}
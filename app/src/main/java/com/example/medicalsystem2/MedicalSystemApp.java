@@ -0,0 +1,78 @@
+package com.example.medicalsystem2;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
+import android.util.Log;
+
+/**
+ * APPLICATION - Runs once when the app process starts, before any activity or service.
+ *
+ * - Starts loading the appointments in the background, so Home and the booking
+ *   screen read them from memory instead of waiting on the disk
+ * - Starts AppointmentEngine (reminders + doctor status) right after, on the same thread
+ * - Reads the cached session (SessionStore) so the splash knows Home vs Login right away
+ * - Starts the appointment sync (SyncHost) on its own background thread
+ * - Debug builds: StrictMode logs any disk read/write done on the main thread
+ * - AppLog goes to logcat (DEBUG in debug builds, WARN in release; "adb shell setprop
+ *   log.tag.MedicalSystem DEBUG" lowers it) and keeps the last events for dumpsys
+ */
+public class MedicalSystemApp extends Application {
+
+    private static final String TAG = "MedicalSystemApp";
+
+    // Tag checked by Log.isLoggable() to turn on verbose logging at run time
+    private static final String LOG_PROPERTY_TAG = "MedicalSystem";
+
+    // Recent structured events kept for "adb shell dumpsys" (a few KB)
+    private static final int EVENT_RING_CAPACITY = 256;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        setUpLogging(debuggable);
+        if (debuggable) {
+            enableStrictMode();
+        }
+
+        // Open the appointment database (databases/appointments.db) on the "appointment-io" thread
+        AppointmentStorage.preload(this);
+        // Read the cached session on the same thread, so the splash routes from memory
+        SessionStore.preload(this);
+        AppointmentEngineHost.start(this);
+        // Upload the bookings made on this phone (offline-first, batched) when an endpoint is set
+        SyncHost.start(this);
+    }
+
+    private void setUpLogging(boolean debuggable) {
+        AppLog.setSink((level, tag, message, error) -> {
+            Log.println(level, tag, message);
+            if (error != null) {
+                Log.println(level, tag, Log.getStackTraceString(error));
+            }
+        });
+        if (Log.isLoggable(LOG_PROPERTY_TAG, Log.VERBOSE)) {
+            AppLog.setMinLevel(AppLog.VERBOSE);
+        } else if (Log.isLoggable(LOG_PROPERTY_TAG, Log.DEBUG)) {
+            AppLog.setMinLevel(AppLog.DEBUG);
+        } else {
+            AppLog.setMinLevel(debuggable ? AppLog.DEBUG : AppLog.WARN);
+        }
+        AppLog.setEventRing(new AppLog.EventRing(EVENT_RING_CAPACITY, AppClock.SYSTEM));
+    }
+
+    private void enableStrictMode() {
+        AppLog.d(TAG, "StrictMode enabled (disk access on the main thread is logged)");
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .penaltyLog()
+                .build());
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedClosableObjects()
+                .penaltyLog()
+                .build());
+    }
+}
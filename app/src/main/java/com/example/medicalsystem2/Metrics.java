@@ -0,0 +1,297 @@
+package com.example.medicalsystem2;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * METRICS - Counters and latency histograms for the hot paths (screens, services, storage, auth).
+ *
+ * Usage: keep the handle in a static final field, record with no lookup:
+ *
+ *   private static final Metrics.Timer SAVE_TIMER = Metrics.timer("appointment.save");
+ *   long started = SAVE_TIMER.start();
+ *   ...
+ *   SAVE_TIMER.stop(started);
+ *
+ * - Lock-free: counters are LongAdders, histogram buckets an AtomicLongArray
+ * - HDR-style histogram: 8 sub-buckets per power of two, so every percentile is
+ *   within 12.5% of the real value, from 1 ns to hours, in a fixed 4 KB per timer
+ * - Nothing is allocated when recording
+ * - Budget: RECORD_BUDGET_NANOS per recorded event (checked by MetricsTest)
+ *
+ * Snapshots are printed by dumpsys of AppointmentBoundedService, next to the AppLog events.
+ * Pure Java so it is unit tested on the JVM.
+ */
+public final class Metrics {
+
+    // Cost allowed for one Timer.stop() / Counter.increment(), measured on the JVM
+    public static final long RECORD_BUDGET_NANOS = 200L;
+
+    private static final ConcurrentSkipListMap<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final ConcurrentSkipListMap<String, Timer> TIMERS = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * The counter with this name (created on first use, then always the same instance).
+     */
+    public static Counter counter(String name) {
+        Counter counter = COUNTERS.get(name);
+        if (counter == null) {
+            Counter created = new Counter(name);
+            counter = COUNTERS.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * The timer with this name (created on first use, then always the same instance).
+     */
+    public static Timer timer(String name) {
+        Timer timer = TIMERS.get(name);
+        if (timer == null) {
+            Timer created = new Timer(name);
+            timer = TIMERS.putIfAbsent(name, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Print every counter and timer, sorted by name.
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("Metrics:");
+        for (Counter counter : COUNTERS.values()) {
+            writer.println("  " + counter.getName() + " count=" + counter.get());
+        }
+        for (Timer timer : TIMERS.values()) {
+            writer.println("  " + timer.getName() + " " + timer.snapshot());
+        }
+    }
+
+    /**
+     * Zero every counter and timer (handles stay valid).
+     */
+    public static void reset() {
+        for (Counter counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (Timer timer : TIMERS.values()) {
+            timer.histogram.reset();
+        }
+    }
+
+    // ================================
+    // COUNTER
+    // ================================
+
+    public static final class Counter {
+        private final String name;
+        private final LongAdder adder = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long amount) {
+            adder.add(amount);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private void reset() {
+            adder.reset();
+        }
+    }
+
+    // ================================
+    // TIMER
+    // ================================
+
+    public static final class Timer {
+        private final String name;
+        private final Histogram histogram = new Histogram();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return start time to hand back to stop()
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        public void stop(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+
+        public void recordNanos(long nanos) {
+            histogram.record(nanos);
+        }
+
+        public Snapshot snapshot() {
+            return histogram.snapshot();
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    // ================================
+    // HISTOGRAM
+    // ================================
+
+    /**
+     * Log-linear buckets: values below 8 have their own bucket, then each power of two
+     * is split in 8 equal sub-buckets.
+     */
+    static final class Histogram {
+        static final int SUB_BUCKET_BITS = 3;
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 8
+        static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0; // nanoTime is monotonic, but be safe
+            }
+            counts.incrementAndGet(bucketOf(value));
+            sum.add(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // Smallest value that falls in this bucket
+        static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int sub = bucket % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        // Largest value that falls in this bucket
+        static long upperBound(int bucket) {
+            return bucket + 1 < BUCKETS ? lowerBound(bucket + 1) - 1 : Long.MAX_VALUE;
+        }
+
+        Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+                total += copy[i];
+            }
+            return new Snapshot(copy, total, sum.sum(), max.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            sum.reset();
+            max.set(0);
+        }
+    }
+
+    /**
+     * Immutable copy of one histogram (values in nanoseconds).
+     */
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * Value below which "percent" % of the recordings fall (upper edge of its bucket,
+         * never above the max). 0 if nothing was recorded.
+         */
+        public long percentileNanos(double percent) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percent / 100.0));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(Histogram.upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + " mean=" + micros(getMeanNanos())
+                    + " p50=" + micros(percentileNanos(50))
+                    + " p90=" + micros(percentileNanos(90))
+                    + " p99=" + micros(percentileNanos(99))
+                    + " max=" + micros(max);
+        }
+
+        private static String micros(long nanos) {
+            return String.format(Locale.ROOT, "%.1fus", nanos / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.medicalsystem2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * NOTIFICATION DISPATCHER - Posts the appointment reminders, batched, grouped and rate-limited.
+ *
+ * - One notification per appointment (id from notificationId()): a second reminder no
+ *   longer replaces the first, and the 10 min reminder of an appointment replaces its
+ *   1 h reminder instead of adding a line
+ * - Reminders are queued, then posted by flush(): reminders that fire together (a staff
+ *   device with a full clinic, or the phone waking from Doze) go out as one batch
+ * - Posts are rate-limited (token bucket, MAX_POSTS_PER_SECOND, bursts of BURST_POSTS):
+ *   once an app posts faster than 5 per second (a moving average), Android silently
+ *   drops its updates, the summary's included
+ * - From GROUP_THRESHOLD reminders on screen, a summary ("12 appointment reminders")
+ *   groups them; past MAX_SHOWN, reminders are only counted in the summary (Android
+ *   keeps ~50 notifications per app and drops the rest)
+ * - What is still on screen comes from the Poster once per flush (the user dismisses
+ *   notifications without telling us), not once per reminder
+ *
+ * A burst of 500 reminders costs MAX_SHOWN + a few summary posts, spread over about
+ * six seconds (checked by NotificationDispatcherTest).
+ *
+ * Not thread-safe: every method runs on the Scheduler's thread (the main thread).
+ * Pure Java so it is unit tested on the JVM with a fake clock and a fake Poster.
+ */
+public final class NotificationDispatcher {
+
+    public static final int MAX_POSTS_PER_SECOND = 4;
+    public static final int BURST_POSTS = 2;
+    public static final int GROUP_THRESHOLD = 4;
+    public static final int MAX_SHOWN = 24;
+
+    // Lines of the summary (the most recent reminders)
+    public static final int SUMMARY_LINES = 5;
+
+    // Id of the group summary: appointment notifications use 1 and up
+    public static final int SUMMARY_ID = 0;
+
+    private static final String TAG = "Notifications";
+
+    // Reminders posted on their own, reminders only counted in the summary, summary posts (see Metrics)
+    private static final Metrics.Counter POSTED = Metrics.counter("notifications.posted");
+    private static final Metrics.Counter FOLDED = Metrics.counter("notifications.folded");
+    private static final Metrics.Counter SUMMARIES = Metrics.counter("notifications.summaries");
+
+    /**
+     * One reminder to show (immutable).
+     */
+    public static final class Notice {
+        public final long appointmentId;
+        public final String text;
+        public final boolean isFinal; // last reminder before the start (alerts)
+
+        public Notice(long appointmentId, String text, boolean isFinal) {
+            this.appointmentId = appointmentId;
+            this.text = text;
+            this.isFinal = isFinal;
+        }
+
+        @Override
+        public String toString() {
+            return "Notice{#" + appointmentId + " " + text + (isFinal ? " final" : "") + "}";
+        }
+    }
+
+    /**
+     * Where notifications go (NotificationManager on the device, a fake in tests).
+     */
+    public interface Poster {
+        void post(int id, Notice notice);
+
+        /**
+         * Post (or update) the group summary: "count" reminders, the latest "lines" first.
+         */
+        void postSummary(int count, List<Notice> lines);
+
+        void cancelSummary();
+
+        /**
+         * Ids of our notifications still on screen (the summary included).
+         */
+        Set<Integer> activeIds();
+    }
+
+    /**
+     * Runs the dispatcher's delayed flushes on its thread (the app: a main thread Handler).
+     */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    private final Poster poster;
+    private final Scheduler scheduler;
+    private final AppClock clock;
+
+    private final Map<Long, Notice> pending = new LinkedHashMap<>(); // by appointment id, oldest first
+    private final Set<Integer> shown = new LinkedHashSet<>();        // appointment notifications on screen
+    private final Deque<Notice> recent = new ArrayDeque<>();         // summary lines, newest first
+    private final List<Runnable> idleCallbacks = new ArrayList<>();
+    private int folded;              // reminders counted in the summary only
+    private boolean summaryShown;
+    private boolean summaryChanged;
+    private boolean flushScheduled;
+
+    private double tokens = BURST_POSTS;
+    private long refilledAt;
+
+    public NotificationDispatcher(Poster poster, Scheduler scheduler, AppClock clock) {
+        this.poster = poster;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.refilledAt = clock.currentTimeMillis();
+    }
+
+    /**
+     * Notification id of an appointment's reminders (1 and up, never SUMMARY_ID).
+     */
+    public static int notificationId(long appointmentId) {
+        return (int) Math.floorMod(appointmentId, (long) Integer.MAX_VALUE - 1) + 1;
+    }
+
+    /**
+     * Queue a reminder; it is posted by the next flush (now, if the rate allows).
+     * A reminder still queued for the same appointment is replaced.
+     */
+    public void submit(Notice notice) {
+        pending.put(notice.appointmentId, notice);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, 0);
+        }
+    }
+
+    /**
+     * Run "callback" once nothing is queued any more (the service stops itself then).
+     */
+    public void whenIdle(Runnable callback) {
+        if (pending.isEmpty() && !summaryChanged) {
+            callback.run();
+        } else {
+            idleCallbacks.add(callback);
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Post what the rate allows, and plan the next flush for the rest.
+     */
+    void flush() {
+        flushScheduled = false;
+        refill();
+        if (!pending.isEmpty()) {
+            forgetDismissed(poster.activeIds());
+        }
+
+        Iterator<Notice> queued = pending.values().iterator();
+        while (queued.hasNext()) {
+            Notice notice = queued.next();
+            int id = notificationId(notice.appointmentId);
+            boolean onScreen = shown.contains(id);
+            if (!onScreen && shown.size() >= MAX_SHOWN) {
+                // Too many on screen already: only counted in the summary (costs no post)
+                queued.remove();
+                folded++;
+                addLine(notice);
+                FOLDED.increment();
+                continue;
+            }
+            // The post that starts the group keeps a token for the summary; later summary
+            // updates wait for a spare token (usually the end of the burst)
+            boolean startsGroup = !summaryShown && groupedAfter(onScreen ? shown.size() : shown.size() + 1);
+            int needed = startsGroup ? 2 : 1;
+            if (tokens < needed) {
+                break;
+            }
+            queued.remove();
+            poster.post(id, notice);
+            tokens--;
+            shown.add(id);
+            addLine(notice);
+            POSTED.increment();
+        }
+
+        if (summaryChanged && tokens >= 1) {
+            postSummary();
+        }
+        if (!pending.isEmpty() || summaryChanged) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, millisUntilToken());
+        } else {
+            runIdleCallbacks();
+        }
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    // Notifications the user dismissed (or the system dropped) no longer count
+    private void forgetDismissed(Set<Integer> active) {
+        shown.retainAll(active);
+        if (summaryShown && !active.contains(SUMMARY_ID)) {
+            // Dismissing the summary dismisses the group: start over
+            summaryShown = false;
+            folded = 0;
+            recent.clear();
+        }
+    }
+
+    private boolean groupedAfter(int shownCount) {
+        return shownCount + folded >= GROUP_THRESHOLD;
+    }
+
+    private void addLine(Notice notice) {
+        recent.addFirst(notice);
+        if (recent.size() > SUMMARY_LINES) {
+            recent.removeLast();
+        }
+        if (groupedAfter(shown.size()) || summaryShown) {
+            summaryChanged = true;
+        }
+    }
+
+    private void postSummary() {
+        summaryChanged = false;
+        tokens--;
+        if (groupedAfter(shown.size())) {
+            poster.postSummary(shown.size() + folded, new ArrayList<>(recent));
+            summaryShown = true;
+            SUMMARIES.increment();
+        } else if (summaryShown) {
+            poster.cancelSummary();
+            summaryShown = false;
+        }
+        AppLog.d(TAG, "Summary: ", shown.size() + folded);
+    }
+
+    private void refill() {
+        long now = clock.currentTimeMillis();
+        tokens = Math.min(BURST_POSTS, tokens + (now - refilledAt) * MAX_POSTS_PER_SECOND / 1000.0);
+        refilledAt = now;
+    }
+
+    // Time until one more post is allowed (at least 1 ms)
+    private long millisUntilToken() {
+        double missing = Math.max(0, 1 - tokens);
+        return Math.max(1, (long) Math.ceil(missing * 1000.0 / MAX_POSTS_PER_SECOND));
+    }
+
+    private void runIdleCallbacks() {
+        if (idleCallbacks.isEmpty()) {
+            return;
+        }
+        List<Runnable> callbacks = new ArrayList<>(idleCallbacks);
+        idleCallbacks.clear();
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    // Test helper: appointment notifications the dispatcher counts as on screen
+    Set<Integer> shownIds() {
+        return new HashSet<>(shown);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.medicalsystem2;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PDF PAGES - Renders a PDF attachment one page at a time (android.graphics.pdf).
+ *
+ * PdfRenderer reads the document through its file descriptor (native code, pages
+ * loaded on demand): a 50 MB report never goes onto the Java heap. Only page bitmaps
+ * are allocated, sized to the screen width: two of them take turns (one on screen
+ * while the next page is drawn into the other) and are reused while the size is the same.
+ *
+ * PdfRenderer needs a seekable descriptor (not a pipe), and the attachment is stored
+ * encrypted: open() decrypts it into anonymous memory that no path leads to
+ * (memfd_create, Android 11+). Before Android 11 there is no memfd from Java (and an
+ * ashmem region reports a size of 0 to PdfRenderer), so the document goes into a cache
+ * file that is unlinked before the first byte is written; either way it is freed when
+ * the descriptor is closed, including by a crash.
+ *
+ * Not thread-safe (PdfRenderer is not): one reader thread opens, renders and closes.
+ */
+public final class PdfPages implements Closeable {
+
+    private final ParcelFileDescriptor descriptor;
+    private final PdfRenderer renderer;
+    private final Bitmap[] pageBitmaps = new Bitmap[2];
+    private int nextBitmap;
+
+    private PdfPages(ParcelFileDescriptor descriptor, PdfRenderer renderer) {
+        this.descriptor = descriptor;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Read the (decrypted) document into an anonymous file and open it; "document" is
+     * closed. "cacheDir" is only used before Android 11 (see the class comment).
+     */
+    public static PdfPages open(InputStream document, File cacheDir) throws IOException {
+        ParcelFileDescriptor descriptor = anonymousFile(cacheDir);
+        try (InputStream in = document) {
+            copy(in, descriptor.getFileDescriptor());
+            return new PdfPages(descriptor, new PdfRenderer(descriptor));
+        } catch (IOException | RuntimeException e) {
+            descriptor.close(); // Not a PDF (or a broken one): the memory goes with it
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private static ParcelFileDescriptor anonymousFile(File cacheDir) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            try {
+                FileDescriptor memory = Os.memfd_create("pdf-pages", 0);
+                try {
+                    return ParcelFileDescriptor.dup(memory);
+                } finally {
+                    Os.close(memory);
+                }
+            } catch (ErrnoException e) {
+                throw new IOException(e);
+            }
+        }
+        File file = File.createTempFile("pdf-pages", null, cacheDir);
+        try {
+            return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_WRITE);
+        } finally {
+            file.delete(); // Before anything is written: only the descriptor reaches it
+        }
+    }
+
+    // Streamed, RecordAttachments.BUFFER_SIZE bytes at a time, then back to the start
+    private static void copy(InputStream in, FileDescriptor out) throws IOException {
+        byte[] buffer = new byte[RecordAttachments.BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int written = 0; written < read; ) {
+                    written += Os.write(out, buffer, written, read - written);
+                }
+            }
+            Os.lseek(out, 0, OsConstants.SEEK_SET);
+        } catch (ErrnoException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public int pageCount() {
+        return renderer.getPageCount();
+    }
+
+    /**
+     * Render a page to "targetWidth" pixels wide (height keeps the page's ratio).
+     * The bitmap is drawn into again two renders later.
+     */
+    public Bitmap render(int index, int targetWidth) {
+        try (PdfRenderer.Page page = renderer.openPage(index)) {
+            int width = Math.max(1, targetWidth);
+            int height = Math.max(1, Math.round((float) page.getHeight() * width / page.getWidth()));
+            Bitmap bitmap = pageBitmaps[nextBitmap];
+            if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                pageBitmaps[nextBitmap] = bitmap;
+            }
+            nextBitmap = 1 - nextBitmap;
+            bitmap.eraseColor(Color.WHITE); // PDF pages are drawn on a transparent bitmap
+            page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            return bitmap;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        renderer.close();
+        descriptor.close();
+    }
+}
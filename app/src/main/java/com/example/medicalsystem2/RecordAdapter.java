@@ -0,0 +1,120 @@
+package com.example.medicalsystem2;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * RECORD ADAPTER - Rows of the Reports list (record_item.xml), read from a RecordPager.
+ *
+ * - Only the rows on screen (plus RecyclerView's small cache) exist: rows are recycled
+ *   and rebound, the records themselves stay in the pager's bounded page window
+ * - A row whose page is still loading shows a placeholder; the pager's Listener
+ *   rebinds it (notifyItemRangeChanged) when the page arrives
+ * - The attachment shows as name + size only; it is opened when the row is tapped
+ */
+public class RecordAdapter extends RecyclerView.Adapter<RecordAdapter.ViewHolder> {
+
+    /**
+     * Called when a row with an attachment is tapped.
+     */
+    public interface OnRecordClickListener {
+        void onRecordClick(MedicalRecord record);
+    }
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("d MMM yyyy", Locale.US).withZone(ZoneId.systemDefault());
+
+    private final RecordPager pager;
+    private final OnRecordClickListener onRecordClickListener;
+
+    public RecordAdapter(RecordPager pager, OnRecordClickListener onRecordClickListener) {
+        this.pager = pager;
+        this.onRecordClickListener = onRecordClickListener;
+    }
+
+    @Override
+    public int getItemCount() {
+        return pager.size();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View row = LayoutInflater.from(parent.getContext()).inflate(R.layout.record_item, parent, false);
+        ViewHolder holder = new ViewHolder(row);
+        // One listener per row, it looks up the record currently shown in it
+        row.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            MedicalRecord record = pager.get(position);
+            if (record != null && record.hasAttachment()) {
+                onRecordClickListener.onRecordClick(record);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        MedicalRecord record = pager.get(position);
+        if (record == null) {
+            holder.bindPlaceholder();
+        } else {
+            holder.bind(record);
+        }
+    }
+
+    /**
+     * Views of one record row, looked up once when the row is created.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final ImageView icon;
+        final TextView title;
+        final TextView summary;
+        final TextView date;
+        final TextView attachment;
+
+        ViewHolder(View row) {
+            super(row);
+            icon = row.findViewById(R.id.recordIcon);
+            title = row.findViewById(R.id.recordTitle);
+            summary = row.findViewById(R.id.recordSummary);
+            date = row.findViewById(R.id.recordDate);
+            attachment = row.findViewById(R.id.recordAttachment);
+        }
+
+        void bind(MedicalRecord record) {
+            icon.setImageResource(record.isLabResult() ? R.drawable.lab_tests : R.drawable.reports);
+            title.setText(record.getTitle());
+            summary.setText(record.getSummary());
+            date.setText(DATE_FORMAT.format(Instant.ofEpochMilli(record.getRecordedAtMillis())));
+            if (record.hasAttachment()) {
+                attachment.setVisibility(View.VISIBLE);
+                attachment.setText(RecordAttachments.formatSize(record.getAttachmentSize()));
+            } else {
+                attachment.setVisibility(View.GONE);
+            }
+        }
+
+        void bindPlaceholder() {
+            icon.setImageResource(R.drawable.reports);
+            title.setText("Loading…");
+            summary.setText("");
+            date.setText("");
+            attachment.setVisibility(View.GONE);
+        }
+    }
+}
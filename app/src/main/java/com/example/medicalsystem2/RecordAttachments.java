@@ -0,0 +1,164 @@
+package com.example.medicalsystem2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+
+/**
+ * RECORD ATTACHMENTS - Content-addressed, encrypted store for the files attached to
+ * medical records (files/records/).
+ *
+ * - save() streams the upload to a temporary file while encrypting it (ChunkedCipher:
+ *   AES-GCM, 64 KB chunks) and hashing it, then names the file after the hash: the
+ *   same PDF uploaded twice is stored once
+ * - The hash is keyed (HMAC-SHA256 with the data key, not a plain SHA-256): a file name
+ *   does not confirm that a known document is stored here
+ * - The hash is kept with the record (MedicalRecord.getAttachmentKey), the file
+ *   name the user picked only for display
+ * - Nothing reads (or decrypts) a whole attachment into memory: uploads are copied
+ *   BUFFER_SIZE bytes at a time, text is read page by page (MappedAttachment, one
+ *   decrypted chunk at a time), images are decoded downsampled from the decrypting
+ *   stream, PDFs are rendered page by page (Reports)
+ *
+ * Pure Java so it is unit tested on the JVM.
+ */
+public final class RecordAttachments {
+
+    public static final String DIRECTORY = "records";
+
+    // Copy / hash chunk
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    // Uploads being copied (renamed to their hash once complete)
+    private static final String TEMP_SUFFIX = ".part";
+
+    // Bytes saved by deduplicated uploads (see Metrics)
+    private static final Metrics.Counter DEDUPLICATED_BYTES = Metrics.counter("attachments.dedup.bytes");
+
+    /**
+     * A stored attachment: its content address, size, and whether the same content was
+     * already there (nothing new written to disk).
+     */
+    public static final class Stored {
+        public final String key;
+        public final long size;
+        public final boolean deduplicated;
+
+        Stored(String key, long size, boolean deduplicated) {
+            this.key = key;
+            this.size = size;
+            this.deduplicated = deduplicated;
+        }
+    }
+
+    private final File directory;
+    private final DataCipher cipher;
+
+    public RecordAttachments(File directory, DataCipher cipher) {
+        this.directory = directory;
+        this.cipher = cipher;
+    }
+
+    /**
+     * Store an upload (encrypted); returns its key. An identical attachment already
+     * stored is reused.
+     */
+    public Stored save(InputStream content) throws IOException {
+        directory.mkdirs();
+        File partial = File.createTempFile("upload", TEMP_SUFFIX, directory);
+        Mac hash = cipher.newContentMac();
+        long size = 0;
+        try {
+            try (OutputStream out = cipher.files().encrypt(new FileOutputStream(partial))) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    hash.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            String key = toHex(hash.doFinal());
+            File target = file(key);
+            if (target.exists() && target.length() == cipher.files().sealedSize(size)) {
+                DEDUPLICATED_BYTES.add(size);
+                return new Stored(key, size, true);
+            }
+            // Only a complete copy gets the real name
+            if (!partial.renameTo(target)) {
+                throw new IOException("Could not store " + target);
+            }
+            return new Stored(key, size, false);
+        } finally {
+            partial.delete(); // No-op once renamed
+        }
+    }
+
+    public File file(String key) {
+        return new File(directory, key);
+    }
+
+    /**
+     * File of a record's attachment.
+     */
+    public File file(MedicalRecord record) throws IOException {
+        if (!record.hasAttachment() || record.getAttachmentKey().isEmpty()) {
+            throw new IOException("No attachment on " + record);
+        }
+        return file(record.getAttachmentKey());
+    }
+
+    public boolean contains(String key) {
+        return file(key).exists();
+    }
+
+    /**
+     * Decrypted stream of the attachment (the caller closes it).
+     */
+    public InputStream open(MedicalRecord record) throws IOException {
+        return cipher.files().decrypt(new FileInputStream(file(record)));
+    }
+
+    /**
+     * Page-by-page reader of the attachment (the caller closes it).
+     */
+    public MappedAttachment map(MedicalRecord record, int pageBytes) throws IOException {
+        return MappedAttachment.open(cipher.files().open(file(record)), pageBytes);
+    }
+
+    public static boolean isImage(MedicalRecord record) {
+        return record.getAttachmentType().startsWith("image/");
+    }
+
+    public static boolean isPdf(MedicalRecord record) {
+        return "application/pdf".equals(record.getAttachmentType());
+    }
+
+    /**
+     * "830 B", "12.4 KB", "3.1 MB".
+     */
+    public static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+}
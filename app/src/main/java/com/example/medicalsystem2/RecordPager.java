@@ -0,0 +1,206 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * RECORD PAGER - Streams a user's medical records into the Reports list, page by page.
+ *
+ * - Cursor pagination: page N+1 is "the records after the last record of page N"
+ *   (Source.pageAfter), never an OFFSET, so a deep page is as cheap as the first
+ * - Prefetch: binding a row within "prefetchDistance" of the end of its page loads the
+ *   next page in the background, so scrolling does not stop at page boundaries
+ * - Bounded memory: at most "maxPages" pages are kept (least recently used are dropped).
+ *   A dropped page keeps only its cursor; scrolling back loads it again and get()
+ *   returns null (a placeholder row) meanwhile
+ *
+ * get() / size() and the Listener run on the main thread; pages are loaded on "io".
+ * Pure Java so the 20k-record scroll test runs on the JVM.
+ */
+public final class RecordPager {
+
+    /**
+     * Where the pages come from (e.g. AppointmentDatabase.recordsAfter for one user).
+     */
+    public interface Source {
+        /**
+         * At most "limit" records after "after" (null: from the newest), newest first.
+         */
+        List<MedicalRecord> pageAfter(MedicalRecord after, int limit) throws IOException;
+    }
+
+    /**
+     * Changes of the list, on the main thread (adapter notifications).
+     */
+    public interface Listener {
+        // New records at the end of the list (the first load too)
+        void onRecordsAppended(int fromPosition, int count);
+
+        // A dropped page was loaded again
+        void onRecordsReloaded(int fromPosition, int count);
+
+        void onLoadFailed(IOException error);
+    }
+
+    // Pages loaded from the source (see Metrics)
+    private static final Metrics.Counter PAGE_LOADS = Metrics.counter("records.page.load");
+    private static final Metrics.Timer PAGE_TIMER = Metrics.timer("records.page");
+
+    private final Source source;
+    private final Executor io;
+    private final Executor main;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxPages;
+    private final Listener listener;
+
+    // Cursor of every page found so far: the last record of the page before (null for page 0)
+    private final List<MedicalRecord> pageCursors = new ArrayList<>();
+    // Pages in memory, least recently used first
+    private final LinkedHashMap<Integer, List<MedicalRecord>> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int size;           // records found so far (rows of the list)
+    private boolean endReached; // a page came back shorter than pageSize
+    private boolean closed;
+
+    public RecordPager(Source source, Executor io, Executor main, int pageSize, int prefetchDistance,
+                       int maxPages, Listener listener) {
+        if (pageSize <= 0 || maxPages < 2) {
+            throw new IllegalArgumentException("pageSize " + pageSize + ", maxPages " + maxPages);
+        }
+        this.source = source;
+        this.io = io;
+        this.main = main;
+        this.pageSize = pageSize;
+        this.prefetchDistance = Math.min(prefetchDistance, pageSize);
+        this.maxPages = maxPages;
+        this.listener = listener;
+        pageCursors.add(null);
+    }
+
+    /**
+     * Load the first page.
+     */
+    public void start() {
+        load(0);
+    }
+
+    /**
+     * Rows found so far (grows as the user scrolls towards the end).
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * The record at a position, or null while its page is (re)loading. Also prefetches
+     * the page after (or before) when the position is close to the edge of its page.
+     */
+    public MedicalRecord get(int position) {
+        int page = position / pageSize;
+        int offset = position % pageSize;
+        if (offset >= pageSize - prefetchDistance) {
+            load(page + 1);
+        } else if (offset < prefetchDistance && page > 0) {
+            load(page - 1);
+        }
+
+        List<MedicalRecord> records = pages.get(page);
+        if (records == null) {
+            load(page);
+            return null;
+        }
+        return offset < records.size() ? records.get(offset) : null;
+    }
+
+    /**
+     * Records currently held in memory (at most maxPages * pageSize).
+     */
+    public int loadedRecordCount() {
+        int count = 0;
+        for (List<MedicalRecord> records : pages.values()) {
+            count += records.size();
+        }
+        return count;
+    }
+
+    /**
+     * Stop: pages still loading are thrown away, the listener is not called anymore.
+     */
+    public void close() {
+        closed = true;
+        pages.clear();
+    }
+
+    private void load(int page) {
+        if (closed || page >= pageCursors.size() || pages.containsKey(page) || !loading.add(page)) {
+            return; // Unknown yet (page before not loaded), in memory or already loading
+        }
+        MedicalRecord after = pageCursors.get(page);
+        io.execute(() -> {
+            long started = PAGE_TIMER.start();
+            List<MedicalRecord> records;
+            try {
+                records = source.pageAfter(after, pageSize);
+            } catch (IOException e) {
+                main.execute(() -> {
+                    loading.remove(page);
+                    if (!closed) {
+                        listener.onLoadFailed(e);
+                    }
+                });
+                return;
+            }
+            PAGE_TIMER.stop(started);
+            PAGE_LOADS.increment();
+            main.execute(() -> onPageLoaded(page, records));
+        });
+    }
+
+    private void onPageLoaded(int page, List<MedicalRecord> records) {
+        loading.remove(page);
+        if (closed) {
+            return;
+        }
+        pages.put(page, records);
+        evict(page);
+
+        int from = page * pageSize;
+        if (from == size) {
+            // A new page at the end of the list
+            if (records.size() == pageSize) {
+                pageCursors.add(records.get(records.size() - 1));
+            } else {
+                endReached = true;
+            }
+            size += records.size();
+            if (!records.isEmpty()) {
+                listener.onRecordsAppended(from, records.size());
+            }
+        } else {
+            listener.onRecordsReloaded(from, Math.min(records.size(), size - from));
+        }
+    }
+
+    // Drop the least recently used pages, never the one just loaded
+    private void evict(int keep) {
+        Iterator<Map.Entry<Integer, List<MedicalRecord>>> oldest = pages.entrySet().iterator();
+        while (pages.size() > maxPages && oldest.hasNext()) {
+            if (oldest.next().getKey() != keep) {
+                oldest.remove();
+            }
+        }
+    }
+}
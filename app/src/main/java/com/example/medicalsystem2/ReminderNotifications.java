@@ -0,0 +1,166 @@
+package com.example.medicalsystem2;
+
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.service.notification.StatusBarNotification;
+
+import androidx.core.app.NotificationCompat;
+
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * REMINDER NOTIFICATIONS - Android side of NotificationDispatcher (one per process).
+ *
+ * - The NotificationManager is looked up once, and the three notifications (final
+ *   reminder, early reminder, group summary) are builder templates made once: a post
+ *   only sets the text and builds
+ * - Flushes run on the main thread (a Handler), like the service that submits
+ * - Reminders share GROUP_KEY; only the children alert, the summary is silent
+ * - The final reminder posts to the high importance channel (heads-up, vibrates); the
+ *   early ones and the summary to the low importance EARLY_CHANNEL_ID (quiet)
+ * - show() posts a reminder from any thread, without AppointmentReminderService (which
+ *   Android 8+ does not let a background app start)
+ * - showRejected() tells the user a booking the server refused was removed (tagged, so
+ *   the dispatcher never counts it as a reminder)
+ */
+public final class ReminderNotifications {
+
+    private static final String GROUP_KEY = "com.example.medicalsystem2.APPOINTMENT_REMINDERS";
+    private static final String REJECTED_TAG = "booking_rejected";
+
+    private static NotificationDispatcher dispatcher; // main thread only
+
+    private ReminderNotifications() {
+    }
+
+    /**
+     * The process-wide dispatcher (main thread only).
+     */
+    public static NotificationDispatcher dispatcher(Context context) {
+        if (dispatcher == null) {
+            Handler main = new Handler(Looper.getMainLooper());
+            dispatcher = new NotificationDispatcher(new AndroidPoster(context.getApplicationContext()),
+                    (task, delayMillis) -> main.postDelayed(task, delayMillis), AppClock.SYSTEM);
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Post a reminder from any thread (handed to the dispatcher on the main thread).
+     */
+    public static void show(Context context, long appointmentId, long offsetMillis, boolean isFinal) {
+        Context appContext = context.getApplicationContext();
+        NotificationDispatcher.Notice notice = new NotificationDispatcher.Notice(
+                appointmentId, reminderText(offsetMillis), isFinal);
+        MainThreadExecutor.INSTANCE.execute(() -> dispatcher(appContext).submit(notice));
+    }
+
+    /**
+     * Tell the user a booking was removed because the server gave the slot to another
+     * device (any thread; rare, so it skips the dispatcher and its rate limit).
+     */
+    public static void showRejected(Context context, Appointment appointment) {
+        Context appContext = context.getApplicationContext();
+        String when = AppointmentTimeEngine.format(appointment.getStartMillis(), ZoneId.systemDefault());
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(appContext, AppointmentReminderService.CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_dialog_alert)
+                .setContentTitle("Appointment cancelled")
+                .setContentText(appointment.getDoctorName() + " at " + when
+                        + " was booked from another device. Please pick another slot.")
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setCategory(NotificationCompat.CATEGORY_ERROR)
+                .setAutoCancel(true);
+        NotificationManager manager = (NotificationManager) appContext.getSystemService(Context.NOTIFICATION_SERVICE);
+        manager.notify(REJECTED_TAG, NotificationDispatcher.notificationId(appointment.getId()), builder.build());
+    }
+
+    /**
+     * "Your appointment is in 10 minutes!"
+     */
+    static String reminderText(long offsetMillis) {
+        return "Your appointment is in " + ReminderScheduler.describeOffset(offsetMillis) + "!";
+    }
+
+    private static final class AndroidPoster implements NotificationDispatcher.Poster {
+        private final NotificationManager manager;
+        private final NotificationCompat.Builder finalReminder;
+        private final NotificationCompat.Builder earlyReminder;
+        private final NotificationCompat.Builder summary;
+
+        AndroidPoster(Context context) {
+            manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+
+            // Final reminder: heads-up, alarm category, vibrates (the service plays the ringtone)
+            finalReminder = template(context, AppointmentReminderService.CHANNEL_ID)
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setCategory(NotificationCompat.CATEGORY_ALARM)
+                    .setVibrate(new long[]{0, 1000, 500, 1000});
+            // Early reminders (24 h, 1 h, 10 min): quiet (low channel, low priority before Android 8)
+            earlyReminder = template(context, AppointmentReminderService.EARLY_CHANNEL_ID)
+                    .setPriority(NotificationCompat.PRIORITY_LOW)
+                    .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                    .setOnlyAlertOnce(true);
+            // Summary: never alerts itself, its children do
+            summary = template(context, AppointmentReminderService.EARLY_CHANNEL_ID)
+                    .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                    .setGroupSummary(true)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+                    .setOnlyAlertOnce(true);
+        }
+
+        private static NotificationCompat.Builder template(Context context, String channelId) {
+            return new NotificationCompat.Builder(context, channelId)
+                    .setSmallIcon(android.R.drawable.ic_dialog_info)
+                    .setContentTitle("Appointment Reminder 🏥")
+                    .setGroup(GROUP_KEY)
+                    .setAutoCancel(true);
+        }
+
+        @Override
+        public void post(int id, NotificationDispatcher.Notice notice) {
+            NotificationCompat.Builder builder = notice.isFinal ? finalReminder : earlyReminder;
+            builder.setContentText(notice.text).setWhen(System.currentTimeMillis());
+            manager.notify(id, builder.build());
+        }
+
+        @Override
+        public void postSummary(int count, List<NotificationDispatcher.Notice> lines) {
+            String title = count + " appointment reminders";
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                    .setBigContentTitle(title);
+            for (NotificationDispatcher.Notice line : lines) {
+                style.addLine(line.text);
+            }
+            if (count > lines.size()) {
+                style.setSummaryText("+" + (count - lines.size()) + " more");
+            }
+            summary.setContentTitle(title)
+                    .setContentText(lines.isEmpty() ? "" : lines.get(0).text)
+                    .setNumber(count)
+                    .setStyle(style)
+                    .setWhen(System.currentTimeMillis());
+            manager.notify(NotificationDispatcher.SUMMARY_ID, summary.build());
+        }
+
+        @Override
+        public void cancelSummary() {
+            manager.cancel(NotificationDispatcher.SUMMARY_ID);
+        }
+
+        @Override
+        public Set<Integer> activeIds() {
+            Set<Integer> ids = new HashSet<>();
+            for (StatusBarNotification notification : manager.getActiveNotifications()) {
+                if (notification.getTag() == null) {
+                    ids.add(notification.getId());
+                }
+            }
+            return ids;
+        }
+    }
+}
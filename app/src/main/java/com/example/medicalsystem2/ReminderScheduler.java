@@ -0,0 +1,78 @@
+package com.example.medicalsystem2;
+
+/**
+ * REMINDER SCHEDULER - Computes when the reminders of an appointment must fire.
+ *
+ * Every appointment gets a reminder 24 h, 1 h, 10 min and 1 min before it starts.
+ * AppointmentEngine keeps them in its TimerWheel and registers only the earliest one
+ * as an exact alarm: nothing runs between scheduling and firing, unlike the old
+ * 5-second polling loop.
+ *
+ * This class uses no Android APIs so it can be unit tested on the JVM.
+ */
+public final class ReminderScheduler {
+
+    // Reminder is shown 1 minute before the appointment starts
+    public static final long REMINDER_OFFSET_MILLIS = AppointmentTimeEngine.REMINDER_OFFSET_MILLIS;
+
+    // All reminder offsets, largest first (the last one is the "final" reminder with ringtone)
+    public static final long[] REMINDER_OFFSETS_MILLIS = {
+            24 * 60 * AppointmentTimeEngine.MINUTE_MILLIS,
+            60 * AppointmentTimeEngine.MINUTE_MILLIS,
+            10 * AppointmentTimeEngine.MINUTE_MILLIS,
+            REMINDER_OFFSET_MILLIS
+    };
+
+    // Returned when no reminder must be shown
+    public static final long NO_REMINDER = -1L;
+
+    // How late an early reminder may still be shown (the process was started by its alarm,
+    // or the alarm was held back a little by Doze); later than that its text is wrong
+    public static final long LATE_REMINDER_GRACE_MILLIS = 5 * AppointmentTimeEngine.MINUTE_MILLIS;
+
+    private ReminderScheduler() {
+    }
+
+    /**
+     * Reminder time for one offset.
+     *
+     * - Appointment already started             -> no reminder
+     * - Reminder time ahead                     -> that time
+     * - Passed by at most "lateGraceMillis"     -> fire right away (now)
+     * - Passed by more                          -> no reminder (skipped)
+     *
+     * @param lateGraceMillis the final reminder passes its offset (late but before the
+     *                        start, it still fires); earlier ones pass lateGrace()
+     */
+    public static long computeTriggerTime(long appointmentMillis, long offsetMillis,
+                                          long lateGraceMillis, long nowMillis) {
+        if (appointmentMillis < 0 || appointmentMillis <= nowMillis) {
+            return NO_REMINDER;
+        }
+        long at = appointmentMillis - offsetMillis;
+        if (at > nowMillis) {
+            return at;
+        }
+        return nowMillis - at <= lateGraceMillis ? nowMillis : NO_REMINDER;
+    }
+
+    /**
+     * How late the reminder at "offsetMillis" may fire: LATE_REMINDER_GRACE_MILLIS, but never
+     * once the next reminder ("nextOffsetMillis") is due, that one replaces it.
+     */
+    public static long lateGrace(long offsetMillis, long nextOffsetMillis) {
+        return Math.min(LATE_REMINDER_GRACE_MILLIS, offsetMillis - nextOffsetMillis - 1);
+    }
+
+    /**
+     * "24 hours", "1 hour", "10 minutes", "1 minute" (notification text).
+     */
+    public static String describeOffset(long offsetMillis) {
+        long minutes = offsetMillis / AppointmentTimeEngine.MINUTE_MILLIS;
+        if (minutes >= 60 && minutes % 60 == 0) {
+            long hours = minutes / 60;
+            return hours + (hours == 1 ? " hour" : " hours");
+        }
+        return minutes + (minutes == 1 ? " minute" : " minutes");
+    }
+}
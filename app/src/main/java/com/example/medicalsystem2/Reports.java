@@ -1,15 +1,98 @@
 package com.example.medicalsystem2;
 
+import android.content.Intent;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
 import android.os.Bundle;
+import android.provider.OpenableColumns;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * REPORTS ACTIVITY
+ * Purpose: Lists the user's lab results and medical reports, newest first
+ * Features:
+ * - Records are streamed from the local database page by page (RecordPager):
+ *   the next page is prefetched while scrolling, old pages are dropped
+ * - Rows are recycled (RecyclerView + RecordAdapter)
+ * - Attachments are opened only on tap and shown page by page, without reading the
+ *   file onto the heap: PDFs through PdfRenderer (PdfPages), text files page by page
+ *   (MappedAttachment), images decoded downsampled to the screen
+ * - "+ Add" uploads a PDF / image / text file into the content-addressed attachment
+ *   store (RecordAttachments: encrypted, identical files are stored once)
+ * - PdfRenderer needs a plain, seekable file: the open PDF is decrypted into anonymous
+ *   memory (PdfPages), never to a named file
+ */
 public class Reports extends AppCompatActivity {
 
+    // Records per page, rows before the end of a page that start loading the next,
+    // pages kept in memory (3 pages: the one on screen and one on each side)
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15;
+    private static final int MAX_PAGES = 3;
+
+    // Text attachments: bytes per page
+    private static final int TEXT_PAGE_BYTES = 16 * 1024;
+
+    private static final int UPLOAD_REQUEST_CODE = 301;
+
+    // Decrypted PDF left in the cache by older versions (now decrypted into memory)
+    private static final String LEGACY_PDF_VIEW_FILE = "viewing.pdf";
+
+    // Tap on a record -> its first page on screen (see Metrics)
+    private static final Metrics.Timer FIRST_PAGE_TIMER = Metrics.timer("attachments.first_page");
+
+    private RecordPager pager;
+    private RecordAdapter recordAdapter;
+    private ExecutorService attachmentThread; // Viewer thread: uploads and the open attachment
+    private String userEmail;
+
+    private TextView emptyText;
+    private View attachmentPanel;
+    private TextView attachmentTitle;
+    private ImageView attachmentImage;
+    private View attachmentTextScroll;
+    private TextView attachmentText;
+    private View attachmentPager;
+    private TextView attachmentPageText;
+    private View previousPageButton;
+    private View nextPageButton;
+
+    // Main thread: which attachment is on screen (bumped on every open / close) and its page
+    private int viewGeneration;
+    private int shownPage;
+    private int shownPageCount;
+
+    // Viewer thread: the attachment store (its key is unwrapped there) and the open attachment
+    private RecordAttachments attachments;
+    private MedicalRecord openRecord;
+    private PdfPages openPdf;
+    private MappedAttachment openText;
+    private int openPageCount;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -20,5 +103,329 @@ public class Reports extends AppCompatActivity {
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
             return insets;
         });
+
+        // ═══════════════════════════════════════════════════════════════
+        // INITIALIZE ACTIVITY
+        // ═══════════════════════════════════════════════════════════════
+        attachmentThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "report-attachment"));
+        attachmentThread.execute(() -> new File(getCacheDir(), LEGACY_PDF_VIEW_FILE).delete());
+
+        userEmail = currentUserEmail();
+        initializeViews();
+        setupRecordList();
+        findViewById(R.id.backButton).setOnClickListener(v -> finish());
+        findViewById(R.id.addReportButton).setOnClickListener(v -> pickReport());
+    }
+
+    @Override
+    protected void onDestroy() {
+        // Late pages / attachments are dropped, nothing holds on to this screen
+        pager.close();
+        attachmentThread.execute(this::closeDocument);
+        attachmentThread.shutdown();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (attachmentPanel.getVisibility() == View.VISIBLE) {
+            hideAttachment();
+        } else {
+            super.onBackPressed();
+        }
+    }
+
+    private void initializeViews() {
+        emptyText = findViewById(R.id.emptyText);
+        attachmentPanel = findViewById(R.id.attachmentPanel);
+        attachmentTitle = findViewById(R.id.attachmentTitle);
+        attachmentImage = findViewById(R.id.attachmentImage);
+        attachmentTextScroll = findViewById(R.id.attachmentTextScroll);
+        attachmentText = findViewById(R.id.attachmentText);
+        attachmentPager = findViewById(R.id.attachmentPager);
+        attachmentPageText = findViewById(R.id.attachmentPageText);
+        previousPageButton = findViewById(R.id.previousPageButton);
+        nextPageButton = findViewById(R.id.nextPageButton);
+        previousPageButton.setOnClickListener(v -> showPage(-1));
+        nextPageButton.setOnClickListener(v -> showPage(1));
+        findViewById(R.id.closeAttachmentButton).setOnClickListener(v -> hideAttachment());
+    }
+
+    // Email passed by Home, or the signed in user
+    private String currentUserEmail() {
+        String email = getIntent().getStringExtra("user_email");
+        if (email == null || email.isEmpty()) {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            email = user != null && user.getEmail() != null ? user.getEmail() : "";
+        }
+        return email;
+    }
+
+    // ====================== RECORD LIST ======================
+
+    private void setupRecordList() {
+        // Step 1: Pages come from the database, on its own IO thread
+        RecordPager.Source source = (after, limit) ->
+                AppointmentStorage.database(this).recordsAfter(userEmail, after, limit);
+
+        // Step 2: The pager tells the adapter which rows appeared / were reloaded
+        pager = new RecordPager(source, AppointmentStorage::execute, MainThreadExecutor.INSTANCE,
+                PAGE_SIZE, PREFETCH_DISTANCE, MAX_PAGES, new RecordPager.Listener() {
+            @Override
+            public void onRecordsAppended(int fromPosition, int count) {
+                emptyText.setVisibility(View.GONE);
+                recordAdapter.notifyItemRangeInserted(fromPosition, count);
+            }
+
+            @Override
+            public void onRecordsReloaded(int fromPosition, int count) {
+                recordAdapter.notifyItemRangeChanged(fromPosition, count);
+            }
+
+            @Override
+            public void onLoadFailed(IOException error) {
+                AppLog.e("Reports", "Could not load records", error);
+                Toast.makeText(Reports.this, "Could not load reports", Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // Step 3: Vertical list of recycled rows
+        RecyclerView recordList = findViewById(R.id.recordList);
+        recordList.setLayoutManager(new LinearLayoutManager(this));
+        recordList.setHasFixedSize(true);
+        recordAdapter = new RecordAdapter(pager, this::showAttachment);
+        recordList.setAdapter(recordAdapter);
+
+        // Step 4: "No reports yet" until the first page says otherwise
+        emptyText.setVisibility(View.VISIBLE);
+        pager.start();
+    }
+
+    // ====================== ATTACHMENT VIEWER ======================
+    // Everything below marked "viewer thread" runs on attachmentThread: the open document
+    // (PdfRenderer / mapped file) is only touched there
+
+    private void showAttachment(MedicalRecord record) {
+        long started = FIRST_PAGE_TIMER.start();
+        int generation = ++viewGeneration;
+        attachmentTitle.setText(record.getAttachmentName() + " (" + RecordAttachments.formatSize(record.getAttachmentSize()) + ")");
+        attachmentImage.setImageDrawable(null);
+        attachmentText.setText("Loading…");
+        boolean text = !RecordAttachments.isPdf(record) && !RecordAttachments.isImage(record);
+        attachmentImage.setVisibility(text ? View.GONE : View.VISIBLE);
+        attachmentTextScroll.setVisibility(text ? View.VISIBLE : View.GONE);
+        attachmentPager.setVisibility(View.GONE);
+        attachmentPanel.setVisibility(View.VISIBLE);
+
+        attachmentThread.execute(() -> {
+            closeDocument();
+            try {
+                openRecord = record;
+                if (RecordAttachments.isPdf(record)) {
+                    openPdf = PdfPages.open(attachments().open(record), getCacheDir());
+                    openPageCount = openPdf.pageCount();
+                } else if (RecordAttachments.isImage(record)) {
+                    openPageCount = 1;
+                } else {
+                    openText = attachments().map(record, TEXT_PAGE_BYTES);
+                    openPageCount = openText.pageCount();
+                }
+                renderPage(generation, 0);
+                long elapsedNanos = System.nanoTime() - started;
+                FIRST_PAGE_TIMER.recordNanos(elapsedNanos);
+                AppLog.event(AppLog.DEBUG, "Reports", "attachment_first_page_ms", elapsedNanos / 1_000_000);
+            } catch (IOException e) {
+                closeDocument();
+                AppLog.e("Reports", "Could not open attachment", e);
+                runOnUiThread(() -> {
+                    if (generation == viewGeneration) {
+                        hideAttachment();
+                        Toast.makeText(Reports.this, "Could not open attachment", Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
+    }
+
+    private void showPage(int delta) {
+        int generation = viewGeneration;
+        int index = shownPage + delta;
+        if (index < 0 || index >= shownPageCount) {
+            return;
+        }
+        attachmentThread.execute(() -> {
+            try {
+                renderPage(generation, index);
+            } catch (IOException e) {
+                AppLog.e("Reports", "Could not read page " + index, e);
+            }
+        });
+    }
+
+    // Viewer thread: read / render one page, then show it if the same attachment is still open
+    private void renderPage(int generation, int index) throws IOException {
+        int pageCount = openPageCount;
+        Runnable show;
+        if (openPdf != null) {
+            Bitmap page = openPdf.render(index, getResources().getDisplayMetrics().widthPixels);
+            show = () -> attachmentImage.setImageBitmap(page);
+        } else if (openText != null) {
+            String page = openText.textPage(index);
+            show = () -> attachmentText.setText(page);
+        } else {
+            DisplayMetrics screen = getResources().getDisplayMetrics();
+            Bitmap image = decodeSampled(openRecord, screen.widthPixels, screen.heightPixels);
+            show = () -> attachmentImage.setImageBitmap(image);
+        }
+        runOnUiThread(() -> {
+            if (generation != viewGeneration) {
+                return; // Closed (or another attachment opened) meanwhile
+            }
+            show.run();
+            shownPage = index;
+            shownPageCount = pageCount;
+            attachmentPager.setVisibility(pageCount > 1 ? View.VISIBLE : View.GONE);
+            attachmentPageText.setText("Page " + (index + 1) + " / " + pageCount);
+            previousPageButton.setEnabled(index > 0);
+            nextPageButton.setEnabled(index < pageCount - 1);
+        });
+    }
+
+    // Two passes over the stream: the size first, then only the pixels that fit the screen
+    private Bitmap decodeSampled(MedicalRecord record, int targetWidth, int targetHeight) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = attachments().open(record)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        options.inSampleSize = ImageSizing.inSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        try (InputStream in = attachments().open(record)) {
+            Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap == null) {
+                throw new IOException("Not an image: " + record.getAttachmentName());
+            }
+            return bitmap;
+        }
+    }
+
+    // Viewer thread: release the open document
+    private void closeDocument() {
+        try {
+            if (openPdf != null) {
+                openPdf.close();
+            }
+            if (openText != null) {
+                openText.close();
+            }
+        } catch (IOException e) {
+            AppLog.w("Reports", "Could not close attachment: " + e.getMessage());
+        }
+        openPdf = null;
+        openText = null;
+        openRecord = null;
+    }
+
+    // Viewer thread: the attachment store (the first call unwraps the data key)
+    private RecordAttachments attachments() throws IOException {
+        if (attachments == null) {
+            attachments = new RecordAttachments(new File(getFilesDir(), RecordAttachments.DIRECTORY),
+                    DataKeys.cipher(this));
+        }
+        return attachments;
+    }
+
+    private void hideAttachment() {
+        viewGeneration++;
+        attachmentPanel.setVisibility(View.GONE);
+        attachmentImage.setImageDrawable(null); // Let the bitmap go
+        attachmentThread.execute(this::closeDocument);
+    }
+
+    // ====================== UPLOAD ======================
+
+    private void pickReport() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"application/pdf", "image/*", "text/*"});
+        startActivityForResult(intent, UPLOAD_REQUEST_CODE);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == UPLOAD_REQUEST_CODE && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            uploadReport(data.getData());
+        }
+    }
+
+    /**
+     * Copy the picked document into the attachment store (streamed, hashed), then add
+     * its record on the database thread and show it at the top of the list.
+     */
+    private void uploadReport(Uri uri) {
+        Toast.makeText(this, "Adding report…", Toast.LENGTH_SHORT).show();
+        attachmentThread.execute(() -> {
+            String name = displayName(uri);
+            String type = getContentResolver().getType(uri);
+            RecordAttachments.Stored stored;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot read " + uri);
+                }
+                stored = attachments().save(in);
+            } catch (IOException e) {
+                AppLog.e("Reports", "Could not store upload", e);
+                runOnUiThread(() -> Toast.makeText(Reports.this, "Could not add report", Toast.LENGTH_SHORT).show());
+                return;
+            }
+
+            AppointmentStorage.execute(() -> {
+                try {
+                    AppointmentDatabase database = AppointmentStorage.database(this);
+                    MedicalRecord record = new MedicalRecord(database.nextRecordId(), userEmail,
+                            MedicalRecord.KIND_REPORT, name, describe(type), System.currentTimeMillis(),
+                            name, stored.key, type, stored.size);
+                    database.saveRecords(Collections.singletonList(record));
+                    MainThreadExecutor.INSTANCE.execute(() -> {
+                        Toast.makeText(Reports.this, stored.deduplicated
+                                ? "Report added (same file as an earlier upload, stored once)"
+                                : "Report added", Toast.LENGTH_SHORT).show();
+                        reloadRecords();
+                    });
+                } catch (IOException e) {
+                    AppLog.e("Reports", "Could not save record", e);
+                }
+            });
+        });
+    }
+
+    private void reloadRecords() {
+        if (isDestroyed()) {
+            return;
+        }
+        pager.close();
+        setupRecordList();
+    }
+
+    private String displayName(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri,
+                new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getString(0);
+            }
+        }
+        return "Report";
+    }
+
+    private static String describe(String type) {
+        if (type == null) {
+            return "Document";
+        }
+        if (type.equals("application/pdf")) {
+            return "PDF document";
+        }
+        return type.startsWith("image/") ? "Image" : "Text file";
     }
-}
\ No newline at end of file
+}
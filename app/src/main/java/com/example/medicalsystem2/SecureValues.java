@@ -0,0 +1,171 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SECURE VALUES - Small key / value settings stored encrypted (AES-GCM, see DataCipher),
+ * read from memory.
+ *
+ * - The Backend only ever holds sealed values (hex text: SharedPreferences on the device)
+ * - A value is decrypted the first time it is read, then served from memory: a hot
+ *   value (the signed-in user's email) costs one map lookup, like SharedPreferences
+ *   itself (checked by SecureValuesTest against a plain map)
+ * - Writes seal the value and update memory at once (the Backend may write later);
+ *   putAll() hands several values to the Backend as one write
+ * - Each value is sealed with its key as context: two values cannot be swapped on disk
+ * - A value that does not open (tampered, or sealed with a lost key) reads as missing
+ *
+ * Thread-safe. Pure Java so it is unit tested (and benchmarked) on the JVM.
+ */
+public final class SecureValues {
+
+    private static final String TAG = "SecureValues";
+
+    /**
+     * Where the sealed values live.
+     */
+    public interface Backend {
+        String get(String key);
+
+        /**
+         * Store a sealed value (null removes it).
+         */
+        void put(String key, String sealedValue);
+
+        /**
+         * Store several sealed values in one write (null values remove).
+         */
+        void putAll(Map<String, String> sealedValues);
+
+        void clear();
+    }
+
+    // Cached "no such value" (null values are not kept in the map)
+    private static final String MISSING = new String("");
+
+    private final DataCipher cipher;
+    private final Backend backend;
+    private final Map<String, String> plain = new HashMap<>(); // guarded by this
+
+    public SecureValues(DataCipher cipher, Backend backend) {
+        this.cipher = cipher;
+        this.backend = backend;
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value;
+        synchronized (this) {
+            value = plain.get(key);
+        }
+        if (value == null) {
+            value = load(key);
+        }
+        return value == MISSING ? defaultValue : value;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public void putString(String key, String value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        String sealed = toHex(cipher.sealString(value, key));
+        synchronized (this) {
+            plain.put(key, value);
+            backend.put(key, sealed);
+        }
+    }
+
+    /**
+     * Write several values at once (null values remove): one Backend write for all of them.
+     */
+    public void putAll(Map<String, String> values) {
+        Map<String, String> sealed = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            sealed.put(entry.getKey(), value == null ? null : toHex(cipher.sealString(value, entry.getKey())));
+        }
+        synchronized (this) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                plain.put(entry.getKey(), entry.getValue() == null ? MISSING : entry.getValue());
+            }
+            backend.putAll(sealed);
+        }
+    }
+
+    public void putLong(String key, long value) {
+        putString(key, Long.toString(value));
+    }
+
+    public void remove(String key) {
+        synchronized (this) {
+            plain.put(key, MISSING);
+            backend.put(key, null);
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            plain.clear();
+            backend.clear();
+        }
+    }
+
+    // First read of a value: decrypt it once
+    private synchronized String load(String key) {
+        String value = plain.get(key);
+        if (value != null) {
+            return value; // Another thread was first
+        }
+        String sealed = backend.get(key);
+        value = MISSING;
+        if (sealed != null) {
+            try {
+                value = cipher.openString(fromHex(sealed), key);
+            } catch (IOException | IllegalArgumentException e) {
+                AppLog.w(TAG, "Unreadable value " + key + ", ignored: " + e.getMessage());
+            }
+        }
+        plain.put(key, value);
+        return value;
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not hex");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
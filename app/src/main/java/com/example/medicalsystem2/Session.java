@@ -0,0 +1,52 @@
+package com.example.medicalsystem2;
+
+/**
+ * SESSION - What we remember locally about the signed-in user (immutable).
+ *
+ * Cached by SessionStore so the launch screen can pick Home or Login without
+ * inflating any auth UI and without waiting for Firebase. Firebase still checks
+ * the account in the background (SessionStore.validateInBackground).
+ */
+public final class Session {
+
+    private final String uid;
+    private final String email;
+    private final long tokenExpiryMillis; // Firebase ID token expiry (epoch millis)
+    private final long validatedAtMillis; // Last time Firebase confirmed the account
+
+    public Session(String uid, String email, long tokenExpiryMillis, long validatedAtMillis) {
+        this.uid = uid != null ? uid : "";
+        this.email = email != null ? email : "";
+        this.tokenExpiryMillis = tokenExpiryMillis;
+        this.validatedAtMillis = validatedAtMillis;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public long getTokenExpiryMillis() {
+        return tokenExpiryMillis;
+    }
+
+    public long getValidatedAtMillis() {
+        return validatedAtMillis;
+    }
+
+    /**
+     * Same user, confirmed again by Firebase at "nowMillis" with a new token expiry.
+     */
+    public Session validated(long newTokenExpiryMillis, long nowMillis) {
+        return new Session(uid, email, newTokenExpiryMillis, nowMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "Session{" + email + ", token until " + tokenExpiryMillis
+                + ", validated at " + validatedAtMillis + "}";
+    }
+}
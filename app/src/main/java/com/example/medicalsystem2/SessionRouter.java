@@ -0,0 +1,41 @@
+package com.example.medicalsystem2;
+
+/**
+ * SESSION ROUTER - Picks the first real screen from the cached session, before any UI.
+ *
+ * - Valid ID token                          -> Home (nothing to check before showing it)
+ * - Token expired, validated recently        -> Home; Firebase refreshes the token in the
+ *                                               background (ID tokens only last 1 hour)
+ * - Never validated, or not for MAX_OFFLINE_MILLIS -> Login
+ * - No cached session                        -> Login
+ *
+ * A returning user goes MainActivity -> Home (one transition) instead of
+ * MainActivity -> Login -> Home. Pure Java so it is unit tested on the JVM.
+ */
+public final class SessionRouter {
+
+    public enum Destination {
+        HOME,
+        LOGIN
+    }
+
+    // How long a session that Firebase could not re-check (offline) is still trusted
+    public static final long MAX_OFFLINE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private SessionRouter() {
+    }
+
+    public static Destination route(Session session, long nowMillis) {
+        if (session == null || session.getEmail().isEmpty()) {
+            return Destination.LOGIN;
+        }
+        if (nowMillis < session.getTokenExpiryMillis()) {
+            return Destination.HOME;
+        }
+        long sinceValidated = nowMillis - session.getValidatedAtMillis();
+        if (session.getValidatedAtMillis() > 0 && sinceValidated >= 0 && sinceValidated < MAX_OFFLINE_MILLIS) {
+            return Destination.HOME;
+        }
+        return Destination.LOGIN;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthInvalidUserException;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SESSION STORE - Process-wide cache of the signed-in user (see Session).
+ *
+ * Lets the launch screen route a returning user straight to Home:
+ * - preload() (called from MedicalSystemApp) reads the "session" preferences on the
+ *   "appointment-io" thread, so MainActivity decides from memory
+ * - save() after Login / SignUp, clear() when Firebase says the account is gone
+ * - validateInBackground() asks Firebase after the user is already on Home; only an
+ *   invalid account (deleted, disabled) ends the session, a network error keeps it
+ * - SIGNED_IN_BUS (sticky, main thread) tells open screens when the session ends
+ * - The values are stored encrypted (SecureValues over the "session_sealed" preferences,
+ *   decrypted once); a session saved in plain text by an older version is moved there
+ * - save() and clear() update memory at once and write on the "appointment-io" thread:
+ *   the Login / SignUp callbacks (main thread) never wait for the data key or the
+ *   sealing; the four values are written with one apply()
+ */
+public final class SessionStore {
+
+    private static final String TAG = "SessionStore";
+
+    private static final String PREFS = "session_sealed";
+    private static final String PLAIN_PREFS = "session"; // before encryption, moved once
+    private static final String KEY_UID = "uid";
+    private static final String KEY_EMAIL = "email";
+    private static final String KEY_TOKEN_EXPIRY = "token_expiry";
+    private static final String KEY_VALIDATED_AT = "validated_at";
+
+    // Firebase check of a cached session, and how often it ended the session (see Metrics)
+    private static final Metrics.Timer VALIDATE_TIMER = Metrics.timer("session.validate");
+    private static final Metrics.Counter INVALIDATED = Metrics.counter("session.invalidated");
+
+    // true while a session exists, false once it was cleared
+    public static final StatusBus<Boolean> SIGNED_IN_BUS = new StatusBus<>(MainThreadExecutor.INSTANCE);
+
+    private static volatile Session cached;
+    private static volatile boolean loaded;
+    private static SecureValues secureValues; // guarded by SessionStore.class
+
+    private SessionStore() {
+    }
+
+    /**
+     * Read the cached session in the background (SharedPreferences loads its file on first use).
+     */
+    public static void preload(Context context) {
+        Context appContext = context.getApplicationContext();
+        AppointmentStorage.execute(() -> current(appContext));
+    }
+
+    /**
+     * The cached session, or null if nobody is signed in. Reads the preferences the first
+     * time if preload() has not finished yet (call from a background thread then).
+     */
+    public static Session current(Context context) {
+        if (!loaded) {
+            synchronized (SessionStore.class) {
+                if (!loaded) {
+                    cached = read(context);
+                    loaded = true;
+                }
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Remember the user that just signed in (or signed up) and fetch their token expiry.
+     */
+    public static void save(Context context, FirebaseUser user) {
+        Context appContext = context.getApplicationContext();
+        long now = AppClock.SYSTEM.currentTimeMillis();
+        store(appContext, new Session(user.getUid(), user.getEmail(), 0, now));
+        user.getIdToken(false).addOnSuccessListener(token -> {
+            Session session = cached;
+            if (session != null && session.getUid().equals(user.getUid())) {
+                store(appContext, session.validated(token.getExpirationTimestamp() * 1000, now));
+            }
+        });
+    }
+
+    /**
+     * Forget the session (the next launch goes to Login).
+     */
+    public static void clear(Context context) {
+        synchronized (SessionStore.class) {
+            cached = null;
+            loaded = true;
+        }
+        Context appContext = context.getApplicationContext();
+        AppointmentStorage.execute(() -> {
+            SecureValues stored = values(appContext);
+            if (stored != null) {
+                stored.clear();
+            }
+        });
+        SIGNED_IN_BUS.post(false);
+    }
+
+    /**
+     * Check the cached session with Firebase without blocking anyone: reload the account,
+     * then refresh the ID token. Results arrive on the main thread.
+     */
+    public static void validateInBackground(Context context) {
+        Context appContext = context.getApplicationContext();
+        AppointmentStorage.execute(() -> {
+            Session session = current(appContext);
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                if (session != null) {
+                    AppLog.w(TAG, "Cached session without Firebase user, signing out");
+                    invalidate(appContext);
+                }
+                return;
+            }
+            if (session == null || !session.getUid().equals(user.getUid())) {
+                // Signed in before the cache existed (or another account): adopt the Firebase user
+                MainThreadExecutor.INSTANCE.execute(() -> save(appContext, user));
+                return;
+            }
+
+            long started = VALIDATE_TIMER.start();
+            user.reload()
+                    .continueWithTask(reloaded -> {
+                        if (!reloaded.isSuccessful()) {
+                            throw reloaded.getException();
+                        }
+                        return user.getIdToken(false);
+                    })
+                    .addOnCompleteListener(task -> {
+                        VALIDATE_TIMER.stop(started);
+                        if (task.isSuccessful()) {
+                            long expiry = task.getResult().getExpirationTimestamp() * 1000;
+                            store(appContext, session.validated(expiry, AppClock.SYSTEM.currentTimeMillis()));
+                            AppLog.event(AppLog.DEBUG, TAG, "session_validated", expiry);
+                        } else if (task.getException() instanceof FirebaseAuthInvalidUserException) {
+                            AppLog.w(TAG, "Account no longer valid, signing out");
+                            invalidate(appContext);
+                        } else {
+                            // Offline or Firebase unavailable: keep the session, try again next launch
+                            AppLog.d(TAG, "Session check skipped: ", task.getException());
+                        }
+                    });
+        });
+    }
+
+    private static void invalidate(Context context) {
+        INVALIDATED.increment();
+        FirebaseAuth.getInstance().signOut();
+        clear(context);
+    }
+
+    private static void store(Context context, Session session) {
+        synchronized (SessionStore.class) {
+            cached = session;
+            loaded = true;
+        }
+        // Sealed and written on the IO thread (see the class comment)
+        AppointmentStorage.execute(() -> {
+            SecureValues stored = values(context);
+            if (stored != null) {
+                stored.putAll(fields(session.getUid(), session.getEmail(),
+                        session.getTokenExpiryMillis(), session.getValidatedAtMillis()));
+            }
+        });
+        SIGNED_IN_BUS.post(true);
+    }
+
+    private static Session read(Context context) {
+        SecureValues stored = values(context);
+        if (stored == null) {
+            return null;
+        }
+        SharedPreferences plain = context.getApplicationContext().getSharedPreferences(PLAIN_PREFS, Context.MODE_PRIVATE);
+        if (!plain.getString(KEY_EMAIL, "").isEmpty()) {
+            // Saved by a version without encryption: seal it, then forget the plain copy
+            stored.putAll(fields(plain.getString(KEY_UID, ""), plain.getString(KEY_EMAIL, ""),
+                    plain.getLong(KEY_TOKEN_EXPIRY, 0), plain.getLong(KEY_VALIDATED_AT, 0)));
+            plain.edit().clear().apply();
+        }
+        String email = stored.getString(KEY_EMAIL, "");
+        if (email.isEmpty()) {
+            return null;
+        }
+        return new Session(stored.getString(KEY_UID, ""), email,
+                stored.getLong(KEY_TOKEN_EXPIRY, 0), stored.getLong(KEY_VALIDATED_AT, 0));
+    }
+
+    private static Map<String, String> fields(String uid, String email, long tokenExpiry, long validatedAt) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put(KEY_UID, uid);
+        fields.put(KEY_EMAIL, email);
+        fields.put(KEY_TOKEN_EXPIRY, Long.toString(tokenExpiry));
+        fields.put(KEY_VALIDATED_AT, Long.toString(validatedAt));
+        return fields;
+    }
+
+    /**
+     * The encrypted session values, or null if the data key is unavailable (the session
+     * is then only kept in memory).
+     */
+    private static synchronized SecureValues values(Context context) {
+        if (secureValues == null) {
+            try {
+                SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+                secureValues = new SecureValues(DataKeys.cipher(context), new PreferencesBackend(prefs));
+            } catch (IOException e) {
+                AppLog.e(TAG, "Session storage unavailable", e);
+            }
+        }
+        return secureValues;
+    }
+
+    /**
+     * SecureValues on SharedPreferences (sealed values as hex strings, written with apply()).
+     */
+    private static final class PreferencesBackend implements SecureValues.Backend {
+        private final SharedPreferences prefs;
+
+        PreferencesBackend(SharedPreferences prefs) {
+            this.prefs = prefs;
+        }
+
+        @Override
+        public String get(String key) {
+            return prefs.getString(key, null);
+        }
+
+        @Override
+        public void put(String key, String sealedValue) {
+            if (sealedValue == null) {
+                prefs.edit().remove(key).apply();
+            } else {
+                prefs.edit().putString(key, sealedValue).apply();
+            }
+        }
+
+        @Override
+        public void putAll(Map<String, String> sealedValues) {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (Map.Entry<String, String> entry : sealedValues.entrySet()) {
+                if (entry.getValue() == null) {
+                    editor.remove(entry.getKey());
+                } else {
+                    editor.putString(entry.getKey(), entry.getValue());
+                }
+            }
+            editor.apply();
+        }
+
+        @Override
+        public void clear() {
+            prefs.edit().clear().apply();
+        }
+    }
+}
@@ -20,6 +20,10 @@ public class SignUp extends AppCompatActivity {
     private TextView loginText;        // Text to navigate to Login screen
     private FirebaseAuth firebaseAuth; // Firebase Authentication instance
 
+    // Firebase account creation round trip, and how often it fails (see Metrics)
+    private static final Metrics.Timer SIGN_UP_TIMER = Metrics.timer("auth.signUp");
+    private static final Metrics.Counter SIGN_UP_FAILURES = Metrics.counter("auth.signUp.failed");
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -58,8 +62,10 @@ public class SignUp extends AppCompatActivity {
         signUpButton.setEnabled(false);
 
         // Firebase method to create a new user with email and password
+        long started = SIGN_UP_TIMER.start();
         firebaseAuth.createUserWithEmailAndPassword(email, password)
                 .addOnCompleteListener(task -> {
+                    SIGN_UP_TIMER.stop(started);
                     // Re-enable button after task completes
                     signUpButton.setEnabled(true);
 
@@ -70,10 +76,14 @@ public class SignUp extends AppCompatActivity {
                         // Show confirmation message
                         Toast.makeText(SignUp.this, "Account Created Successfully", Toast.LENGTH_SHORT).show();
 
+                        // Remember the session so the next launch opens Home directly
+                        SessionStore.save(SignUp.this, user);
+
                         // Navigate to Home activity, passing the user's email
                         goToHome(user.getEmail());
                     } else {
                         // Sign up failed
+                        SIGN_UP_FAILURES.increment();
                         String errorMessage = task.getException() != null
                                 ? task.getException().getMessage()
                                 : "Sign up failed";
@@ -0,0 +1,316 @@
+package com.example.medicalsystem2;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * SLOT ENGINE - Which appointment slots of a doctor are still free, day by day.
+ *
+ * A day is cut into fixed slots (30 minutes by default: 48 slots = one long). Every set
+ * of slots is a bitset, bit i = slot i of the day:
+ * - WorkingHours: one mask per day of the week (the doctor's opening hours)
+ * - bookings: existing appointments set the bits of the slots they overlap
+ * - free = working & ~booked, minus the slots already started today
+ * A month for one doctor is 31 x 1 long, so 500 doctors fit in ~120 KB and are
+ * computed with a few bit operations per day.
+ *
+ * Pure Java so it is unit tested (and benchmarked) on the JVM.
+ */
+public final class SlotEngine {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int DEFAULT_SLOT_MINUTES = 30;
+
+    private static final long DAY_MILLIS = MINUTES_PER_DAY * AppointmentTimeEngine.MINUTE_MILLIS;
+
+    /**
+     * Opening hours of a doctor for each day of the week, as slot bitsets.
+     */
+    public static final class WorkingHours {
+        private final int slotMinutes;
+        private final int wordsPerDay;
+        private final long[][] masks = new long[7][]; // index = DayOfWeek.getValue() - 1
+
+        public WorkingHours(int slotMinutes) {
+            if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0) {
+                throw new IllegalArgumentException("Slot length must divide a day: " + slotMinutes);
+            }
+            this.slotMinutes = slotMinutes;
+            this.wordsPerDay = (MINUTES_PER_DAY / slotMinutes + 63) / 64;
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] = new long[wordsPerDay];
+            }
+        }
+
+        /**
+         * Clinic default: Monday to Saturday 09:00-12:00 and 14:00-18:00, closed on Sunday.
+         */
+        public static WorkingHours clinicDefault() {
+            WorkingHours hours = new WorkingHours(DEFAULT_SLOT_MINUTES);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (day != DayOfWeek.SUNDAY) {
+                    hours.open(day, 9 * 60, 12 * 60).open(day, 14 * 60, 18 * 60);
+                }
+            }
+            return hours;
+        }
+
+        /**
+         * Open the slots that fit entirely in [startMinute, endMinute) of that day.
+         */
+        public WorkingHours open(DayOfWeek day, int startMinute, int endMinute) {
+            if (startMinute < 0 || endMinute > MINUTES_PER_DAY || startMinute >= endMinute) {
+                throw new IllegalArgumentException("Bad opening hours " + startMinute + "-" + endMinute);
+            }
+            int first = (startMinute + slotMinutes - 1) / slotMinutes;
+            int end = endMinute / slotMinutes;
+            setBits(masks[day.getValue() - 1], 0, first, end);
+            return this;
+        }
+
+        public int getSlotMinutes() {
+            return slotMinutes;
+        }
+
+        public int getSlotsPerDay() {
+            return MINUTES_PER_DAY / slotMinutes;
+        }
+
+        long[] mask(DayOfWeek day) {
+            return masks[day.getValue() - 1];
+        }
+    }
+
+    /**
+     * Free slots of one doctor over consecutive days (immutable once computed).
+     */
+    public static final class Availability {
+        private final LocalDate firstDay;
+        private final int days;
+        private final int slotMinutes;
+        private final int wordsPerDay;
+        private final long[] free;
+        private final ZoneId zone;
+
+        Availability(LocalDate firstDay, int days, int slotMinutes, int wordsPerDay, long[] free, ZoneId zone) {
+            this.firstDay = firstDay;
+            this.days = days;
+            this.slotMinutes = slotMinutes;
+            this.wordsPerDay = wordsPerDay;
+            this.free = free;
+            this.zone = zone;
+        }
+
+        public LocalDate getFirstDay() {
+            return firstDay;
+        }
+
+        public int getDays() {
+            return days;
+        }
+
+        public int getSlotMinutes() {
+            return slotMinutes;
+        }
+
+        public boolean isFree(int dayIndex, int slot) {
+            return (free[dayIndex * wordsPerDay + (slot >>> 6)] & (1L << slot)) != 0;
+        }
+
+        public int freeCount(int dayIndex) {
+            int count = 0;
+            for (int w = 0; w < wordsPerDay; w++) {
+                count += Long.bitCount(free[dayIndex * wordsPerDay + w]);
+            }
+            return count;
+        }
+
+        /**
+         * First free slot of the day at or after "fromSlot", or -1.
+         */
+        public int nextFree(int dayIndex, int fromSlot) {
+            int base = dayIndex * wordsPerDay;
+            int w = fromSlot >>> 6;
+            if (w >= wordsPerDay) {
+                return -1;
+            }
+            long word = free[base + w] & (-1L << fromSlot);
+            while (true) {
+                if (word != 0) {
+                    return w * 64 + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == wordsPerDay) {
+                    return -1;
+                }
+                word = free[base + w];
+            }
+        }
+
+        /**
+         * Start minute (0 = midnight) of every free slot of the day, in order.
+         */
+        public int[] freeStartMinutes(int dayIndex) {
+            int[] minutes = new int[freeCount(dayIndex)];
+            int n = 0;
+            for (int slot = nextFree(dayIndex, 0); slot >= 0; slot = nextFree(dayIndex, slot + 1)) {
+                minutes[n++] = slot * slotMinutes;
+            }
+            return minutes;
+        }
+
+        public int dayIndex(LocalDate day) {
+            long index = ChronoUnit.DAYS.between(firstDay, day);
+            return index >= 0 && index < days ? (int) index : -1;
+        }
+
+        /**
+         * Epoch millis of a slot start in the engine's time zone.
+         */
+        public long slotStartMillis(int dayIndex, int slot) {
+            return firstDay.plusDays(dayIndex).atStartOfDay(zone)
+                    .plusMinutes((long) slot * slotMinutes).toInstant().toEpochMilli();
+        }
+    }
+
+    private static final class DayStarts {
+        final LocalDate firstDay;
+        final long[] starts; // never modified once published
+
+        DayStarts(LocalDate firstDay, long[] starts) {
+            this.firstDay = firstDay;
+            this.starts = starts;
+        }
+    }
+
+    private final WorkingHours hours;
+    private final ZoneId zone;
+    private final long bookingMillis; // how long one booking keeps the doctor busy
+    private volatile DayStarts lastDayStarts;
+
+    public SlotEngine(WorkingHours hours, ZoneId zone, long bookingMillis) {
+        this.hours = hours;
+        this.zone = zone;
+        this.bookingMillis = Math.max(1, bookingMillis);
+    }
+
+    public WorkingHours getWorkingHours() {
+        return hours;
+    }
+
+    /**
+     * Free slots of one doctor from "firstDay" for "days" days.
+     *
+     * @param bookedStartMillis start of the doctor's existing appointments (any order, any range)
+     * @param nowMillis         slots that started before this instant are not free
+     */
+    public Availability compute(LocalDate firstDay, int days, long[] bookedStartMillis, int bookedCount,
+                                long nowMillis) {
+        int words = hours.wordsPerDay;
+        int slotMinutes = hours.slotMinutes;
+        long[] free = new long[days * words];
+
+        // 1. Working hours of each day
+        DayOfWeek dayOfWeek = firstDay.getDayOfWeek();
+        for (int day = 0; day < days; day++) {
+            System.arraycopy(hours.mask(dayOfWeek), 0, free, day * words, words);
+            dayOfWeek = dayOfWeek.plus(1);
+        }
+
+        // 2. Remove the slots the existing appointments overlap
+        long[] dayStarts = dayStarts(firstDay, days);
+        long rangeStart = dayStarts[0];
+        long rangeEnd = dayStarts[days];
+        for (int i = 0; i < bookedCount; i++) {
+            long start = bookedStartMillis[i];
+            if (start + bookingMillis <= rangeStart || start >= rangeEnd) {
+                continue;
+            }
+            clearRange(free, dayStarts, Math.max(start, rangeStart), Math.min(start + bookingMillis, rangeEnd));
+        }
+
+        // 3. Remove what is already in the past
+        if (nowMillis > rangeStart) {
+            clearRange(free, dayStarts, rangeStart, Math.min(nowMillis, rangeEnd));
+        }
+        return new Availability(firstDay, days, slotMinutes, words, free, zone);
+    }
+
+    /**
+     * Same as compute(...) with the appointments of one doctor from the repository.
+     */
+    public Availability compute(LocalDate firstDay, int days, Iterable<Appointment> appointments,
+                                String doctorName, long nowMillis) {
+        long[] starts = new long[16];
+        int count = 0;
+        for (Appointment appointment : appointments) {
+            if (doctorName.equals(appointment.getDoctorName())) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = appointment.getStartMillis();
+            }
+        }
+        return compute(firstDay, days, starts, count, nowMillis);
+    }
+
+    // Midnight of every day of the range, plus the end of the last day (the last range is
+    // kept: computing many doctors for the same month converts the dates only once)
+    private long[] dayStarts(LocalDate firstDay, int days) {
+        DayStarts cached = lastDayStarts;
+        if (cached != null && cached.firstDay.equals(firstDay) && cached.starts.length == days + 1) {
+            return cached.starts;
+        }
+        long[] starts = new long[days + 1];
+        for (int day = 0; day <= days; day++) {
+            starts[day] = firstDay.plusDays(day).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        lastDayStarts = new DayStarts(firstDay, starts);
+        return starts;
+    }
+
+    // Clear every slot overlapping [fromMillis, toMillis) (both inside the range of dayStarts)
+    private void clearRange(long[] free, long[] dayStarts, long fromMillis, long toMillis) {
+        int fromDay = dayOf(dayStarts, fromMillis);
+        int toDay = dayOf(dayStarts, toMillis - 1); // inclusive
+        int fromSlot = minuteOfDay(dayStarts, fromDay, fromMillis) / hours.slotMinutes;
+        int toSlot = minuteOfDay(dayStarts, toDay, toMillis - 1) / hours.slotMinutes;
+
+        for (int day = fromDay; day <= toDay; day++) {
+            int start = day == fromDay ? fromSlot : 0;
+            int end = day == toDay ? toSlot + 1 : hours.getSlotsPerDay();
+            clearBits(free, day * hours.wordsPerDay, start, end);
+        }
+    }
+
+    private static int dayOf(long[] dayStarts, long millis) {
+        int index = Arrays.binarySearch(dayStarts, millis);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int minuteOfDay(long[] dayStarts, int day, long millis) {
+        if (dayStarts[day + 1] - dayStarts[day] == DAY_MILLIS) {
+            return (int) ((millis - dayStarts[day]) / AppointmentTimeEngine.MINUTE_MILLIS);
+        }
+        // Daylight saving change that day: ask the time zone rules
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+        return local.getHour() * 60 + local.getMinute();
+    }
+
+    // Set bits [from, to) of the bitset starting at "offset"
+    static void setBits(long[] bits, int offset, int from, int to) {
+        for (int bit = from; bit < to; bit++) {
+            bits[offset + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    static void clearBits(long[] bits, int offset, int from, int to) {
+        for (int bit = from; bit < to; bit++) {
+            bits[offset + (bit >>> 6)] &= ~(1L << bit);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+
+/**
+ * SQL DATABASE - The few SQLite operations AppointmentDatabase needs.
+ *
+ * - AndroidSqlDatabase: android.database.sqlite (the app)
+ * - JdbcSqlDatabase: sqlite-jdbc, so the schema, queries and benchmarks run on the JVM
+ *
+ * Both open the database in WAL mode (readers never wait for the writer) and every
+ * SQL error comes out as an IOException, like the file based stores.
+ * Not thread-safe: one thread (the appointment IO thread) uses a given connection.
+ */
+public interface SqlDatabase {
+
+    /**
+     * A compiled statement, kept and re-executed with new bindings (indexes start at 1).
+     */
+    interface Statement {
+        void bindLong(int index, long value);
+
+        void bindDouble(int index, double value);
+
+        void bindString(int index, String value);
+
+        void bindBlob(int index, byte[] value);
+
+        /**
+         * Run an INSERT; returns the rowid of the new row.
+         */
+        long executeInsert() throws IOException;
+
+        /**
+         * Run an UPDATE / DELETE; returns the number of rows changed.
+         */
+        int executeUpdateDelete() throws IOException;
+    }
+
+    /**
+     * Result rows of a query, read forward once (columns start at 0).
+     */
+    interface Rows {
+        boolean next() throws IOException;
+
+        long getLong(int column) throws IOException;
+
+        double getDouble(int column) throws IOException;
+
+        String getString(int column) throws IOException;
+
+        byte[] getBlob(int column) throws IOException;
+
+        void close();
+    }
+
+    /**
+     * Run SQL without results (schema changes, PRAGMAs).
+     */
+    void execute(String sql) throws IOException;
+
+    /**
+     * Compile a statement once; the caller keeps it for the lifetime of the database.
+     */
+    Statement compile(String sql) throws IOException;
+
+    /**
+     * Run a query; arguments are Long, Double or String, bound to the "?" in order.
+     */
+    Rows query(String sql, Object... args) throws IOException;
+
+    /**
+     * PRAGMA user_version: schema version of this database file.
+     */
+    int getVersion() throws IOException;
+
+    void setVersion(int version) throws IOException;
+
+    void beginTransaction() throws IOException;
+
+    /**
+     * Mark the current transaction as good: endTransaction() commits instead of rolling back.
+     */
+    void setTransactionSuccessful();
+
+    void endTransaction() throws IOException;
+
+    boolean inTransaction();
+
+    void close() throws IOException;
+}
@@ -0,0 +1,174 @@
+package com.example.medicalsystem2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * STARTUP PIPELINE - The init work the splash screen waits for, run in parallel.
+ *
+ * Replaces the fixed 5-second progress loop of MainActivity: the splash stays only
+ * as long as the slowest task (Firebase, appointments, notification channel, ...).
+ *
+ * - Every task runs on the worker executor at the same time
+ * - A failing task is recorded in the report but does not block startup
+ * - Progress and the final report are delivered on the callback executor, which must run
+ *   one callback at a time (the main thread)
+ * - cancel() drops the callbacks (activity destroyed); it can be started only once
+ * - Each task duration goes to Metrics ("startup.task.<name>"), the total to "startup.pipeline"
+ *
+ * Pure Java so it is unit tested on the JVM.
+ */
+public final class StartupPipeline {
+
+    /**
+     * One piece of init work (runs on a worker thread).
+     */
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * Called on the callback executor.
+     */
+    public interface Listener {
+        void onProgress(int finishedTasks, int totalTasks);
+
+        void onFinished(Report report);
+    }
+
+    /**
+     * What happened during startup (durations in nanoseconds).
+     */
+    public static final class Report {
+        private final long totalNanos;
+        private final Map<String, Long> taskNanos;
+        private final Map<String, Throwable> failures;
+
+        Report(long totalNanos, Map<String, Long> taskNanos, Map<String, Throwable> failures) {
+            this.totalNanos = totalNanos;
+            this.taskNanos = Collections.unmodifiableMap(taskNanos);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public Map<String, Long> getTaskNanos() {
+            return taskNanos;
+        }
+
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("startup ").append(totalNanos / 1_000_000).append(" ms:");
+            for (Map.Entry<String, Long> task : taskNanos.entrySet()) {
+                text.append(' ').append(task.getKey()).append('=').append(task.getValue() / 1_000_000).append("ms");
+                if (failures.containsKey(task.getKey())) {
+                    text.append("(failed)");
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    private static final Metrics.Timer PIPELINE_TIMER = Metrics.timer("startup.pipeline");
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Task> tasks = new ArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * Add a task (before start()).
+     */
+    public StartupPipeline add(String name, Task task) {
+        if (started.get()) {
+            throw new IllegalStateException("Pipeline already started");
+        }
+        names.add(name);
+        tasks.add(task);
+        return this;
+    }
+
+    /**
+     * Run every task in parallel; the listener is called once all of them are done.
+     */
+    public void start(Executor workers, Executor callbacks, Listener listener) {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Pipeline already started");
+        }
+        final int total = tasks.size();
+        final long startNanos = System.nanoTime();
+        final long[] durations = new long[total];
+        final Throwable[] errors = new Throwable[total];
+        final int[] finished = new int[1]; // only touched on the callback executor
+
+        if (total == 0) {
+            callbacks.execute(() -> deliver(listener, startNanos, durations, errors));
+            return;
+        }
+
+        for (int i = 0; i < total; i++) {
+            final int index = i;
+            final Metrics.Timer taskTimer = Metrics.timer("startup.task." + names.get(i));
+            workers.execute(() -> {
+                long taskStart = taskTimer.start();
+                try {
+                    tasks.get(index).run();
+                } catch (Throwable error) {
+                    errors[index] = error;
+                }
+                durations[index] = System.nanoTime() - taskStart;
+                taskTimer.recordNanos(durations[index]);
+
+                // Counted on the callback executor, so onFinished() is always the last call
+                callbacks.execute(() -> {
+                    int done = ++finished[0];
+                    if (!cancelled.get()) {
+                        listener.onProgress(done, total);
+                    }
+                    if (done == total) {
+                        deliver(listener, startNanos, durations, errors);
+                    }
+                });
+            });
+        }
+    }
+
+    /**
+     * Drop the pending callbacks (tasks already running finish in the background).
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    private void deliver(Listener listener, long startNanos, long[] durations, Throwable[] errors) {
+        long totalNanos = System.nanoTime() - startNanos;
+        PIPELINE_TIMER.recordNanos(totalNanos);
+        if (cancelled.get()) {
+            return;
+        }
+        Map<String, Long> taskNanos = new LinkedHashMap<>();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (int i = 0; i < durations.length; i++) {
+            taskNanos.put(names.get(i), durations[i]);
+            if (errors[i] != null) {
+                failures.put(names.get(i), errors[i]);
+            }
+        }
+        listener.onFinished(new Report(totalNanos, taskNanos, failures));
+    }
+}
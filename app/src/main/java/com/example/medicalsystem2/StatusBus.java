@@ -0,0 +1,108 @@
+package com.example.medicalsystem2;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * STATUS BUS - Small in-process, typed event bus with a sticky last value.
+ *
+ * Replaces sendBroadcast() for events that never leave our process:
+ * - no Intent, no system_server / Binder round trip, no manifest action string
+ * - typed values (StatusBus<String>, ...) instead of Intent extras
+ * - sticky: a new subscriber receives the last posted value right away, so a
+ *   freshly created screen can draw the current state without waiting for a change
+ *
+ * Subscribers are called through the delivery executor (the main thread in the app,
+ * see MainThreadExecutor). Pure Java so it can be unit tested on the JVM.
+ *
+ * @param <T> type of the values carried by this bus
+ */
+public final class StatusBus<T> {
+
+    /**
+     * Receives the values posted on the bus.
+     */
+    public interface Subscriber<T> {
+        void onEvent(T value);
+    }
+
+    /**
+     * Returned by subscribe(). Call unsubscribe() when the screen goes away.
+     */
+    public final class Subscription {
+        private final Subscriber<T> subscriber;
+        private volatile boolean active = true;
+
+        private Subscription(Subscriber<T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        public void unsubscribe() {
+            active = false;
+            subscriptions.remove(this);
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        private void deliver(T value) {
+            deliveryExecutor.execute(() -> {
+                // Skip values that were still queued when the subscriber left
+                if (active) {
+                    subscriber.onEvent(value);
+                }
+            });
+        }
+    }
+
+    private final Executor deliveryExecutor;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+
+    private volatile T latest; // sticky value, null until the first post()
+
+    public StatusBus(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Publish a value to every subscriber and keep it as the sticky value.
+     * Can be called from any thread.
+     */
+    public void post(T value) {
+        synchronized (lock) {
+            latest = value;
+            for (Subscription subscription : subscriptions) {
+                subscription.deliver(value);
+            }
+        }
+    }
+
+    /**
+     * Subscribe; the last posted value (if any) is delivered first.
+     */
+    public Subscription subscribe(Subscriber<T> subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        synchronized (lock) {
+            // Under the lock so a concurrent post() cannot be delivered before the replay
+            subscriptions.add(subscription);
+            T current = latest;
+            if (current != null) {
+                subscription.deliver(current);
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * Last posted value, or null if nothing was posted yet.
+     */
+    public T getLatest() {
+        return latest;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.medicalsystem2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SYNC CODEC - Wire format of the sync requests and responses (binary, gzip-compressed).
+ *
+ * Request : int MAGIC, byte VERSION, UTF deviceId, int count, then per change
+ *           PUT    : byte 1, long seq, long id, long startMillis, boolean customTime, UTF user, UTF doctor
+ *           DELETE : byte 2, long seq, long id
+ * Response: int MAGIC, byte VERSION, int count, then per change: long seq, byte outcome
+ *
+ * A whole batch is compressed at once: the e-mails and doctor names repeated from one
+ * booking to the next cost almost nothing after the first one.
+ * Pure Java so both the app and the fake server of the tests use it.
+ */
+public final class SyncCodec {
+
+    private static final int MAGIC = 0x4D535943; // "MSYC"
+    private static final byte VERSION = 1;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    /**
+     * What the server did with one change.
+     */
+    public enum Outcome {
+        ACCEPTED,           // applied (or already applied: changes are idempotent)
+        REJECTED_SLOT_TAKEN // another device booked this doctor slot first: server wins
+    }
+
+    /**
+     * A decoded request (server side).
+     */
+    public static final class Request {
+        public final String deviceId;
+        public final List<SyncOutbox.Change> changes;
+
+        Request(String deviceId, List<SyncOutbox.Change> changes) {
+            this.deviceId = deviceId;
+            this.changes = Collections.unmodifiableList(changes);
+        }
+    }
+
+    private SyncCodec() {
+    }
+
+    public static byte[] encodeRequest(String deviceId, List<SyncOutbox.Change> changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + changes.size() * 16);
+        DataOutputStream data = new DataOutputStream(new GZIPOutputStream(bytes));
+        try {
+            data.writeInt(MAGIC);
+            data.writeByte(VERSION);
+            data.writeUTF(deviceId);
+            data.writeInt(changes.size());
+            for (SyncOutbox.Change change : changes) {
+                if (change.isDelete()) {
+                    data.writeByte(OP_DELETE);
+                    data.writeLong(change.getSeq());
+                    data.writeLong(change.getAppointmentId());
+                } else {
+                    Appointment appointment = change.getAppointment();
+                    data.writeByte(OP_PUT);
+                    data.writeLong(change.getSeq());
+                    data.writeLong(appointment.getId());
+                    data.writeLong(appointment.getStartMillis());
+                    data.writeBoolean(appointment.isCustomTime());
+                    data.writeUTF(appointment.getUserEmail());
+                    data.writeUTF(appointment.getDoctorName());
+                }
+            }
+        } finally {
+            data.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Request decodeRequest(byte[] body) throws IOException {
+        DataInputStream data = open(body);
+        try {
+            String deviceId = data.readUTF();
+            int count = data.readInt();
+            List<SyncOutbox.Change> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte op = data.readByte();
+                long seq = data.readLong();
+                long id = data.readLong();
+                if (op == OP_DELETE) {
+                    changes.add(SyncOutbox.Change.delete(seq, id));
+                } else if (op == OP_PUT) {
+                    long start = data.readLong();
+                    boolean custom = data.readBoolean();
+                    String user = data.readUTF();
+                    String doctor = data.readUTF();
+                    changes.add(SyncOutbox.Change.put(seq, new Appointment(id, user, doctor, start, custom)));
+                } else {
+                    throw new IOException("Unknown change type " + op);
+                }
+            }
+            return new Request(deviceId, changes);
+        } finally {
+            data.close();
+        }
+    }
+
+    public static byte[] encodeResponse(Map<Long, Outcome> outcomes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + outcomes.size() * 9);
+        DataOutputStream data = new DataOutputStream(new GZIPOutputStream(bytes));
+        try {
+            data.writeInt(MAGIC);
+            data.writeByte(VERSION);
+            data.writeInt(outcomes.size());
+            for (Map.Entry<Long, Outcome> entry : outcomes.entrySet()) {
+                data.writeLong(entry.getKey());
+                data.writeByte(entry.getValue().ordinal());
+            }
+        } finally {
+            data.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Outcome of every change the server processed, by change seq.
+     */
+    public static Map<Long, Outcome> decodeResponse(byte[] body) throws IOException {
+        DataInputStream data = open(body);
+        try {
+            int count = data.readInt();
+            Map<Long, Outcome> outcomes = new HashMap<>();
+            Outcome[] values = Outcome.values();
+            for (int i = 0; i < count; i++) {
+                long seq = data.readLong();
+                int outcome = data.readByte();
+                if (outcome < 0 || outcome >= values.length) {
+                    throw new IOException("Unknown outcome " + outcome);
+                }
+                outcomes.put(seq, values[outcome]);
+            }
+            return outcomes;
+        } finally {
+            data.close();
+        }
+    }
+
+    private static DataInputStream open(byte[] body) throws IOException {
+        DataInputStream data = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(body)));
+        if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+            data.close();
+            throw new IOException("Not a sync message");
+        }
+        return data;
+    }
+}
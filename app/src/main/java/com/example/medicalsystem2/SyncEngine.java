@@ -0,0 +1,266 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * SYNC ENGINE - Offline-first upload of the local appointment changes.
+ *
+ * Bookings never wait for the network: the repository is the truth on the phone,
+ * every change goes to the durable SyncOutbox, and the outbox is uploaded later.
+ *
+ * Few radio wakeups:
+ * - the first change waits BATCH_WINDOW_MILLIS, every change made meanwhile rides along
+ * - a request carries up to MAX_BATCH_CHANGES changes, gzip-compressed (SyncCodec);
+ *   a longer outbox is sent back to back while the radio is still up
+ * - offline: nothing is tried; the outbox is sent as soon as a network is back
+ * - failures: exponential backoff with jitter (BASE_BACKOFF_MILLIS doubling up to
+ *   MAX_BACKOFF_MILLIS), reset by a success or by a new network
+ *
+ * Conflicts: the server owns the doctor slots. A booking the server refuses because
+ * another device booked the slot first is handed to the Listener (the app removes it
+ * and tells the user); every other change is idempotent, so re-sending a batch whose
+ * response was lost is harmless.
+ *
+ * Not thread-safe: every method runs on the Scheduler's thread (one "sync" thread).
+ * Pure Java so it is unit tested on the JVM with a fake server and a fake clock.
+ */
+public final class SyncEngine {
+
+    public static final long BATCH_WINDOW_MILLIS = 120_000L;
+    public static final int MAX_BATCH_CHANGES = 200;
+    public static final long BASE_BACKOFF_MILLIS = 10_000L;
+    public static final long MAX_BACKOFF_MILLIS = 30 * 60_000L;
+
+    private static final String TAG = "SyncEngine";
+    private static final long NOT_SCHEDULED = Long.MAX_VALUE;
+
+    // Upload duration, requests, bytes sent, failed requests, refused bookings (see Metrics)
+    private static final Metrics.Timer UPLOAD_TIMER = Metrics.timer("sync.upload");
+    private static final Metrics.Counter REQUESTS = Metrics.counter("sync.requests");
+    private static final Metrics.Counter BYTES_SENT = Metrics.counter("sync.bytes_sent");
+    private static final Metrics.Counter FAILURES = Metrics.counter("sync.failures");
+    private static final Metrics.Counter CONFLICTS = Metrics.counter("sync.conflicts");
+
+    /**
+     * Runs the engine's delayed work on its thread (the app: a single-threaded executor).
+     */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    /**
+     * Told about bookings the server refused (the slot belongs to another device).
+     */
+    public interface Listener {
+        void onBookingRejected(Appointment appointment);
+    }
+
+    private final SyncOutbox outbox;
+    private final SyncRemote remote;
+    private final Scheduler scheduler;
+    private final AppClock clock;
+    private final Random jitter;
+    private final Listener listener;
+
+    private final Set<Long> rejectedIds = new HashSet<>();
+    private boolean online;
+    private int failures;
+    private long uploadAt = NOT_SCHEDULED;
+    private long uploadGeneration;
+
+    public SyncEngine(SyncOutbox outbox, SyncRemote remote, Scheduler scheduler, AppClock clock,
+                      Random jitter, Listener listener) {
+        this.outbox = outbox;
+        this.remote = remote;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.jitter = jitter;
+        this.listener = listener;
+    }
+
+    /**
+     * Queue the appointments made before sync existed on this device (new outbox only),
+     * and send what is left from the last run.
+     */
+    public void start(Iterable<Appointment> existing) {
+        if (outbox.wasCreated()) {
+            for (Appointment appointment : existing) {
+                record(appointment, false);
+            }
+        }
+        if (outbox.size() > 0) {
+            scheduleUpload(0);
+        }
+    }
+
+    // ================================
+    // LOCAL CHANGES
+    // ================================
+
+    public void onAppointmentAdded(Appointment appointment) {
+        record(appointment, false);
+        scheduleUpload(BATCH_WINDOW_MILLIS);
+    }
+
+    public void onAppointmentRemoved(Appointment appointment) {
+        if (rejectedIds.remove(appointment.getId())) {
+            return; // removed because the server refused it: the server never had it
+        }
+        record(appointment, true);
+        scheduleUpload(BATCH_WINDOW_MILLIS);
+    }
+
+    // ================================
+    // CONNECTIVITY
+    // ================================
+
+    /**
+     * Network available / lost (the app: ConnectivityManager default network callback).
+     */
+    public void setOnline(boolean nowOnline) {
+        if (nowOnline == online) {
+            return;
+        }
+        online = nowOnline;
+        if (!online) {
+            cancelUpload();
+            return;
+        }
+        // A new network: whatever failed before may work now
+        failures = 0;
+        if (outbox.size() > 0) {
+            scheduleUpload(0);
+        }
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public int getPendingCount() {
+        return outbox.size();
+    }
+
+    public int getConsecutiveFailures() {
+        return failures;
+    }
+
+    /**
+     * Time of the next planned upload, or Long.MAX_VALUE if none.
+     */
+    public long getNextUploadAt() {
+        return uploadAt;
+    }
+
+    // ================================
+    // UPLOAD
+    // ================================
+
+    /**
+     * Send one batch now (normally run by the scheduler).
+     */
+    public void upload() {
+        if (!online) {
+            return;
+        }
+        List<SyncOutbox.Change> batch = outbox.pending(MAX_BATCH_CHANGES);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long started = UPLOAD_TIMER.start();
+        Map<Long, SyncCodec.Outcome> outcomes;
+        try {
+            byte[] request = SyncCodec.encodeRequest(outbox.getDeviceId(), batch);
+            REQUESTS.increment();
+            BYTES_SENT.add(request.length);
+            outcomes = SyncCodec.decodeResponse(remote.send(request));
+        } catch (IOException e) {
+            failures++;
+            FAILURES.increment();
+            long delay = backoffMillis(failures);
+            AppLog.w(TAG, "upload failed, retry in ms", delay);
+            scheduleUpload(delay);
+            return;
+        }
+        UPLOAD_TIMER.stop(started);
+        failures = 0;
+
+        List<SyncOutbox.Change> done = new ArrayList<>(batch.size());
+        for (SyncOutbox.Change change : batch) {
+            SyncCodec.Outcome outcome = outcomes.get(change.getSeq());
+            if (outcome == null) {
+                continue; // not processed by the server: stays pending
+            }
+            done.add(change);
+            if (outcome == SyncCodec.Outcome.REJECTED_SLOT_TAKEN && !change.isDelete()) {
+                CONFLICTS.increment();
+                rejectedIds.add(change.getAppointmentId());
+                listener.onBookingRejected(change.getAppointment());
+            }
+        }
+        try {
+            outbox.acknowledge(done);
+        } catch (IOException e) {
+            // Not marked on disk: sent again later, the server ignores repeats
+            AppLog.e(TAG, "Could not acknowledge sync batch", e);
+        }
+
+        // More waiting: send it now, the radio is already up
+        if (outbox.size() > 0) {
+            scheduleUpload(done.isEmpty() ? backoffMillis(1) : 0);
+        }
+    }
+
+    /**
+     * Delay before the next attempt after "failures" failed ones: exponential, with
+     * jitter (50-100%) so phones that lost the same server do not retry in step.
+     */
+    long backoffMillis(int failures) {
+        long delay = BASE_BACKOFF_MILLIS << Math.min(failures - 1, 20);
+        delay = Math.min(delay, MAX_BACKOFF_MILLIS);
+        return delay / 2 + (long) (jitter.nextDouble() * (delay / 2));
+    }
+
+    private void record(Appointment appointment, boolean delete) {
+        try {
+            if (delete) {
+                outbox.recordDelete(appointment.getId());
+            } else {
+                outbox.recordPut(appointment);
+            }
+        } catch (IOException e) {
+            AppLog.e(TAG, "Could not queue appointment " + appointment.getId() + " for sync", e);
+        }
+    }
+
+    // Plan an upload in delayMillis, unless one is already planned at that time or earlier
+    private void scheduleUpload(long delayMillis) {
+        if (!online) {
+            return;
+        }
+        long at = clock.currentTimeMillis() + delayMillis;
+        if (uploadAt <= at) {
+            return;
+        }
+        uploadAt = at;
+        long generation = ++uploadGeneration;
+        scheduler.schedule(() -> {
+            if (generation == uploadGeneration) {
+                uploadAt = NOT_SCHEDULED;
+                upload();
+            }
+        }, delayMillis);
+    }
+
+    private void cancelUpload() {
+        uploadGeneration++;
+        uploadAt = NOT_SCHEDULED;
+    }
+}
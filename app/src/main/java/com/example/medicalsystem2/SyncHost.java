@@ -0,0 +1,144 @@
+package com.example.medicalsystem2;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * SYNC HOST - Android side of SyncEngine (one per process).
+ *
+ * - Outbox in files/sync-outbox.log, uploads to BuildConfig.SYNC_URL (sync is off
+ *   while no endpoint is configured, or when it is not https)
+ * - Uploads carry the user's Firebase ID token; while nobody is signed in they wait
+ *   in the outbox
+ * - Everything runs on one low priority "sync" thread: outbox writes and network
+ *   calls never block the appointment IO thread or the main thread
+ * - Online / offline comes from the default network callback (no polling)
+ * - A booking the server refused is cancelled locally (slot freed, reminders dropped)
+ *   and the user is told with a notification
+ */
+public final class SyncHost {
+
+    private static final String TAG = "Sync";
+    private static final String OUTBOX_FILE = "sync-outbox.log";
+    private static final long TOKEN_TIMEOUT_SECONDS = 30;
+
+    private static final ScheduledExecutorService SYNC_THREAD =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sync");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    private static volatile SyncEngine engine;
+
+    private SyncHost() {
+    }
+
+    /**
+     * Create and start the engine in the background (called at process start).
+     */
+    public static void start(Context context) {
+        if (BuildConfig.SYNC_URL.isEmpty()) {
+            AppLog.i(TAG, "No sync endpoint configured, sync is off");
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        SYNC_THREAD.execute(() -> create(appContext));
+    }
+
+    /**
+     * The running engine, or null (not started yet, or sync is off).
+     */
+    public static SyncEngine engine() {
+        return engine;
+    }
+
+    private static void create(Context context) {
+        SyncOutbox outbox;
+        HttpSyncRemote remote;
+        try {
+            remote = new HttpSyncRemote(new URL(BuildConfig.SYNC_URL), SyncHost::idToken);
+            outbox = SyncOutbox.open(new File(context.getFilesDir(), OUTBOX_FILE), DataKeys.cipher(context), true);
+        } catch (IOException | IllegalArgumentException e) {
+            AppLog.e(TAG, "Sync unavailable", e);
+            return;
+        }
+
+        AppointmentRepository repository = AppointmentStorage.repository(context);
+        SyncEngine created = new SyncEngine(outbox, remote,
+                (task, delayMillis) -> SYNC_THREAD.schedule(task, delayMillis, TimeUnit.MILLISECONDS),
+                AppClock.SYSTEM, new Random(),
+                appointment -> AppointmentStorage.execute(() -> {
+                    // Server wins: another device got this slot first
+                    AppLog.event(AppLog.WARN, TAG, "booking_rejected_by_server", appointment.getId());
+                    try {
+                        AppointmentStorage.bookingService(context).cancel(appointment);
+                        ReminderNotifications.showRejected(context, appointment);
+                    } catch (IOException e) {
+                        AppLog.e(TAG, "Could not remove rejected appointment " + appointment.getId(), e);
+                    }
+                }));
+
+        // Local changes are queued on the sync thread (they are made on the appointment IO thread)
+        repository.addChangeListener(new AppointmentRepository.ChangeListener() {
+            @Override
+            public void onAppointmentAdded(Appointment appointment) {
+                SYNC_THREAD.execute(() -> created.onAppointmentAdded(appointment));
+            }
+
+            @Override
+            public void onAppointmentRemoved(Appointment appointment) {
+                SYNC_THREAD.execute(() -> created.onAppointmentRemoved(appointment));
+            }
+        });
+
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                SYNC_THREAD.execute(() -> created.setOnline(true));
+            }
+
+            @Override
+            public void onLost(Network network) {
+                SYNC_THREAD.execute(() -> created.setOnline(false));
+            }
+        });
+
+        created.start(repository.range(Long.MIN_VALUE, Long.MAX_VALUE));
+        engine = created;
+        AppLog.event(AppLog.INFO, TAG, "sync_started_pending", outbox.size());
+    }
+
+    // Sync thread: blocks until Firebase hands over the token (refreshed by it when expired)
+    private static String idToken() throws IOException {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            throw new IOException("Not signed in");
+        }
+        try {
+            return Tasks.await(user.getIdToken(false), TOKEN_TIMEOUT_SECONDS, TimeUnit.SECONDS).getToken();
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("No ID token", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the ID token");
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.medicalsystem2;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * SYNC OUTBOX - Durable queue of the local appointment changes the server has not confirmed.
+ *
+ * - Every change is one record appended (and committed) before anything is sent,
+ *   so a booking made offline survives a crash or a reboot
+ * - One pending change per appointment: a newer change replaces the older one
+ *   (a put followed by a delete before upload only sends the delete)
+ * - Acknowledged changes are marked with a small ACK record; the file is rewritten
+ *   with the pending changes only once it is mostly acknowledged records
+ * - The file also holds the random device id the server uses to tell devices apart
+ * - The appointment of a PUT (who, which doctor, when) is sealed with AES-GCM
+ *   (DataCipher, its own nonce per record, "outbox#id#seq" as context); a version 1
+ *   file (plain text) is rewritten sealed when it is opened
+ *
+ * File layout:
+ *   header : int MAGIC, int VERSION, UTF deviceId
+ *   PUT    : byte 1, long seq, long id, int length, sealed (long startMillis, boolean customTime,
+ *            UTF user, UTF doctor)
+ *   DELETE : byte 2, long seq, long id
+ *   ACK    : byte 3, long seq, long id
+ *   SEQ    : byte 4, long highestSeq (written on compaction so sequence numbers keep growing)
+ *
+ * Not thread-safe: used by the sync thread only. Pure Java so it is unit tested on the JVM.
+ */
+public final class SyncOutbox {
+
+    private static final int MAGIC = 0x4D53534F; // "MSSO"
+    private static final int VERSION = 2;
+    private static final int PLAIN_VERSION = 1; // PUT fields in plain text
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_ACK = 3;
+    private static final byte OP_SEQ_MARK = 4;
+
+    // Compact once the file holds this many records and more than twice the pending count
+    private static final int COMPACT_MIN_RECORDS = 256;
+
+    /**
+     * One local change waiting for the server (immutable).
+     */
+    public static final class Change {
+        private final long seq;
+        private final long appointmentId;
+        private final Appointment appointment; // null for a delete
+
+        Change(long seq, long appointmentId, Appointment appointment) {
+            this.seq = seq;
+            this.appointmentId = appointmentId;
+            this.appointment = appointment;
+        }
+
+        public static Change put(long seq, Appointment appointment) {
+            return new Change(seq, appointment.getId(), appointment);
+        }
+
+        public static Change delete(long seq, long appointmentId) {
+            return new Change(seq, appointmentId, null);
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public long getAppointmentId() {
+            return appointmentId;
+        }
+
+        public boolean isDelete() {
+            return appointment == null;
+        }
+
+        /**
+         * The booked appointment (put only).
+         */
+        public Appointment getAppointment() {
+            return appointment;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{#" + seq + (isDelete() ? " delete " + appointmentId : " put " + appointment) + "}";
+        }
+    }
+
+    private final File file;
+    private final DataCipher cipher;
+    private final boolean durable;
+    private final Map<Long, Change> pending = new LinkedHashMap<>(); // by appointment id, oldest first
+    private String deviceId;
+    private boolean created;
+    private long highestSeq;
+    private int recordCount;
+
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+
+    private SyncOutbox(File file, DataCipher cipher, boolean durable) {
+        this.file = file;
+        this.cipher = cipher;
+        this.durable = durable;
+    }
+
+    /**
+     * Open (or create) the outbox file and load the pending changes.
+     *
+     * @param durable fsync every change; tests may pass false
+     */
+    public static SyncOutbox open(File file, DataCipher cipher, boolean durable) throws IOException {
+        SyncOutbox outbox = new SyncOutbox(file, cipher, durable);
+        outbox.load();
+        return outbox;
+    }
+
+    // ================================
+    // WRITES
+    // ================================
+
+    public void recordPut(Appointment appointment) throws IOException {
+        append(Change.put(++highestSeq, appointment));
+    }
+
+    public void recordDelete(long appointmentId) throws IOException {
+        append(Change.delete(++highestSeq, appointmentId));
+    }
+
+    /**
+     * The server applied these changes: forget them (unless a newer change of the same
+     * appointment was recorded since, that one stays pending).
+     */
+    public void acknowledge(Collection<Change> changes) throws IOException {
+        boolean wrote = false;
+        for (Change change : changes) {
+            Change current = pending.get(change.getAppointmentId());
+            if (current != null && current.getSeq() == change.getSeq()) {
+                pending.remove(change.getAppointmentId());
+                out.writeByte(OP_ACK);
+                out.writeLong(change.getSeq());
+                out.writeLong(change.getAppointmentId());
+                recordCount++;
+                wrote = true;
+            }
+        }
+        if (wrote) {
+            commit();
+            if (recordCount >= COMPACT_MIN_RECORDS && recordCount > 2 * pending.size()) {
+                rewrite();
+            }
+        }
+    }
+
+    // ================================
+    // QUERIES
+    // ================================
+
+    /**
+     * The oldest pending changes, at most "max".
+     */
+    public List<Change> pending(int max) {
+        List<Change> batch = new ArrayList<>(Math.min(max, pending.size()));
+        for (Change change : pending.values()) {
+            if (batch.size() == max) {
+                break;
+            }
+            batch.add(change);
+        }
+        return batch;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * True if the file did not exist before open() (nothing of this device was ever queued).
+     */
+    public boolean wasCreated() {
+        return created;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private void append(Change change) throws IOException {
+        writeChange(out, change);
+        commit();
+        recordCount++;
+        // Re-inserted at the end: the oldest pending change is always sent first
+        pending.remove(change.getAppointmentId());
+        pending.put(change.getAppointmentId(), change);
+    }
+
+    private void commit() throws IOException {
+        out.flush();
+        if (durable) {
+            fileOut.getFD().sync();
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            created = true;
+            deviceId = UUID.randomUUID().toString();
+            rewrite();
+            return;
+        }
+
+        byte[] bytes = readFully(file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int version = in.readInt() == MAGIC ? in.readInt() : -1;
+        if (version != VERSION && version != PLAIN_VERSION) {
+            throw new IOException("Not a sync outbox: " + file);
+        }
+        deviceId = in.readUTF();
+
+        long validLength = bytes.length - in.available();
+        try {
+            while (in.available() > 0) {
+                byte op = in.readByte();
+                if (op == OP_PUT) {
+                    long seq = in.readLong();
+                    long id = in.readLong();
+                    DataInputStream fields = in;
+                    if (version == VERSION) {
+                        int length = in.readInt();
+                        if (length < 0) {
+                            break; // garbage after a crash
+                        }
+                        byte[] sealed = new byte[length];
+                        in.readFully(sealed);
+                        fields = new DataInputStream(new ByteArrayInputStream(cipher.open(sealed, context(id, seq))));
+                    }
+                    long start = fields.readLong();
+                    boolean custom = fields.readBoolean();
+                    String user = fields.readUTF();
+                    String doctor = fields.readUTF();
+                    Appointment appointment = new Appointment(id, user, doctor, start, custom);
+                    pending.remove(appointment.getId());
+                    pending.put(appointment.getId(), Change.put(seq, appointment));
+                    highestSeq = Math.max(highestSeq, seq);
+                } else if (op == OP_DELETE) {
+                    long seq = in.readLong();
+                    long id = in.readLong();
+                    pending.remove(id);
+                    pending.put(id, Change.delete(seq, id));
+                    highestSeq = Math.max(highestSeq, seq);
+                } else if (op == OP_ACK) {
+                    long seq = in.readLong();
+                    long id = in.readLong();
+                    Change current = pending.get(id);
+                    if (current != null && current.getSeq() == seq) {
+                        pending.remove(id);
+                    }
+                } else if (op == OP_SEQ_MARK) {
+                    highestSeq = Math.max(highestSeq, in.readLong());
+                } else {
+                    break; // garbage after a crash
+                }
+                recordCount++;
+                validLength = bytes.length - in.available();
+            }
+        } catch (EOFException e) {
+            // Record cut in half by a crash: ignore it
+        }
+
+        if (version == PLAIN_VERSION) {
+            rewrite(); // Replaced by a sealed copy
+            return;
+        }
+        if (validLength < bytes.length) {
+            truncate(validLength);
+        }
+        openForAppend();
+    }
+
+    private void rewrite() throws IOException {
+        close();
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream tmpOut = new FileOutputStream(tmp);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(tmpOut));
+        try {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeUTF(deviceId);
+            data.writeByte(OP_SEQ_MARK);
+            data.writeLong(highestSeq);
+            for (Change change : pending.values()) {
+                writeChange(data, change);
+            }
+            data.flush();
+            tmpOut.getFD().sync();
+        } finally {
+            data.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        recordCount = pending.size() + 1;
+        openForAppend();
+    }
+
+    private void openForAppend() throws IOException {
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+
+    private void truncate(long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void writeChange(DataOutputStream data, Change change) throws IOException {
+        if (change.isDelete()) {
+            data.writeByte(OP_DELETE);
+            data.writeLong(change.getSeq());
+            data.writeLong(change.getAppointmentId());
+            return;
+        }
+        Appointment appointment = change.getAppointment();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream fields = new DataOutputStream(bytes);
+        fields.writeLong(appointment.getStartMillis());
+        fields.writeBoolean(appointment.isCustomTime());
+        fields.writeUTF(appointment.getUserEmail());
+        fields.writeUTF(appointment.getDoctorName());
+        byte[] sealed = cipher.seal(bytes.toByteArray(), context(appointment.getId(), change.getSeq()));
+
+        data.writeByte(OP_PUT);
+        data.writeLong(change.getSeq());
+        data.writeLong(appointment.getId());
+        data.writeInt(sealed.length);
+        data.write(sealed);
+    }
+
+    // A sealed PUT only opens as this change of this appointment
+    private static String context(long appointmentId, long seq) {
+        return "outbox#" + appointmentId + "#" + seq;
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+}
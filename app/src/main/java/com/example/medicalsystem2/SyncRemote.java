@@ -0,0 +1,22 @@
+package com.example.medicalsystem2;
+
+import java.io.IOException;
+
+/**
+ * SYNC REMOTE - The server the appointment changes are uploaded to (pluggable).
+ *
+ * One call = one request on the network. Both bodies are SyncCodec batches
+ * (gzip-compressed); the remote does not need to understand them.
+ *
+ * - HttpSyncRemote: POST to the sync endpoint (the app)
+ * - Tests: an in-process fake server, with simulated flaky connectivity
+ */
+public interface SyncRemote {
+
+    /**
+     * Send one request and return the server's response.
+     *
+     * @throws IOException network error, timeout or server error (the batch is retried)
+     */
+    byte[] send(byte[] request) throws IOException;
+}
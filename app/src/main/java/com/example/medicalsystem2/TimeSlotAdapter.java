@@ -0,0 +1,100 @@
+package com.example.medicalsystem2;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Locale;
+
+/**
+ * TIME SLOT ADAPTER - Free slots of the picked day (time_slot_item.xml), one can be selected.
+ *
+ * The slots come from SlotEngine as start minutes (600 = 10:00). The selected slot uses
+ * the selected_time_slot background with white text.
+ */
+public class TimeSlotAdapter extends RecyclerView.Adapter<TimeSlotAdapter.ViewHolder> {
+
+    /**
+     * Called when the user taps a slot.
+     */
+    public interface OnSlotSelectedListener {
+        void onSlotSelected(int startMinute);
+    }
+
+    private final OnSlotSelectedListener listener;
+    private int[] startMinutes = new int[0];
+    private int selectedPosition = RecyclerView.NO_POSITION;
+
+    public TimeSlotAdapter(OnSlotSelectedListener listener) {
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Show the free slots of another day (nothing selected).
+     */
+    public void setSlots(int[] startMinutes) {
+        this.startMinutes = startMinutes;
+        this.selectedPosition = RecyclerView.NO_POSITION;
+        notifyDataSetChanged(); // whole new day: every item changes
+    }
+
+    public static String format(int startMinute) {
+        return String.format(Locale.getDefault(), "%02d:%02d", startMinute / 60, startMinute % 60);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return startMinutes[position];
+    }
+
+    @Override
+    public int getItemCount() {
+        return startMinutes.length;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        TextView slot = (TextView) LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.time_slot_item, parent, false);
+        ViewHolder holder = new ViewHolder(slot);
+        slot.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            // Only the old and the new selection are redrawn
+            int previous = selectedPosition;
+            selectedPosition = position;
+            if (previous != RecyclerView.NO_POSITION) {
+                notifyItemChanged(previous);
+            }
+            notifyItemChanged(position);
+            listener.onSlotSelected(startMinutes[position]);
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.time.setText(format(startMinutes[position]));
+        boolean selected = position == selectedPosition;
+        holder.time.setBackgroundResource(selected ? R.drawable.selected_time_slot : R.drawable.time_slot_border);
+        holder.time.setTextColor(ContextCompat.getColor(holder.time.getContext(),
+                selected ? R.color.white : R.color.black));
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView time;
+
+        ViewHolder(TextView time) {
+            super(time);
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.medicalsystem2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TIMER WHEEL - Hierarchical hashed timer wheel for large numbers of reminders.
+ *
+ * A PriorityQueue costs O(log n) per insert and O(n) per cancel. Here:
+ * - schedule() and cancel() are O(1): a timer is linked into one slot of one level
+ * - advanceTo() expires timers in batches, one slot at a time; timers in the higher
+ *   levels are moved down ("cascaded") when the lower level wraps around
+ * - empty stretches are skipped, so sleeping for days costs at most 64 steps per level
+ * - nextDeadline() gives the exact earliest deadline, the only one that needs a
+ *   platform alarm (AlarmManager)
+ *
+ * Layout: LEVELS levels of 64 slots. Level L holds timers due within 64^(L+1) ticks,
+ * so with 1 s ticks: level 0 = 64 s, level 1 = 68 min, level 2 = 72 h, level 3 = 194 days,
+ * level 4 = 34 years. Anything further goes to an overflow list.
+ *
+ * Deadlines are rounded UP to the next tick: a timer never fires early.
+ * Not thread-safe: the owner (AppointmentEngine) synchronizes.
+ *
+ * @param <T> payload handed back when a timer expires
+ */
+public final class TimerWheel<T> {
+
+    public static final long NO_DEADLINE = -1L;
+
+    private static final int LEVELS = 5;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS; // 64
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    // Where a timer currently is
+    private static final int NOWHERE = -1;
+    private static final int DUE = LEVELS;          // already expired, waiting for advanceTo()
+    private static final int OVERFLOW = LEVELS + 1;  // beyond the top level
+
+    /**
+     * One scheduled timer (also the handle used to cancel it).
+     */
+    public static final class Timer<T> {
+        private final long deadlineMillis;
+        private final long tick;
+        private final T payload;
+
+        private Timer<T> prev;
+        private Timer<T> next;
+        private int level = NOWHERE;
+        private int slot;
+
+        private Timer(long deadlineMillis, long tick, T payload) {
+            this.deadlineMillis = deadlineMillis;
+            this.tick = tick;
+            this.payload = payload;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public boolean isScheduled() {
+            return level != NOWHERE;
+        }
+    }
+
+    /**
+     * Receives the payload of every expired timer, in deadline order per tick.
+     */
+    public interface ExpiryListener<T> {
+        void onExpired(T payload);
+    }
+
+    private final long tickMillis;
+    private final long originMillis;
+
+    // heads[level * SLOTS + slot] = first timer of that slot's doubly linked list
+    private final Timer<T>[] heads;
+    private final int[] levelCounts = new int[LEVELS];
+    private Timer<T> dueHead;
+    private Timer<T> overflowHead;
+
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be > 0");
+        }
+        this.tickMillis = tickMillis;
+        this.originMillis = startMillis;
+        this.heads = (Timer<T>[]) new Timer[LEVELS * SLOTS];
+        this.currentTick = 0;
+    }
+
+    // ================================
+    // PUBLIC API
+    // ================================
+
+    /**
+     * Schedule a timer. O(1).
+     */
+    public Timer<T> schedule(long deadlineMillis, T payload) {
+        Timer<T> timer = new Timer<>(deadlineMillis, ceilTick(deadlineMillis), payload);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Cancel a timer. O(1).
+     *
+     * @return false if it already expired or was cancelled
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer == null || !timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Move time forward and expire every timer whose deadline is at or before nowMillis.
+     * Time never goes back: an earlier nowMillis only expires the already-due timers.
+     *
+     * @return number of expired timers
+     */
+    public int advanceTo(long nowMillis, ExpiryListener<T> listener) {
+        long targetTick = Math.floorDiv(nowMillis - originMillis, tickMillis);
+        int expired = expireDue(listener);
+
+        while (currentTick < targetTick) {
+            int lowest = lowestNonEmptyLevel();
+            if (lowest == 0) {
+                currentTick++;
+            } else if (lowest < LEVELS) {
+                // Levels below "lowest" are empty: nothing can expire before its next slot boundary
+                long boundary = ((currentTick >> (SLOT_BITS * lowest)) + 1) << (SLOT_BITS * lowest);
+                if (boundary > targetTick) {
+                    currentTick = targetTick;
+                    break;
+                }
+                currentTick = boundary;
+            } else {
+                // Only overflow timers (or none): jump straight to the target
+                currentTick = targetTick;
+                reinsertOverflow();
+                expired += expireDue(listener);
+                continue;
+            }
+
+            cascade(currentTick);
+            expired += expireSlot(0, (int) (currentTick & SLOT_MASK), listener);
+            expired += expireDue(listener);
+        }
+        return expired;
+    }
+
+    /**
+     * Exact earliest deadline (rounded up to the tick), or NO_DEADLINE if empty.
+     * Scans at most 64 slots per level, and only the slots that can beat the lower levels.
+     */
+    public long nextDeadline() {
+        if (size == 0) {
+            return NO_DEADLINE;
+        }
+        if (dueHead != null) {
+            return tickToMillis(currentTick);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            if (levelCounts[level] == 0) {
+                continue;
+            }
+            int shift = SLOT_BITS * level;
+            int currentIndex = (int) ((currentTick >> shift) & SLOT_MASK);
+            // Slots after the current one are in time order, the current one (a full lap ahead) is last
+            for (int step = 1; step <= SLOTS; step++) {
+                // Every timer of this slot is due at or after the slot's first tick:
+                // if a lower level already has something earlier, skip the (possibly long) list
+                long slotStart = ((currentTick >> shift) + step) << shift;
+                if (slotStart >= best) {
+                    break;
+                }
+                Timer<T> timer = heads[level * SLOTS + ((currentIndex + step) & SLOT_MASK)];
+                if (timer != null) {
+                    for (; timer != null; timer = timer.next) {
+                        best = Math.min(best, timer.tick);
+                    }
+                    break;
+                }
+            }
+        }
+        for (Timer<T> timer = overflowHead; timer != null; timer = timer.next) {
+            best = Math.min(best, timer.tick);
+        }
+        return best == Long.MAX_VALUE ? NO_DEADLINE : tickToMillis(best);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private void place(Timer<T> timer) {
+        long delta = timer.tick - currentTick;
+        if (delta <= 0) {
+            timer.next = dueHead;
+            timer.prev = null;
+            if (dueHead != null) {
+                dueHead.prev = timer;
+            }
+            dueHead = timer;
+            timer.level = DUE;
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+                int slot = (int) ((timer.tick >> (SLOT_BITS * level)) & SLOT_MASK);
+                int index = level * SLOTS + slot;
+                timer.next = heads[index];
+                timer.prev = null;
+                if (heads[index] != null) {
+                    heads[index].prev = timer;
+                }
+                heads[index] = timer;
+                timer.level = level;
+                timer.slot = slot;
+                levelCounts[level]++;
+                return;
+            }
+        }
+        timer.next = overflowHead;
+        timer.prev = null;
+        if (overflowHead != null) {
+            overflowHead.prev = timer;
+        }
+        overflowHead = timer;
+        timer.level = OVERFLOW;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else if (timer.level == DUE) {
+            dueHead = timer.next;
+        } else if (timer.level == OVERFLOW) {
+            overflowHead = timer.next;
+        } else {
+            heads[timer.level * SLOTS + timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        if (timer.level < LEVELS) {
+            levelCounts[timer.level]--;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = NOWHERE;
+    }
+
+    /**
+     * At tick t, every level whose lower level just wrapped moves its current slot down.
+     */
+    private void cascade(long tick) {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((tick >> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+                return;
+            }
+            int slot = (int) ((tick >> (SLOT_BITS * level)) & SLOT_MASK);
+            Timer<T> timer = detachSlot(level, slot);
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                place(timer);
+                timer = next;
+            }
+        }
+        // Top level wrapped too
+        reinsertOverflow();
+    }
+
+    private Timer<T> detachSlot(int level, int slot) {
+        int index = level * SLOTS + slot;
+        Timer<T> head = heads[index];
+        heads[index] = null;
+        for (Timer<T> timer = head; timer != null; timer = timer.next) {
+            timer.level = NOWHERE;
+            levelCounts[level]--;
+        }
+        return head;
+    }
+
+    private void reinsertOverflow() {
+        Timer<T> timer = overflowHead;
+        overflowHead = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.level = NOWHERE;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private int expireSlot(int level, int slot, ExpiryListener<T> listener) {
+        Timer<T> timer = detachSlot(level, slot);
+        return expireList(timer, listener);
+    }
+
+    private int expireDue(ExpiryListener<T> listener) {
+        Timer<T> timer = dueHead;
+        dueHead = null;
+        for (Timer<T> t = timer; t != null; t = t.next) {
+            t.level = NOWHERE;
+        }
+        return expireList(timer, listener);
+    }
+
+    private int expireList(Timer<T> head, ExpiryListener<T> listener) {
+        if (head == null) {
+            return 0;
+        }
+        // Same tick: hand them out in deadline order
+        List<Timer<T>> batch = new ArrayList<>();
+        for (Timer<T> timer = head; timer != null; timer = timer.next) {
+            batch.add(timer);
+        }
+        if (batch.size() > 1) {
+            batch.sort((a, b) -> Long.compare(a.deadlineMillis, b.deadlineMillis));
+        }
+        for (Timer<T> timer : batch) {
+            timer.prev = null;
+            timer.next = null;
+            size--;
+            listener.onExpired(timer.payload);
+        }
+        return batch.size();
+    }
+
+    private int lowestNonEmptyLevel() {
+        for (int level = 0; level < LEVELS; level++) {
+            if (levelCounts[level] > 0) {
+                return level;
+            }
+        }
+        return LEVELS;
+    }
+
+    private long ceilTick(long millis) {
+        return -Math.floorDiv(originMillis - millis, tickMillis);
+    }
+
+    private long tickToMillis(long tick) {
+        return originMillis + tick * tickMillis;
+    }
+}
@@ -1,11 +1,9 @@
 package com.example.medicalsystem2;
 
 import android.app.DatePickerDialog;
-import android.app.TimePickerDialog;
+import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -13,14 +11,23 @@ import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.util.Consumer;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -28,17 +35,30 @@ import java.util.Locale;
  * Purpose: Allows users to book doctor appointments by selecting custom date and time
  * Features:
  * - User selects date (prevents past dates and Sundays)
- * - User selects time
- * - Appointment is saved to SharedPreferences
- * - Triggers reminder service and availability service
+ * - User selects one of the doctor's free slots that day (SlotEngine: working hours
+ *   minus existing bookings)
+ * - The slot is reserved by BookingService (never given to two patients), then the
+ *   appointment is saved to the AppointmentRepository (many appointments per user)
+ * - Reminders and the doctor's status follow the saved appointment (AppointmentEngine
+ *   listens to the repository: nothing is registered or started here)
  * - Returns appointment data to Home activity
  */
 public class appointment extends AppCompatActivity {
 
+    // Time from "Confirm" to the result being sent back to Home (see Metrics)
+    private static final Metrics.Timer CONFIRM_TIMER = Metrics.timer("appointment.confirm");
+
+    // Doctor chosen on Home (name); the default doctor if missing
+    public static final String EXTRA_DOCTOR_NAME = "doctor_name";
+
     // CLASS VARIABLES (Store appointment data)
 
     private TextView selectedDateTimeText;      // Shows selected date/time to user
     private MaterialButton customTimeButton;    // Button to open date/time picker
+    private RecyclerView timeSlotList;          // Free slots of the picked day
+    private TimeSlotAdapter timeSlotAdapter;    // Draws the slots (time_slot_item)
+    private MaterialButton confirmSlotButton;   // Books the selected slot
+    private LocalDate pickedDate;               // Day picked in the date picker
 
     private Calendar selectedCalendar;          // Stores the selected date and time
     private String selectedTimeSlot = "";       // Stores time as HH:mm format
@@ -87,6 +107,15 @@ public class appointment extends AppCompatActivity {
         // Find the button user clicks to select date/time
         customTimeButton = findViewById(R.id.customTimeButton);
 
+        // Grid of free slots (4 per row), filled once a date is picked
+        timeSlotList = findViewById(R.id.timeSlotList);
+        timeSlotList.setLayoutManager(new GridLayoutManager(this, 4));
+        timeSlotAdapter = new TimeSlotAdapter(this::onSlotSelected);
+        timeSlotList.setAdapter(timeSlotAdapter);
+
+        // Shown once a slot is selected
+        confirmSlotButton = findViewById(R.id.confirmSlotButton);
+
         // Initially hide the selected date/time text (show only after selection)
         if (selectedDateTimeText != null) {
             selectedDateTimeText.setVisibility(View.GONE);
@@ -121,6 +150,9 @@ public class appointment extends AppCompatActivity {
                 showCustomDateTimePicker();
             });
         }
+
+        // Book the selected slot
+        confirmSlotButton.setOnClickListener(v -> confirmAppointment());
     }
 
     /**
@@ -183,9 +215,9 @@ public class appointment extends AppCompatActivity {
                     }
 
                     // ═══════════════════════════════════════════════════════════════
-                    // VALIDATION PASSED: Show time picker
+                    // VALIDATION PASSED: Show the free slots of that day
                     // ═══════════════════════════════════════════════════════════════
-                    showTimePicker(selectedYear, selectedMonth, selectedDay);
+                    showFreeSlots(selectedYear, selectedMonth, selectedDay);
                 },
                 year, month, day
         );
@@ -198,67 +230,71 @@ public class appointment extends AppCompatActivity {
     }
 
     /**
-     * SHOW TIME PICKER
+     * SHOW FREE SLOTS
      *
-     * Purpose: Show time picker dialog after user selects date
-     * User selects the appointment time
+     * Purpose: Show the doctor's free slots for the picked date (SlotEngine)
+     * Working hours, existing bookings and slots already started are taken out
      *
      * Parameters:
-     * - year, month, day: Date selected by user (from date picker)
+     * - year, month, day: Date selected by user (from date picker, month is 0-based)
      */
-    private void showTimePicker(int year, int month, int day) {
-        // Get current time to use as default
-        Calendar calendar = Calendar.getInstance();
-        int hour = calendar.get(Calendar.HOUR_OF_DAY);
-        int minute = calendar.get(Calendar.MINUTE);
-
-        // Create and show time picker dialog
-        TimePickerDialog timePickerDialog = new TimePickerDialog(
-                this,
-                (view, selectedHour, selectedMinute) -> {
-                    // User selected time - process it
-
-                    // Format time as HH:mm (e.g., "10:30")
-                    selectedTimeSlot = String.format(Locale.getDefault(), "%02d:%02d", selectedHour, selectedMinute);
-
-                    // Mark that user chose custom time (not preset slots)
-                    isCustomTime = true;
-
-                    // ═══════════════════════════════════════════════════════════════
-                    // UPDATE CALENDAR WITH SELECTED TIME
-                    // ═══════════════════════════════════════════════════════════════
-                    // Now selectedCalendar has both date (from date picker) and time (from time picker)
-                    selectedCalendar.set(year, month, day, selectedHour, selectedMinute, 0);
+    private void showFreeSlots(int year, int month, int day) {
+        pickedDate = LocalDate.of(year, month + 1, day);
+        ZoneId zone = ZoneId.systemDefault();
+        long dayStart = pickedDate.atStartOfDay(zone).toInstant().toEpochMilli();
+        long dayEnd = pickedDate.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        // Only this day's appointments are needed (repository index by start time)
+        List<Appointment> bookings = AppointmentStorage.repository(this)
+                .range(dayStart - AppointmentTimeEngine.CONSULTATION_MILLIS, dayEnd);
+        // Free slots: clinic working hours, 30 minute slots, a booking keeps one consultation.
+        // Built for this pick, in the same zone as the day bounds (the user may have travelled)
+        SlotEngine slotEngine = new SlotEngine(SlotEngine.WorkingHours.clinicDefault(), zone,
+                AppointmentTimeEngine.CONSULTATION_MILLIS);
+        SlotEngine.Availability availability = slotEngine.compute(
+                pickedDate, 1, bookings, doctorName(), System.currentTimeMillis());
+        int[] freeSlots = availability.freeStartMinutes(0);
+
+        // Nothing selected yet on the new day
+        selectedTimeSlot = "";
+        selectedDateTimeText.setVisibility(View.GONE);
+        confirmSlotButton.setVisibility(View.GONE);
+
+        if (freeSlots.length == 0) {
+            timeSlotList.setVisibility(View.GONE);
+            Toast.makeText(this, "No free slots on this day, please pick another date", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        timeSlotAdapter.setSlots(freeSlots);
+        timeSlotList.setVisibility(View.VISIBLE);
+    }
 
-                    // ═══════════════════════════════════════════════════════════════
-                    // SHOW SELECTED DATE/TIME TO USER
-                    // ═══════════════════════════════════════════════════════════════
-                    if (selectedDateTimeText != null) {
-                        // Format: "Selected: Mon, Jan 15, 2024 at 10:30"
-                        SimpleDateFormat sdf = new SimpleDateFormat("EEE, MMM dd, yyyy", Locale.getDefault());
-                        String dateString = "Selected: " + sdf.format(selectedCalendar.getTime()) + " at " + selectedTimeSlot;
-
-                        // Display the formatted text
-                        selectedDateTimeText.setText(dateString);
-                        selectedDateTimeText.setVisibility(View.VISIBLE);
-                    }
+    /**
+     * ON SLOT SELECTED
+     *
+     * Purpose: Remember the tapped slot and let the user confirm it
+     */
+    private void onSlotSelected(int startMinute) {
+        // Format time as HH:mm (e.g., "10:30")
+        selectedTimeSlot = TimeSlotAdapter.format(startMinute);
 
-                    // Show confirmation toast
-                    Toast.makeText(this, "Custom time selected: " + selectedTimeSlot, Toast.LENGTH_SHORT).show();
+        // Preset slot, not a free time
+        isCustomTime = false;
 
-                    // ═══════════════════════════════════════════════════════════════
-                    // AUTO-CONFIRM APPOINTMENT
-                    // ═══════════════════════════════════════════════════════════════
-                    // After user selects time, automatically confirm the appointment
-                    confirmAppointment();
-                },
-                hour,
-                minute,
-                true // Use 24-hour format (10:30 instead of 10:30 AM)
-        );
+        // Now selectedCalendar has both date (from date picker) and time (from the slot)
+        selectedCalendar = Calendar.getInstance();
+        selectedCalendar.set(pickedDate.getYear(), pickedDate.getMonthValue() - 1, pickedDate.getDayOfMonth(),
+                startMinute / 60, startMinute % 60, 0);
+        selectedCalendar.set(Calendar.MILLISECOND, 0);
 
-        // Display the time picker dialog
-        timePickerDialog.show();
+        if (selectedDateTimeText != null) {
+            // Format: "Selected: Mon, Jan 15, 2024 at 10:30"
+            SimpleDateFormat sdf = new SimpleDateFormat("EEE, MMM dd, yyyy", Locale.getDefault());
+            String dateString = "Selected: " + sdf.format(selectedCalendar.getTime()) + " at " + selectedTimeSlot;
+            selectedDateTimeText.setText(dateString);
+            selectedDateTimeText.setVisibility(View.VISIBLE);
+        }
+        confirmSlotButton.setVisibility(View.VISIBLE);
     }
 
     /**
@@ -267,66 +303,24 @@ public class appointment extends AppCompatActivity {
      * Purpose: Save appointment and return to Home activity
      *
      * Steps:
-     * 1. Save appointment to SharedPreferences (local phone storage)
+     * 1. Save appointment to the AppointmentRepository (local phone storage)
      * 2. Prepare result data to send back to Home
-     * 3. Start AppointmentReminderService (notify user 1 min before)
-     * 4. Start DoctorAvailabilityService (update doctor's status)
-     * 5. Return to Home activity
+     * 3. Reminder + doctor status are handled by AppointmentEngine (no service to start)
+     * 4. Return to Home activity
      */
     private void confirmAppointment() {
+        long started = CONFIRM_TIMER.start();
         // Check if appointment data is valid
         if (selectedCalendar != null && !selectedTimeSlot.isEmpty()) {
 
             // ═══════════════════════════════════════════════════════════════
-            // STEP 1: SAVE APPOINTMENT TO SHARED PREFERENCES
-            // ═══════════════════════════════════════════════════════════════
-            // This saves the appointment locally on the phone
-            // Other parts of app can read this saved appointment
-            saveAppointmentToPreferences();
-
-            // ═══════════════════════════════════════════════════════════════
-            // STEP 2: PREPARE RESULT DATA FOR HOME ACTIVITY
-            // ═══════════════════════════════════════════════════════════════
-            // When appointment activity closes, send appointment data back to Home
-            Intent resultIntent = new Intent();
-
-            // Put formatted appointment date/time string
-            resultIntent.putExtra("appointment_datetime", getFormattedAppointmentDateTime());
-
-            // Put flag indicating custom time was selected
-            resultIntent.putExtra("is_custom_time", isCustomTime);
-
-            // Set success result
-            setResult(RESULT_OK, resultIntent);
-
-            // ═══════════════════════════════════════════════════════════════
-            // STEP 3: START REMINDER SERVICE
-            // ═══════════════════════════════════════════════════════════════
-            // AppointmentReminderService will:
-            // - Monitor the appointment time
-            // - Send notification 1 minute before appointment
-            // - Play ringtone and vibrate phone
-            startReminderService();
-
-            // ═══════════════════════════════════════════════════════════════
-            // STEP 4: START AVAILABILITY SERVICE
+            // STEP 1: BOOK THE SLOT (BookingService, on the appointment IO thread)
             // ═══════════════════════════════════════════════════════════════
-            // DoctorAvailabilityService will:
-            // - Monitor when appointment starts
-            // - Update doctor's status to "IN CONSULTATION"
-            // - Change doctor card color to red (red = busy)
-            // - When appointment ends, change back to green (available)
-            startAvailabilityService();
-
-            // Show success message
-            Toast.makeText(this,
-                    "Appointment confirmed!\nYou'll receive a reminder 1 minute before!",
-                    Toast.LENGTH_LONG).show();
-
-            // ═══════════════════════════════════════════════════════════════
-            // STEP 5: CLOSE THIS ACTIVITY AND RETURN TO HOME
-            // ═══════════════════════════════════════════════════════════════
-            finish();
+            // The slot is reserved first (nobody else can get it), then the
+            // appointment is saved locally on the phone
+            // No second booking while this one runs (double tap)
+            confirmSlotButton.setEnabled(false);
+            bookAppointment(result -> onBookingDone(result, started));
         } else {
             // If validation fails (no date/time selected)
             Toast.makeText(this, "Please select a date and time", Toast.LENGTH_SHORT).show();
@@ -334,129 +328,147 @@ public class appointment extends AppCompatActivity {
     }
 
     /**
-     * GET FORMATTED APPOINTMENT DATE TIME
-     *
-     * Purpose: Format the appointment date/time in a user-friendly way
+     * ON BOOKING DONE
      *
-     * Format: "15-12-2024 at 10:30"
+     * Purpose: Close the screen once the slot is ours, or explain why it is not
      *
-     * Returns: String with formatted date and time
+     * Parameters:
+     * - result: BookingService result, null if the appointment could not be saved
      */
-    private String getFormattedAppointmentDateTime() {
-        // Create date formatter with desired format
-        SimpleDateFormat displaySdf = new SimpleDateFormat("dd-MM-yyyy 'at' HH:mm", Locale.getDefault());
+    private void onBookingDone(BookingService.Result result, long started) {
+        if (isFinishing() || isDestroyed()) {
+            return; // User left while booking
+        }
+        confirmSlotButton.setEnabled(true);
 
-        // Format the selected calendar to string
-        String dateString = displaySdf.format(selectedCalendar.getTime());
+        if (result == null) {
+            Toast.makeText(this, "Could not save appointment, please try again", Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (result.getStatus() == BookingService.Status.SLOT_TAKEN) {
+            // Someone booked this slot after the list was shown: show the fresh list
+            Toast.makeText(this, "This slot was just booked, please pick another one", Toast.LENGTH_LONG).show();
+            showFreeSlots(pickedDate.getYear(), pickedDate.getMonthValue() - 1, pickedDate.getDayOfMonth());
+            return;
+        }
+        if (result.getStatus() == BookingService.Status.TOO_MANY_CONFLICTS) {
+            Toast.makeText(this, "Many bookings for this doctor right now, please try again", Toast.LENGTH_LONG).show();
+            return;
+        }
 
-        return dateString;
-    }
+        // ═══════════════════════════════════════════════════════════════
+        // STEP 2: PREPARE RESULT DATA FOR HOME ACTIVITY
+        // ═══════════════════════════════════════════════════════════════
+        // When appointment activity closes, send appointment data back to Home
+        Intent resultIntent = new Intent();
 
-    /**
-     * SAVE APPOINTMENT TO PREFERENCES
-     *
-     * Purpose: Save appointment data to SharedPreferences (local phone storage)
-     *
-     * SharedPreferences is like a phone memory:
-     * - Saves small data locally
-     * - Data persists even after app closes
-     * - Other activities can read this data
-     *
-     * What we save:
-     * - "appointment_datetime": The appointment date/time (used by services)
-     * - "is_custom_time": Boolean flag (custom time vs preset slots)
-     */
-    private void saveAppointmentToPreferences() {
-        // Create date formatter with specific format (yyyy-MM-dd HH:mm)
-        // This format must match what services expect
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+        // Put formatted appointment date/time string
+        resultIntent.putExtra("appointment_datetime", getFormattedAppointmentDateTime());
+
+        // Put flag indicating custom time was selected
+        resultIntent.putExtra("is_custom_time", isCustomTime);
 
-        // Format selected calendar to string
-        String dateTimeStr = sdf.format(selectedCalendar.getTime());
+        // Set success result
+        setResult(RESULT_OK, resultIntent);
 
         // ═══════════════════════════════════════════════════════════════
-        // ACCESS SHARED PREFERENCES
+        // STEP 3: REMINDER + DOCTOR STATUS
         // ═══════════════════════════════════════════════════════════════
-        // Get SharedPreferences with name "AppointmentPrefs"
-        // MODE_PRIVATE = only this app can access
-        SharedPreferences prefs = getSharedPreferences("AppointmentPrefs", MODE_PRIVATE);
-
-        // Get editor to modify preferences
-        SharedPreferences.Editor editor = prefs.edit();
+        // Nothing to start: the repository tells AppointmentEngine about the new
+        // appointment, and the engine queues its events:
+        // - 24 h, 1 h and 10 min before: silent reminder notification
+        // - 1 minute before: AppointmentReminderService shows the notification,
+        //   plays the ringtone and vibrates the phone
+        // - At the start: doctor status "IN CONSULTATION" (doctor card turns red)
+        // - When it ends: back to "AVAILABLE" (green)
+
+        // Show success message
+        Toast.makeText(this,
+                "Appointment confirmed!\nYou'll receive reminders before it starts!",
+                Toast.LENGTH_LONG).show();
 
         // ═══════════════════════════════════════════════════════════════
-        // SAVE APPOINTMENT DATA
+        // STEP 4: CLOSE THIS ACTIVITY AND RETURN TO HOME
         // ═══════════════════════════════════════════════════════════════
-        // Save the appointment date/time string
-        editor.putString("appointment_datetime", dateTimeStr);
-
-        // Save whether custom time was used
-        editor.putBoolean("is_custom_time", isCustomTime);
-
-        // Apply changes (save to phone storage)
-        editor.apply();
-
-        // Log for debugging
-        Log.d("AppointmentActivity", "Saved appointment: " + dateTimeStr);
+        finish();
+        CONFIRM_TIMER.stop(started);
     }
 
     /**
-     * START REMINDER SERVICE
+     * GET FORMATTED APPOINTMENT DATE TIME
      *
-     * Purpose: Start the AppointmentReminderService
+     * Purpose: Format the appointment date/time in a user-friendly way
      *
-     * This is an UNBOUNDED SERVICE that:
-     * - Runs in background independently
-     * - Monitors appointment time
-     * - Sends notification 1 minute before appointment
-     * - Plays ringtone and vibrates phone
+     * Format: "15-12-2024 at 10:30"
      *
-     * It's UNBOUNDED because:
-     * - Returns null in onBind()
-     * - No direct connection to activity
-     * - Runs independently
-     * - Communication via notifications
+     * Returns: String with formatted date and time
      */
-    private void startReminderService() {
-        // Create intent to start AppointmentReminderService
-        Intent serviceIntent = new Intent(this, AppointmentReminderService.class);
+    private String getFormattedAppointmentDateTime() {
+        // Create date formatter with desired format
+        SimpleDateFormat displaySdf = new SimpleDateFormat("dd-MM-yyyy 'at' HH:mm", Locale.getDefault());
 
-        // Start the service (unbounded - runs independently)
-        startService(serviceIntent);
+        // Format the selected calendar to string
+        String dateString = displaySdf.format(selectedCalendar.getTime());
 
-        // Log for debugging
-        Log.d("AppointmentActivity", "Reminder service started!");
+        return dateString;
+    }
+
+    private String doctorName() {
+        // Doctor picked on the Home card ("Book Now"), or the default one
+        String doctorName = getIntent().getStringExtra(EXTRA_DOCTOR_NAME);
+        return doctorName != null && !doctorName.isEmpty() ? doctorName : AppointmentStorage.DEFAULT_DOCTOR;
     }
 
     /**
-     * START AVAILABILITY SERVICE
+     * BOOK APPOINTMENT
      *
-     * Purpose: Start the DoctorAvailabilityService
+     * Purpose: Book the selected slot through the BookingService
      *
-     * This is an UNBOUNDED SERVICE that:
-     * - Runs in background independently
-     * - Monitors appointment time
-     * - Updates doctor's availability status
-     * - Sends broadcasts when status changes
+     * The booking service reserves the doctor slot (optimistic concurrency: if another
+     * booking of the same doctor and day wins the race, it re-reads and tries again),
+     * then adds the appointment to the AppointmentRepository (local phone storage):
+     * - Booking a second appointment no longer overwrites the first one
+     * - Data persists even after app closes (SQLite: databases/appointments.db, encrypted)
+     * - Services and Home read the same repository
      *
-     * Status updates:
-     * - AVAILABLE (before and after appointment) = Green dot
-     * - IN CONSULTATION (during appointment) = Red dot
+     * What we save:
+     * - user email (signed-in Firebase user), doctor name
+     * - start time in epoch millis
+     * - custom time flag (custom time vs preset slots)
      *
-     * It's UNBOUNDED because:
-     * - Returns null in onBind()
-     * - No direct connection to activity
-     * - Communication via Broadcast
+     * The result (null if the appointment could not be saved) is delivered on the main thread.
      */
-    private void startAvailabilityService() {
-        // Create intent to start DoctorAvailabilityService
-        Intent serviceIntent = new Intent(this, DoctorAvailabilityService.class);
-
-        // Start the service (unbounded - runs independently)
-        startService(serviceIntent);
-
-        // Log for debugging
-        Log.d("AppointmentActivity", "Availability service started!");
+    private void bookAppointment(Consumer<BookingService.Result> onDone) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        String userEmail = user != null && user.getEmail() != null ? user.getEmail() : "";
+        String doctor = doctorName();
+        boolean customTime = isCustomTime;
+
+        // Picked date + time -> epoch millis (seconds and millis are 0), via the time engine
+        long startMillis = AppointmentTimeEngine.toEpochMillis(
+                selectedCalendar.get(Calendar.YEAR),
+                selectedCalendar.get(Calendar.MONTH) + 1, // Calendar months are 0-based
+                selectedCalendar.get(Calendar.DAY_OF_MONTH),
+                selectedCalendar.get(Calendar.HOUR_OF_DAY),
+                selectedCalendar.get(Calendar.MINUTE),
+                ZoneId.systemDefault());
+
+        Context appContext = getApplicationContext();
+        AppointmentStorage.execute(() -> {
+            BookingService.Result result = null;
+            try {
+                result = AppointmentStorage.bookingService(appContext)
+                        .book(userEmail, doctor, startMillis, customTime);
+
+                // Log for debugging
+                AppLog.d("AppointmentActivity", "Booking: ", result);
+            } catch (IOException e) {
+                AppLog.e("AppointmentActivity", "Error saving appointment: " + e.getMessage(), e);
+            }
+            BookingService.Result done = result;
+            // AppointmentEngine is notified by the repository and re-arms its alarms
+            MainThreadExecutor.INSTANCE.execute(() -> onDone.accept(done));
+        });
     }
 
     /**
@@ -0,0 +1,172 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the logging facade, and the allocation measurement
+ * of one status tick with logging off.
+ */
+public class AppLogTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final List<String> printed = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        AppLog.setSink((level, tag, message, error) -> printed.add(level + "/" + tag + ": " + message));
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.setSink(null);
+        AppLog.setMinLevel(AppLog.DEBUG);
+        AppLog.setEventRing(null);
+    }
+
+    @Test
+    public void levelBelowMinimumIsNotPrinted() {
+        AppLog.setMinLevel(AppLog.WARN);
+
+        AppLog.d("Tag", "hidden");
+        AppLog.d("Tag", "hidden: ", 42L);
+        AppLog.w("Tag", "shown");
+
+        assertEquals(1, printed.size());
+        assertEquals(AppLog.WARN + "/Tag: shown", printed.get(0));
+    }
+
+    @Test
+    public void labelAndValueAreJoinedOnlyWhenEnabled() {
+        AppLog.setMinLevel(AppLog.DEBUG);
+        AppLog.d("Tag", "minutes: ", 5L);
+        AppLog.d("Tag", "status: ", "Available");
+
+        assertEquals(AppLog.DEBUG + "/Tag: minutes: 5", printed.get(0));
+        assertEquals(AppLog.DEBUG + "/Tag: status: Available", printed.get(1));
+    }
+
+    @Test
+    public void supplierIsNotCalledWhenLevelIsOff() {
+        AppLog.setMinLevel(AppLog.ERROR);
+        int[] calls = new int[1];
+
+        AppLog.d("Tag", () -> {
+            calls[0]++;
+            return "expensive";
+        });
+
+        assertEquals(0, calls[0]);
+        assertTrue(printed.isEmpty());
+    }
+
+    @Test
+    public void runtimeLevelNeverGoesBelowCompiledFloor() {
+        AppLog.setMinLevel(0);
+
+        assertEquals(AppLog.COMPILED_MIN_LEVEL, AppLog.getMinLevel());
+    }
+
+    @Test
+    public void ringKeepsLastEventsEvenWhenPrintingIsOff() {
+        long[] now = {T0};
+        AppLog.EventRing ring = new AppLog.EventRing(3, () -> now[0]);
+        AppLog.setEventRing(ring);
+        AppLog.setMinLevel(AppLog.ERROR);
+
+        for (int i = 1; i <= 5; i++) {
+            now[0] = T0 + i * 1000L;
+            AppLog.event(AppLog.DEBUG, "Engine", "wakeup", i);
+        }
+
+        assertTrue(printed.isEmpty());
+        assertEquals(3, ring.size());
+        assertEquals(5, ring.getRecordedCount());
+
+        StringWriter out = new StringWriter();
+        AppLog.dump(new PrintWriter(out, true));
+        String dump = out.toString();
+        assertTrue(dump.startsWith("AppLog: last 3 of 5 events"));
+        assertFalse(dump.contains("wakeup=2"));
+        assertTrue(dump.indexOf("wakeup=3") < dump.indexOf("wakeup=4"));
+        assertTrue(dump.indexOf("wakeup=4") < dump.indexOf("wakeup=5"));
+        assertTrue(dump.contains(" D Engine wakeup=5"));
+    }
+
+    @Test
+    public void dumpWithoutRingSaysSo() {
+        StringWriter out = new StringWriter();
+        AppLog.dump(new PrintWriter(out, true));
+
+        assertTrue(out.toString().contains("disabled"));
+    }
+
+    /**
+     * Measurement: bytes allocated by the logging of one status tick
+     * (what Home / the alarm receiver / the alarm backend log per minute), level off.
+     */
+    @Test
+    public void statusTickAllocatesNothingWhenLoggingIsOff() {
+        AppLog.setMinLevel(AppLog.ERROR);
+        AppLog.setEventRing(new AppLog.EventRing(256, AppClock.SYSTEM));
+        String status = DoctorStatusMachine.STATUS_AVAILABLE;
+
+        // Warm up (class loading, JIT) before measuring
+        for (int i = 0; i < 20_000; i++) {
+            logOneTick(status, i);
+        }
+
+        final int ticks = 10_000;
+        long baseline = allocatedBytes();
+        long overhead = allocatedBytes() - baseline; // cost of the measurement itself
+        long before = allocatedBytes();
+        for (int i = 0; i < ticks; i++) {
+            logOneTick(status, i);
+        }
+        long allocated = allocatedBytes() - before - overhead;
+
+        // Same tick with DEBUG on, for comparison
+        AppLog.setMinLevel(AppLog.DEBUG);
+        long beforeOn = allocatedBytes();
+        for (int i = 0; i < ticks; i++) {
+            logOneTick(status, i);
+        }
+        long allocatedOn = allocatedBytes() - beforeOn;
+
+        System.out.println("[allocations/tick] logging off=" + (allocated / (double) ticks)
+                + " bytes, logging on=" + (allocatedOn / ticks) + " bytes");
+
+        // Less than a byte per tick: nothing per call (a JIT recompilation in the middle of
+        // the loop may allocate a few hundred bytes once in a full suite run)
+        assertTrue("logging off allocated " + allocated + " bytes", allocated < ticks);
+        assertEquals(6 * ticks, printed.size());
+    }
+
+    private static void logOneTick(String status, long minutes) {
+        AppLog.d("HomeActivity", "📱 Updating UI with bounded service status: ", status);
+        AppLog.d("HomeActivity", "Minutes: ", minutes);
+        AppLog.d("HomeActivity", "Status updated to AVAILABLE (GREEN)");
+        AppLog.d("AppointmentAlarm", () -> "non-capturing supplier");
+        AppLog.event(AppLog.DEBUG, "AppointmentAlarm", "engine_wakeup", minutes);
+        AppLog.event(AppLog.DEBUG, "AppointmentAlarm", "status_alarm_at", T0 + minutes);
+    }
+
+    // Bytes allocated by this thread so far (HotSpot only)
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests (and a 100k-row benchmark) for the encrypted SQLite appointment
+ * store, on sqlite-jdbc (JdbcSqlDatabase).
+ */
+public class AppointmentDatabaseTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+    private File file;
+    private SqlDatabase sql;
+    private AppointmentDatabase database;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("appointments", ".db");
+        file.delete();
+        sql = JdbcSqlDatabase.open(file);
+        database = AppointmentDatabase.open(sql, cipher);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        database.close();
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void repositoryOnTheDatabaseSurvivesReopen() throws IOException {
+        AppointmentRepository repository = AppointmentRepository.open(database, null, 0);
+        Appointment first = repository.add("a@x.com", "Dr. A", T0 + HOUR, false);
+        Appointment second = repository.add("b@x.com", "Dr. B", T0 + 2 * HOUR, true);
+        repository.remove(second.getId());
+        repository.close();
+
+        reopen();
+        repository = AppointmentRepository.open(database, null, 0);
+        assertEquals(1, repository.size());
+        assertEquals("Dr. A", repository.get(first.getId()).getDoctorName());
+        // The deleted id is never handed out again
+        assertTrue(repository.add("c@x.com", "Dr. C", T0, false).getId() > second.getId());
+    }
+
+    @Test
+    public void writeBehindBatchIsOneTransaction() throws Exception {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AppointmentRepository repository = AppointmentRepository.open(database, writer, 10_000);
+            for (int i = 0; i < 50; i++) {
+                repository.add("a@x.com", "Dr. A", T0 + i * HOUR, false);
+            }
+            writer.submit(() -> {
+                repository.flush();
+                return null;
+            }).get();
+
+            assertEquals(1, repository.getFlushCount());
+            assertEquals(50, database.load().size());
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void nothingReadableIsLeftInTheFile() throws IOException {
+        database.appendPut(new Appointment(1, "patient@x.com", "Dr. Oncology", T0, true));
+        database.commit();
+        database.saveRecords(Arrays.asList(new MedicalRecord(1, "patient@x.com", MedicalRecord.KIND_LAB_RESULT,
+                "Tumor marker CA-125", "Elevated", T0, "ca125.pdf", "key", "application/pdf", 10)));
+        database.close();
+
+        String bytes = fileText();
+        for (String secret : new String[]{"patient@x.com", "Dr. Oncology", "CA-125", "ca125.pdf"}) {
+            assertFalse(secret, bytes.contains(secret));
+        }
+        sql = JdbcSqlDatabase.open(file);
+        database = AppointmentDatabase.open(sql, cipher);
+        assertEquals("Dr. Oncology", database.load().get(1L).getDoctorName());
+    }
+
+    @Test(expected = IOException.class)
+    public void rowsDoNotOpenWithAnotherKey() throws IOException {
+        database.appendPut(new Appointment(1, "a@x.com", "Dr. A", T0, false));
+        database.commit();
+        database.close();
+
+        sql = JdbcSqlDatabase.open(file);
+        database = AppointmentDatabase.open(sql, new DataCipher(DataCipher.newKey()));
+        database.load();
+    }
+
+    @Test(expected = IOException.class)
+    public void rowMovedToAnotherIdIsRejected() throws IOException {
+        database.appendPut(new Appointment(1, "a@x.com", "Dr. A", T0, false));
+        database.appendPut(new Appointment(2, "b@x.com", "Dr. B", T0, false));
+        database.commit();
+        sql.execute("UPDATE appointments SET sealed = (SELECT sealed FROM appointments WHERE id = 1) WHERE id = 2");
+
+        database.load();
+    }
+
+    @Test
+    public void recordsArePagedByCursorNewestFirst() throws IOException {
+        List<MedicalRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 130; i++) {
+            // Pairs of records share a timestamp: the id breaks the tie
+            records.add(new MedicalRecord(i, "a@x.com", MedicalRecord.KIND_LAB_RESULT, "Test " + i, "",
+                    T0 + (i / 2) * HOUR, i % 10 == 0 ? "scan" + i + ".jpg" : "", i % 10 == 0 ? "key" + i : "",
+                    "image/jpeg", 1_000));
+        }
+        records.add(new MedicalRecord(500, "b@x.com", MedicalRecord.KIND_REPORT, "Other user", "", T0, "", "", "", 0));
+        database.saveRecords(records);
+
+        List<Long> ids = new ArrayList<>();
+        MedicalRecord cursor = null;
+        List<MedicalRecord> page;
+        do {
+            page = database.recordsAfter("a@x.com", cursor, 50);
+            for (MedicalRecord record : page) {
+                ids.add(record.getId());
+            }
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1);
+        } while (page.size() == 50);
+
+        assertEquals(130, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(130 - i, (long) ids.get(i));
+        }
+        assertEquals(130, database.recordCount("a@x.com"));
+        MedicalRecord newest = database.recordsAfter("a@x.com", null, 1).get(0);
+        assertEquals("scan130.jpg", newest.getAttachmentName());
+        assertEquals("key130", newest.getAttachmentKey());
+        assertTrue(queryPlan("SELECT id FROM records WHERE user_tag = 1 AND recorded_at < 5"
+                + " ORDER BY recorded_at DESC, id DESC").contains("records_user_time"));
+    }
+
+    @Test
+    public void rangesWalkTheUserAndDoctorIndexes() throws IOException {
+        database.appendPut(new Appointment(1, "a@x.com", "Dr. A", T0 + 2 * HOUR, false));
+        database.appendPut(new Appointment(2, "a@x.com", "Dr. B", T0, false));
+        database.appendPut(new Appointment(3, "b@x.com", "Dr. A", T0 + HOUR, false));
+        database.appendPut(new Appointment(4, "a@x.com", "Dr. A", T0 + DAY, false));
+        database.commit();
+
+        assertEquals(Arrays.asList(2L, 1L), ids(database.rangeForUser("a@x.com", T0, T0 + DAY)));
+        assertEquals(Arrays.asList(3L, 1L, 4L), ids(database.rangeForDoctor("Dr. A", T0, T0 + 2 * DAY)));
+        assertTrue(database.rangeForUser("c@x.com", T0, T0 + DAY).isEmpty());
+        assertTrue(queryPlan("SELECT id FROM appointments WHERE user_tag = 1 AND start_time >= 0"
+                + " AND start_time < 5 ORDER BY start_time, id").contains("appointments_user_start"));
+        assertTrue(queryPlan("SELECT id FROM appointments WHERE doctor_tag = 1 AND start_time >= 0"
+                + " AND start_time < 5 ORDER BY start_time, id").contains("appointments_doctor_start"));
+    }
+
+    @Test
+    public void remindersAreStored() throws IOException {
+        database.appendPut(new Appointment(1, "a@x.com", "Dr. A", T0, false));
+        database.commit();
+        database.recordReminder(1, HOUR, T0 - HOUR);
+        database.recordReminder(1, DAY, T0 - DAY);
+
+        assertEquals(Arrays.asList(DAY, HOUR), database.firedReminderOffsets(1));
+
+        database.appendDelete(1);
+        database.commit();
+        assertTrue(database.firedReminderOffsets(1).isEmpty());
+    }
+
+    /**
+     * Benchmark: insert throughput with 100,000 appointments, batched transactions vs
+     * one transaction per row, then the latency of range queries on the user and doctor
+     * indexes (every single query is a sample of the percentiles).
+     */
+    @Test
+    public void benchmark100kRows() throws IOException {
+        int rows = 100_000;
+        int batch = 1_000;
+        int users = 2_000;
+        int doctors = 50;
+        Random random = new Random(21);
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= rows; i++) {
+            database.appendPut(new Appointment(i, "user" + random.nextInt(users) + "@x.com",
+                    "Dr. " + random.nextInt(doctors), T0 + random.nextInt(365) * DAY + random.nextInt(20) * HOUR / 2,
+                    false));
+            if (i % batch == 0) {
+                database.commit();
+            }
+        }
+        database.commit();
+        double batchedPerSecond = rows / ((System.nanoTime() - start) / 1e9);
+
+        int single = 2_000;
+        start = System.nanoTime();
+        for (int i = 1; i <= single; i++) {
+            database.appendPut(new Appointment(rows + i, "user0@x.com", "Dr. 0", T0 - i * HOUR, false));
+            database.commit();
+        }
+        double singlePerSecond = single / ((System.nanoTime() - start) / 1e9);
+
+        // A user's month (about 4 rows) and a doctor's day (about 5 rows); the first run warms up
+        int queries = 2_000;
+        long[] userNanos = new long[queries];
+        long[] doctorNanos = new long[queries];
+        int found = 0;
+        for (int run = 0; run < 2; run++) {
+            for (int i = 0; i < queries; i++) {
+                long from = T0 + random.nextInt(335) * DAY;
+                start = System.nanoTime();
+                found += database.rangeForUser("user" + random.nextInt(users) + "@x.com", from, from + 30 * DAY).size();
+                userNanos[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                found += database.rangeForDoctor("Dr. " + random.nextInt(doctors), from, from + DAY).size();
+                doctorNanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(userNanos);
+        Arrays.sort(doctorNanos);
+
+        System.out.println(String.format(
+                "[sqlite 100k] insert: %.0f rows/s in %d-row transactions, %.0f rows/s one transaction per row"
+                        + " | user month p50=%dus p99=%dus | doctor day p50=%dus p99=%dus (%d rows)",
+                batchedPerSecond, batch, singlePerSecond,
+                userNanos[queries / 2] / 1000, userNanos[queries * 99 / 100] / 1000,
+                doctorNanos[queries / 2] / 1000, doctorNanos[queries * 99 / 100] / 1000, found));
+
+        assertEquals(rows + single, database.load().size());
+        assertTrue(batchedPerSecond > singlePerSecond);
+        assertTrue(found > 0);
+        // An indexed range answers well within a 16 ms frame
+        assertTrue(userNanos[queries * 99 / 100] < 16_000_000L);
+        assertTrue(doctorNanos[queries * 99 / 100] < 16_000_000L);
+    }
+
+    private void reopen() throws IOException {
+        database.close();
+        sql = JdbcSqlDatabase.open(file);
+        database = AppointmentDatabase.open(sql, cipher);
+    }
+
+    // The database file as text (to look for plain values in it)
+    private String fileText() throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+    }
+
+    private static List<Long> ids(List<Appointment> appointments) {
+        List<Long> ids = new ArrayList<>();
+        for (Appointment appointment : appointments) {
+            ids.add(appointment.getId());
+        }
+        return ids;
+    }
+
+    private String queryPlan(String query) throws IOException {
+        StringBuilder plan = new StringBuilder();
+        SqlDatabase.Rows rows = sql.query("EXPLAIN QUERY PLAN " + query);
+        try {
+            while (rows.next()) {
+                plan.append(rows.getString(3)).append('\n');
+            }
+        } finally {
+            rows.close();
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the unified appointment engine (event queue, alarms, dispatch)
+ * and the wakeup measurement against the old polling services.
+ */
+public class AppointmentEngineTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long T0 = 1_700_000_040_000L; // on a minute boundary
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+    private File file;
+    private AppointmentRepository repository;
+    private FakeClock clock;
+    private FakeAlarms alarms;
+    private RecordingActions actions;
+    private AppointmentEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("engine", ".db");
+        file.delete();
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+        clock = new FakeClock(T0);
+        alarms = new FakeAlarms();
+        actions = new RecordingActions();
+        actions.clock = clock;
+        engine = new AppointmentEngine(repository, clock, alarms, actions, new long[]{MINUTE});
+        repository.addChangeListener(engine);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        JdbcSqlDatabase.delete(file);
+    }
+
+    @Test
+    public void startPublishesStatusAndArmsNothingWhenEmpty() {
+        engine.start();
+
+        assertEquals(1, actions.statuses.size());
+        assertEquals(DoctorStatusMachine.STATUS_AVAILABLE, actions.statuses.get(0));
+        assertEquals(AppointmentEngine.NO_ALARM, alarms.reminderAt);
+        assertEquals(AppointmentEngine.NO_ALARM, alarms.statusAt);
+    }
+
+    @Test
+    public void bookingArmsReminderOneMinuteBeforeAndStatusAtStart() throws IOException {
+        engine.start();
+        repository.add("a@x.com", "Dr. A", T0 + 3 * HOUR, false);
+
+        assertEquals(T0 + 3 * HOUR - MINUTE, alarms.reminderAt);
+        assertEquals(T0 + 3 * HOUR, alarms.statusAt);
+    }
+
+    @Test
+    public void appointmentLessThanOneMinuteAwayRemindsImmediately() throws IOException {
+        engine.start();
+        Appointment soon = repository.add("a@x.com", "Dr. A", T0 + 30_000, false);
+
+        assertEquals(1, actions.reminders.size());
+        assertEquals(soon.getId(), actions.reminders.get(0).getId());
+        assertEquals(AppointmentEngine.NO_ALARM, alarms.reminderAt);
+        assertEquals(T0 + 30_000, alarms.statusAt);
+    }
+
+    @Test
+    public void removingTheAppointmentCancelsItsAlarms() throws IOException {
+        engine.start();
+        Appointment booked = repository.add("a@x.com", "Dr. A", T0 + HOUR, false);
+        repository.remove(booked.getId());
+
+        assertEquals(AppointmentEngine.NO_ALARM, alarms.reminderAt);
+        assertEquals(AppointmentEngine.NO_ALARM, alarms.statusAt);
+    }
+
+    @Test
+    public void fullLifecycleDispatchesEachEventOnce() throws IOException {
+        engine.start();
+        Appointment booked = repository.add("a@x.com", "Dr. A", T0 + HOUR, false);
+
+        alarms.fireNext(clock, engine); // reminder
+        assertEquals(1, actions.reminders.size());
+        assertEquals(booked.getId(), actions.reminders.get(0).getId());
+
+        alarms.fireNext(clock, engine); // consultation start
+        assertEquals(DoctorStatusMachine.STATUS_IN_CONSULTATION, engine.getDoctorStatus());
+
+        alarms.fireNext(clock, engine); // consultation end
+        assertEquals(DoctorStatusMachine.STATUS_AVAILABLE, engine.getDoctorStatus());
+
+        assertEquals(1, actions.reminders.size());
+        assertEquals(3, engine.getWakeupCount());
+        assertEquals(1, engine.getDispatchedCount(AppointmentEngine.EventType.REMINDER));
+        assertEquals(1, engine.getDispatchedCount(AppointmentEngine.EventType.CONSULTATION_START));
+        assertEquals(1, engine.getDispatchedCount(AppointmentEngine.EventType.CONSULTATION_END));
+        assertEquals(AppointmentEngine.NO_ALARM, alarms.reminderAt);
+        assertEquals(AppointmentEngine.NO_ALARM, alarms.statusAt);
+
+        // The appointment stays in the repository as history (nothing deletes it)
+        assertNotNull(repository.get(booked.getId()));
+    }
+
+    @Test
+    public void backToBackAppointmentsKeepTheirOwnReminders() throws IOException {
+        engine.start();
+        Appointment first = repository.add("a@x.com", "Dr. A", T0 + HOUR, false);
+        Appointment second = repository.add("b@x.com", "Dr. A", T0 + HOUR + MINUTE, false);
+
+        // Second reminder is due exactly when the first consultation starts
+        for (int i = 0; i < 4; i++) {
+            alarms.fireNext(clock, engine);
+        }
+
+        assertEquals(2, actions.reminders.size());
+        assertEquals(first.getId(), actions.reminders.get(0).getId());
+        assertEquals(second.getId(), actions.reminders.get(1).getId());
+        assertEquals(DoctorStatusMachine.STATUS_AVAILABLE, engine.getDoctorStatus());
+    }
+
+    @Test
+    public void rescheduleAfterClockChangeDoesNotRepeatReminder() throws IOException {
+        engine.start();
+        repository.add("a@x.com", "Dr. A", T0 + HOUR, false);
+        alarms.fireNext(clock, engine); // reminder at T0 + 59 min
+
+        clock.now -= 30 * MINUTE;         // user moves the clock back
+        engine.reschedule();
+        clock.now += 30 * MINUTE;
+        engine.onAlarm();
+
+        assertEquals(1, actions.reminders.size());
+    }
+
+    @Test
+    public void defaultOffsetsFireEveryReminderThatIsStillAhead() throws IOException {
+        AppointmentEngine multi = new AppointmentEngine(repository, clock, alarms, actions);
+        repository.removeChangeListener(engine);
+        repository.addChangeListener(multi);
+        multi.start();
+
+        // 30 minutes away: the 24 h and 1 h reminders are already past, only 10 min + 1 min remain
+        Appointment soon = repository.add("a@x.com", "Dr. A", T0 + 30 * MINUTE, false);
+        // 2 days away: all four reminders
+        Appointment later = repository.add("b@x.com", "Dr. A", T0 + 48 * HOUR, false);
+        assertEquals(6, multi.getScheduledReminderCount());
+
+        while (alarms.nextAt() != AppointmentEngine.NO_ALARM) {
+            alarms.fireNext(clock, multi);
+        }
+
+        assertEquals(6, actions.reminders.size());
+        assertEquals(soon.getId(), actions.reminders.get(0).getId());
+        assertEquals(Long.valueOf(10 * MINUTE), actions.offsets.get(0));
+        assertEquals(Long.valueOf(T0 + 20 * MINUTE), actions.firedAt.get(0));
+        assertEquals(Long.valueOf(MINUTE), actions.offsets.get(1));
+        for (int i = 2; i < 6; i++) {
+            assertEquals(later.getId(), actions.reminders.get(i).getId());
+            assertEquals(Long.valueOf(ReminderScheduler.REMINDER_OFFSETS_MILLIS[i - 2]), actions.offsets.get(i));
+            assertEquals(Long.valueOf(later.getStartMillis() - actions.offsets.get(i)), actions.firedAt.get(i));
+        }
+        assertEquals(0, multi.getScheduledReminderCount());
+    }
+
+    @Test
+    public void removingTheAppointmentCancelsAllItsReminders() throws IOException {
+        AppointmentEngine multi = new AppointmentEngine(repository, clock, alarms, actions);
+        repository.removeChangeListener(engine);
+        repository.addChangeListener(multi);
+        multi.start();
+
+        Appointment kept = repository.add("a@x.com", "Dr. A", T0 + 48 * HOUR, false);
+        Appointment cancelled = repository.add("b@x.com", "Dr. A", T0 + 47 * HOUR, false);
+        assertEquals(cancelled.getStartMillis() - 24 * HOUR, alarms.reminderAt);
+
+        repository.remove(cancelled.getId());
+
+        assertEquals(4, multi.getScheduledReminderCount());
+        assertEquals(kept.getStartMillis() - 24 * HOUR, alarms.reminderAt);
+    }
+
+    @Test
+    public void coldStartAtTheAlarmFiresTheDueReminder() throws IOException {
+        MemoryHistory history = new MemoryHistory();
+        AppointmentEngine first = new AppointmentEngine(repository, clock, alarms, actions, history,
+                ReminderScheduler.REMINDER_OFFSETS_MILLIS);
+        repository.removeChangeListener(engine);
+        first.start();
+        Appointment booked = repository.add("a@x.com", "Dr. A", T0 + 48 * HOUR, false);
+        first.onAppointmentAdded(booked);
+        assertEquals(T0 + 24 * HOUR, alarms.reminderAt);
+
+        // The process was killed; the 24 h reminder's alarm starts a new one
+        clock.now = T0 + 24 * HOUR;
+        AppointmentEngine restarted = new AppointmentEngine(repository, clock, alarms, actions, history,
+                ReminderScheduler.REMINDER_OFFSETS_MILLIS);
+        restarted.start();
+
+        assertEquals(1, actions.reminders.size());
+        assertEquals(booked.getId(), actions.reminders.get(0).getId());
+        assertEquals(Long.valueOf(24 * HOUR), actions.offsets.get(0));
+        assertEquals(Arrays.asList(24 * HOUR), history.firedOffsets(booked.getId()));
+        assertEquals(Long.valueOf(T0 + 24 * HOUR), history.firedAt.get(0));
+        assertEquals(T0 + 47 * HOUR, alarms.reminderAt); // next: the 1 h reminder
+    }
+
+    @Test
+    public void coldStartDoesNotRepeatAReminderAnEarlierProcessShowed() throws IOException {
+        MemoryHistory history = new MemoryHistory();
+        Appointment booked = repository.add("a@x.com", "Dr. A", T0 + 48 * HOUR, false);
+        clock.now = T0 + 24 * HOUR;
+        new AppointmentEngine(repository, clock, alarms, actions, history,
+                ReminderScheduler.REMINDER_OFFSETS_MILLIS).start();
+
+        // Killed right after showing it, restarted 2 minutes later (still within the grace)
+        clock.now += 2 * MINUTE;
+        new AppointmentEngine(repository, clock, alarms, actions, history,
+                ReminderScheduler.REMINDER_OFFSETS_MILLIS).start();
+
+        assertEquals(1, actions.reminders.size());
+        assertEquals(booked.getId(), actions.reminders.get(0).getId());
+    }
+
+    @Test
+    public void reminderLateBeyondTheGraceIsSkipped() throws IOException {
+        repository.add("a@x.com", "Dr. A", T0 + 48 * HOUR, false);
+        clock.now = T0 + 24 * HOUR + ReminderScheduler.LATE_REMINDER_GRACE_MILLIS + MINUTE;
+        AppointmentEngine restarted = new AppointmentEngine(repository, clock, alarms, actions, new MemoryHistory(),
+                ReminderScheduler.REMINDER_OFFSETS_MILLIS);
+        restarted.start();
+
+        assertTrue(actions.reminders.isEmpty());
+        assertEquals(3, restarted.getScheduledReminderCount());
+    }
+
+    /**
+     * Measurement: wakeups over 24 hours with three appointments.
+     *   old design: AppointmentReminderService + DoctorAvailabilityService, each a 5 s loop
+     *   engine:     one alarm per event (reminder, start, end)
+     */
+    @Test
+    public void wakeupsPerDay_twoPollingServicesVsEngine() throws IOException {
+        long simulated = 24 * HOUR;
+        engine.start();
+        repository.add("a@x.com", "Dr. A", T0 + 2 * HOUR, false);
+        repository.add("b@x.com", "Dr. A", T0 + 9 * HOUR, false);
+        repository.add("c@x.com", "Dr. A", T0 + 18 * HOUR, false);
+
+        long pollingWakeups = 2 * (simulated / 5000L);
+
+        while (alarms.nextAt() != AppointmentEngine.NO_ALARM && alarms.nextAt() < T0 + simulated) {
+            alarms.fireNext(clock, engine);
+        }
+
+        System.out.println("[wakeups/day] two polling services=" + pollingWakeups
+                + " engine=" + engine.getWakeupCount()
+                + " (reminders=" + engine.getDispatchedCount(AppointmentEngine.EventType.REMINDER)
+                + ", status changes=" + (engine.getDispatchedCount(AppointmentEngine.EventType.CONSULTATION_START)
+                + engine.getDispatchedCount(AppointmentEngine.EventType.CONSULTATION_END)) + ")");
+
+        assertEquals(34_560, pollingWakeups);
+        assertEquals(9, engine.getWakeupCount());
+        assertEquals(3, actions.reminders.size());
+    }
+
+    // ================================
+    // FAKES
+    // ================================
+
+    private static class FakeClock implements AppClock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static class FakeAlarms implements AppointmentEngine.AlarmBackend {
+        long reminderAt = AppointmentEngine.NO_ALARM;
+        long statusAt = AppointmentEngine.NO_ALARM;
+
+        @Override
+        public void setReminderAlarm(long triggerAtMillis) {
+            reminderAt = triggerAtMillis;
+        }
+
+        @Override
+        public void setStatusAlarm(long triggerAtMillis) {
+            statusAt = triggerAtMillis;
+        }
+
+        @Override
+        public void cancelReminderAlarm() {
+            reminderAt = AppointmentEngine.NO_ALARM;
+        }
+
+        @Override
+        public void cancelStatusAlarm() {
+            statusAt = AppointmentEngine.NO_ALARM;
+        }
+
+        long nextAt() {
+            if (reminderAt == AppointmentEngine.NO_ALARM) {
+                return statusAt;
+            }
+            if (statusAt == AppointmentEngine.NO_ALARM) {
+                return reminderAt;
+            }
+            return Math.min(reminderAt, statusAt);
+        }
+
+        // Move the clock to the earliest alarm, consume it (one-shot) and deliver it
+        void fireNext(FakeClock clock, AppointmentEngine engine) {
+            long at = nextAt();
+            assertNotEquals(AppointmentEngine.NO_ALARM, at);
+            clock.now = at;
+            if (reminderAt == at) {
+                reminderAt = AppointmentEngine.NO_ALARM;
+            }
+            if (statusAt == at) {
+                statusAt = AppointmentEngine.NO_ALARM;
+            }
+            engine.onAlarm();
+        }
+    }
+
+    private static class MemoryHistory implements AppointmentEngine.ReminderHistory {
+        final List<Long> appointmentIds = new ArrayList<>();
+        final List<Long> offsets = new ArrayList<>();
+        final List<Long> firedAt = new ArrayList<>();
+
+        @Override
+        public List<Long> firedOffsets(long appointmentId) {
+            List<Long> fired = new ArrayList<>();
+            for (int i = 0; i < appointmentIds.size(); i++) {
+                if (appointmentIds.get(i) == appointmentId) {
+                    fired.add(offsets.get(i));
+                }
+            }
+            return fired;
+        }
+
+        @Override
+        public void recordFired(long appointmentId, long offsetMillis, long firedAtMillis) {
+            appointmentIds.add(appointmentId);
+            offsets.add(offsetMillis);
+            firedAt.add(firedAtMillis);
+        }
+    }
+
+    private static class RecordingActions implements AppointmentEngine.Actions {
+        final List<Appointment> reminders = new ArrayList<>();
+        final List<Long> offsets = new ArrayList<>();
+        final List<Long> firedAt = new ArrayList<>();
+        final List<String> statuses = new ArrayList<>();
+        FakeClock clock;
+
+        @Override
+        public void onReminder(AppointmentEngine.Reminder reminder) {
+            reminders.add(reminder.appointment);
+            offsets.add(reminder.offsetMillis);
+            firedAt.add(clock != null ? clock.now : -1L);
+        }
+
+        @Override
+        public void onDoctorStatusChanged(String status) {
+            statuses.add(status);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests (and a 10k benchmark) for the multi-appointment repository.
+ */
+public class AppointmentRepositoryTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+    private File file;
+    private AppointmentRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("appointments", ".db");
+        file.delete();
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        JdbcSqlDatabase.delete(file);
+    }
+
+    @Test
+    public void secondBookingDoesNotOverwriteFirst() throws IOException {
+        Appointment first = repository.add("a@x.com", "Dr. A", T0 + HOUR, false);
+        Appointment second = repository.add("a@x.com", "Dr. B", T0 + 2 * HOUR, true);
+
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(2, repository.size());
+        assertEquals("Dr. A", repository.get(first.getId()).getDoctorName());
+    }
+
+    @Test
+    public void nextUpcomingAndRangeFollowStartOrder() throws IOException {
+        Appointment late = repository.add("a@x.com", "Dr. A", T0 + 3 * HOUR, false);
+        Appointment early = repository.add("b@x.com", "Dr. A", T0 + HOUR, false);
+        Appointment middle = repository.add("a@x.com", "Dr. A", T0 + 2 * HOUR, false);
+
+        assertEquals(early.getId(), repository.nextUpcoming(T0).getId());
+        assertEquals(middle.getId(), repository.nextUpcoming(T0 + HOUR + 1).getId());
+        assertEquals(middle.getId(), repository.nextUpcomingForUser("a@x.com", T0).getId());
+        assertEquals(late.getId(), repository.nextAfter(middle).getId());
+        assertNull(repository.nextUpcoming(T0 + 3 * HOUR + 1));
+
+        List<Appointment> range = repository.range(T0 + HOUR, T0 + 3 * HOUR);
+        assertEquals(2, range.size());
+        assertEquals(early.getId(), range.get(0).getId());
+        assertEquals(middle.getId(), range.get(1).getId());
+        assertEquals(1, repository.rangeForUser("b@x.com", T0, T0 + 10 * HOUR).size());
+    }
+
+    @Test
+    public void appointmentsSurviveReopen() throws IOException {
+        Appointment kept = repository.add("a@x.com", "Dr. A", T0 + HOUR, true);
+        Appointment removed = repository.add("a@x.com", "Dr. A", T0 + 2 * HOUR, false);
+        repository.remove(removed.getId());
+        repository.close();
+
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+
+        assertEquals(1, repository.size());
+        Appointment loaded = repository.get(kept.getId());
+        assertEquals("a@x.com", loaded.getUserEmail());
+        assertEquals(T0 + HOUR, loaded.getStartMillis());
+        assertTrue(loaded.isCustomTime());
+        assertNull(repository.get(removed.getId()));
+
+        // New ids continue after the highest stored one
+        assertTrue(repository.add("a@x.com", "Dr. A", T0, false).getId() > removed.getId());
+    }
+
+    @Test
+    public void writeBehindCoalescesChangesIntoOneCommit() throws Exception {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        File other = File.createTempFile("write-behind", ".db");
+        other.delete();
+        try {
+            AppointmentRepository batched = JdbcSqlDatabase.repository(other, cipher, writer, 200);
+            for (int i = 0; i < 50; i++) {
+                batched.add("a@x.com", "Dr. A", T0 + i * HOUR, false);
+            }
+            Appointment removed = batched.nextUpcoming(T0);
+            batched.remove(removed.getId());
+
+            // Visible in memory right away, nothing committed yet
+            assertEquals(49, batched.size());
+            assertEquals(51, batched.getPendingWriteCount());
+            assertEquals(0, batched.getFlushCount());
+
+            // Committed by the writer within the flush delay, as one batch
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (batched.getFlushCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, batched.getPendingWriteCount());
+            assertEquals(1, batched.getFlushCount());
+            assertNull(batched.getLastFlushError());
+            batched.close();
+
+            AppointmentRepository reopened = JdbcSqlDatabase.repository(other, cipher, null, 0);
+            assertEquals(49, reopened.size());
+            assertNull(reopened.get(removed.getId()));
+            reopened.close();
+        } finally {
+            writer.shutdownNow();
+            JdbcSqlDatabase.delete(other);
+        }
+    }
+
+    @Test
+    public void closeFlushesPendingWrites() throws Exception {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        File other = File.createTempFile("write-behind", ".db");
+        other.delete();
+        try {
+            AppointmentRepository batched = JdbcSqlDatabase.repository(other, cipher, writer, TimeUnit.HOURS.toMillis(1));
+            batched.add("a@x.com", "Dr. A", T0 + HOUR, false);
+            batched.close();
+
+            AppointmentRepository reopened = JdbcSqlDatabase.repository(other, cipher, null, 0);
+            assertEquals(1, reopened.size());
+            reopened.close();
+        } finally {
+            writer.shutdownNow();
+            JdbcSqlDatabase.delete(other);
+        }
+    }
+
+    /**
+     * Caller-side cost of a booking: synchronous commit (one transaction each) vs write-behind.
+     * (On the device the caller is the main thread.)
+     */
+    @Test
+    public void benchmarkDurableAddSyncVsWriteBehind() throws Exception {
+        int bookings = 200;
+        File syncFile = File.createTempFile("sync", ".db");
+        File asyncFile = File.createTempFile("async", ".db");
+        syncFile.delete();
+        asyncFile.delete();
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AppointmentRepository sync = JdbcSqlDatabase.repository(syncFile, cipher, null, 0);
+            long start = System.nanoTime();
+            for (int i = 0; i < bookings; i++) {
+                sync.add("a@x.com", "Dr. A", T0 + i * HOUR, false);
+            }
+            double syncMicros = (System.nanoTime() - start) / 1000.0 / bookings;
+            sync.close();
+
+            AppointmentRepository batched = JdbcSqlDatabase.repository(asyncFile, cipher, writer, 100);
+            start = System.nanoTime();
+            for (int i = 0; i < bookings; i++) {
+                batched.add("a@x.com", "Dr. A", T0 + i * HOUR, false);
+            }
+            double asyncMicros = (System.nanoTime() - start) / 1000.0 / bookings;
+            batched.close();
+
+            System.out.println(String.format(
+                    "[durable add x%d] synchronous=%.1fus/add (%d commits) write-behind=%.1fus/add (%d commits)",
+                    bookings, syncMicros, bookings, asyncMicros, batched.getFlushCount()));
+
+            assertTrue(batched.getFlushCount() <= 2);
+            AppointmentRepository reopened = JdbcSqlDatabase.repository(asyncFile, cipher, null, 0);
+            assertEquals(bookings, reopened.size());
+            reopened.close();
+        } finally {
+            writer.shutdownNow();
+            JdbcSqlDatabase.delete(syncFile);
+            JdbcSqlDatabase.delete(asyncFile);
+        }
+    }
+
+    /**
+     * Benchmark: query and commit cost with 10,000 stored appointments,
+     * compared to rewriting the whole store per commit (what SharedPreferences.apply() does).
+     */
+    @Test
+    public void benchmark10kAppointments() throws IOException {
+        final int count = 10_000;
+        Random random = new Random(42);
+
+        long startFill = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            repository.add("user" + (i % 50) + "@x.com", "Dr. " + (i % 20),
+                    T0 + (long) random.nextInt(365 * 24) * HOUR, i % 2 == 0);
+        }
+        double fillMicros = (System.nanoTime() - startFill) / 1000.0 / count;
+        assertEquals(count, repository.size());
+
+        // Commit cost of one more booking once 10k are stored (one row, one transaction)
+        int commits = 500;
+        long startCommit = System.nanoTime();
+        for (int i = 0; i < commits; i++) {
+            repository.add("user1@x.com", "Dr. 1", T0 + i, false);
+        }
+        double appendMicros = (System.nanoTime() - startCommit) / 1000.0 / commits;
+
+        // Whole-file rewrite of 10k entries per commit, as an XML preferences file would do
+        StringBuilder xml = new StringBuilder("<map>");
+        for (Appointment a : repository.range(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2)) {
+            xml.append("<string name=\"appt_").append(a.getId()).append("\">")
+                    .append(a.getStartMillis()).append('|').append(a.getUserEmail()).append('|')
+                    .append(a.getDoctorName()).append("</string>");
+        }
+        byte[] whole = xml.append("</map>").toString().getBytes(StandardCharsets.UTF_8);
+        File xmlFile = File.createTempFile("prefs", ".xml");
+        int rewrites = 50;
+        long startRewrite = System.nanoTime();
+        for (int i = 0; i < rewrites; i++) {
+            FileOutputStream out = new FileOutputStream(xmlFile);
+            out.write(whole);
+            out.close();
+        }
+        double rewriteMicros = (System.nanoTime() - startRewrite) / 1000.0 / rewrites;
+        xmlFile.delete();
+
+        // Query costs
+        int queries = 100_000;
+        long sink = 0;
+        long startNext = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            Appointment next = repository.nextUpcoming(T0 + (long) random.nextInt(365 * 24) * HOUR);
+            if (next != null) {
+                sink += next.getId();
+            }
+        }
+        double nextNanos = (System.nanoTime() - startNext) / (double) queries;
+
+        long startRange = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            long from = T0 + (long) random.nextInt(365 * 24) * HOUR;
+            sink += repository.range(from, from + 24 * HOUR).size();
+        }
+        double rangeNanos = (System.nanoTime() - startRange) / (double) queries;
+
+        // Reload cost
+        repository.close();
+        long startLoad = System.nanoTime();
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+        double loadMillis = (System.nanoTime() - startLoad) / 1e6;
+
+        System.out.println(String.format(
+                "[repository 10k] fill=%.1fus/add commit=%.1fus whole-file-rewrite=%.1fus (%d bytes) "
+                        + "nextUpcoming=%.0fns range(1 day)=%.0fns reload=%.1fms database=%d bytes (sink %d)",
+                fillMicros, appendMicros, rewriteMicros, whole.length, nextNanos, rangeNanos,
+                loadMillis, file.length(), sink));
+
+        assertEquals(count + commits, repository.size());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests and allocation microbenchmark for the shared appointment snapshot.
+ */
+public class AppointmentSnapshotCacheTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long T0 = 1_700_000_040_000L; // on a minute boundary
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+    private File file;
+    private AppointmentRepository repository;
+    private AppointmentSnapshotCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("snapshot", ".db");
+        file.delete();
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+        cache = new AppointmentSnapshotCache(repository);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        JdbcSqlDatabase.delete(file);
+    }
+
+    @Test
+    public void emptyRepository() {
+        assertFalse(cache.hasAppointment(T0));
+        assertEquals(-1, cache.minutesUntil(T0));
+        assertEquals("No Appointment Scheduled", cache.statusText(T0));
+    }
+
+    @Test
+    public void bookingInvalidatesCache() throws IOException {
+        assertFalse(cache.hasAppointment(T0));
+
+        repository.add("a@x.com", "Dr. A", T0 + 90 * MINUTE, false);
+
+        assertEquals(T0 + 90 * MINUTE, cache.currentStartMillis(T0));
+        assertEquals(90, cache.minutesUntil(T0));
+        assertEquals("Appointment in 90 minutes", cache.statusText(T0));
+    }
+
+    @Test
+    public void statusFollowsTheClockWithoutRepositoryChanges() throws IOException {
+        repository.add("a@x.com", "Dr. A", T0 + 2 * MINUTE, false);
+        repository.add("a@x.com", "Dr. B", T0 + 10 * MINUTE, false);
+
+        assertEquals("Appointment in 2 minutes", cache.statusText(T0 + 30_000));
+        assertEquals("Appointment Starting Now!", cache.statusText(T0 + 2 * MINUTE + 10_000));
+        assertEquals("Dr. A", cache.currentAppointment(T0 + 2 * MINUTE + 10_000).getDoctorName());
+
+        // Consultation of the first one is over: the cache moves to the second one by itself
+        assertEquals("Dr. B", cache.currentAppointment(T0 + 3 * MINUTE).getDoctorName());
+        assertEquals(7, cache.minutesUntil(T0 + 3 * MINUTE));
+    }
+
+    @Test
+    public void statusTextIsReusedWhileMinuteIsUnchanged() throws IOException {
+        repository.add("a@x.com", "Dr. A", T0 + 5 * MINUTE, false);
+
+        String first = cache.statusText(T0);
+        assertSame(first, cache.statusText(T0 + 59_000));
+        assertNotSame(first, cache.statusText(T0 + MINUTE));
+    }
+
+    /**
+     * Microbenchmark: bytes allocated per status + minutes computation.
+     *   legacy   = SimpleDateFormat + Calendar parse of "yyyy-MM-dd HH:mm" on every call
+     *   snapshot = cached epoch-millis long
+     */
+    @Test
+    public void allocationsPerCall_legacyParseVsSnapshot() throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long start = T0 + 45 * MINUTE;
+        repository.add("a@x.com", "Dr. A", start, false);
+        String stored = AppointmentTimeEngine.format(start, ZoneId.systemDefault());
+
+        int calls = 20_000;
+        long sink = 0;
+
+        // Warm up both paths so the JIT has compiled them
+        for (int i = 0; i < calls; i++) {
+            sink += legacyMinutesUntil(stored, T0) + legacyStatus(stored, T0).length();
+            sink += cache.minutesUntil(T0) + cache.statusText(T0).length();
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < calls; i++) {
+            sink += legacyMinutesUntil(stored, T0) + legacyStatus(stored, T0).length();
+        }
+        double legacyBytes = (threads.getThreadAllocatedBytes(thread) - before) / (double) calls;
+
+        before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < calls; i++) {
+            sink += cache.minutesUntil(T0) + cache.statusText(T0).length();
+        }
+        double snapshotBytes = (threads.getThreadAllocatedBytes(thread) - before) / (double) calls;
+
+        System.out.println(String.format(
+                "[allocations/call] legacy parse=%.0f bytes, snapshot cache=%.2f bytes (sink %d)",
+                legacyBytes, snapshotBytes, sink));
+
+        assertTrue(legacyBytes > 1000);
+        assertTrue("snapshot path allocates " + snapshotBytes + " bytes/call", snapshotBytes < 1.0);
+    }
+
+    // Copy of what AppointmentBoundedService did before the cache (per call)
+    private static int legacyMinutesUntil(String stored, long nowMillis) {
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+            Calendar appointmentTime = Calendar.getInstance();
+            appointmentTime.setTime(sdf.parse(stored));
+            return (int) ((appointmentTime.getTimeInMillis() - nowMillis) / 60000);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static String legacyStatus(String stored, long nowMillis) {
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+            Calendar appointmentTime = Calendar.getInstance();
+            appointmentTime.setTime(sdf.parse(stored));
+            Calendar now = Calendar.getInstance();
+            now.setTimeInMillis(nowMillis);
+            appointmentTime.set(Calendar.SECOND, 0);
+            now.set(Calendar.SECOND, 0);
+            long diffInMinutes = (appointmentTime.getTimeInMillis() - now.getTimeInMillis()) / 60000;
+            return "Appointment in " + diffInMinutes + " minutes";
+        } catch (Exception e) {
+            return "Error checking appointment";
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the pushed appointment status (minute ticks, change-only emits).
+ */
+public class AppointmentStatusStreamTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long T0 = 1_700_000_040_000L; // on a minute boundary
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+    private File file;
+    private AppointmentRepository repository;
+    private FakeClock clock;
+    private FakeTicker ticker;
+    private AppointmentStatusStream stream;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("status", ".db");
+        file.delete();
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+        clock = new FakeClock(T0 + 20_000);
+        ticker = new FakeTicker();
+        stream = new AppointmentStatusStream(new AppointmentSnapshotCache(repository), clock, ticker);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        JdbcSqlDatabase.delete(file);
+    }
+
+    @Test
+    public void firstListenerGetsCurrentStatusAndTickIsAlignedToTheMinute() throws IOException {
+        repository.add("a@x.com", "Dr. A", T0 + 3 * MINUTE, false);
+        List<AppointmentStatusStream.Status> received = new ArrayList<>();
+
+        stream.addListener(received::add);
+
+        assertEquals(1, received.size());
+        assertEquals("Appointment in 3 minutes", received.get(0).getText());
+        assertEquals(2, received.get(0).getMinutesUntil());
+        assertEquals(40_000, ticker.delay);
+    }
+
+    @Test
+    public void emitsOncePerMinuteChangeOnly() throws IOException {
+        repository.add("a@x.com", "Dr. A", T0 + 3 * MINUTE, false);
+        List<String> received = new ArrayList<>();
+        stream.addListener(status -> received.add(status.getText()));
+
+        // Three minutes of ticks, plus a spurious refresh that changes nothing
+        stream.refresh();
+        for (int i = 0; i < 3; i++) {
+            ticker.fire(clock);
+        }
+
+        assertEquals(4, received.size());
+        assertEquals("Appointment in 3 minutes", received.get(0));
+        assertEquals("Appointment in 1 minutes", received.get(2));
+        assertEquals("Appointment Starting Now!", received.get(3));
+        assertEquals(MINUTE, ticker.delay);
+    }
+
+    @Test
+    public void multipleListenersAndStopWhenLastOneLeaves() throws IOException {
+        repository.add("a@x.com", "Dr. A", T0 + 5 * MINUTE, false);
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        AppointmentStatusStream.Listener a = status -> first.add(status.getText());
+        AppointmentStatusStream.Listener b = status -> second.add(status.getText());
+
+        stream.addListener(a);
+        stream.addListener(b);
+        assertEquals(1, second.size()); // late listener gets the latest status too
+
+        ticker.fire(clock);
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+
+        stream.removeListener(a);
+        assertTrue(ticker.scheduled);
+        stream.removeListener(b);
+        assertFalse(ticker.scheduled);
+        assertEquals(0, stream.getListenerCount());
+    }
+
+    @Test
+    public void refreshAfterBookingEmitsImmediately() throws IOException {
+        List<String> received = new ArrayList<>();
+        stream.addListener(status -> received.add(status.getText()));
+        assertEquals("No Appointment Scheduled", received.get(0));
+
+        repository.add("a@x.com", "Dr. A", T0 + 10 * MINUTE, false);
+        stream.refresh();
+
+        assertEquals(2, received.size());
+        assertEquals("Appointment in 10 minutes", received.get(1));
+    }
+
+    @Test
+    public void delayToNextMinute() {
+        assertEquals(MINUTE, AppointmentStatusStream.delayToNextMinute(T0));
+        assertEquals(1, AppointmentStatusStream.delayToNextMinute(T0 - 1));
+        assertEquals(59_500, AppointmentStatusStream.delayToNextMinute(T0 + 500));
+    }
+
+    // ================================
+    // FAKES
+    // ================================
+
+    private static class FakeClock implements AppClock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static class FakeTicker implements AppointmentStatusStream.Ticker {
+        Runnable tick;
+        long delay = -1;
+        boolean scheduled;
+
+        @Override
+        public void schedule(Runnable tick, long delayMillis) {
+            this.tick = tick;
+            this.delay = delayMillis;
+            this.scheduled = true;
+        }
+
+        @Override
+        public void cancel(Runnable tick) {
+            scheduled = false;
+        }
+
+        // Move the clock to the scheduled instant and run the tick
+        void fire(FakeClock clock) {
+            assertTrue(scheduled);
+            clock.now += delay;
+            scheduled = false;
+            tick.run();
+        }
+    }
+}
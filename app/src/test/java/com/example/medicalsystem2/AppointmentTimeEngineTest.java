@@ -0,0 +1,79 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the appointment time engine (locales, DST, minute math).
+ */
+public class AppointmentTimeEngineTest {
+
+    private static final long MINUTE = AppointmentTimeEngine.MINUTE_MILLIS;
+    private static final long HOUR = 60 * MINUTE;
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+
+    @Test
+    public void parseAndFormatRoundTrip() {
+        long millis = AppointmentTimeEngine.parse("2030-01-15 10:30", PARIS);
+        assertEquals("2030-01-15 10:30", AppointmentTimeEngine.format(millis, PARIS));
+        assertEquals(millis, AppointmentTimeEngine.toEpochMillis(2030, 1, 15, 10, 30, PARIS));
+    }
+
+    @Test
+    public void strictParsingRejectsImpossibleDates() {
+        assertEquals(AppointmentTimeEngine.INVALID, AppointmentTimeEngine.parse("2030-02-30 10:00", PARIS));
+        assertEquals(AppointmentTimeEngine.INVALID, AppointmentTimeEngine.parse("2030-01-15 24:00", PARIS));
+        assertEquals(AppointmentTimeEngine.INVALID, AppointmentTimeEngine.parse(null, PARIS));
+    }
+
+    @Test
+    public void arabicDefaultLocaleStillUsesAsciiDigits() {
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("ar", "EG"));
+            long millis = AppointmentTimeEngine.parse("2030-01-15 10:30", PARIS);
+            assertNotEquals(AppointmentTimeEngine.INVALID, millis);
+            assertEquals("2030-01-15 10:30", AppointmentTimeEngine.format(millis, PARIS));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void springForwardGapMovesTimeForward() {
+        // 2030-03-31 02:00 -> 03:00 in Paris: 02:30 does not exist
+        long millis = AppointmentTimeEngine.parse("2030-03-31 02:30", PARIS);
+        assertEquals("2030-03-31 03:30", AppointmentTimeEngine.format(millis, PARIS));
+    }
+
+    @Test
+    public void fallBackOverlapUsesEarlierOffset() {
+        // 2030-10-27 03:00 -> 02:00 in Paris: 02:30 happens twice
+        long millis = AppointmentTimeEngine.parse("2030-10-27 02:30", PARIS);
+        long beforeOverlap = AppointmentTimeEngine.parse("2030-10-27 01:30", PARIS);
+        assertEquals(HOUR, millis - beforeOverlap);
+    }
+
+    @Test
+    public void minutesUntilCountsRealTimeAcrossDst() {
+        long before = AppointmentTimeEngine.parse("2030-03-31 01:00", PARIS);
+        long after = AppointmentTimeEngine.parse("2030-03-31 04:00", PARIS);
+
+        // Three hours on the wall clock, only two really pass
+        assertEquals(120, AppointmentTimeEngine.minutesUntil(after, before));
+    }
+
+    @Test
+    public void minuteMathIgnoresSecondsAndHandlesNegativeTimes() {
+        long start = 10 * MINUTE;
+        assertEquals(0, AppointmentTimeEngine.minuteDifference(start + 59_000, start));
+        assertEquals(1, AppointmentTimeEngine.minuteDifference(start, start - 1));
+        assertEquals(-1, AppointmentTimeEngine.epochMinute(-1));
+        assertEquals(start - MINUTE, AppointmentTimeEngine.reminderTime(start));
+        assertEquals(start + MINUTE, AppointmentTimeEngine.consultationEnd(start));
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests (and a concurrent stress test) for optimistic slot booking.
+ */
+public class BookingServiceTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+    private static final long MINUTE = AppointmentTimeEngine.MINUTE_MILLIS;
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+    private File file;
+    private AppointmentRepository repository;
+    private InMemoryBookingBackend backend;
+    private BookingService service;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("bookings", ".db");
+        file.delete();
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+        backend = new InMemoryBookingBackend();
+        service = new BookingService(backend, repository, UTC, 30, 20 * MINUTE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        JdbcSqlDatabase.delete(file);
+    }
+
+    @Test
+    public void secondBookingOfSameSlotIsRefused() throws IOException {
+        BookingService.Result first = service.book("a@x.com", "Dr. A", at(MONDAY, 10, 0), false);
+        BookingService.Result second = service.book("b@x.com", "Dr. A", at(MONDAY, 10, 0), false);
+
+        assertTrue(first.isBooked());
+        assertEquals(1, first.getAttempts());
+        assertEquals(BookingService.Status.SLOT_TAKEN, second.getStatus());
+        assertNull(second.getAppointment());
+        assertEquals(1, repository.size());
+    }
+
+    @Test
+    public void otherSlotsDoctorsAndDaysAreIndependent() throws IOException {
+        assertTrue(service.book("a@x.com", "Dr. A", at(MONDAY, 10, 0), false).isBooked());
+        assertTrue(service.book("b@x.com", "Dr. A", at(MONDAY, 10, 30), false).isBooked());
+        assertTrue(service.book("b@x.com", "Dr. B", at(MONDAY, 10, 0), false).isBooked());
+        assertTrue(service.book("b@x.com", "Dr. A", at(MONDAY.plusDays(1), 10, 0), false).isBooked());
+
+        assertEquals(4, repository.size());
+        assertEquals(2, backend.read("Dr. A", MONDAY).takenCount());
+    }
+
+    @Test
+    public void bookingTakesEverySlotItsConsultationOverlaps() throws IOException {
+        // 10:20 + 20 minutes overlaps the 10:00 and the 10:30 slots
+        assertTrue(service.book("a@x.com", "Dr. A", at(MONDAY, 10, 20), true).isBooked());
+
+        assertTrue(service.isTaken("Dr. A", at(MONDAY, 10, 0)));
+        assertTrue(service.isTaken("Dr. A", at(MONDAY, 10, 30)));
+        assertFalse(service.isTaken("Dr. A", at(MONDAY, 11, 0)));
+        assertEquals(BookingService.Status.SLOT_TAKEN,
+                service.book("b@x.com", "Dr. A", at(MONDAY, 10, 30), false).getStatus());
+    }
+
+    @Test
+    public void lostRaceIsRetriedWithTheNewVersion() throws IOException {
+        // Another booking of the same doctor-day lands between our read and our write
+        BookingBackend racing = new RacingBackend(backend, 11);
+        BookingService raced = new BookingService(racing, repository, UTC, 30, 20 * MINUTE);
+
+        BookingService.Result result = raced.book("a@x.com", "Dr. A", at(MONDAY, 10, 0), false);
+
+        assertTrue(result.isBooked());
+        assertEquals(2, result.getAttempts());
+        BookingBackend.DoctorDay day = backend.read("Dr. A", MONDAY);
+        assertEquals(2, day.getVersion());
+        assertTrue(day.isTaken(11) && day.isTaken(20));
+    }
+
+    @Test
+    public void lostRaceForTheSameSlotEndsAsTaken() throws IOException {
+        BookingBackend racing = new RacingBackend(backend, 20);
+        BookingService raced = new BookingService(racing, repository, UTC, 30, 20 * MINUTE);
+
+        BookingService.Result result = raced.book("a@x.com", "Dr. A", at(MONDAY, 10, 0), false);
+
+        assertEquals(BookingService.Status.SLOT_TAKEN, result.getStatus());
+        assertEquals(2, result.getAttempts());
+        assertEquals(0, repository.size());
+    }
+
+    @Test
+    public void slotIsReleasedWhenTheAppointmentCannotBeSaved() throws IOException {
+        repository.close(); // every add() now fails
+
+        try {
+            service.book("a@x.com", "Dr. A", at(MONDAY, 10, 0), false);
+            fail("Expected the repository error");
+        } catch (IOException | RuntimeException expected) {
+            // The caller sees the error
+        }
+        assertFalse(service.isTaken("Dr. A", at(MONDAY, 10, 0)));
+        repository = JdbcSqlDatabase.repository(file, cipher, null, 0);
+    }
+
+    @Test
+    public void restoreMarksSavedAppointmentsTaken() throws IOException {
+        repository.add("a@x.com", "Dr. A", at(MONDAY, 9, 0), false);
+        repository.add("b@x.com", "Dr. B", at(MONDAY, 14, 30), false);
+
+        service.restore(repository.range(Long.MIN_VALUE, Long.MAX_VALUE));
+
+        assertEquals(BookingService.Status.SLOT_TAKEN,
+                service.book("c@x.com", "Dr. A", at(MONDAY, 9, 0), false).getStatus());
+        assertEquals(BookingService.Status.SLOT_TAKEN,
+                service.book("c@x.com", "Dr. B", at(MONDAY, 14, 30), false).getStatus());
+        assertTrue(service.book("c@x.com", "Dr. A", at(MONDAY, 14, 30), false).isBooked());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backendRejectsSkippedVersions() {
+        BookingBackend.DoctorDay empty = backend.read("Dr. A", MONDAY);
+        backend.compareAndSet(empty, empty.withSlots(0, 1, true).withSlots(1, 2, true));
+    }
+
+    /**
+     * Stress test: many threads book random overlapping slots of a few doctors at once.
+     * Every slot must end up with exactly one appointment.
+     */
+    @Test
+    public void concurrentBookingsNeverDoubleBook() throws Exception {
+        int threads = 16;
+        int bookingsPerThread = 2_000;
+        String[] doctors = {"Dr. A", "Dr. B", "Dr. C"};
+        int days = 5;
+        int slotsPerDay = 48; // whole day, 30 minute slots
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger gaveUp = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+        try {
+            Future<?>[] workers = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                workers[t] = pool.submit(() -> {
+                    Random random = new Random(seed);
+                    go.await();
+                    for (int i = 0; i < bookingsPerThread; i++) {
+                        String doctor = doctors[random.nextInt(doctors.length)];
+                        int slot = random.nextInt(slotsPerDay);
+                        long start = at(MONDAY.plusDays(random.nextInt(days)), 0, 0) + slot * 30 * MINUTE;
+                        BookingService.Result result = service.book("user" + seed, doctor, start, false);
+                        retries.addAndGet(result.getAttempts() - 1);
+                        switch (result.getStatus()) {
+                            case BOOKED:
+                                booked.incrementAndGet();
+                                break;
+                            case SLOT_TAKEN:
+                                taken.incrementAndGet();
+                                break;
+                            default:
+                                gaveUp.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            long started = System.nanoTime();
+            go.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            int attempts = threads * bookingsPerThread;
+
+            System.out.println(String.format(
+                    "[booking stress] %d threads, %d bookings in %.0f ms = %.0f bookings/s;"
+                            + " booked=%d taken=%d gave up=%d retries=%d",
+                    threads, attempts, seconds * 1000, attempts / seconds,
+                    booked.get(), taken.get(), gaveUp.get(), retries.get()));
+
+            // Zero double bookings: one appointment per (doctor, start), and every slot got one
+            List<Appointment> all = repository.range(Long.MIN_VALUE, Long.MAX_VALUE);
+            Set<String> slots = new HashSet<>();
+            for (Appointment appointment : all) {
+                assertTrue("Double booking: " + appointment,
+                        slots.add(appointment.getDoctorName() + "@" + appointment.getStartMillis()));
+            }
+            int totalSlots = doctors.length * days * slotsPerDay;
+            assertEquals(totalSlots, all.size());
+            assertEquals(totalSlots, booked.get());
+            assertEquals(attempts, booked.get() + taken.get() + gaveUp.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long at(LocalDate day, int hour, int minute) {
+        return day.atTime(hour, minute).atZone(UTC).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Backend where one other writer takes "slot" of the same doctor-day right before
+     * our first write (so it fails on the version check).
+     */
+    private static final class RacingBackend implements BookingBackend {
+        private final BookingBackend delegate;
+        private final int slot;
+        private boolean raced;
+
+        RacingBackend(BookingBackend delegate, int slot) {
+            this.delegate = delegate;
+            this.slot = slot;
+        }
+
+        @Override
+        public DoctorDay read(String doctorName, LocalDate day) {
+            return delegate.read(doctorName, day);
+        }
+
+        @Override
+        public boolean compareAndSet(DoctorDay expected, DoctorDay updated) {
+            if (!raced) {
+                raced = true;
+                DoctorDay other = delegate.read(expected.getDoctorName(), expected.getDay());
+                assertTrue(delegate.compareAndSet(other, other.withSlots(slot, slot + 1, true)));
+            }
+            return delegate.compareAndSet(expected, updated);
+        }
+    }
+}
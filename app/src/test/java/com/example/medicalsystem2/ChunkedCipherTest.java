@@ -0,0 +1,219 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for ChunkedCipher (small chunks so files have many), and the
+ * encrypt / decrypt throughput benchmark against a plain copy.
+ */
+public class ChunkedCipherTest {
+
+    private static final int CHUNK = 16;
+    private static final int SEALED_CHUNK = CHUNK + DataCipher.TAG_BYTES;
+
+    private final ChunkedCipher files = new DataCipher(DataCipher.newKey(), CHUNK).files();
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("sealed", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void everySizeRoundTrips() throws IOException {
+        // Empty, partial chunk, exact chunks (the last one full) and in between
+        for (int size : new int[]{0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 3 * CHUNK, 3 * CHUNK + 5}) {
+            byte[] plain = random(size);
+            byte[] sealed = seal(plain);
+
+            assertEquals("size " + size, files.sealedSize(size), sealed.length);
+            assertArrayEquals("size " + size, plain, unseal(sealed));
+        }
+    }
+
+    @Test
+    public void sealedBytesDoNotShowThePlainBytes() throws IOException {
+        byte[] plain = new byte[4 * CHUNK]; // All zeros: any leak would show
+        byte[] sealed = seal(plain);
+
+        int zeros = 0;
+        for (int i = ChunkedCipher.HEADER_BYTES; i < sealed.length; i++) {
+            zeros += sealed[i] == 0 ? 1 : 0;
+        }
+        assertTrue("zeros " + zeros, zeros < sealed.length / 16);
+        assertFalse(Arrays.equals(seal(plain), sealed)); // New nonce prefix every file
+    }
+
+    @Test(expected = IOException.class)
+    public void changedByteIsRejected() throws IOException {
+        byte[] sealed = seal(random(3 * CHUNK));
+        sealed[ChunkedCipher.HEADER_BYTES + SEALED_CHUNK + 2] ^= 1;
+        unseal(sealed);
+    }
+
+    @Test(expected = IOException.class)
+    public void swappedChunksAreRejected() throws IOException {
+        byte[] sealed = seal(random(3 * CHUNK));
+        int first = ChunkedCipher.HEADER_BYTES;
+        byte[] chunk = Arrays.copyOfRange(sealed, first, first + SEALED_CHUNK);
+        System.arraycopy(sealed, first + SEALED_CHUNK, sealed, first, SEALED_CHUNK);
+        System.arraycopy(chunk, 0, sealed, first + SEALED_CHUNK, SEALED_CHUNK);
+        unseal(sealed);
+    }
+
+    @Test(expected = IOException.class)
+    public void droppedLastChunkIsRejected() throws IOException {
+        byte[] sealed = seal(random(3 * CHUNK + 5));
+        unseal(Arrays.copyOf(sealed, sealed.length - (5 + DataCipher.TAG_BYTES)));
+    }
+
+    @Test(expected = IOException.class)
+    public void fileCutInsideAChunkIsRejected() throws IOException {
+        byte[] sealed = seal(random(3 * CHUNK));
+        unseal(Arrays.copyOf(sealed, sealed.length - 3));
+    }
+
+    @Test(expected = IOException.class)
+    public void chunkFromAnotherFileIsRejected() throws IOException {
+        byte[] plain = random(2 * CHUNK);
+        byte[] sealed = seal(plain);
+        byte[] other = seal(plain);
+        System.arraycopy(other, ChunkedCipher.HEADER_BYTES, sealed, ChunkedCipher.HEADER_BYTES, SEALED_CHUNK);
+        unseal(sealed);
+    }
+
+    @Test
+    public void sealedFileReadsAnyRange() throws IOException {
+        byte[] plain = random(10 * CHUNK + 7);
+        writeFile(seal(plain));
+
+        try (ChunkedCipher.SealedFile sealed = files.open(file)) {
+            assertEquals(plain.length, sealed.size());
+            Random random = new Random(7);
+            for (int i = 0; i < 500; i++) {
+                int position = random.nextInt(plain.length + 1);
+                int length = random.nextInt(Math.min(3 * CHUNK, plain.length - position) + 1);
+                ByteBuffer bytes = sealed.read(position, length);
+                byte[] read = new byte[bytes.remaining()];
+                bytes.get(read);
+                assertArrayEquals(position + "+" + length,
+                        Arrays.copyOfRange(plain, position, position + length), read);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void sealedFileRejectsAChangedChunkWhenItIsRead() throws IOException {
+        byte[] sealed = seal(random(4 * CHUNK));
+        sealed[ChunkedCipher.HEADER_BYTES + 2 * SEALED_CHUNK] ^= 1;
+        writeFile(sealed);
+
+        try (ChunkedCipher.SealedFile opened = files.open(file)) {
+            opened.read(0, CHUNK); // Chunk 0 is fine
+            opened.read(2 * CHUNK, 1);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void plainFileIsNotOpened() throws IOException {
+        writeFile("just some text, not encrypted".getBytes("UTF-8"));
+        files.open(file).close();
+    }
+
+    /**
+     * Benchmark: 32 MB through encrypt + decrypt (64 KB chunks, in memory) vs a plain
+     * copy, so the cost of encrypting attachments is known.
+     */
+    @Test
+    public void benchmarkThroughput() throws IOException {
+        ChunkedCipher big = new DataCipher(DataCipher.newKey()).files();
+        byte[] plain = random(32 * 1024 * 1024);
+
+        // Warm up (JIT, AES intrinsics), then measure
+        copy(new ByteArrayInputStream(seal(big, plain)), big, true);
+        long started = System.nanoTime();
+        byte[] sealed = seal(big, plain);
+        long sealNanos = System.nanoTime() - started;
+        started = System.nanoTime();
+        byte[] opened = copy(new ByteArrayInputStream(sealed), big, true);
+        long openNanos = System.nanoTime() - started;
+
+        started = System.nanoTime();
+        byte[] copied = copy(new ByteArrayInputStream(plain), null, false);
+        long copyNanos = System.nanoTime() - started;
+
+        double mb = plain.length / (1024.0 * 1024.0);
+        System.out.println(String.format(
+                "[chunked cipher 32MB] encrypt %.0f MB/s, decrypt %.0f MB/s | plain copy %.0f MB/s",
+                mb / (sealNanos / 1e9), mb / (openNanos / 1e9), mb / (copyNanos / 1e9)));
+
+        assertArrayEquals(plain, opened);
+        assertEquals(plain.length, copied.length);
+        // Far above what a phone's flash writes: encryption is not what limits an upload
+        assertTrue(mb / (openNanos / 1e9) > 20);
+        assertTrue(mb / (sealNanos / 1e9) > 20);
+    }
+
+    private byte[] seal(byte[] plain) throws IOException {
+        return seal(files, plain);
+    }
+
+    private static byte[] seal(ChunkedCipher cipher, byte[] plain) throws IOException {
+        ByteArrayOutputStream sealed = new ByteArrayOutputStream(plain.length + 1024);
+        try (OutputStream out = cipher.encrypt(sealed)) {
+            // Odd write sizes, so writes and chunks do not line up
+            for (int offset = 0; offset < plain.length; offset += 7919) {
+                out.write(plain, offset, Math.min(7919, plain.length - offset));
+            }
+        }
+        return sealed.toByteArray();
+    }
+
+    private byte[] unseal(byte[] sealed) throws IOException {
+        return copy(new ByteArrayInputStream(sealed), files, true);
+    }
+
+    private static byte[] copy(InputStream source, ChunkedCipher cipher, boolean decrypt) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = decrypt ? cipher.decrypt(source) : source) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void writeFile(byte[] bytes) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] random(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
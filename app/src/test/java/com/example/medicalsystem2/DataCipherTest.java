@@ -0,0 +1,105 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for DataCipher: sealed values open only where they were sealed,
+ * with the key they were sealed with, unchanged.
+ */
+public class DataCipherTest {
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+
+    @Test
+    public void valueOpensInItsContext() throws IOException {
+        byte[] sealed = cipher.sealString("Dr. Smith, cardiology", "appointments#7");
+
+        assertEquals(DataCipher.OVERHEAD + 21, sealed.length);
+        assertEquals("Dr. Smith, cardiology", cipher.openString(sealed, "appointments#7"));
+    }
+
+    @Test
+    public void emptyValueRoundTrips() throws IOException {
+        assertEquals("", cipher.openString(cipher.sealString("", "k"), "k"));
+    }
+
+    @Test(expected = IOException.class)
+    public void valueDoesNotOpenInAnotherContext() throws IOException {
+        cipher.open(cipher.sealString("secret", "appointments#7"), "appointments#8");
+    }
+
+    @Test(expected = DataCipher.RejectedException.class)
+    public void valueDoesNotOpenWithAnotherKey() throws IOException {
+        new DataCipher(DataCipher.newKey()).open(cipher.sealString("secret", "k"), "k");
+    }
+
+    @Test
+    public void everyChangedByteIsRejected() {
+        byte[] sealed = cipher.sealString("secret", "k");
+        for (int i = 0; i < sealed.length; i++) {
+            byte[] changed = sealed.clone();
+            changed[i] ^= 1;
+            try {
+                cipher.open(changed, "k");
+                fail("byte " + i + " changed but opened");
+            } catch (IOException expected) {
+                // Tag check (or format byte) failed
+                assertTrue(expected instanceof DataCipher.RejectedException);
+            }
+        }
+    }
+
+    @Test(expected = DataCipher.RejectedException.class)
+    public void cutValueIsRejected() throws IOException {
+        cipher.open(new byte[DataCipher.OVERHEAD - 1], "k");
+    }
+
+    @Test
+    public void sameValueIsSealedDifferentlyEachTime() {
+        Set<String> sealed = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            sealed.add(SecureValues.toHex(cipher.sealString("same", "k")));
+        }
+        assertEquals(1000, sealed.size());
+    }
+
+    @Test
+    public void blindIndexIsStablePerKindAndKey() {
+        long tag = cipher.blindIndex("user", "a@x.com");
+
+        assertEquals(tag, cipher.blindIndex("user", "a@x.com"));
+        assertNotEquals(tag, cipher.blindIndex("user", "b@x.com"));
+        assertNotEquals(tag, cipher.blindIndex("doctor", "a@x.com"));
+        assertNotEquals(tag, new DataCipher(DataCipher.newKey()).blindIndex("user", "a@x.com"));
+    }
+
+    @Test
+    public void cipherIsSafeToShareBetweenThreads() throws Exception {
+        Thread[] threads = new Thread[4];
+        final Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < threads.length; t++) {
+            final String context = "thread#" + t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        String value = context + ":" + i;
+                        assertEquals(value, cipher.openString(cipher.sealString(value, context), context));
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure[0]);
+    }
+}
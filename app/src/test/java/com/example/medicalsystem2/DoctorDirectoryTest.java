@@ -0,0 +1,97 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the doctor directory (top rated order, per-doctor status updates).
+ */
+public class DoctorDirectoryTest {
+
+    private static final String AVAILABLE = DoctorStatusMachine.STATUS_AVAILABLE;
+    private static final String BUSY = DoctorStatusMachine.STATUS_IN_CONSULTATION;
+
+    @Test
+    public void topRatedSortsByRatingThenReviews() {
+        DoctorDirectory directory = new DoctorDirectory(Arrays.asList(
+                new Doctor(1, "Dr. A", "Cardiologist", "Tunis", 4.5f, 10, 20, AVAILABLE),
+                new Doctor(2, "Dr. B", "Cardiologist", "Tunis", 4.9f, 5, 20, AVAILABLE),
+                new Doctor(3, "Dr. C", "Cardiologist", "Tunis", 4.5f, 99, 20, AVAILABLE)));
+
+        List<Doctor> top = directory.topRated(2);
+
+        assertEquals(2, top.size());
+        assertEquals(2, top.get(0).getId());
+        assertEquals(3, top.get(1).getId());
+    }
+
+    @Test
+    public void statusUpdateReplacesOnlyThatDoctor() {
+        DoctorDirectory directory = new DoctorDirectory(generate(1000));
+        List<Doctor> before = directory.topRated(1000);
+        Doctor target = before.get(500);
+
+        assertTrue(directory.updateStatus(target.getId(), BUSY));
+        List<Doctor> after = directory.topRated(1000);
+
+        int changed = 0;
+        for (int i = 0; i < after.size(); i++) {
+            if (after.get(i) != before.get(i)) {
+                changed++;
+                assertEquals(target.getId(), after.get(i).getId());
+                // Same profile: the adapter rebinds the status views only
+                assertTrue(after.get(i).sameProfile(before.get(i)));
+                assertNotEquals(before.get(i), after.get(i));
+            }
+        }
+        assertEquals(1, changed);
+    }
+
+    @Test
+    public void sameStatusOrUnknownDoctorChangesNothing() {
+        DoctorDirectory directory = DoctorDirectory.createDefault();
+
+        assertFalse(directory.updateStatus(DoctorDirectory.DEFAULT_DOCTOR, AVAILABLE));
+        assertFalse(directory.updateStatus("Dr. Nobody", BUSY));
+        assertTrue(directory.updateStatus(DoctorDirectory.DEFAULT_DOCTOR, BUSY));
+        assertEquals(BUSY, directory.find(1).getStatus());
+    }
+
+    @Test
+    public void addingAKnownDoctorReplacesIt() {
+        DoctorDirectory directory = DoctorDirectory.createDefault();
+        int size = directory.size();
+
+        directory.addAll(Arrays.asList(new Doctor(2, "Dr. Emily Carter", "Cardiologist", "Tunis", 5.0f, 231, 25, AVAILABLE)));
+
+        assertEquals(size, directory.size());
+        assertEquals(2, directory.topRated(1).get(0).getId());
+    }
+
+    @Test
+    public void topRatedIsASnapshot() {
+        DoctorDirectory directory = DoctorDirectory.createDefault();
+        List<Doctor> before = directory.topRated(10);
+
+        directory.updateStatus(1, BUSY);
+
+        assertEquals(AVAILABLE, before.get(0).getStatus());
+    }
+
+    static List<Doctor> generate(int count) {
+        Random random = new Random(42);
+        List<Doctor> doctors = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            float rating = 30 + random.nextInt(21); // 3.0 - 5.0
+            doctors.add(new Doctor(i, "Dr. Doctor " + i, "Cardiologist", "Tunis", rating / 10f,
+                    random.nextInt(500), 15 + random.nextInt(30), AVAILABLE));
+        }
+        return doctors;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the doctor search index, and the 50k doctors latency benchmark.
+ */
+public class DoctorSearchIndexTest {
+
+    private static final String AVAILABLE = DoctorStatusMachine.STATUS_AVAILABLE;
+
+    private static final String[] FIRST = {"Ahmed", "Emily", "Sara", "Karim", "Lina", "Omar", "Hélène", "Youssef",
+            "Amira", "Mehdi", "Nour", "Ines", "Walid", "Rania", "Sami", "Maya", "Hichem", "Salma", "Bilel", "Aya"};
+    private static final String[] LAST = {"Hassan", "Carter", "Benali", "Mansour", "Haddad", "Trabelsi", "Dupont",
+            "Jaziri", "Gharbi", "Ayari", "Chebbi", "Bouzid", "Mejri", "Sassi", "Khelifi", "Riahi", "Zouari"};
+    private static final String[] SPECIALTIES = {"Cardiologist", "Dermatologist", "Pediatrician", "Neurologist",
+            "Dentist", "Ophthalmologist", "Psychiatrist", "Radiologist", "Surgeon", "Gynecologist"};
+    private static final String[] CITIES = {"Tunis", "Sousse", "Sfax", "Monastir", "Nabeul", "Bizerte", "Gabes",
+            "Kairouan", "Ariana", "Mahdia", "Tozeur", "Djerba"};
+
+    private static DoctorSearchIndex indexOf(Doctor... doctors) {
+        DoctorSearchIndex index = new DoctorSearchIndex();
+        index.addAll(Arrays.asList(doctors));
+        return index;
+    }
+
+    private static Doctor doctor(long id, String name, String specialty, String city, float rating) {
+        return new Doctor(id, name, specialty, city, rating, 10, 20, AVAILABLE);
+    }
+
+    @Test
+    public void findsByNamePrefixSpecialtyAndCity() {
+        DoctorSearchIndex index = indexOf(
+                doctor(1, "Dr. Ahmed Hassan", "Cardiologist", "Tunis", 4.9f),
+                doctor(2, "Dr. Emily Carter", "Dermatologist", "Sousse", 4.8f),
+                doctor(3, "Dr. Sara Benali", "Cardiologist", "Sousse", 4.7f));
+
+        assertEquals(ids(1), ids(index.search("ahm", 10, DoctorSearchIndex.NOT_CANCELLABLE)));
+        assertEquals(ids(1, 3), ids(index.search("cardio", 10, DoctorSearchIndex.NOT_CANCELLABLE)));
+        assertEquals(ids(2, 3), ids(index.search("SOUSSE", 10, DoctorSearchIndex.NOT_CANCELLABLE)));
+        assertEquals(ids(3), ids(index.search("cardio sou", 10, DoctorSearchIndex.NOT_CANCELLABLE)));
+        assertEquals(ids(1), ids(index.search("h", 10, DoctorSearchIndex.NOT_CANCELLABLE)));
+    }
+
+    @Test
+    public void substringsOfThreeLettersOrMoreMatchInsideWords() {
+        DoctorSearchIndex index = indexOf(doctor(1, "Dr. Ahmed Hassan", "Cardiologist", "Tunis", 4.9f));
+
+        assertEquals(1, index.search("assan", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+        // Grams "has" and "san" both exist, but not as one word
+        assertEquals(0, index.search("hasan", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+        // Short terms are word prefixes only
+        assertEquals(0, index.search("ss", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+    }
+
+    @Test
+    public void accentsAndPunctuationAreIgnored() {
+        DoctorSearchIndex index = indexOf(doctor(1, "Dr. Hélène Dupont", "Pediatrician", "Tunis", 4.5f));
+
+        assertEquals(1, index.search("helene", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+        assertEquals(1, index.search("dr.", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+        assertEquals(0, index.search("  ", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+    }
+
+    @Test
+    public void resultsAreBestRatedFirstAndLimited() {
+        DoctorSearchIndex index = indexOf(
+                doctor(1, "Dr. A", "Cardiologist", "Tunis", 4.1f),
+                doctor(2, "Dr. B", "Cardiologist", "Tunis", 4.9f),
+                doctor(3, "Dr. C", "Cardiologist", "Tunis", 4.5f));
+
+        assertEquals(ids(2, 3), ids(index.search("tunis", 2, DoctorSearchIndex.NOT_CANCELLABLE)));
+    }
+
+    @Test
+    public void updatesAreIncremental() {
+        DoctorDirectory directory = new DoctorDirectory(new ArrayList<>());
+        DoctorSearchIndex index = new DoctorSearchIndex();
+        directory.addListener(index);
+
+        directory.addAll(Arrays.asList(doctor(1, "Dr. Ahmed Hassan", "Cardiologist", "Tunis", 4.9f)));
+        assertEquals(1, index.search("tunis", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+
+        // Moved to another city: the old grams are gone
+        directory.addAll(Arrays.asList(doctor(1, "Dr. Ahmed Hassan", "Cardiologist", "Sfax", 4.9f)));
+        assertEquals(0, index.search("tunis", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+        assertEquals(1, index.search("sfax", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+
+        // Status change: results carry the new status
+        directory.updateStatus(1, DoctorStatusMachine.STATUS_IN_CONSULTATION);
+        assertEquals(DoctorStatusMachine.STATUS_IN_CONSULTATION,
+                index.search("sfax", 10, DoctorSearchIndex.NOT_CANCELLABLE).get(0).getStatus());
+
+        index.remove(1);
+        assertEquals(0, index.size());
+        assertEquals(0, index.search("sfax", 10, DoctorSearchIndex.NOT_CANCELLABLE).size());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelledQueryStops() {
+        DoctorSearchIndex index = new DoctorSearchIndex();
+        index.addAll(generate(5_000, new Random(1)));
+
+        index.search("a", 10, () -> true);
+    }
+
+    /**
+     * Benchmark: 50,000 doctors, as-you-type queries (1 to 8 letters, one or two words).
+     * Target: p99 under 5 ms over every single search (3 passes over the queries, no
+     * sample dropped). The same 3 passes run first as a warm-up: while the JIT is still
+     * compiling (on a one-core machine it takes the search's CPU) the tail measures the
+     * compiler, not the search.
+     */
+    @Test
+    public void benchmark50kDoctorsP99Under5ms() {
+        Random random = new Random(7);
+        DoctorSearchIndex index = new DoctorSearchIndex();
+        long buildStart = System.nanoTime();
+        index.addAll(generate(50_000, random));
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String word = pick(random, FIRST, LAST, SPECIALTIES, CITIES).toLowerCase();
+            String query = word.substring(0, 1 + random.nextInt(Math.min(8, word.length())));
+            if (random.nextInt(4) == 0) {
+                String second = pick(random, SPECIALTIES, CITIES).toLowerCase();
+                query += " " + second.substring(0, 1 + random.nextInt(Math.min(6, second.length())));
+            }
+            queries.add(query);
+        }
+        for (int pass = 0; pass < 3; pass++) { // warm up the JIT
+            for (String query : queries) {
+                index.search(query, 20, DoctorSearchIndex.NOT_CANCELLABLE);
+            }
+        }
+
+        long[] nanos = new long[queries.size() * 3];
+        int sample = 0;
+        for (int pass = 0; pass < 3; pass++) {
+            for (String query : queries) {
+                long start = System.nanoTime();
+                index.search(query, 20, DoctorSearchIndex.NOT_CANCELLABLE);
+                nanos[sample++] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        long p50 = nanos[nanos.length / 2];
+        long p99 = nanos[nanos.length * 99 / 100];
+
+        System.out.println("[search] 50k doctors, index built in " + buildMillis + "ms, "
+                + nanos.length + " searches: p50=" + p50 / 1000 + "us p99=" + p99 / 1000
+                + "us max=" + nanos[nanos.length - 1] / 1000 + "us");
+        assertTrue("p99 " + p99 / 1000 + "us", p99 < 5_000_000L);
+    }
+
+    static List<Doctor> generate(int count, Random random) {
+        List<Doctor> doctors = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String name = "Dr. " + FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)];
+            doctors.add(new Doctor(i, name, SPECIALTIES[random.nextInt(SPECIALTIES.length)],
+                    CITIES[random.nextInt(CITIES.length)], (30 + random.nextInt(21)) / 10f,
+                    random.nextInt(500), 15 + random.nextInt(30), AVAILABLE));
+        }
+        return doctors;
+    }
+
+    private static String pick(Random random, String[]... pools) {
+        String[] pool = pools[random.nextInt(pools.length)];
+        return pool[random.nextInt(pool.length)];
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static List<Long> ids(List<Doctor> doctors) {
+        List<Long> list = new ArrayList<>();
+        for (Doctor doctor : doctors) {
+            list.add(doctor.getId());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the debounced, cancelable search used by the Home search bar.
+ */
+public class DoctorSearchTest {
+
+    private ScheduledExecutorService worker;
+    private DoctorSearchIndex index;
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+        worker = Executors.newSingleThreadScheduledExecutor();
+        index = new DoctorSearchIndex();
+        index.addAll(DoctorSearchIndexTest.generate(2_000, new Random(3)));
+    }
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+    }
+
+    @Test
+    public void fastTypingRunsOnlyTheLastQuery() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        DoctorSearch search = new DoctorSearch(index, worker, Runnable::run, 50, 20, (query, results) -> {
+            delivered.add(query);
+            done.countDown();
+        });
+
+        // "c", "ca", "car", "card" typed faster than the debounce delay
+        for (String query : new String[]{"c", "ca", "car", "card"}) {
+            search.query(query);
+            Thread.sleep(5);
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100); // nothing else arrives later
+        assertEquals(Collections.singletonList("card"), delivered);
+    }
+
+    @Test
+    public void resultsOfAStaleQueryAreNotDelivered() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        DoctorSearch search = new DoctorSearch(index, worker, command -> {
+            // Hold the first result "on its way to the main thread" until a newer query exists
+            if (blocked.getCount() == 1) {
+                blocked.countDown();
+                awaitQuietly(release);
+            }
+            command.run();
+        }, 0, 20, (query, results) -> {
+            delivered.add(query);
+            sizes.add(results.size());
+            done.countDown();
+        });
+
+        search.query("cardio");
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        search.query("");  // cleared while "cardio" results were pending
+        release.countDown();
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(""), delivered);
+        assertEquals(Integer.valueOf(0), sizes.get(0));
+    }
+
+    @Test
+    public void cancelDropsPendingQuery() throws InterruptedException {
+        DoctorSearch search = new DoctorSearch(index, worker, Runnable::run, 30, 20,
+                (query, results) -> delivered.add(query));
+
+        search.query("tunis");
+        search.cancel();
+        Thread.sleep(100);
+
+        assertTrue(delivered.isEmpty());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
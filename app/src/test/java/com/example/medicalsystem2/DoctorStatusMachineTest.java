@@ -0,0 +1,38 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the doctor availability state machine.
+ */
+public class DoctorStatusMachineTest {
+
+    private static final long APPOINTMENT = 1_700_000_000_000L;
+    private static final long END = APPOINTMENT + DoctorStatusMachine.CONSULTATION_MILLIS;
+
+    @Test
+    public void availableBeforeAppointment() {
+        long now = APPOINTMENT - 3_600_000L;
+
+        assertEquals(DoctorStatusMachine.STATUS_AVAILABLE, DoctorStatusMachine.statusAt(APPOINTMENT, now));
+    }
+
+    @Test
+    public void inConsultationExactlyAtStart() {
+        assertEquals(DoctorStatusMachine.STATUS_IN_CONSULTATION, DoctorStatusMachine.statusAt(APPOINTMENT, APPOINTMENT));
+        assertEquals(DoctorStatusMachine.STATUS_IN_CONSULTATION, DoctorStatusMachine.statusAt(APPOINTMENT, END - 1));
+    }
+
+    @Test
+    public void availableAgainExactlyAtEnd() {
+        assertEquals(DoctorStatusMachine.STATUS_AVAILABLE, DoctorStatusMachine.statusAt(APPOINTMENT, END));
+        assertEquals(END, DoctorStatusMachine.consultationEnd(APPOINTMENT));
+    }
+
+    @Test
+    public void noAppointment_available() {
+        assertEquals(DoctorStatusMachine.STATUS_AVAILABLE, DoctorStatusMachine.statusAt(-1L, APPOINTMENT));
+    }
+}
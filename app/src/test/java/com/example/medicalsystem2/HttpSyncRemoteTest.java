@@ -0,0 +1,139 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for HttpSyncRemote, over a fake connection (no network): the
+ * endpoint must be https and every batch carries the user's ID token.
+ */
+public class HttpSyncRemoteTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void plainHttpEndpointIsRefused() throws IOException {
+        new HttpSyncRemote(new URL("http://sync.example.com/batch"), () -> "token");
+    }
+
+    @Test
+    public void batchIsPostedWithTheUserToken() throws IOException {
+        FakeConnection[] opened = new FakeConnection[1];
+        URL endpoint = endpoint(url -> opened[0] = new FakeConnection(url, 200, "accepted"));
+        HttpSyncRemote remote = new HttpSyncRemote(endpoint, () -> "id-token-1");
+
+        byte[] response = remote.send("batch".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("accepted", new String(response, StandardCharsets.UTF_8));
+        FakeConnection connection = opened[0];
+        assertEquals("POST", connection.getRequestMethod());
+        assertEquals("Bearer id-token-1", connection.getRequestProperty("Authorization"));
+        assertFalse(connection.getInstanceFollowRedirects());
+        assertEquals("batch", connection.body.toString("UTF-8"));
+        assertTrue(connection.disconnected);
+    }
+
+    @Test
+    public void eachBatchAsksForTheCurrentToken() throws IOException {
+        FakeConnection[] opened = new FakeConnection[1];
+        URL endpoint = endpoint(url -> opened[0] = new FakeConnection(url, 200, ""));
+        int[] fetched = new int[1];
+        HttpSyncRemote remote = new HttpSyncRemote(endpoint, () -> "id-token-" + ++fetched[0]);
+
+        remote.send(new byte[1]);
+        remote.send(new byte[1]);
+
+        assertEquals("Bearer id-token-2", opened[0].getRequestProperty("Authorization"));
+    }
+
+    @Test
+    public void nothingIsSentWithoutAToken() throws IOException {
+        int[] connections = new int[1];
+        URL endpoint = endpoint(url -> {
+            connections[0]++;
+            return new FakeConnection(url, 200, "");
+        });
+        HttpSyncRemote remote = new HttpSyncRemote(endpoint, () -> {
+            throw new IOException("Not signed in");
+        });
+
+        try {
+            remote.send(new byte[1]);
+            fail("Sent without a token");
+        } catch (IOException expected) {
+            assertEquals("Not signed in", expected.getMessage());
+        }
+        assertEquals(0, connections[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void refusedTokenIsAnError() throws IOException {
+        URL endpoint = endpoint(url -> new FakeConnection(url, 401, ""));
+        new HttpSyncRemote(endpoint, () -> "expired").send(new byte[1]);
+    }
+
+    private interface Opener {
+        HttpURLConnection open(URL url);
+    }
+
+    private static URL endpoint(Opener opener) throws IOException {
+        return new URL(null, "https://sync.example.com/batch", new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL url) {
+                return opener.open(url);
+            }
+        });
+    }
+
+    private static final class FakeConnection extends HttpURLConnection {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final int status;
+        final byte[] response;
+        boolean disconnected;
+
+        FakeConnection(URL url, int status, String response) {
+            super(url);
+            this.status = status;
+            this.response = response.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return body;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return status;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(response);
+        }
+
+        @Override
+        public void disconnect() {
+            disconnected = true;
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the avatar downsampling math.
+ */
+public class ImageSizingTest {
+
+    @Test
+    public void sampleSizeIsLargestPowerOfTwoStillCoveringTheTarget() {
+        assertEquals(1, ImageSizing.inSampleSize(150, 150, 150, 150));
+        assertEquals(2, ImageSizing.inSampleSize(300, 300, 150, 150));
+        assertEquals(2, ImageSizing.inSampleSize(599, 599, 150, 150));
+        assertEquals(4, ImageSizing.inSampleSize(600, 600, 150, 150));
+    }
+
+    @Test
+    public void smallerSideDecidesForNonSquarePhotos() {
+        // 4:3 landscape into a square view: the height must still cover the view
+        assertEquals(8, ImageSizing.inSampleSize(4000, 3000, 300, 300));
+        assertTrue(ImageSizing.sampledSize(3000, 8) >= 300);
+    }
+
+    @Test
+    public void unknownSizesAreNotDownsampled() {
+        assertEquals(1, ImageSizing.inSampleSize(-1, -1, 150, 150));
+        assertEquals(1, ImageSizing.inSampleSize(4000, 3000, 0, 0));
+    }
+
+    @Test
+    public void memoryCacheIsAnEighthOfTheHeap() {
+        assertEquals(32 * 1024, ImageSizing.memoryCacheKb(256L * 1024 * 1024, 8));
+    }
+
+    /**
+     * Measurement: bitmap memory for a 48 MP photo shown in the 50dp avatar (150 px, xxhdpi).
+     */
+    @Test
+    public void photo48mpDecodesToAFewHundredKb() {
+        int width = 8000;
+        int height = 6000;
+        int sampleSize = ImageSizing.inSampleSize(width, height, 150, 150);
+        long full = ImageSizing.decodedBytes(width, height, 1);
+        long sampled = ImageSizing.decodedBytes(width, height, sampleSize);
+
+        System.out.println("[avatar] 48MP full decode=" + full / (1024 * 1024) + "MB, inSampleSize="
+                + sampleSize + " -> " + ImageSizing.sampledSize(width, sampleSize) + "x"
+                + ImageSizing.sampledSize(height, sampleSize) + " = " + sampled / 1024 + "KB");
+
+        assertEquals(32, sampleSize);
+        assertEquals(192_000_000L, full);
+        assertTrue(sampled < 256 * 1024);
+        assertTrue(ImageSizing.sampledSize(height, sampleSize) >= 150);
+    }
+}
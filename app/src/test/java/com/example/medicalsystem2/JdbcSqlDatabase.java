@@ -0,0 +1,323 @@
+package com.example.medicalsystem2;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * SqlDatabase on sqlite-jdbc, so AppointmentDatabase runs (and is benchmarked) on the JVM.
+ * Same settings as the device: WAL journal, prepared statements reused.
+ */
+final class JdbcSqlDatabase implements SqlDatabase {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> queries = new HashMap<>(); // reused like Android's statement cache
+    private final List<JdbcStatement> compiled = new ArrayList<>();
+    private boolean transactionSuccessful;
+
+    private JdbcSqlDatabase(Connection connection) {
+        this.connection = connection;
+    }
+
+    static JdbcSqlDatabase open(File file) throws IOException {
+        try {
+            Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+            java.sql.Statement pragma = connection.createStatement();
+            try {
+                pragma.execute("PRAGMA journal_mode=WAL");
+            } finally {
+                pragma.close();
+            }
+            return new JdbcSqlDatabase(connection);
+        } catch (SQLException e) {
+            throw new IOException("Could not open " + file, e);
+        }
+    }
+
+    /**
+     * An AppointmentRepository on an encrypted AppointmentDatabase in "file" (the tests of
+     * the repository and of the classes built on it).
+     */
+    static AppointmentRepository repository(File file, DataCipher cipher, ScheduledExecutorService writer,
+                                            long maxFlushDelayMillis) throws IOException {
+        return AppointmentRepository.open(AppointmentDatabase.open(open(file), cipher), writer, maxFlushDelayMillis);
+    }
+
+    /**
+     * Delete a database file and its WAL files.
+     */
+    static void delete(File file) {
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    @Override
+    public void execute(String sql) throws IOException {
+        try {
+            if (sql.startsWith("VACUUM")) {
+                // sqlite-jdbc leaves an executed statement un-reset (Android resets it), and
+                // VACUUM refuses to run while one is: close and prepare them again
+                for (JdbcStatement statement : compiled) {
+                    statement.release();
+                }
+            }
+            java.sql.Statement statement = connection.createStatement();
+            try {
+                statement.execute(sql);
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public SqlDatabase.Statement compile(String sql) throws IOException {
+        try {
+            JdbcStatement statement = new JdbcStatement(connection, sql);
+            compiled.add(statement);
+            return statement;
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Rows query(String sql, Object... args) throws IOException {
+        try {
+            PreparedStatement statement = queries.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                queries.put(sql, statement);
+            }
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return new ResultRows(statement.executeQuery());
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public int getVersion() throws IOException {
+        Rows rows = query("PRAGMA user_version");
+        try {
+            return rows.next() ? (int) rows.getLong(0) : 0;
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Override
+    public void setVersion(int version) throws IOException {
+        execute("PRAGMA user_version = " + version);
+    }
+
+    @Override
+    public void beginTransaction() throws IOException {
+        try {
+            connection.setAutoCommit(false);
+            transactionSuccessful = false;
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        transactionSuccessful = true;
+    }
+
+    @Override
+    public void endTransaction() throws IOException {
+        try {
+            if (transactionSuccessful) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            transactionSuccessful = false;
+        }
+    }
+
+    @Override
+    public boolean inTransaction() {
+        try {
+            return !connection.getAutoCommit();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static final class JdbcStatement implements SqlDatabase.Statement {
+        private final Connection connection;
+        private final String sql;
+        private PreparedStatement statement;
+        private PreparedStatement lastRowId;
+
+        JdbcStatement(Connection connection, String sql) throws SQLException {
+            this.connection = connection;
+            this.sql = sql;
+            prepare();
+        }
+
+        private void prepare() throws SQLException {
+            statement = connection.prepareStatement(sql);
+            lastRowId = connection.prepareStatement("SELECT last_insert_rowid()");
+        }
+
+        void release() throws SQLException {
+            statement.close();
+            lastRowId.close();
+            prepare();
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            try {
+                statement.setLong(index, value);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            try {
+                statement.setDouble(index, value);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            try {
+                statement.setString(index, value);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            try {
+                statement.setBytes(index, value);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public long executeInsert() throws IOException {
+            try {
+                statement.executeUpdate();
+                // Same connection, so last_insert_rowid() is this statement's row
+                ResultSet keys = lastRowId.executeQuery();
+                try {
+                    return keys.next() ? keys.getLong(1) : -1;
+                } finally {
+                    keys.close();
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public int executeUpdateDelete() throws IOException {
+            try {
+                return statement.executeUpdate();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static final class ResultRows implements Rows {
+        private final ResultSet results;
+
+        ResultRows(ResultSet results) {
+            this.results = results;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            try {
+                return results.next();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public long getLong(int column) throws IOException {
+            try {
+                return results.getLong(column + 1);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public double getDouble(int column) throws IOException {
+            try {
+                return results.getDouble(column + 1);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public String getString(int column) throws IOException {
+            try {
+                return results.getString(column + 1);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public byte[] getBlob(int column) throws IOException {
+            try {
+                return results.getBytes(column + 1);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                results.close();
+            } catch (SQLException e) {
+                // Nothing to release then
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for MappedAttachment, and the 50 MB open-to-first-page benchmark
+ * (mapped page and encrypted page vs reading the whole file).
+ */
+public class MappedAttachmentTest {
+
+    private static final DataCipher CIPHER = new DataCipher(DataCipher.newKey(), 64);
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("attachment", ".txt");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void pagesTogetherAreTheWholeTextWithoutSplitCharacters() throws IOException {
+        // 1, 2, 3 and 4 byte characters, so page boundaries fall inside characters
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            text.append("a é € 😀 line ").append(i).append('\n');
+        }
+        write(text.toString());
+
+        StringBuilder joined = new StringBuilder();
+        try (MappedAttachment mapped = MappedAttachment.open(file, 37)) {
+            for (int page = 0; page < mapped.pageCount(); page++) {
+                String pageText = mapped.textPage(page);
+                assertFalse("page " + page, pageText.contains("�"));
+                joined.append(pageText);
+            }
+        }
+        assertEquals(text.toString(), joined.toString());
+    }
+
+    @Test
+    public void pageIsAMappedViewNotACopy() throws IOException {
+        write("0123456789");
+
+        try (MappedAttachment mapped = MappedAttachment.open(file, 4)) {
+            assertEquals(10, mapped.size());
+            assertEquals(3, mapped.pageCount());
+            ByteBuffer last = mapped.page(2);
+            assertTrue(last.isDirect());
+            assertEquals(2, last.remaining());
+            assertEquals('8', last.get());
+        }
+    }
+
+    @Test
+    public void encryptedPagesAreTheSameTextAcrossChunks() throws IOException {
+        // 64 byte chunks, 37 byte pages: pages (and characters) straddle chunk boundaries
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("a é € 😀 line ").append(i).append('\n');
+        }
+        writeSealed(CIPHER, text.toString());
+
+        StringBuilder joined = new StringBuilder();
+        try (MappedAttachment mapped = MappedAttachment.open(CIPHER.files().open(file), 37)) {
+            assertEquals(text.toString().getBytes(StandardCharsets.UTF_8).length, mapped.size());
+            for (int page = 0; page < mapped.pageCount(); page++) {
+                joined.append(mapped.textPage(page));
+            }
+            assertEquals('a', mapped.page(0).get());
+        }
+        assertEquals(text.toString(), joined.toString());
+    }
+
+    @Test
+    public void emptyFileHasOneEmptyPage() throws IOException {
+        try (MappedAttachment mapped = MappedAttachment.open(file, 16)) {
+            assertEquals(1, mapped.pageCount());
+            assertEquals("", mapped.textPage(0));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void pageAfterTheEndIsRejected() throws IOException {
+        write("abc");
+        try (MappedAttachment mapped = MappedAttachment.open(file, 16)) {
+            mapped.textPage(1);
+        }
+    }
+
+    /**
+     * Benchmark: a 50 MB lab export, open to first page shown. Mapped page vs the file
+     * read onto the heap first (what a byte[] / String based viewer does).
+     */
+    @Test
+    public void benchmark50MbOpenToFirstPage() throws IOException {
+        int size = 50 * 1024 * 1024;
+        int pageBytes = 16 * 1024;
+        byte[] line = "2025-03-12;HEMOGLOBIN;13.8;g/dL;13.5-17.5;OK\n".getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = new FileOutputStream(file)) {
+            byte[] chunk = new byte[line.length * 1024];
+            for (int i = 0; i < 1024; i++) {
+                System.arraycopy(line, 0, chunk, i * line.length, line.length);
+            }
+            for (int written = 0; written < size; written += chunk.length) {
+                out.write(chunk, 0, Math.min(chunk.length, size - written));
+            }
+        }
+
+        File sealedFile = File.createTempFile("attachment", ".sealed");
+        DataCipher cipher = new DataCipher(DataCipher.newKey());
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = cipher.files().encrypt(new FileOutputStream(sealedFile))) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        // Warm up the paths (class loading, JIT), then measure one open each
+        firstPageMapped(pageBytes);
+        firstPageSealed(cipher, sealedFile, pageBytes);
+        firstPageFromHeap(pageBytes);
+
+        long heapBefore = usedHeap();
+        long started = System.nanoTime();
+        MappedAttachment mapped = MappedAttachment.open(file, pageBytes);
+        String mappedPage = mapped.textPage(0);
+        long mappedNanos = System.nanoTime() - started;
+        long mappedHeap = Math.max(0, usedHeap() - heapBefore);
+        mapped.close();
+
+        started = System.nanoTime();
+        String sealedPage = firstPageSealed(cipher, sealedFile, pageBytes);
+        long sealedNanos = System.nanoTime() - started;
+        sealedFile.delete();
+
+        heapBefore = usedHeap();
+        started = System.nanoTime();
+        byte[] whole = Files.readAllBytes(file.toPath());
+        String heapPage = new String(whole, 0, pageBytes, StandardCharsets.UTF_8);
+        long heapNanos = System.nanoTime() - started;
+        long wholeHeap = usedHeap() - heapBefore;
+
+        System.out.println(String.format(
+                "[attachment 50MB] open to first page: mapped %.2f ms, heap +%d KB | encrypted %.2f ms"
+                        + " | read whole file %.1f ms, heap +%d MB (%d pages of %d KB)",
+                mappedNanos / 1e6, mappedHeap / 1024, sealedNanos / 1e6, heapNanos / 1e6, wholeHeap / (1024 * 1024),
+                size / pageBytes, pageBytes / 1024));
+
+        assertEquals(heapPage, mappedPage);
+        assertEquals(heapPage, sealedPage);
+        assertTrue(sealedNanos < heapNanos); // One 64 KB chunk decrypted, not 50 MB
+        assertEquals(size, whole.length);
+        assertTrue(mappedNanos < heapNanos);
+        assertTrue("mapped heap +" + mappedHeap, mappedHeap < 1024 * 1024);
+        assertTrue(wholeHeap > 40L * 1024 * 1024);
+    }
+
+    private String firstPageMapped(int pageBytes) throws IOException {
+        try (MappedAttachment mapped = MappedAttachment.open(file, pageBytes)) {
+            return mapped.textPage(0);
+        }
+    }
+
+    private static String firstPageSealed(DataCipher cipher, File sealedFile, int pageBytes) throws IOException {
+        try (MappedAttachment mapped = MappedAttachment.open(cipher.files().open(sealedFile), pageBytes)) {
+            return mapped.textPage(0);
+        }
+    }
+
+    private String firstPageFromHeap(int pageBytes) throws IOException {
+        byte[] whole = Files.readAllBytes(file.toPath());
+        return new String(whole, 0, pageBytes, StandardCharsets.UTF_8);
+    }
+
+    private void write(String text) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void writeSealed(DataCipher cipher, String text) throws IOException {
+        try (OutputStream out = cipher.files().encrypt(new FileOutputStream(file))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for counters and latency histograms, and the per-event overhead
+ * measurement against Metrics.RECORD_BUDGET_NANOS.
+ */
+public class MetricsTest {
+
+    @After
+    public void tearDown() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void sameNameGivesSameHandle() {
+        assertSame(Metrics.timer("test.same"), Metrics.timer("test.same"));
+        assertSame(Metrics.counter("test.same"), Metrics.counter("test.same"));
+    }
+
+    @Test
+    public void everyValueFallsInsideItsBucket() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Metrics.Histogram.bucketOf(value);
+            assertTrue(value + " below bucket " + bucket, value >= Metrics.Histogram.lowerBound(bucket));
+            assertTrue(value + " above bucket " + bucket, value <= Metrics.Histogram.upperBound(bucket));
+        }
+        assertEquals(Metrics.Histogram.BUCKETS - 1, Metrics.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesAreWithinOneSubBucket() {
+        Metrics.Timer timer = Metrics.timer("test.percentiles");
+        for (long micros = 1; micros <= 1_000; micros++) {
+            timer.recordNanos(micros * 1_000);
+        }
+
+        Metrics.Snapshot snapshot = timer.snapshot();
+        assertEquals(1_000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMaxNanos());
+        assertEquals(500_500, snapshot.getMeanNanos());
+        assertWithin(500_000, snapshot.percentileNanos(50));
+        assertWithin(900_000, snapshot.percentileNanos(90));
+        assertWithin(990_000, snapshot.percentileNanos(99));
+        assertEquals(1_000_000, snapshot.percentileNanos(100));
+    }
+
+    @Test
+    public void emptyTimerReportsZero() {
+        Metrics.Snapshot snapshot = Metrics.timer("test.empty").snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.percentileNanos(99));
+    }
+
+    @Test
+    public void countersAreExactUnderConcurrency() throws InterruptedException {
+        Metrics.Counter counter = Metrics.counter("test.concurrent");
+        Metrics.Timer timer = Metrics.timer("test.concurrent");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    counter.increment();
+                    timer.recordNanos(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, counter.get());
+        assertEquals(400_000, timer.snapshot().getCount());
+        assertEquals(99_999, timer.snapshot().getMaxNanos());
+    }
+
+    @Test
+    public void dumpListsEveryMetric() {
+        Metrics.counter("test.dump.counter").add(3);
+        Metrics.timer("test.dump.timer").recordNanos(2_000);
+
+        StringWriter out = new StringWriter();
+        Metrics.dump(new PrintWriter(out, true));
+
+        assertTrue(out.toString().contains("test.dump.counter count=3"));
+        assertTrue(out.toString().contains("test.dump.timer count=1 mean=2.0us"));
+    }
+
+    /**
+     * Measurement: cost of one recorded event (Timer start + stop, Counter increment).
+     */
+    @Test
+    public void recordingStaysUnderBudget() {
+        Metrics.Timer timer = Metrics.timer("test.overhead");
+        Metrics.Counter counter = Metrics.counter("test.overhead");
+        final int events = 2_000_000;
+
+        // Warm up (JIT)
+        for (int i = 0; i < events; i++) {
+            timer.stop(timer.start());
+            counter.increment();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            timer.stop(timer.start());
+        }
+        double timerNanos = (System.nanoTime() - start) / (double) events;
+
+        start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            counter.increment();
+        }
+        double counterNanos = (System.nanoTime() - start) / (double) events;
+
+        System.out.println(String.format(
+                "[metrics overhead] timer start+stop=%.1fns counter=%.1fns (budget %dns)",
+                timerNanos, counterNanos, Metrics.RECORD_BUDGET_NANOS));
+
+        assertTrue(timerNanos < Metrics.RECORD_BUDGET_NANOS);
+        assertTrue(counterNanos < Metrics.RECORD_BUDGET_NANOS);
+    }
+
+    // Histogram resolution: 8 sub-buckets per power of two
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 8);
+    }
+}
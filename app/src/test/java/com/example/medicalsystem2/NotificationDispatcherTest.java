@@ -0,0 +1,299 @@
+package com.example.medicalsystem2;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for NotificationDispatcher with a fake clock and a fake notification
+ * shade, plus the 500 reminder burst of a staff device.
+ */
+public class NotificationDispatcherTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private FakeClock clock;
+    private FakeScheduler scheduler;
+    private FakeShade shade;
+    private NotificationDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock(T0);
+        scheduler = new FakeScheduler(clock);
+        shade = new FakeShade(clock);
+        dispatcher = new NotificationDispatcher(shade, scheduler, clock);
+    }
+
+    @Test
+    public void eachAppointmentGetsItsOwnNotification() {
+        dispatcher.submit(notice(1, "in 1 hour"));
+        dispatcher.submit(notice(2, "in 1 hour"));
+        scheduler.advance(0);
+
+        assertEquals(2, shade.active.size());
+        assertEquals("in 1 hour", shade.active.get(NotificationDispatcher.notificationId(1)).text);
+        assertEquals("in 1 hour", shade.active.get(NotificationDispatcher.notificationId(2)).text);
+        assertEquals(0, shade.summaries);
+    }
+
+    @Test
+    public void laterReminderReplacesTheSameAppointment() {
+        dispatcher.submit(notice(1, "in 1 hour"));
+        scheduler.advance(1_000);
+        dispatcher.submit(notice(1, "in 10 minutes"));
+        scheduler.advance(1_000);
+
+        assertEquals(1, shade.active.size());
+        assertEquals("in 10 minutes", shade.active.get(NotificationDispatcher.notificationId(1)).text);
+        assertEquals(2, shade.posts.size());
+    }
+
+    @Test
+    public void reminderStillQueuedIsReplacedNotPostedTwice() {
+        dispatcher.submit(notice(1, "in 1 hour"));
+        dispatcher.submit(notice(1, "in 10 minutes"));
+        scheduler.advance(0);
+
+        assertEquals(1, shade.posts.size());
+        assertEquals("in 10 minutes", shade.active.get(NotificationDispatcher.notificationId(1)).text);
+    }
+
+    @Test
+    public void summaryGroupsFromTheThreshold() {
+        for (int i = 1; i < NotificationDispatcher.GROUP_THRESHOLD; i++) {
+            dispatcher.submit(notice(i, "reminder " + i));
+        }
+        scheduler.advance(5_000);
+        assertEquals(0, shade.summaries);
+
+        dispatcher.submit(notice(99, "reminder 99"));
+        scheduler.advance(5_000);
+
+        assertEquals(1, shade.summaries);
+        assertEquals(NotificationDispatcher.GROUP_THRESHOLD, shade.summaryCount);
+        assertEquals("reminder 99", shade.summaryLines.get(0).text);
+    }
+
+    @Test
+    public void dismissedNotificationsNoLongerCount() {
+        for (int i = 1; i <= 6; i++) {
+            dispatcher.submit(notice(i, "reminder " + i));
+        }
+        scheduler.advance(5_000);
+        assertTrue(shade.active.containsKey(NotificationDispatcher.SUMMARY_ID));
+
+        shade.active.clear(); // The user swiped the group away
+        dispatcher.submit(notice(7, "reminder 7"));
+        scheduler.advance(5_000);
+
+        assertEquals(1, shade.active.size());
+        assertEquals(1, dispatcher.shownIds().size());
+        assertFalse(shade.active.containsKey(NotificationDispatcher.SUMMARY_ID));
+    }
+
+    @Test
+    public void idleCallbackRunsOnceEverythingIsPosted() {
+        List<String> calls = new ArrayList<>();
+        dispatcher.whenIdle(() -> calls.add("idle now"));
+        assertEquals(1, calls.size());
+
+        for (int i = 1; i <= 10; i++) {
+            dispatcher.submit(notice(i, "reminder " + i));
+        }
+        dispatcher.whenIdle(() -> calls.add("after burst"));
+        scheduler.advance(100);
+        assertEquals(1, calls.size());
+
+        scheduler.advance(10_000);
+        assertEquals(2, calls.size());
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(10, shade.active.size() - 1); // + the summary
+    }
+
+    @Test
+    public void notificationIdsAreNeverTheSummaryId() {
+        for (long id : new long[]{0, 1, -1, Integer.MAX_VALUE, Integer.MAX_VALUE - 1L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertTrue("appointment " + id, NotificationDispatcher.notificationId(id) > NotificationDispatcher.SUMMARY_ID);
+        }
+        assertNotEquals(NotificationDispatcher.notificationId(1), NotificationDispatcher.notificationId(2));
+    }
+
+    /**
+     * A staff device: 500 reminders fire at once. The shade gets at most MAX_SHOWN of them
+     * plus one summary counting all 500, every update is posted under Android's rate limit,
+     * and everything is out within seconds.
+     */
+    @Test
+    public void burstOf500RemindersIsGroupedAndRateLimited() {
+        for (int i = 1; i <= 500; i++) {
+            dispatcher.submit(notice(i, "Your appointment is in 10 minutes! #" + i));
+        }
+        List<String> calls = new ArrayList<>();
+        dispatcher.whenIdle(() -> calls.add("idle"));
+
+        long started = clock.now;
+        scheduler.advance(60_000);
+        long idleAfter = shade.lastPostAt - started;
+
+        System.out.println(String.format(
+                "[notifications 500 burst] %d posts (%d reminders + %d summaries) in %d ms, %d on screen,"
+                        + " summary of %d, peak post rate %.1f/s, updates dropped by the platform=%d",
+                shade.posts.size() + shade.summaries, shade.posts.size(), shade.summaries, idleAfter,
+                shade.active.size(), shade.summaryCount, shade.peakRate, shade.droppedUpdates));
+
+        assertEquals(1, calls.size());
+        assertEquals(NotificationDispatcher.MAX_SHOWN, shade.posts.size());
+        assertEquals(NotificationDispatcher.MAX_SHOWN + 1, shade.active.size());
+        assertEquals(500, shade.summaryCount);
+        assertTrue(shade.summaries <= 3);
+        assertEquals(0, shade.droppedUpdates);
+        assertTrue(shade.active.size() <= FakeShade.MAX_PER_APP);
+        assertTrue("took " + idleAfter, idleAfter < 10_000);
+    }
+
+    /**
+     * Without a dispatcher: every reminder posted as it fires (updates of the same
+     * notification, like the old fixed id) blows through the platform's rate limit.
+     */
+    @Test
+    public void postingEveryReminderAtOnceIsThrottledByThePlatform() {
+        for (int i = 1; i <= 500; i++) {
+            shade.post(1001, notice(i, "Your appointment is in 10 minutes! #" + i));
+        }
+        assertTrue(shade.droppedUpdates > 400);
+    }
+
+    private static NotificationDispatcher.Notice notice(long appointmentId, String text) {
+        return new NotificationDispatcher.Notice(appointmentId, text, false);
+    }
+
+    private static class FakeClock implements AppClock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    /**
+     * Runs the scheduled tasks in time order while the fake clock is moved forward.
+     */
+    private static class FakeScheduler implements NotificationDispatcher.Scheduler {
+        private final FakeClock clock;
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) ->
+                a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long nextId;
+
+        FakeScheduler(FakeClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            long id = nextId++;
+            tasks.put(id, task);
+            queue.add(new long[]{clock.now + delayMillis, id});
+        }
+
+        void advance(long millis) {
+            long until = clock.now + millis;
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                clock.now = Math.max(clock.now, next[0]);
+                tasks.remove(next[1]).run();
+            }
+            clock.now = until;
+        }
+    }
+
+    /**
+     * The notification shade, with NotificationManagerService's limits: its post rate
+     * estimate (RateEstimator: moving average of the time between posts), updates dropped
+     * while that rate is over 5 per second, and at most 50 notifications per app.
+     */
+    private static class FakeShade implements NotificationDispatcher.Poster {
+        static final float MAX_ENQUEUE_RATE = 5f;
+        static final int MAX_PER_APP = 50;
+        private static final double RATE_ALPHA = 0.7;
+        private static final double MINIMUM_DT = 0.0005;
+
+        private final FakeClock clock;
+        final Map<Integer, NotificationDispatcher.Notice> active = new HashMap<>();
+        final List<NotificationDispatcher.Notice> posts = new ArrayList<>();
+        int summaries;
+        int summaryCount;
+        List<NotificationDispatcher.Notice> summaryLines;
+        int droppedUpdates;
+        float peakRate;
+        long lastPostAt;
+
+        private long lastEnqueue = -1;
+        private double interarrival = 1000.0;
+
+        FakeShade(FakeClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void post(int id, NotificationDispatcher.Notice notice) {
+            if (enqueue(id)) {
+                active.put(id, notice);
+                posts.add(notice);
+            }
+        }
+
+        @Override
+        public void postSummary(int count, List<NotificationDispatcher.Notice> lines) {
+            if (enqueue(NotificationDispatcher.SUMMARY_ID)) {
+                active.put(NotificationDispatcher.SUMMARY_ID, null);
+                summaries++;
+                summaryCount = count;
+                summaryLines = lines;
+            }
+        }
+
+        @Override
+        public void cancelSummary() {
+            active.remove(NotificationDispatcher.SUMMARY_ID);
+        }
+
+        @Override
+        public Set<Integer> activeIds() {
+            return new HashSet<>(active.keySet());
+        }
+
+        // False if the platform drops the post
+        private boolean enqueue(int id) {
+            float rate = 0;
+            if (lastEnqueue >= 0) {
+                double dt = Math.max(MINIMUM_DT, (clock.now - lastEnqueue) / 1000.0);
+                interarrival = RATE_ALPHA * interarrival + (1 - RATE_ALPHA) * dt;
+                rate = (float) (1 / interarrival);
+            }
+            lastEnqueue = clock.now;
+            lastPostAt = clock.now;
+            peakRate = Math.max(peakRate, rate);
+            if (active.containsKey(id) && rate > MAX_ENQUEUE_RATE) {
+                droppedUpdates++;
+                return false;
+            }
+            return active.containsKey(id) || active.size() < MAX_PER_APP;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for RecordAttachments: content-addressed (keyed hash), encrypted,
+ * streamed, never read whole.
+ */
+public class RecordAttachmentsTest {
+
+    // SHA-256("abc"), FIPS 180-2 test vector
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    private File directory;
+    private DataCipher cipher;
+    private RecordAttachments attachments;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("records", "");
+        directory.delete();
+        cipher = new DataCipher(DataCipher.newKey());
+        attachments = new RecordAttachments(directory, cipher);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void attachmentIsStoredEncryptedUnderAKeyedHash() throws IOException {
+        RecordAttachments.Stored stored = attachments.save(bytes("abc"));
+
+        // 64 hex digits, but not the plain SHA-256: the name does not confirm the content
+        assertTrue(stored.key.matches("[0-9a-f]{64}"));
+        assertNotEquals(ABC_SHA256, stored.key);
+        assertEquals(3, stored.size);
+        assertFalse(stored.deduplicated);
+        assertTrue(attachments.contains(stored.key));
+        assertEquals(cipher.files().sealedSize(3), attachments.file(stored.key).length());
+    }
+
+    @Test
+    public void contentIsNotReadableInTheFile() throws IOException {
+        RecordAttachments.Stored stored = attachments.save(bytes("HIV test: negative"));
+
+        String onDisk = new String(Files.readAllBytes(attachments.file(stored.key).toPath()),
+                StandardCharsets.ISO_8859_1);
+        assertFalse(onDisk.contains("negative"));
+        try (InputStream in = attachments.open(record("test.txt", stored.key, "text/plain", stored.size))) {
+            assertEquals("HIV test: negative", readAll(in));
+        }
+    }
+
+    @Test
+    public void sameContentGetsAnotherKeyWithAnotherDataKey() throws IOException {
+        RecordAttachments other = new RecordAttachments(directory, new DataCipher(DataCipher.newKey()));
+
+        assertNotEquals(attachments.save(bytes("abc")).key, other.save(bytes("abc")).key);
+    }
+
+    @Test
+    public void identicalUploadsAreStoredOnce() throws IOException {
+        RecordAttachments.Stored first = attachments.save(bytes("lab results v1"));
+        RecordAttachments.Stored again = attachments.save(bytes("lab results v1"));
+        RecordAttachments.Stored other = attachments.save(bytes("lab results v2"));
+
+        assertEquals(first.key, again.key);
+        assertTrue(again.deduplicated);
+        assertNotEquals(first.key, other.key);
+        assertEquals(2, directory.listFiles().length); // No temporary file left either
+    }
+
+    @Test
+    public void largeAttachmentIsCopiedInChunks() throws IOException {
+        long size = 24L * 1024 * 1024;
+        CountingStream source = new CountingStream(size);
+
+        RecordAttachments.Stored stored = attachments.save(source);
+
+        MedicalRecord record = record("scan.jpg", stored.key, "image/jpeg", size);
+        assertEquals(size, stored.size);
+        assertEquals(cipher.files().sealedSize(size), attachments.file(record).length());
+        assertEquals(RecordAttachments.BUFFER_SIZE, source.largestRead);
+        assertEquals(1, directory.listFiles().length);
+        assertTrue(RecordAttachments.isImage(record));
+        try (InputStream in = attachments.open(record)) {
+            assertEquals('x', in.read());
+        }
+    }
+
+    @Test
+    public void attachmentIsMappedPageByPage() throws IOException {
+        RecordAttachments.Stored stored = attachments.save(bytes("page one|page two"));
+        MedicalRecord record = record("notes.txt", stored.key, "text/plain", stored.size);
+
+        try (MappedAttachment mapped = attachments.map(record, 9)) {
+            assertEquals(2, mapped.pageCount());
+            assertEquals("page two", mapped.textPage(1));
+        }
+        assertFalse(RecordAttachments.isPdf(record));
+        assertTrue(RecordAttachments.isPdf(record("report.pdf", stored.key, "application/pdf", 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void recordWithoutAttachmentCannotBeOpened() throws IOException {
+        attachments.open(record("", "", "", 0));
+    }
+
+    @Test
+    public void sizesAreFormattedForTheList() {
+        assertEquals("830 B", RecordAttachments.formatSize(830));
+        assertEquals("12.5 KB", RecordAttachments.formatSize(12_800));
+        assertEquals("3.0 MB", RecordAttachments.formatSize(3L * 1024 * 1024));
+    }
+
+    private static InputStream bytes(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static MedicalRecord record(String name, String key, String type, long size) {
+        return new MedicalRecord(1, "a@x.com", MedicalRecord.KIND_REPORT, "Report", "", 0, name, key, type, size);
+    }
+
+    /**
+     * "size" bytes of 'x', produced as they are read (nothing is held in memory).
+     */
+    private static final class CountingStream extends InputStream {
+        final long size;
+        long bytesRead;
+        int largestRead;
+
+        CountingStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (bytesRead == size) {
+                return -1;
+            }
+            bytesRead++;
+            return 'x';
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (bytesRead == size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - bytesRead);
+            java.util.Arrays.fill(buffer, offset, offset + count, (byte) 'x');
+            bytesRead += count;
+            largestRead = Math.max(largestRead, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for RecordPager: cursor pages, prefetch, the bounded page window,
+ * and a 20k-record scroll under a fixed heap ceiling.
+ */
+public class RecordPagerTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    private final Queue<Runnable> ioTasks = new ArrayDeque<>();
+    private final RecordingListener listener = new RecordingListener();
+
+    @Test
+    public void firstPageIsAppendedAndTheNextOneIsPrefetched() {
+        GeneratedSource source = new GeneratedSource(1_000, 0);
+        RecordPager pager = newPager(source, 3);
+
+        pager.start();
+        runIo();
+        assertEquals(50, pager.size());
+        assertEquals(Arrays.asList("appended 0+50"), listener.events);
+
+        pager.get(10);
+        assertTrue(ioTasks.isEmpty()); // Far from the end of the page
+        pager.get(36); // 50 - 15 = 35: close to the end, prefetch
+        runIo();
+        assertEquals(100, pager.size());
+        assertEquals(2, source.calls);
+    }
+
+    @Test
+    public void scrollingWalksEveryRecordOnceInOrder() {
+        // 3 records per timestamp: the cursor needs the id to break ties
+        GeneratedSource source = new GeneratedSource(1_234, 0);
+        RecordPager pager = newPager(source, 3);
+        pager.start();
+        runIo();
+
+        List<Long> ids = new ArrayList<>();
+        for (int position = 0; position < pager.size(); position++) {
+            MedicalRecord record = pager.get(position);
+            runIo();
+            assertNotNull("row " + position, record);
+            ids.add(record.getId());
+        }
+
+        assertTrue(pager.isEndReached());
+        assertEquals(1_234, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(1_234 - i, (long) ids.get(i));
+        }
+        assertEquals(25, source.calls); // 24 full pages + the short last one, each loaded once
+    }
+
+    @Test
+    public void droppedPageIsReloadedWhenScrollingBack() {
+        GeneratedSource source = new GeneratedSource(1_000, 0);
+        RecordPager pager = newPager(source, 3);
+        pager.start();
+        runIo();
+        for (int position = 0; position < 500; position++) {
+            pager.get(position);
+            runIo();
+        }
+        assertTrue(pager.loadedRecordCount() <= 3 * 50);
+
+        listener.events.clear();
+        assertNull(pager.get(0)); // Placeholder while it loads again
+        runIo();
+        assertEquals(Arrays.asList("reloaded 0+50"), listener.events);
+        assertEquals(1_000, pager.get(0).getId());
+    }
+
+    @Test
+    public void failedLoadIsReportedAndRetried() {
+        GeneratedSource source = new GeneratedSource(100, 0);
+        source.failures = 1;
+        RecordPager pager = newPager(source, 3);
+
+        pager.start();
+        runIo();
+        assertEquals(Arrays.asList("failed"), listener.events);
+        assertEquals(0, pager.size());
+
+        pager.start();
+        runIo();
+        assertEquals(50, pager.size());
+    }
+
+    @Test
+    public void closedPagerIgnoresLatePages() {
+        RecordPager pager = newPager(new GeneratedSource(100, 0), 3);
+        pager.start();
+        pager.close();
+        runIo();
+
+        assertTrue(listener.events.isEmpty());
+        assertEquals(0, pager.size());
+    }
+
+    /**
+     * Scroll through 20,000 records (2 KB summary each: ~80 MB if they were all kept)
+     * like a RecyclerView would, with the heap checked along the way.
+     */
+    @Test
+    public void scrolling20kRecordsStaysUnderHeapCeiling() {
+        int total = 20_000;
+        int visibleRows = 12;
+        long ceilingBytes = 16L * 1024 * 1024;
+
+        GeneratedSource source = new GeneratedSource(total, 2_048);
+        RecordPager pager = newPager(source, 3);
+        long baseline = usedHeap();
+        long peakGrowth = 0;
+        int maxHeld = 0;
+        int placeholders = 0;
+
+        long started = System.nanoTime();
+        pager.start();
+        runIo();
+        for (int top = 0; top < pager.size(); top++) {
+            // The rows on screen are bound (the last one is new each step)
+            for (int row = top; row < Math.min(top + visibleRows, pager.size()); row++) {
+                if (pager.get(row) == null) {
+                    placeholders++;
+                }
+            }
+            runIo();
+            maxHeld = Math.max(maxHeld, pager.loadedRecordCount());
+            if (top % 2_000 == 0) {
+                peakGrowth = Math.max(peakGrowth, usedHeap() - baseline);
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        peakGrowth = Math.max(peakGrowth, usedHeap() - baseline);
+
+        System.out.println(String.format(
+                "[records 20k] scrolled %d records in %d ms: %d page loads, at most %d records held,"
+                        + " %d placeholder binds, peak heap growth %.1f MB (ceiling %d MB)",
+                pager.size(), elapsedMillis, source.calls, maxHeld, placeholders,
+                peakGrowth / (1024.0 * 1024.0), ceilingBytes / (1024 * 1024)));
+
+        assertEquals(total, pager.size());
+        assertTrue(pager.isEndReached());
+        assertEquals(0, placeholders); // Prefetch keeps ahead of a forward scroll
+        assertEquals(total / 50 + 1, source.calls); // +1: the empty page that finds the end
+        assertTrue(maxHeld <= 3 * 50);
+        assertTrue("heap grew " + peakGrowth, peakGrowth < ceilingBytes);
+    }
+
+    // ================================
+    // HELPERS
+    // ================================
+
+    private RecordPager newPager(RecordPager.Source source, int maxPages) {
+        return new RecordPager(source, ioTasks::add, Runnable::run, 50, 15, maxPages, listener);
+    }
+
+    private void runIo() {
+        Runnable task;
+        while ((task = ioTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * "total" records of one user, newest first: record i has id total - i, and three
+     * records share each timestamp. Built on demand, like rows read from a cursor.
+     */
+    private static final class GeneratedSource implements RecordPager.Source {
+        final int total;
+        final int summaryChars;
+        int calls;
+        int failures;
+
+        GeneratedSource(int total, int summaryChars) {
+            this.total = total;
+            this.summaryChars = summaryChars;
+        }
+
+        @Override
+        public List<MedicalRecord> pageAfter(MedicalRecord after, int limit) throws IOException {
+            calls++;
+            if (failures > 0) {
+                failures--;
+                throw new IOException("disk error");
+            }
+            int first = 0;
+            if (after != null) {
+                // First record strictly older than the cursor (recorded_at, id)
+                while (first < total && !olderThan(first, after)) {
+                    first++;
+                }
+            }
+            List<MedicalRecord> page = new ArrayList<>();
+            for (int i = first; i < Math.min(first + limit, total); i++) {
+                page.add(record(i));
+            }
+            return page;
+        }
+
+        private boolean olderThan(int index, MedicalRecord cursor) {
+            long time = timeOf(index);
+            return time < cursor.getRecordedAtMillis()
+                    || (time == cursor.getRecordedAtMillis() && total - index < cursor.getId());
+        }
+
+        private long timeOf(int index) {
+            return T0 - (index / 3) * MINUTE;
+        }
+
+        private MedicalRecord record(int index) {
+            char[] summary = new char[summaryChars];
+            Arrays.fill(summary, 'x');
+            return new MedicalRecord(total - index, "a@x.com", MedicalRecord.KIND_LAB_RESULT, "Blood test " + index,
+                    new String(summary), timeOf(index), "", "", "", 0);
+        }
+    }
+
+    private static final class RecordingListener implements RecordPager.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onRecordsAppended(int fromPosition, int count) {
+            events.add("appended " + fromPosition + "+" + count);
+        }
+
+        @Override
+        public void onRecordsReloaded(int fromPosition, int count) {
+            events.add("reloaded " + fromPosition + "+" + count);
+        }
+
+        @Override
+        public void onLoadFailed(IOException error) {
+            events.add("failed");
+        }
+    }
+}
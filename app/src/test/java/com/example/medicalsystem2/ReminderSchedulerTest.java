@@ -0,0 +1,77 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the reminder time computation (no device needed).
+ * Scheduling and firing are covered by AppointmentEngineTest.
+ */
+public class ReminderSchedulerTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void reminderFiresAtItsOffset() {
+        long appointment = NOW + 3 * HOUR;
+
+        assertEquals(appointment - HOUR, trigger(appointment, HOUR, 0));
+    }
+
+    @Test
+    public void reminderLateWithinTheGraceFiresImmediately() {
+        long appointment = NOW + 30_000L;
+
+        assertEquals(NOW, trigger(appointment, MINUTE, MINUTE));
+        assertEquals(NOW, trigger(NOW + 10 * MINUTE - 5 * MINUTE, 10 * MINUTE, 5 * MINUTE));
+    }
+
+    @Test
+    public void reminderLateBeyondTheGraceIsSkipped() {
+        assertEquals(ReminderScheduler.NO_REMINDER, trigger(NOW + 4 * MINUTE, 10 * MINUTE, 5 * MINUTE));
+    }
+
+    @Test
+    public void pastAppointmentHasNoReminder() {
+        assertEquals(ReminderScheduler.NO_REMINDER, trigger(NOW - MINUTE, MINUTE, MINUTE));
+        assertEquals(ReminderScheduler.NO_REMINDER, trigger(NOW, MINUTE, MINUTE));
+    }
+
+    @Test
+    public void noAppointmentHasNoReminder() {
+        assertEquals(ReminderScheduler.NO_REMINDER,
+                trigger(AppointmentSnapshotCache.NO_APPOINTMENT, MINUTE, MINUTE));
+    }
+
+    @Test
+    public void graceEndsBeforeTheNextReminderIsDue() {
+        assertEquals(ReminderScheduler.LATE_REMINDER_GRACE_MILLIS, ReminderScheduler.lateGrace(HOUR, 10 * MINUTE));
+        assertEquals(MINUTE - 1, ReminderScheduler.lateGrace(2 * MINUTE, MINUTE));
+    }
+
+    @Test
+    public void emptyOrInvalidStringParsesToMinusOne() {
+        assertEquals(AppointmentTimeEngine.INVALID, AppointmentTimeEngine.parse("", ZoneId.systemDefault()));
+        assertEquals(AppointmentTimeEngine.INVALID, AppointmentTimeEngine.parse("not a date", ZoneId.systemDefault()));
+    }
+
+    @Test
+    public void sameWallClockTimeMapsToNewInstantAfterZoneChange() {
+        long paris = AppointmentTimeEngine.parse("2030-01-15 10:30", ZoneId.of("Europe/Paris"));
+        long tunis = AppointmentTimeEngine.parse("2030-01-15 10:30", ZoneId.of("Africa/Tunis"));
+        long london = AppointmentTimeEngine.parse("2030-01-15 10:30", ZoneId.of("Europe/London"));
+
+        // Paris and Tunis share UTC+1 in January, London is one hour behind
+        assertEquals(paris, tunis);
+        assertEquals(HOUR, london - paris);
+    }
+
+    private static long trigger(long appointment, long offset, long grace) {
+        return ReminderScheduler.computeTriggerTime(appointment, offset, grace, NOW);
+    }
+}
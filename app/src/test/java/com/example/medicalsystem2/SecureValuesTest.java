@@ -0,0 +1,216 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SecureValues (over an in-memory backend), and the read
+ * benchmark against a plain synchronized map (what SharedPreferences reads cost).
+ */
+public class SecureValuesTest {
+
+    private final DataCipher cipher = new DataCipher(DataCipher.newKey());
+    private MapBackend backend;
+    private SecureValues values;
+
+    @Before
+    public void setUp() {
+        AppLog.setSink((level, tag, message, error) -> { });
+        backend = new MapBackend();
+        values = new SecureValues(cipher, backend);
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.setSink(null);
+    }
+
+    @Test
+    public void backendOnlyHoldsSealedValues() {
+        values.putString("user_email", "patient@x.com");
+        values.putLong("login_time", 1_700_000_000_000L);
+
+        String stored = backend.map.get("user_email");
+        assertFalse(stored.contains("patient"));
+        assertEquals((DataCipher.OVERHEAD + 13) * 2, stored.length()); // Hex
+        assertFalse(backend.map.get("login_time").contains("1700000000000"));
+    }
+
+    @Test
+    public void valuesAreReadBackAfterARestart() {
+        values.putString("user_email", "patient@x.com");
+        values.putLong("login_time", 42);
+
+        SecureValues restarted = new SecureValues(cipher, backend);
+        assertEquals("patient@x.com", restarted.getString("user_email", null));
+        assertEquals(42, restarted.getLong("login_time", 0));
+        assertEquals(7, restarted.getLong("missing", 7));
+    }
+
+    @Test
+    public void putAllIsOneBackendWrite() {
+        values.putString("stale", "x");
+        Map<String, String> session = new LinkedHashMap<>();
+        session.put("user_email", "patient@x.com");
+        session.put("login_time", "42");
+        session.put("stale", null);
+
+        values.putAll(session);
+
+        assertEquals(2, backend.writes);
+        assertFalse(backend.map.containsKey("stale"));
+        assertNull(values.getString("stale", null));
+        SecureValues restarted = new SecureValues(cipher, backend);
+        assertEquals("patient@x.com", restarted.getString("user_email", null));
+        assertEquals(42, restarted.getLong("login_time", 0));
+    }
+
+    @Test
+    public void valueIsDecryptedOnceThenServedFromMemory() {
+        values.putString("user_email", "patient@x.com");
+        SecureValues restarted = new SecureValues(cipher, backend);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("patient@x.com", restarted.getString("user_email", null));
+        }
+        assertEquals(1, backend.reads);
+        assertNull(restarted.getString("missing", null));
+        assertNull(restarted.getString("missing", null));
+        assertEquals(2, backend.reads); // Missing is remembered too
+    }
+
+    @Test
+    public void removeAndClearForgetValues() {
+        values.putString("a", "1");
+        values.putString("b", "2");
+
+        values.remove("a");
+        assertNull(values.getString("a", null));
+        assertFalse(backend.map.containsKey("a"));
+
+        values.clear();
+        assertNull(values.getString("b", null));
+        assertTrue(backend.map.isEmpty());
+    }
+
+    @Test
+    public void tamperedOrSwappedValueReadsAsMissing() {
+        values.putString("user_email", "patient@x.com");
+        values.putString("other_email", "other@x.com");
+        String stored = backend.map.get("user_email");
+        char flipped = stored.charAt(40) == '0' ? '1' : '0';
+        backend.map.put("user_email", stored.substring(0, 40) + flipped + stored.substring(41));
+        backend.map.put("other_email", stored); // Sealed for "user_email": does not open here
+
+        SecureValues restarted = new SecureValues(cipher, backend);
+        assertEquals("none", restarted.getString("user_email", "none"));
+        assertEquals("none", restarted.getString("other_email", "none"));
+    }
+
+    @Test
+    public void valueSealedWithAnotherKeyReadsAsMissing() {
+        values.putString("user_email", "patient@x.com");
+
+        SecureValues otherKey = new SecureValues(new DataCipher(DataCipher.newKey()), backend);
+        assertNull(otherKey.getString("user_email", null));
+    }
+
+    @Test
+    public void hexRoundTrips() {
+        byte[] bytes = {0, 1, (byte) 0x7F, (byte) 0x80, (byte) 0xFF};
+        assertEquals("00017f80ff", SecureValues.toHex(bytes));
+        assertArrayEquals(bytes, SecureValues.fromHex("00017f80ff"));
+    }
+
+    /**
+     * Benchmark: 2 000 000 reads of the signed-in user's email, decrypted values served
+     * from memory vs a plain synchronized map. Encryption must not make hot reads slower.
+     */
+    @Test
+    public void benchmarkCachedReads() {
+        values.putString("user_email", "patient@x.com");
+        SecureValues restarted = new SecureValues(cipher, backend);
+        Map<String, String> plain = new HashMap<>();
+        plain.put("user_email", "patient@x.com");
+        int reads = 2_000_000;
+
+        // Warm up both, then take the best of 5 runs each
+        long sealedNanos = Long.MAX_VALUE;
+        long plainNanos = Long.MAX_VALUE;
+        int sink = 0;
+        for (int run = 0; run < 6; run++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < reads; i++) {
+                sink += restarted.getString("user_email", null).length();
+            }
+            long sealedRun = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            for (int i = 0; i < reads; i++) {
+                synchronized (plain) {
+                    sink += plain.get("user_email").length();
+                }
+            }
+            long plainRun = System.nanoTime() - started;
+            if (run > 0) {
+                sealedNanos = Math.min(sealedNanos, sealedRun);
+                plainNanos = Math.min(plainNanos, plainRun);
+            }
+        }
+
+        System.out.println(String.format(
+                "[secure values] %d reads: encrypted (cached) %.1f ns/read | plain map %.1f ns/read",
+                reads, sealedNanos / (double) reads, plainNanos / (double) reads));
+
+        assertEquals(6L * 2 * reads * 13, sink);
+        assertEquals(1, backend.reads);
+        // Within 10% of the plain map (+ 2 ms for timer noise on a run this short)
+        assertTrue(sealedNanos <= plainNanos * 1.1 + 2_000_000);
+    }
+
+    private static final class MapBackend implements SecureValues.Backend {
+        final Map<String, String> map = new HashMap<>();
+        int reads;
+        int writes;
+
+        @Override
+        public String get(String key) {
+            reads++;
+            return map.get(key);
+        }
+
+        @Override
+        public void put(String key, String sealedValue) {
+            writes++;
+            if (sealedValue == null) {
+                map.remove(key);
+            } else {
+                map.put(key, sealedValue);
+            }
+        }
+
+        @Override
+        public void putAll(Map<String, String> sealedValues) {
+            writes++;
+            for (Map.Entry<String, String> entry : sealedValues.entrySet()) {
+                if (entry.getValue() == null) {
+                    map.remove(entry.getKey());
+                } else {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the launch routing decision made from the cached session.
+ */
+public class SessionRouterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    @Test
+    public void noSessionGoesToLogin() {
+        assertEquals(SessionRouter.Destination.LOGIN, SessionRouter.route(null, NOW));
+        assertEquals(SessionRouter.Destination.LOGIN, SessionRouter.route(new Session("uid", "", NOW + HOUR, NOW), NOW));
+    }
+
+    @Test
+    public void validTokenGoesToHome() {
+        Session session = new Session("uid", "patient@example.com", NOW + HOUR, NOW - DAY);
+
+        assertEquals(SessionRouter.Destination.HOME, SessionRouter.route(session, NOW));
+    }
+
+    @Test
+    public void expiredTokenRecentlyValidatedStillGoesToHome() {
+        // ID tokens last one hour; the next launch is usually after that
+        Session session = new Session("uid", "patient@example.com", NOW - DAY, NOW - 2 * DAY);
+
+        assertEquals(SessionRouter.Destination.HOME, SessionRouter.route(session, NOW));
+    }
+
+    @Test
+    public void sessionNotValidatedForTooLongGoesToLogin() {
+        Session stale = new Session("uid", "patient@example.com", 0, NOW - SessionRouter.MAX_OFFLINE_MILLIS);
+        Session never = new Session("uid", "patient@example.com", 0, 0);
+
+        assertEquals(SessionRouter.Destination.LOGIN, SessionRouter.route(stale, NOW));
+        assertEquals(SessionRouter.Destination.LOGIN, SessionRouter.route(never, NOW));
+    }
+
+    @Test
+    public void validatedInTheFutureIsNotTrusted() {
+        // Clock moved back: do not keep an expired session alive forever
+        Session session = new Session("uid", "patient@example.com", NOW - DAY, NOW + DAY);
+
+        assertEquals(SessionRouter.Destination.LOGIN, SessionRouter.route(session, NOW));
+    }
+
+    @Test
+    public void validatedKeepsUserAndUpdatesTimes() {
+        Session session = new Session("uid", "patient@example.com", 0, 0).validated(NOW + HOUR, NOW);
+
+        assertEquals("uid", session.getUid());
+        assertEquals("patient@example.com", session.getEmail());
+        assertEquals(NOW + HOUR, session.getTokenExpiryMillis());
+        assertEquals(NOW, session.getValidatedAtMillis());
+    }
+
+    /**
+     * Activities started from launch to Home for a returning user:
+     * before, MainActivity -> Login -> Home; now MainActivity -> Home.
+     */
+    @Test
+    public void returningUserSkipsLogin() {
+        Session session = new Session("uid", "patient@example.com", NOW - HOUR, NOW - DAY);
+
+        int activities = 1; // MainActivity
+        if (SessionRouter.route(session, NOW) == SessionRouter.Destination.LOGIN) {
+            activities++; // Login, which then opens Home
+        }
+        activities++; // Home
+
+        System.out.println("[session] launch -> Home: " + activities + " activities (was 3)");
+        assertEquals(2, activities);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the slot availability engine, and the 500 doctors x 1 month benchmark.
+ */
+public class SlotEngineTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Africa/Tunis");
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+    private static final long THIRTY_MINUTES = 30 * AppointmentTimeEngine.MINUTE_MILLIS;
+
+    private final SlotEngine engine = new SlotEngine(SlotEngine.WorkingHours.clinicDefault(), ZONE, THIRTY_MINUTES);
+
+    private static long at(LocalDate day, int hour, int minute) {
+        return day.atTime(hour, minute).atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void workingHoursGiveFourteenSlotsAndClosedSunday() {
+        SlotEngine.Availability week = engine.compute(MONDAY, 7, new long[0], 0, 0);
+
+        assertEquals(14, week.freeCount(0)); // 09:00-12:00 + 14:00-18:00 = 6 + 8 slots
+        assertEquals(0, week.freeCount(6));  // Sunday
+        int[] monday = week.freeStartMinutes(0);
+        assertEquals(9 * 60, monday[0]);
+        assertEquals(11 * 60 + 30, monday[5]);
+        assertEquals(14 * 60, monday[6]);
+        assertEquals(17 * 60 + 30, monday[13]);
+    }
+
+    @Test
+    public void bookingsTakeTheSlotsTheyOverlap() {
+        long[] booked = {
+                at(MONDAY, 10, 0),                 // exactly one slot
+                at(MONDAY, 14, 45),                // 14:45-15:15: two slots
+                at(MONDAY.minusDays(1), 10, 0)};   // outside the range
+        SlotEngine.Availability day = engine.compute(MONDAY, 1, booked, booked.length, 0);
+
+        assertFalse(day.isFree(0, 20));  // 10:00
+        assertTrue(day.isFree(0, 21));   // 10:30
+        assertFalse(day.isFree(0, 29));  // 14:30
+        assertFalse(day.isFree(0, 30));  // 15:00
+        assertTrue(day.isFree(0, 31));   // 15:30
+        assertEquals(11, day.freeCount(0));
+    }
+
+    @Test
+    public void startedSlotsAreNotFree() {
+        SlotEngine.Availability today = engine.compute(MONDAY, 2, new long[0], 0, at(MONDAY, 10, 10));
+
+        assertEquals(21, today.nextFree(0, 0)); // 10:30, the 10:00 slot already started
+        assertEquals(14, today.freeCount(1));   // tomorrow untouched
+    }
+
+    @Test
+    public void slotStartMillisRoundTrips() {
+        SlotEngine.Availability week = engine.compute(MONDAY, 7, new long[0], 0, 0);
+
+        assertEquals(at(MONDAY.plusDays(2), 14, 30), week.slotStartMillis(2, 29));
+        assertEquals(2, week.dayIndex(MONDAY.plusDays(2)));
+        assertEquals(-1, week.dayIndex(MONDAY.plusDays(7)));
+    }
+
+    @Test
+    public void appointmentsAreFilteredByDoctor() {
+        Appointment mine = new Appointment(1, "a@b.c", "Dr. A", at(MONDAY, 9, 0), false);
+        Appointment other = new Appointment(2, "a@b.c", "Dr. B", at(MONDAY, 9, 30), false);
+
+        SlotEngine.Availability day = engine.compute(MONDAY, 1, Arrays.asList(mine, other), "Dr. A", 0);
+
+        assertFalse(day.isFree(0, 18));
+        assertTrue(day.isFree(0, 19));
+    }
+
+    @Test
+    public void fifteenMinuteSlotsUseTwoWordsPerDay() {
+        SlotEngine.WorkingHours hours = new SlotEngine.WorkingHours(15).open(DayOfWeek.MONDAY, 20 * 60, 24 * 60);
+        SlotEngine fine = new SlotEngine(hours, ZONE, 15 * AppointmentTimeEngine.MINUTE_MILLIS);
+
+        SlotEngine.Availability day = fine.compute(MONDAY, 1, Collections.<Appointment>emptyList(), "Dr. A", 0);
+
+        assertEquals(16, day.freeCount(0));
+        assertEquals(80, day.nextFree(0, 0)); // 20:00 = slot 80, in the second long
+        assertEquals(95, day.freeStartMinutes(0)[15] / 15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slotLengthMustDivideADay() {
+        new SlotEngine.WorkingHours(7);
+    }
+
+    /**
+     * Benchmark: free slots of 500 doctors for one month, ~5 bookings per doctor and working day.
+     */
+    @Test
+    public void benchmarkMonthFor500Doctors() {
+        Random random = new Random(11);
+        int doctors = 500;
+        int days = 31;
+        long[][] bookings = new long[doctors][];
+        for (int d = 0; d < doctors; d++) {
+            bookings[d] = new long[days * 5];
+            for (int i = 0; i < bookings[d].length; i++) {
+                bookings[d][i] = at(MONDAY.plusDays(random.nextInt(days)), 9 + random.nextInt(9), 30 * random.nextInt(2));
+            }
+        }
+
+        long freeSlots = 0;
+        for (int warmUp = 0; warmUp < 5; warmUp++) {
+            freeSlots = computeAll(bookings, days);
+        }
+        long start = System.nanoTime();
+        freeSlots = computeAll(bookings, days);
+        long micros = (System.nanoTime() - start) / 1000;
+
+        System.out.println("[slots] " + doctors + " doctors x " + days + " days, " + doctors * days * 5
+                + " bookings: " + micros / 1000.0 + "ms (" + freeSlots + " free slots)");
+        assertTrue(freeSlots > 0);
+        assertTrue("took " + micros + "us", micros < 50_000);
+    }
+
+    private long computeAll(long[][] bookings, int days) {
+        long free = 0;
+        for (long[] doctorBookings : bookings) {
+            SlotEngine.Availability month = engine.compute(MONDAY, days, doctorBookings, doctorBookings.length, 0);
+            for (int day = 0; day < days; day++) {
+                free += month.freeCount(day);
+            }
+        }
+        return free;
+    }
+}
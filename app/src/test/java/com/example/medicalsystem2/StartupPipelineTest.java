@@ -0,0 +1,158 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the parallel startup pipeline, and the splash duration
+ * measurement against the old fixed 5-second progress loop.
+ */
+public class StartupPipelineTest {
+
+    private ExecutorService workers;
+    private ExecutorService callbacks;
+
+    @Before
+    public void setUp() {
+        workers = Executors.newFixedThreadPool(4);
+        callbacks = Executors.newSingleThreadExecutor(); // stands in for the main thread
+    }
+
+    @After
+    public void tearDown() {
+        workers.shutdownNow();
+        callbacks.shutdownNow();
+    }
+
+    @Test
+    public void tasksRunInParallelAndReportOnce() throws InterruptedException {
+        StartupPipeline pipeline = new StartupPipeline()
+                .add("firebaseAuth", () -> Thread.sleep(150))
+                .add("appointments", () -> Thread.sleep(100))
+                .add("notificationChannel", () -> Thread.sleep(20));
+        RecordingListener listener = new RecordingListener();
+
+        pipeline.start(workers, callbacks, listener);
+        StartupPipeline.Report report = listener.await();
+
+        // Bounded by the slowest task, not by the sum (270 ms)
+        assertTrue(report.toString(), report.getTotalNanos() < TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(3, report.getTaskNanos().size());
+        assertTrue(report.getFailures().isEmpty());
+        assertEquals(1, listener.finishedCalls);
+        assertEquals(3, listener.progress.size());
+        assertEquals(Integer.valueOf(3), listener.progress.get(2));
+    }
+
+    @Test
+    public void failingTaskDoesNotBlockStartup() throws InterruptedException {
+        StartupPipeline pipeline = new StartupPipeline()
+                .add("ok", () -> { })
+                .add("broken", () -> {
+                    throw new IllegalStateException("no network");
+                });
+        RecordingListener listener = new RecordingListener();
+
+        pipeline.start(workers, callbacks, listener);
+        StartupPipeline.Report report = listener.await();
+
+        assertEquals(1, report.getFailures().size());
+        assertEquals("no network", report.getFailures().get("broken").getMessage());
+        assertTrue(report.toString().contains("broken="));
+    }
+
+    @Test
+    public void cancelledPipelineCallsNothing() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        StartupPipeline pipeline = new StartupPipeline().add("slow", release::await);
+        RecordingListener listener = new RecordingListener();
+
+        pipeline.start(workers, callbacks, listener);
+        pipeline.cancel();
+        release.countDown();
+
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(2, TimeUnit.SECONDS));
+        callbacks.shutdown();
+        assertTrue(callbacks.awaitTermination(2, TimeUnit.SECONDS));
+        assertEquals(0, listener.finishedCalls);
+        assertTrue(listener.progress.isEmpty());
+    }
+
+    @Test
+    public void emptyPipelineFinishesRightAway() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+
+        new StartupPipeline().start(workers, callbacks, listener);
+
+        assertTrue(listener.await().getTaskNanos().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pipelineStartsOnlyOnce() {
+        StartupPipeline pipeline = new StartupPipeline();
+        RecordingListener listener = new RecordingListener();
+        pipeline.start(workers, callbacks, listener);
+        pipeline.start(workers, callbacks, listener);
+    }
+
+    /**
+     * Measurement: splash duration with realistic init costs vs the old fixed loop
+     * (100 steps x Thread.sleep(50) = 5 s on every launch).
+     */
+    @Test
+    public void splashDuration_fixedLoopVsPipeline() throws InterruptedException {
+        long fixedLoopMillis = 100 * 50;
+        StartupPipeline pipeline = new StartupPipeline()
+                .add("firebaseAuth", () -> Thread.sleep(80))
+                .add("appointments", () -> Thread.sleep(40))
+                .add("notificationChannel", () -> Thread.sleep(5));
+        RecordingListener listener = new RecordingListener();
+
+        pipeline.start(workers, callbacks, listener);
+        StartupPipeline.Report report = listener.await();
+        long pipelineMillis = TimeUnit.NANOSECONDS.toMillis(report.getTotalNanos());
+
+        System.out.println("[splash] fixed loop=" + fixedLoopMillis + "ms pipeline=" + pipelineMillis
+                + "ms (" + report + ")");
+
+        assertTrue(pipelineMillis < fixedLoopMillis / 10);
+        assertTrue(Metrics.timer("startup.pipeline").snapshot().getCount() > 0);
+        assertTrue(Metrics.timer("startup.task.firebaseAuth").snapshot().getCount() > 0);
+    }
+
+    private static class RecordingListener implements StartupPipeline.Listener {
+        final List<Integer> progress = new ArrayList<>();
+        final AtomicReference<StartupPipeline.Report> report = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        int finishedCalls;
+
+        @Override
+        public void onProgress(int finishedTasks, int totalTasks) {
+            progress.add(finishedTasks);
+        }
+
+        @Override
+        public void onFinished(StartupPipeline.Report finished) {
+            finishedCalls++;
+            report.set(finished);
+            done.countDown();
+        }
+
+        StartupPipeline.Report await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            return report.get();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the in-process status bus (sticky replay, delivery thread, unsubscribe).
+ */
+public class StatusBusTest {
+
+    @Test
+    public void subscriberReceivesPostedValues() {
+        StatusBus<String> bus = new StatusBus<>(Runnable::run);
+        List<String> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        bus.post(DoctorStatusMachine.STATUS_AVAILABLE);
+        bus.post(DoctorStatusMachine.STATUS_IN_CONSULTATION);
+
+        assertEquals(2, received.size());
+        assertEquals(DoctorStatusMachine.STATUS_IN_CONSULTATION, received.get(1));
+    }
+
+    @Test
+    public void lateSubscriberGetsStickyValueImmediately() {
+        StatusBus<String> bus = new StatusBus<>(Runnable::run);
+        bus.post(DoctorStatusMachine.STATUS_AVAILABLE);
+        bus.post(DoctorStatusMachine.STATUS_IN_CONSULTATION);
+
+        List<String> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        assertEquals(1, received.size());
+        assertEquals(DoctorStatusMachine.STATUS_IN_CONSULTATION, received.get(0));
+    }
+
+    @Test
+    public void nothingIsReplayedBeforeTheFirstPost() {
+        StatusBus<String> bus = new StatusBus<>(Runnable::run);
+        List<String> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        assertTrue(received.isEmpty());
+        assertNull(bus.getLatest());
+    }
+
+    @Test
+    public void deliveryGoesThroughTheExecutor() {
+        QueueExecutor mainThread = new QueueExecutor();
+        StatusBus<String> bus = new StatusBus<>(mainThread);
+        List<String> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        bus.post("A");
+        assertTrue(received.isEmpty()); // not on the "main thread" yet
+
+        mainThread.runAll();
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void unsubscribedListenerDropsQueuedValues() {
+        QueueExecutor mainThread = new QueueExecutor();
+        StatusBus<String> bus = new StatusBus<>(mainThread);
+        List<String> received = new ArrayList<>();
+        StatusBus<String>.Subscription subscription = bus.subscribe(received::add);
+
+        bus.post("A");
+        subscription.unsubscribe();
+        mainThread.runAll();
+
+        assertTrue(received.isEmpty());
+        assertFalse(subscription.isActive());
+        assertEquals(0, bus.getSubscriberCount());
+        assertEquals("A", bus.getLatest());
+    }
+
+    // Stands in for the main Looper: tasks run only when runAll() is called
+    private static class QueueExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for offline-first sync, against a fake server with a fake clock,
+ * plus the bytes / requests needed for 100 bookings over a flaky network.
+ */
+public class SyncEngineTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long SLOT = 1_800_000L;
+    private static final DataCipher CIPHER = new DataCipher(DataCipher.newKey());
+
+    private final List<File> files = new ArrayList<>();
+    private final List<SyncOutbox> outboxes = new ArrayList<>();
+    private FakeClock clock;
+    private FakeScheduler scheduler;
+    private FakeServer server;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock(T0);
+        scheduler = new FakeScheduler(clock);
+        server = new FakeServer(new Random(3));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (SyncOutbox outbox : outboxes) {
+            outbox.close();
+        }
+        for (File file : files) {
+            file.delete();
+            new File(file.getPath() + ".tmp").delete();
+        }
+    }
+
+    @Test
+    public void bookingsWithinTheWindowShareOneRequest() throws IOException {
+        SyncEngine engine = engine(outbox(), new ArrayList<>());
+        engine.setOnline(true);
+
+        for (int i = 1; i <= 10; i++) {
+            engine.onAppointmentAdded(appointment(i, i));
+            scheduler.advance(1_000);
+        }
+        assertEquals(0, server.requests);
+
+        scheduler.advance(SyncEngine.BATCH_WINDOW_MILLIS);
+        assertEquals(1, server.requests);
+        assertEquals(10, server.appointments.size());
+        assertEquals(0, engine.getPendingCount());
+    }
+
+    @Test
+    public void offlineBookingsAreKeptAndSentWhenTheNetworkIsBack() throws IOException {
+        File file = newFile();
+        SyncOutbox outbox = open(file);
+        SyncEngine engine = engine(outbox, new ArrayList<>());
+        engine.onAppointmentAdded(appointment(1, 1));
+        engine.onAppointmentAdded(appointment(2, 2));
+        scheduler.advance(10 * 60_000L);
+        assertEquals(0, server.requests);
+
+        // App killed while offline: the outbox is still there on the next start
+        outbox.close();
+        SyncEngine restarted = engine(open(file), new ArrayList<>());
+        restarted.start(Collections.<Appointment>emptyList());
+        assertEquals(2, restarted.getPendingCount());
+
+        restarted.setOnline(true);
+        scheduler.advance(0);
+        assertEquals(1, server.requests);
+        assertEquals(2, server.appointments.size());
+    }
+
+    @Test
+    public void failuresBackOffExponentiallyUntilANewNetwork() throws IOException {
+        SyncEngine engine = engine(outbox(), new ArrayList<>());
+        engine.setOnline(true);
+        server.down = true;
+        engine.onAppointmentAdded(appointment(1, 1));
+        scheduler.advance(SyncEngine.BATCH_WINDOW_MILLIS);
+
+        long previousDelay = 0;
+        for (int failure = 1; failure <= 12; failure++) {
+            assertEquals(failure, engine.getConsecutiveFailures());
+            long delay = engine.getNextUploadAt() - clock.now;
+            long full = Math.min(SyncEngine.BASE_BACKOFF_MILLIS << (failure - 1), SyncEngine.MAX_BACKOFF_MILLIS);
+            assertTrue("delay " + delay, delay >= full / 2 && delay <= full);
+            if (full < SyncEngine.MAX_BACKOFF_MILLIS) {
+                assertTrue(delay > previousDelay / 2);
+            }
+            previousDelay = delay;
+            scheduler.advance(delay);
+        }
+        assertEquals(13, server.requests);
+
+        // Back online on another network: retried at once
+        server.down = false;
+        engine.setOnline(false);
+        engine.setOnline(true);
+        scheduler.advance(0);
+        assertEquals(0, engine.getPendingCount());
+        assertEquals(0, engine.getConsecutiveFailures());
+    }
+
+    @Test
+    public void lostResponseIsSentAgainWithoutDuplicates() throws IOException {
+        SyncEngine engine = engine(outbox(), new ArrayList<>());
+        engine.setOnline(true);
+        engine.onAppointmentAdded(appointment(1, 1));
+        server.loseNextResponse = true;
+
+        scheduler.advance(SyncEngine.BATCH_WINDOW_MILLIS);
+        assertEquals(1, engine.getPendingCount());
+        scheduler.advance(SyncEngine.MAX_BACKOFF_MILLIS);
+
+        assertEquals(0, engine.getPendingCount());
+        assertEquals(2, server.requests);
+        assertEquals(1, server.appointments.size());
+    }
+
+    @Test
+    public void slotBookedFirstByAnotherDeviceWinsOnTheServer() throws IOException {
+        List<Appointment> rejectedA = new ArrayList<>();
+        List<Appointment> rejectedB = new ArrayList<>();
+        SyncEngine phoneA = engine(outbox(), rejectedA);
+        SyncEngine phoneB = engine(outbox(), rejectedB);
+        phoneA.setOnline(true);
+        phoneB.setOnline(true);
+
+        phoneA.onAppointmentAdded(appointment(1, 5));
+        scheduler.advance(SyncEngine.BATCH_WINDOW_MILLIS);
+        Appointment late = appointment(1, 5); // same doctor slot, booked on phone B
+        phoneB.onAppointmentAdded(late);
+        phoneB.onAppointmentAdded(appointment(2, 6));
+        scheduler.advance(SyncEngine.BATCH_WINDOW_MILLIS);
+
+        assertTrue(rejectedA.isEmpty());
+        assertEquals(1, rejectedB.size());
+        assertEquals(late.getStartMillis(), rejectedB.get(0).getStartMillis());
+        assertEquals(2, server.appointments.size());
+
+        // Phone B removes it locally: nothing to tell the server
+        int requests = server.requests;
+        phoneB.onAppointmentRemoved(late);
+        assertEquals(0, phoneB.getPendingCount());
+        scheduler.advance(SyncEngine.BATCH_WINDOW_MILLIS);
+        assertEquals(requests, server.requests);
+    }
+
+    @Test
+    public void existingAppointmentsAreQueuedOnFirstStartOnly() throws IOException {
+        File file = newFile();
+        SyncOutbox outbox = open(file);
+        List<Appointment> existing = new ArrayList<>();
+        existing.add(appointment(1, 1));
+        existing.add(appointment(2, 2));
+        SyncEngine engine = engine(outbox, new ArrayList<>());
+        engine.start(existing);
+        assertEquals(2, engine.getPendingCount());
+
+        outbox.acknowledge(outbox.pending(10));
+        outbox.close();
+        SyncEngine again = engine(open(file), new ArrayList<>());
+        again.start(existing);
+        assertEquals(0, again.getPendingCount());
+    }
+
+    /**
+     * 100 bookings, one every minute or so, over a flaky network (30% of requests fail, the phone
+     * drops now and then). Compared with one plain request per booking.
+     */
+    @Test
+    public void measure100BookingsOverAFlakyNetwork() throws IOException {
+        server.failureRate = 0.3;
+        Random random = new Random(11);
+        SyncEngine engine = engine(outbox(), new ArrayList<>());
+        engine.setOnline(true);
+
+        long naiveBytes = 0;
+        for (int i = 1; i <= 100; i++) {
+            Appointment booking = new Appointment(i, "patient" + (i % 7) + "@example.com",
+                    "Dr. " + (i % 5 == 0 ? "Ahmed Hassan" : "Sara Ben Ali"), T0 + i * SLOT, false);
+            engine.onAppointmentAdded(booking);
+            naiveBytes += uncompressedSize(booking);
+            if (random.nextInt(8) == 0) {
+                engine.setOnline(!engine.isOnline());
+            }
+            scheduler.advance(random.nextInt(120_000)); // next booking within 2 minutes
+        }
+        engine.setOnline(true);
+        scheduler.advance(24 * 3_600_000L);
+
+        assertEquals(0, engine.getPendingCount());
+        assertEquals(100, server.appointments.size());
+        System.out.println(String.format(
+                "[sync 100 bookings] batched+gzip: %d requests (%d failed), %d bytes up, %d bytes down;"
+                        + " one plain request per booking: 100 requests, %d bytes up",
+                server.requests, server.failed, server.bytesIn, server.bytesOut, naiveBytes));
+        assertTrue(server.requests < 50);
+        assertTrue(server.bytesIn < naiveBytes);
+    }
+
+    // ================================
+    // HELPERS
+    // ================================
+
+    private SyncEngine engine(SyncOutbox outbox, List<Appointment> rejected) {
+        return new SyncEngine(outbox, server, scheduler, clock, new Random(5), rejected::add);
+    }
+
+    private SyncOutbox outbox() throws IOException {
+        return open(newFile());
+    }
+
+    private SyncOutbox open(File file) throws IOException {
+        SyncOutbox outbox = SyncOutbox.open(file, CIPHER, false);
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    private File newFile() throws IOException {
+        File file = File.createTempFile("outbox", ".log");
+        file.delete();
+        files.add(file);
+        return file;
+    }
+
+    private static Appointment appointment(long id, int slot) {
+        return new Appointment(id, "a@x.com", "Dr. A", T0 + slot * SLOT, false);
+    }
+
+    // Same fields, one uncompressed request each
+    private static int uncompressedSize(Appointment appointment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeUTF("00000000-0000-0000-0000-000000000000");
+        data.writeLong(appointment.getId());
+        data.writeLong(appointment.getStartMillis());
+        data.writeBoolean(appointment.isCustomTime());
+        data.writeUTF(appointment.getUserEmail());
+        data.writeUTF(appointment.getDoctorName());
+        data.close();
+        return bytes.size();
+    }
+
+    private static class FakeClock implements AppClock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    /**
+     * Runs the scheduled tasks in time order while the fake clock is moved forward.
+     */
+    private static class FakeScheduler implements SyncEngine.Scheduler {
+        private final FakeClock clock;
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) ->
+                a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long nextId;
+
+        FakeScheduler(FakeClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            long id = nextId++;
+            tasks.put(id, task);
+            queue.add(new long[]{clock.now + delayMillis, id});
+        }
+
+        void advance(long millis) {
+            long until = clock.now + millis;
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                clock.now = Math.max(clock.now, next[0]);
+                tasks.remove(next[1]).run();
+            }
+            clock.now = until;
+        }
+    }
+
+    /**
+     * In-process server: first booking of a doctor slot wins, repeats are ignored.
+     */
+    private static class FakeServer implements SyncRemote {
+        final Map<String, Appointment> appointments = new LinkedHashMap<>(); // by device:id
+        final Map<String, String> slotOwners = new HashMap<>();              // doctor@start -> device:id
+        private final Random random;
+        double failureRate;
+        boolean down;
+        boolean loseNextResponse;
+        int requests;
+        int failed;
+        long bytesIn;
+        long bytesOut;
+
+        FakeServer(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public byte[] send(byte[] request) throws IOException {
+            requests++;
+            bytesIn += request.length;
+            if (down || random.nextDouble() < failureRate) {
+                failed++;
+                throw new IOException("Connection reset");
+            }
+            SyncCodec.Request decoded = SyncCodec.decodeRequest(request);
+            Map<Long, SyncCodec.Outcome> outcomes = new LinkedHashMap<>();
+            for (SyncOutbox.Change change : decoded.changes) {
+                String key = decoded.deviceId + ":" + change.getAppointmentId();
+                if (change.isDelete()) {
+                    Appointment removed = appointments.remove(key);
+                    if (removed != null) {
+                        slotOwners.remove(slot(removed));
+                    }
+                    outcomes.put(change.getSeq(), SyncCodec.Outcome.ACCEPTED);
+                    continue;
+                }
+                String slot = slot(change.getAppointment());
+                String owner = slotOwners.get(slot);
+                if (owner != null && !owner.equals(key)) {
+                    outcomes.put(change.getSeq(), SyncCodec.Outcome.REJECTED_SLOT_TAKEN);
+                } else {
+                    slotOwners.put(slot, key);
+                    appointments.put(key, change.getAppointment());
+                    outcomes.put(change.getSeq(), SyncCodec.Outcome.ACCEPTED);
+                }
+            }
+            byte[] response = SyncCodec.encodeResponse(outcomes);
+            bytesOut += response.length;
+            if (loseNextResponse) {
+                loseNextResponse = false;
+                failed++;
+                throw new IOException("Read timed out"); // applied, but the phone never hears it
+            }
+            return response;
+        }
+
+        private static String slot(Appointment appointment) {
+            return appointment.getDoctorName() + "@" + appointment.getStartMillis();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.medicalsystem2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the durable sync outbox.
+ */
+public class SyncOutboxTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final DataCipher CIPHER = new DataCipher(DataCipher.newKey());
+
+    private File file;
+    private SyncOutbox outbox;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("outbox", ".log");
+        file.delete();
+        outbox = SyncOutbox.open(file, CIPHER, false);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        outbox.close();
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void pendingChangesSurviveReopen() throws IOException {
+        outbox.recordPut(appointment(1));
+        outbox.recordPut(appointment(2));
+        outbox.recordDelete(3);
+        String deviceId = outbox.getDeviceId();
+        assertTrue(outbox.wasCreated());
+
+        reopen();
+
+        assertFalse(outbox.wasCreated());
+        assertEquals(deviceId, outbox.getDeviceId());
+        List<SyncOutbox.Change> pending = outbox.pending(10);
+        assertEquals(3, pending.size());
+        assertEquals("Dr. A", pending.get(0).getAppointment().getDoctorName());
+        assertTrue(pending.get(2).isDelete());
+        assertEquals(3, pending.get(2).getAppointmentId());
+    }
+
+    @Test
+    public void newerChangeOfSameAppointmentReplacesOlder() throws IOException {
+        outbox.recordPut(appointment(1));
+        outbox.recordPut(appointment(2));
+        outbox.recordDelete(1);
+
+        List<SyncOutbox.Change> pending = outbox.pending(10);
+        assertEquals(2, pending.size());
+        assertEquals(2, pending.get(0).getAppointmentId());
+        assertTrue(pending.get(1).isDelete());
+
+        reopen();
+        assertEquals(2, outbox.size());
+    }
+
+    @Test
+    public void acknowledgedChangesAreGoneButNewerOnesStay() throws IOException {
+        outbox.recordPut(appointment(1));
+        outbox.recordPut(appointment(2));
+        List<SyncOutbox.Change> sent = outbox.pending(10);
+        outbox.recordDelete(2); // made while the batch was on its way
+
+        outbox.acknowledge(sent);
+
+        assertEquals(1, outbox.size());
+        assertTrue(outbox.pending(10).get(0).isDelete());
+        reopen();
+        assertEquals(1, outbox.size());
+        assertTrue(outbox.pending(10).get(0).isDelete());
+    }
+
+    @Test
+    public void sequenceKeepsGrowingAcrossCompaction() throws IOException {
+        long lastSeq = 0;
+        for (int i = 1; i <= 300; i++) {
+            outbox.recordPut(appointment(i));
+            List<SyncOutbox.Change> sent = outbox.pending(1);
+            assertTrue(sent.get(0).getSeq() > lastSeq);
+            lastSeq = sent.get(0).getSeq();
+            outbox.acknowledge(sent);
+        }
+        assertTrue("compacted", outbox.getRecordCount() < 300);
+
+        reopen();
+        outbox.recordPut(appointment(301));
+        assertTrue(outbox.pending(1).get(0).getSeq() > lastSeq);
+    }
+
+    @Test
+    public void halfWrittenRecordIsDropped() throws IOException {
+        outbox.recordPut(appointment(1));
+        outbox.close();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{1, 0, 0, 0}); // crash in the middle of a PUT
+        out.close();
+
+        outbox = SyncOutbox.open(file, CIPHER, false);
+        assertEquals(1, outbox.size());
+        outbox.recordPut(appointment(2));
+        reopen();
+        assertEquals(2, outbox.size());
+    }
+
+    @Test
+    public void appointmentsAreNotReadableInTheFile() throws IOException {
+        outbox.recordPut(new Appointment(1, "patient@x.com", "Dr. Oncology", T0, false));
+        outbox.close();
+
+        String bytes = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+        assertFalse(bytes.contains("patient@x.com"));
+        assertFalse(bytes.contains("Dr. Oncology"));
+        outbox = SyncOutbox.open(file, CIPHER, false);
+        assertEquals("Dr. Oncology", outbox.pending(1).get(0).getAppointment().getDoctorName());
+    }
+
+    @Test
+    public void plainVersion1FileIsRewrittenSealed() throws IOException {
+        outbox.close();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x4D53534F);
+            out.writeInt(1);
+            out.writeUTF("device-1");
+            out.writeByte(1); // PUT in plain text
+            out.writeLong(7);
+            out.writeLong(42);
+            out.writeLong(T0);
+            out.writeBoolean(true);
+            out.writeUTF("patient@x.com");
+            out.writeUTF("Dr. Plain");
+        }
+
+        outbox = SyncOutbox.open(file, CIPHER, false);
+        SyncOutbox.Change change = outbox.pending(1).get(0);
+        assertEquals("device-1", outbox.getDeviceId());
+        assertEquals(7, change.getSeq());
+        assertEquals("Dr. Plain", change.getAppointment().getDoctorName());
+        assertTrue(change.getAppointment().isCustomTime());
+        String bytes = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+        assertFalse(bytes.contains("Dr. Plain"));
+        reopen();
+        assertEquals(42, outbox.pending(1).get(0).getAppointmentId());
+    }
+
+    @Test(expected = IOException.class)
+    public void outboxDoesNotOpenWithAnotherKey() throws IOException {
+        outbox.recordPut(appointment(1));
+        outbox.close();
+
+        outbox = SyncOutbox.open(file, new DataCipher(DataCipher.newKey()), false);
+    }
+
+    private void reopen() throws IOException {
+        outbox.close();
+        outbox = SyncOutbox.open(file, CIPHER, false);
+    }
+
+    private static Appointment appointment(long id) {
+        return new Appointment(id, "a@x.com", "Dr. A", T0 + id * 1_800_000L, false);
+    }
+}
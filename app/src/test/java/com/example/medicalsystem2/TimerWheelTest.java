@@ -0,0 +1,220 @@
+package com.example.medicalsystem2;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests (and a 100k benchmark) for the hierarchical timer wheel.
+ */
+public class TimerWheelTest {
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    public void timerNeverFiresEarly() {
+        TimerWheel<String> wheel = new TimerWheel<>(SECOND, T0);
+        wheel.schedule(T0 + 1500, "a");
+        List<String> fired = new ArrayList<>();
+
+        assertEquals(0, wheel.advanceTo(T0 + 1999, fired::add));
+        assertEquals(1, wheel.advanceTo(T0 + 2000, fired::add));
+        assertEquals(1, fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void pastDeadlineExpiresOnNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(SECOND, T0);
+        wheel.advanceTo(T0 + MINUTE, payload -> { });
+        wheel.schedule(T0, "late");
+
+        assertEquals(T0 + MINUTE, wheel.nextDeadline());
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(T0 + MINUTE, fired::add);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void cancelledTimerNeverFires() {
+        TimerWheel<String> wheel = new TimerWheel<>(SECOND, T0);
+        TimerWheel.Timer<String> cancelled = wheel.schedule(T0 + HOUR, "cancelled");
+        wheel.schedule(T0 + 2 * HOUR, "kept");
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(T0 + 2 * HOUR, wheel.nextDeadline());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(T0 + 3 * HOUR, fired::add);
+        assertEquals(1, fired.size());
+        assertEquals("kept", fired.get(0));
+    }
+
+    @Test
+    public void timersCascadeAcrossLevelsAndFireAtTheirDeadline() {
+        TimerWheel<Long> wheel = new TimerWheel<>(SECOND, T0);
+        long[] deadlines = {
+                T0 + 30 * SECOND,   // level 0
+                T0 + 10 * MINUTE,   // level 1
+                T0 + 23 * HOUR,     // level 2
+                T0 + 40 * DAY,      // level 3
+                T0 + 3 * 365 * DAY, // level 4
+                T0 + 40L * 365 * DAY // overflow
+        };
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        // Jump from deadline to deadline, as the platform alarm would
+        for (long deadline : deadlines) {
+            assertEquals(deadline, wheel.nextDeadline());
+            List<Long> fired = new ArrayList<>();
+            wheel.advanceTo(deadline - 1, fired::add);
+            assertTrue(fired.isEmpty());
+            wheel.advanceTo(deadline, fired::add);
+            assertEquals(1, fired.size());
+            assertEquals(Long.valueOf(deadline), fired.get(0));
+        }
+        assertEquals(TimerWheel.NO_DEADLINE, wheel.nextDeadline());
+    }
+
+    @Test
+    public void batchIsHandedOutInDeadlineOrder() {
+        TimerWheel<Long> wheel = new TimerWheel<>(SECOND, T0);
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) {
+            long deadline = T0 + random.nextInt((int) DAY);
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        assertEquals(1_000, wheel.advanceTo(T0 + DAY, fired::add));
+        for (int i = 1; i < fired.size(); i++) {
+            assertTrue(fired.get(i - 1) <= fired.get(i));
+        }
+    }
+
+    @Test
+    public void nextDeadlineIsExactAfterRandomOperations() {
+        TimerWheel<Long> wheel = new TimerWheel<>(SECOND, T0);
+        PriorityQueue<Long> expected = new PriorityQueue<>();
+        List<TimerWheel.Timer<Long>> live = new ArrayList<>();
+        Random random = new Random(11);
+        long now = T0;
+
+        for (int step = 0; step < 5_000; step++) {
+            int op = random.nextInt(3);
+            if (op == 0 || live.isEmpty()) {
+                long deadline = now + SECOND * (1 + random.nextInt((int) (7 * DAY / SECOND)));
+                live.add(wheel.schedule(deadline, deadline));
+                expected.add(deadline);
+            } else if (op == 1) {
+                TimerWheel.Timer<Long> timer = live.remove(random.nextInt(live.size()));
+                if (wheel.cancel(timer)) {
+                    expected.remove(timer.getPayload());
+                }
+            } else {
+                now += SECOND * random.nextInt((int) (HOUR / SECOND));
+                final long at = now;
+                wheel.advanceTo(now, payload -> assertTrue(payload <= at));
+                while (!expected.isEmpty() && expected.peek() <= now) {
+                    expected.poll();
+                }
+            }
+            assertEquals(expected.size(), wheel.size());
+            long next = expected.isEmpty() ? TimerWheel.NO_DEADLINE : expected.peek();
+            assertEquals(next, wheel.nextDeadline());
+        }
+    }
+
+    /**
+     * Benchmark: 100,000 reminders (25,000 appointments x 4 offsets over 30 days).
+     * Insert, cancel a quarter of them, then expire the rest by jumping from
+     * deadline to deadline. Compared to a PriorityQueue (O(log n) insert, O(n) cancel).
+     */
+    @Test
+    public void benchmark100kTimers() {
+        final int count = 100_000;
+        Random random = new Random(42);
+        long[] deadlines = new long[count];
+        for (int i = 0; i < count; i++) {
+            deadlines[i] = T0 + MINUTE * (1 + random.nextInt((int) (30 * DAY / MINUTE)));
+        }
+
+        // Timer wheel
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        TimerWheel<Long> wheel = new TimerWheel<>(SECOND, T0);
+        List<TimerWheel.Timer<Long>> timers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            timers.add(wheel.schedule(deadlines[i], deadlines[i]));
+        }
+        double insertNanos = (System.nanoTime() - start) / (double) count;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        int cancels = count / 4;
+        start = System.nanoTime();
+        for (int i = 0; i < cancels; i++) {
+            wheel.cancel(timers.get(i * 4));
+        }
+        double cancelNanos = (System.nanoTime() - start) / (double) cancels;
+
+        int[] expired = new int[1];
+        int wakeups = 0;
+        start = System.nanoTime();
+        long next;
+        while ((next = wheel.nextDeadline()) != TimerWheel.NO_DEADLINE) {
+            wheel.advanceTo(next, payload -> expired[0]++);
+            wakeups++;
+        }
+        double expireNanos = (System.nanoTime() - start) / (double) expired[0];
+
+        // PriorityQueue baseline (cancel = remove(Object), a linear scan)
+        start = System.nanoTime();
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        for (int i = 0; i < count; i++) {
+            queue.add(deadlines[i]);
+        }
+        double queueInsertNanos = (System.nanoTime() - start) / (double) count;
+        int queueCancels = 1_000;
+        start = System.nanoTime();
+        for (int i = 0; i < queueCancels; i++) {
+            queue.remove(deadlines[i * 4]);
+        }
+        double queueCancelNanos = (System.nanoTime() - start) / (double) queueCancels;
+
+        String bytesPerTimer = allocated > 0 ? String.valueOf(allocated / count) : "n/a";
+        System.out.println(String.format(
+                "[timer wheel x%d] insert=%.0fns (%.1fM/s) cancel=%.0fns (%.1fM/s) expire+next alarm=%.0fns (%.1fM/s) "
+                        + "wakeups=%d bytes/timer=%s | PriorityQueue insert=%.0fns cancel=%.0fns",
+                count, insertNanos, 1000 / insertNanos, cancelNanos, 1000 / cancelNanos,
+                expireNanos, 1000 / expireNanos, wakeups, bytesPerTimer,
+                queueInsertNanos, queueCancelNanos));
+
+        assertEquals(count - cancels, expired[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    // Bytes allocated by this thread so far (HotSpot only), or 0 if unsupported
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0L;
+    }
+}